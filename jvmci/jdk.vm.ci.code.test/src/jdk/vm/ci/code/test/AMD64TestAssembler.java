@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.code.test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import jdk.vm.ci.amd64.AMD64;
+import jdk.vm.ci.amd64.AMD64Kind;
+import jdk.vm.ci.code.Architecture;
+import jdk.vm.ci.code.DebugInfo;
+import jdk.vm.ci.code.Location;
+import jdk.vm.ci.code.Register;
+import jdk.vm.ci.code.RegisterValue;
+import jdk.vm.ci.code.StackSlot;
+import jdk.vm.ci.code.site.Call;
+import jdk.vm.ci.code.site.ConstantReference;
+import jdk.vm.ci.code.site.DataPatch;
+import jdk.vm.ci.code.site.Infopoint;
+import jdk.vm.ci.code.site.InfopointReason;
+import jdk.vm.ci.code.site.Mark;
+import jdk.vm.ci.code.site.Site;
+import jdk.vm.ci.hotspot.HotSpotCompiledCode.Comment;
+import jdk.vm.ci.hotspot.HotSpotCompiledNmethod;
+import jdk.vm.ci.hotspot.HotSpotForeignCallTarget;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.hotspot.HotSpotObjectConstant;
+import jdk.vm.ci.hotspot.HotSpotReferenceMap;
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.hotspot.HotSpotVMConfigAccess;
+import jdk.vm.ci.meta.Assumptions.Assumption;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.runtime.JVMCICompiler;
+
+/**
+ * Emits the AMD64 machine code of the methods installed by {@link DebugInfoTest}. The code has a
+ * fixed size frame, loads values into registers and stack slots and then traps with an implicit
+ * exception that deoptimizes the frame.
+ */
+public final class AMD64TestAssembler {
+
+    /**
+     * The size of the frame including the return address and the saved {@code rbp}.
+     */
+    private static final int FRAME_SIZE = 64;
+
+    public static final TestValueKind DWORD = new TestValueKind(AMD64Kind.DWORD);
+    public static final TestValueKind QWORD = new TestValueKind(AMD64Kind.QWORD);
+
+    private final ByteBuffer code = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+    private final List<Site> sites = new ArrayList<>();
+    private final List<DataPatch> dataPatches = new ArrayList<>();
+    private final List<Location> objects = new ArrayList<>();
+    private final Map<String, Long> constants;
+    private final long deoptBlobUnpack;
+
+    /**
+     * The deoptimization rescue slot is at offset 0 so stack slots are allocated above it.
+     */
+    private int nextStackSlot = 8;
+
+    public AMD64TestAssembler() {
+        HotSpotVMConfigAccess config = new HotSpotVMConfigAccess(HotSpotJVMCIRuntime.runtime().getConfigStore());
+        constants = config.getStore().getConstants();
+        deoptBlobUnpack = config.getFieldValue("CompilerToVM::Data::SharedRuntime_deopt_blob_unpack", Long.class, "address");
+    }
+
+    private Mark mark(String name) {
+        return new Mark(code.position(), constants.get("CodeInstaller::" + name).intValue());
+    }
+
+    private void emitRex(boolean wide, Register reg) {
+        int rex = (wide ? 0x48 : 0x40) | (reg.encoding >> 3);
+        if (rex != 0x40) {
+            code.put((byte) rex);
+        }
+    }
+
+    public void emitPrologue() {
+        sites.add(mark("UNVERIFIED_ENTRY"));
+        sites.add(mark("VERIFIED_ENTRY"));
+        // The verified entry must start with an instruction of at least 5 bytes so that
+        // NativeJump::patch_verified_entry can patch it. NOP DWORD ptr [EAX + EAX*1 + 00H]
+        code.put(new byte[]{0x0F, 0x1F, 0x44, 0x00, 0x00});
+        // PUSH rbp
+        code.put((byte) 0x55);
+        // MOV rbp, rsp
+        code.put(new byte[]{0x48, (byte) 0x89, (byte) 0xE5});
+        // SUB rsp, FRAME_SIZE - 16
+        code.put(new byte[]{0x48, (byte) 0x81, (byte) 0xEC});
+        code.putInt(FRAME_SIZE - 16);
+    }
+
+    /**
+     * MOV reg, value.
+     */
+    public RegisterValue emitLoadInt(Register reg, int value) {
+        emitRex(false, reg);
+        code.put((byte) (0xB8 | (reg.encoding & 7)));
+        code.putInt(value);
+        return reg.asValue(DWORD);
+    }
+
+    /**
+     * MOV reg, value.
+     */
+    public RegisterValue emitLoadLong(Register reg, long value) {
+        emitRex(true, reg);
+        code.put((byte) (0xB8 | (reg.encoding & 7)));
+        code.putLong(value);
+        return reg.asValue(QWORD);
+    }
+
+    /**
+     * MOV reg, object. The register is recorded as holding a reference at the trap.
+     */
+    public RegisterValue emitLoadPointer(Register reg, HotSpotObjectConstant object) {
+        dataPatches.add(new DataPatch(code.position(), new ConstantReference(object)));
+        emitLoadLong(reg, 0xDEADDEADDEADDEADL);
+        objects.add(Location.register(reg));
+        return reg.asValue(QWORD);
+    }
+
+    private StackSlot emitStore(boolean wide, Register reg, TestValueKind kind) {
+        int offset = nextStackSlot;
+        nextStackSlot += 8;
+        if (nextStackSlot > FRAME_SIZE - 16) {
+            throw new IllegalStateException("out of stack slots");
+        }
+        // MOV [rsp + offset], reg
+        emitRex(wide, reg);
+        code.put((byte) 0x89);
+        code.put((byte) (0x84 | ((reg.encoding & 7) << 3)));
+        code.put((byte) 0x24);
+        code.putInt(offset);
+        return StackSlot.get(kind, offset, false);
+    }
+
+    public StackSlot emitIntToStack(Register reg) {
+        return emitStore(false, reg, DWORD);
+    }
+
+    public StackSlot emitLongToStack(Register reg) {
+        return emitStore(true, reg, QWORD);
+    }
+
+    /**
+     * Reads from address 0. The resulting implicit exception deoptimizes the frame using
+     * {@code info} as its state.
+     */
+    public void emitTrap(DebugInfo info) {
+        info.setReferenceMap(new HotSpotReferenceMap(objects.toArray(new Location[0]), new Location[objects.size()], sizes(objects.size()), 8));
+        sites.add(new Infopoint(code.position(), info, InfopointReason.IMPLICIT_EXCEPTION));
+        // MOV rax, [0]
+        code.put(new byte[]{0x48, (byte) 0x8B, 0x04, 0x25});
+        code.putInt(0);
+    }
+
+    private static int[] sizes(int count) {
+        int[] sizes = new int[count];
+        Arrays.fill(sizes, 8);
+        return sizes;
+    }
+
+    public void emitEpilogue() {
+        sites.add(mark("DEOPT_HANDLER_ENTRY"));
+        sites.add(new Call(new HotSpotForeignCallTarget(deoptBlobUnpack), code.position(), 5, true, null));
+        // CALL rel32
+        code.put((byte) 0xE8);
+        code.putInt(0xDEADDEAD);
+    }
+
+    public HotSpotCompiledNmethod finish(HotSpotResolvedJavaMethod method, ResolvedJavaMethod... inlined) {
+        byte[] bytes = Arrays.copyOf(code.array(), code.position());
+        ResolvedJavaMethod[] methods = new ResolvedJavaMethod[inlined.length + 1];
+        methods[0] = method;
+        System.arraycopy(inlined, 0, methods, 1, inlined.length);
+        return new HotSpotCompiledNmethod(method.getName(), bytes, bytes.length, sites.toArray(new Site[sites.size()]), new Assumption[0], methods, new Comment[0], new byte[0], 1,
+                        dataPatches.toArray(new DataPatch[dataPatches.size()]), false, FRAME_SIZE, StackSlot.get(QWORD, 0, false), method, JVMCICompiler.INVOCATION_ENTRY_BCI, -1, 0L,
+                        false);
+    }
+
+    static boolean isSupported(Architecture arch) {
+        return arch instanceof AMD64;
+    }
+}
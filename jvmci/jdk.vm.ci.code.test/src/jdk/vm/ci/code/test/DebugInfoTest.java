@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.code.test;
+
+import java.lang.reflect.Method;
+
+import org.junit.Assume;
+import org.junit.Before;
+
+import jdk.vm.ci.code.BytecodeFrame;
+import jdk.vm.ci.code.CodeCacheProvider;
+import jdk.vm.ci.code.DebugInfo;
+import jdk.vm.ci.code.InstalledCode;
+import jdk.vm.ci.hotspot.HotSpotConstantReflectionProvider;
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.JavaValue;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.runtime.JVMCI;
+import jdk.vm.ci.runtime.JVMCIBackend;
+
+/**
+ * Base class for tests that install code whose debug info describes a frame state and then
+ * deoptimize through it. The installed code traps with an implicit exception right after loading
+ * the values of the frame state, the VM deoptimizes the frame and the interpreter resumes at the
+ * described bytecode with the described values. The value returned by the method therefore shows
+ * how the VM decoded the debug info.
+ *
+ * Run with {@code -Djvmci.EncodeDebugInfo=true} to have the debug info passed to the VM as a byte
+ * stream instead of being read from the {@link DebugInfo} objects.
+ */
+public abstract class DebugInfoTest {
+
+    protected final MetaAccessProvider metaAccess;
+    protected final CodeCacheProvider codeCache;
+    protected final HotSpotConstantReflectionProvider constantReflection;
+
+    protected DebugInfoTest() {
+        JVMCIBackend backend = JVMCI.getRuntime().getHostJVMCIBackend();
+        metaAccess = backend.getMetaAccess();
+        codeCache = backend.getCodeCache();
+        constantReflection = (HotSpotConstantReflectionProvider) backend.getConstantReflection();
+    }
+
+    @Before
+    public void checkArchitecture() {
+        Assume.assumeTrue("no test assembler for " + codeCache.getTarget().arch.getName(), AMD64TestAssembler.isSupported(codeCache.getTarget().arch));
+    }
+
+    protected interface DebugInfoCompiler {
+        /**
+         * Emits the code that loads the values of the frame state and returns the debug info
+         * describing the frame state.
+         */
+        DebugInfo compile(AMD64TestAssembler asm, ResolvedJavaMethod method);
+    }
+
+    protected ResolvedJavaMethod getMethod(String name, Class<?>... parameterTypes) {
+        try {
+            Method method = getClass().getDeclaredMethod(name, parameterTypes);
+            return metaAccess.lookupJavaMethod(method);
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    protected static BytecodeFrame frame(BytecodeFrame caller, ResolvedJavaMethod method, int bci, boolean duringCall, JavaValue[] values, JavaKind[] slotKinds, int numLocals, int numStack) {
+        return new BytecodeFrame(caller, method, bci, false, duringCall, values, slotKinds, numLocals, numStack, 0);
+    }
+
+    /**
+     * Installs the code emitted by {@code compiler} for {@code method} and executes it.
+     *
+     * @param inlined the methods of the callee frames described by the debug info
+     */
+    protected Object execute(ResolvedJavaMethod method, DebugInfoCompiler compiler, ResolvedJavaMethod[] inlined, Object... args) throws Exception {
+        AMD64TestAssembler asm = new AMD64TestAssembler();
+        asm.emitPrologue();
+        asm.emitTrap(compiler.compile(asm, method));
+        asm.emitEpilogue();
+        InstalledCode installed = codeCache.addCode(method, asm.finish((HotSpotResolvedJavaMethod) method, inlined), null, null);
+        try {
+            return installed.executeVarargs(args);
+        } finally {
+            installed.invalidate();
+        }
+    }
+
+    protected Object execute(ResolvedJavaMethod method, DebugInfoCompiler compiler, Object... args) throws Exception {
+        return execute(method, compiler, new ResolvedJavaMethod[0], args);
+    }
+}
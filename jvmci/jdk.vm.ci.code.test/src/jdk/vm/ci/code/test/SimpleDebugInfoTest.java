@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.code.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.amd64.AMD64;
+import jdk.vm.ci.code.BytecodeFrame;
+import jdk.vm.ci.code.DebugInfo;
+import jdk.vm.ci.hotspot.HotSpotObjectConstant;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.JavaValue;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.Value;
+
+/**
+ * Tests primitive and object values held in constants, registers and stack slots by the debug info
+ * of installed code.
+ */
+public class SimpleDebugInfoTest extends DebugInfoTest {
+
+    /**
+     * Describes the values of a frame state in terms of code emitted by {@link AMD64TestAssembler}.
+     */
+    private interface ValueCompiler {
+        JavaValue compile(AMD64TestAssembler asm);
+    }
+
+    public static int intOnStack() {
+        return 42;
+    }
+
+    public static int intInLocal(int a) {
+        return a;
+    }
+
+    public static long longOnStack() {
+        return 42L;
+    }
+
+    public static double doubleOnStack() {
+        return 42.0D;
+    }
+
+    public static Object objectOnStack() {
+        return null;
+    }
+
+    public static int inner() {
+        return 42;
+    }
+
+    public static int outer() {
+        return inner() + 1;
+    }
+
+    /**
+     * Executes {@code method} with the single value of its frame state on the expression stack in
+     * front of the return bytecode at {@code bci}.
+     */
+    private Object executeOnStack(ResolvedJavaMethod method, int bci, JavaKind kind, ValueCompiler value) throws Exception {
+        return execute(method, (asm, m) -> {
+            JavaValue v = value.compile(asm);
+            JavaValue[] values = kind.needsTwoSlots() ? new JavaValue[]{v, Value.ILLEGAL} : new JavaValue[]{v};
+            JavaKind[] slotKinds = kind.needsTwoSlots() ? new JavaKind[]{kind, JavaKind.Illegal} : new JavaKind[]{kind};
+            return new DebugInfo(frame(null, m, bci, false, values, slotKinds, m.getMaxLocals(), values.length));
+        });
+    }
+
+    @Test
+    public void testIntConstant() throws Exception {
+        Object result = executeOnStack(getMethod("intOnStack"), 2, JavaKind.Int, asm -> JavaConstant.forInt(1234));
+        Assert.assertEquals(1234, result);
+    }
+
+    @Test
+    public void testIntInRegister() throws Exception {
+        Object result = executeOnStack(getMethod("intOnStack"), 2, JavaKind.Int, asm -> asm.emitLoadInt(AMD64.r10, -1234));
+        Assert.assertEquals(-1234, result);
+    }
+
+    @Test
+    public void testIntInStackSlot() throws Exception {
+        Object result = executeOnStack(getMethod("intOnStack"), 2, JavaKind.Int, asm -> asm.emitIntToStack(asm.emitLoadInt(AMD64.r10, 5678).getRegister()));
+        Assert.assertEquals(5678, result);
+    }
+
+    @Test
+    public void testIntInLocal() throws Exception {
+        Object result = execute(getMethod("intInLocal", int.class), (asm, m) -> {
+            JavaValue[] values = {asm.emitLoadInt(AMD64.rcx, 91011)};
+            return new DebugInfo(frame(null, m, 0, false, values, new JavaKind[]{JavaKind.Int}, 1, 0));
+        }, 0);
+        Assert.assertEquals(91011, result);
+    }
+
+    @Test
+    public void testLongConstant() throws Exception {
+        Object result = executeOnStack(getMethod("longOnStack"), 3, JavaKind.Long, asm -> JavaConstant.forLong(0x123456789AL));
+        Assert.assertEquals(0x123456789AL, result);
+    }
+
+    @Test
+    public void testLongInRegister() throws Exception {
+        Object result = executeOnStack(getMethod("longOnStack"), 3, JavaKind.Long, asm -> asm.emitLoadLong(AMD64.r9, -0x123456789AL));
+        Assert.assertEquals(-0x123456789AL, result);
+    }
+
+    @Test
+    public void testLongInStackSlot() throws Exception {
+        Object result = executeOnStack(getMethod("longOnStack"), 3, JavaKind.Long, asm -> asm.emitLongToStack(asm.emitLoadLong(AMD64.r9, Long.MIN_VALUE + 1).getRegister()));
+        Assert.assertEquals(Long.MIN_VALUE + 1, result);
+    }
+
+    @Test
+    public void testDoubleConstant() throws Exception {
+        Object result = executeOnStack(getMethod("doubleOnStack"), 3, JavaKind.Double, asm -> JavaConstant.forDouble(-0.5D));
+        Assert.assertEquals(-0.5D, result);
+    }
+
+    @Test
+    public void testObjectConstant() throws Exception {
+        String expected = "object constant";
+        Object result = executeOnStack(getMethod("objectOnStack"), 1, JavaKind.Object, asm -> constantReflection.forObject(expected));
+        Assert.assertSame(expected, result);
+    }
+
+    @Test
+    public void testObjectInRegister() throws Exception {
+        String expected = "object in register";
+        Object result = executeOnStack(getMethod("objectOnStack"), 1, JavaKind.Object, asm -> asm.emitLoadPointer(AMD64.r8, (HotSpotObjectConstant) constantReflection.forObject(expected)));
+        Assert.assertSame(expected, result);
+    }
+
+    @Test
+    public void testNullConstant() throws Exception {
+        Object result = executeOnStack(getMethod("intOnStack"), 2, JavaKind.Int, asm -> JavaConstant.INT_0);
+        Assert.assertEquals(0, result);
+        Assert.assertNull(executeOnStack(getMethod("objectOnStack"), 1, JavaKind.Object, asm -> JavaConstant.NULL_POINTER));
+    }
+
+    /**
+     * Deoptimizes a frame of {@link #inner()} inlined into {@link #outer()} so that the interpreter
+     * returns the value on the stack of the inner frame to the outer frame.
+     */
+    @Test
+    public void testInlinedFrame() throws Exception {
+        ResolvedJavaMethod inner = getMethod("inner");
+        Object result = execute(getMethod("outer"), (asm, m) -> {
+            BytecodeFrame caller = frame(null, m, 0, true, new JavaValue[0], new JavaKind[0], 0, 0);
+            JavaValue[] values = {asm.emitLoadInt(AMD64.rdi, 99)};
+            return new DebugInfo(frame(caller, inner, 2, false, values, new JavaKind[]{JavaKind.Int}, 0, 1));
+        }, new ResolvedJavaMethod[]{inner});
+        Assert.assertEquals(100, result);
+    }
+}
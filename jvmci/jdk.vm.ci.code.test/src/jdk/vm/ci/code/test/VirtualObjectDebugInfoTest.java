@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.code.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.amd64.AMD64;
+import jdk.vm.ci.code.DebugInfo;
+import jdk.vm.ci.code.VirtualObject;
+import jdk.vm.ci.code.test.VirtualObjectTestBase.SimpleObject;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.JavaValue;
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * Tests that virtual objects described by the debug info of installed code are materialized when
+ * the frame is deoptimized.
+ */
+public class VirtualObjectDebugInfoTest extends DebugInfoTest {
+
+    public static Object objectOnStack() {
+        return null;
+    }
+
+    private Object executeWithVirtualObject(VirtualObject vobj) throws Exception {
+        return execute(getMethod("objectOnStack"), (asm, m) -> {
+            JavaValue[] values = {vobj};
+            return new DebugInfo(frame(null, m, 1, false, values, new JavaKind[]{JavaKind.Object}, m.getMaxLocals(), 1), new VirtualObject[]{vobj});
+        });
+    }
+
+    @Test
+    public void testInstance() throws Exception {
+        ResolvedJavaType type = metaAccess.lookupJavaType(SimpleObject.class);
+        ResolvedJavaField[] fields = type.getInstanceFields(true);
+        JavaValue[] values = new JavaValue[fields.length];
+        JavaKind[] slotKinds = new JavaKind[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = JavaConstant.forInt(fieldValue(fields[i]));
+            slotKinds[i] = JavaKind.Int;
+        }
+        VirtualObject vobj = VirtualObject.get(type, 0);
+        vobj.setValues(values, slotKinds);
+
+        SimpleObject result = (SimpleObject) executeWithVirtualObject(vobj);
+        Assert.assertEquals(10, result.i1);
+        Assert.assertEquals(20, result.i2);
+        Assert.assertEquals(30, result.i3);
+        Assert.assertEquals(40, result.i4);
+        Assert.assertEquals(50, result.i5);
+        Assert.assertEquals(60, result.i6);
+    }
+
+    private static int fieldValue(ResolvedJavaField field) {
+        return Integer.parseInt(field.getName().substring(1)) * 10;
+    }
+
+    @Test
+    public void testArray() throws Exception {
+        ResolvedJavaType type = metaAccess.lookupJavaType(long[].class);
+        VirtualObject vobj = VirtualObject.get(type, 0);
+        vobj.setValues(new JavaValue[]{JavaConstant.forLong(1), JavaConstant.forLong(-2), JavaConstant.forLong(Long.MAX_VALUE)}, new JavaKind[]{JavaKind.Long, JavaKind.Long, JavaKind.Long});
+
+        Assert.assertArrayEquals(new long[]{1, -2, Long.MAX_VALUE}, (long[]) executeWithVirtualObject(vobj));
+    }
+
+    /**
+     * Tests a virtual object whose fields are loaded into registers and one that references it.
+     */
+    @Test
+    public void testNested() throws Exception {
+        ResolvedJavaType arrayType = metaAccess.lookupJavaType(Object[].class);
+        ResolvedJavaType intArrayType = metaAccess.lookupJavaType(int[].class);
+        VirtualObject inner = VirtualObject.get(intArrayType, 1);
+        VirtualObject outer = VirtualObject.get(arrayType, 0);
+        Object[] result = (Object[]) execute(getMethod("objectOnStack"), (asm, m) -> {
+            inner.setValues(new JavaValue[]{asm.emitLoadInt(AMD64.rcx, 7), asm.emitLoadInt(AMD64.rdx, 8)}, new JavaKind[]{JavaKind.Int, JavaKind.Int});
+            outer.setValues(new JavaValue[]{inner, inner, JavaConstant.NULL_POINTER}, new JavaKind[]{JavaKind.Object, JavaKind.Object, JavaKind.Object});
+            JavaValue[] values = {outer};
+            return new DebugInfo(frame(null, m, 1, false, values, new JavaKind[]{JavaKind.Object}, m.getMaxLocals(), 1), new VirtualObject[]{outer, inner});
+        });
+        Assert.assertEquals(3, result.length);
+        Assert.assertArrayEquals(new int[]{7, 8}, (int[]) result[0]);
+        Assert.assertSame(result[0], result[1]);
+        Assert.assertNull(result[2]);
+    }
+}
@@ -45,4 +45,46 @@ public interface StackIntrospection {
      *         should stop), or null if the whole stack was iterated.
      */
     <T> T iterateFrames(ResolvedJavaMethod[] initialMethods, ResolvedJavaMethod[] matchingMethods, int initialSkip, InspectedFrameVisitor<T> visitor);
+
+    /**
+     * Walks the current stack like {@link #iterateFrames(ResolvedJavaMethod[], ResolvedJavaMethod[],
+     * int, InspectedFrameVisitor)} but visits at most {@code maxFrames} frames. Implementations may
+     * retrieve the frames from the VM in batches of up to {@code batchSize} frames and defer
+     * decoding the locals of a frame until {@link InspectedFrame#getLocal},
+     * {@link InspectedFrame#isVirtual} or {@link InspectedFrame#hasVirtualObjects} is first called
+     * on it. Visitors that only need {@link InspectedFrame#getMethod()} and
+     * {@link InspectedFrame#getBytecodeIndex()} thus avoid the cost of decoding the state of
+     * compiled frames.
+     *
+     * @param maxFrames the maximum number of matching frames to visit
+     * @param batchSize the number of frames to retrieve from the VM at a time
+     * @return the last result returned by the visitor (which is non-null to indicate that iteration
+     *         should stop), or null if the whole stack was iterated or {@code maxFrames} frames were
+     *         visited
+     * @throws IllegalArgumentException if {@code batchSize <= 0}
+     */
+    default <T> T iterateFrames(ResolvedJavaMethod[] initialMethods, ResolvedJavaMethod[] matchingMethods, int initialSkip, int maxFrames, int batchSize, InspectedFrameVisitor<T> visitor) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batch size must be positive: " + batchSize);
+        }
+        if (maxFrames <= 0) {
+            return null;
+        }
+        // A visitor result that stops the walk once maxFrames frames have been visited
+        Object maxFramesReached = new Object();
+        int[] remaining = {maxFrames};
+        Object result = iterateFrames(initialMethods, matchingMethods, initialSkip, (InspectedFrameVisitor<Object>) frame -> {
+            T visitorResult = visitor.visitFrame(frame);
+            if (visitorResult == null && --remaining[0] == 0) {
+                return maxFramesReached;
+            }
+            return visitorResult;
+        });
+        if (result == maxFramesReached) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        T typedResult = (T) result;
+        return typedResult;
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import jdk.vm.ci.code.BytecodeFrame;
+import jdk.vm.ci.code.CodeCacheProvider;
+import jdk.vm.ci.code.DebugInfo;
+import jdk.vm.ci.code.InstalledCode;
+import jdk.vm.ci.code.Location;
+import jdk.vm.ci.code.StackSlot;
+import jdk.vm.ci.code.site.DataPatch;
+import jdk.vm.ci.code.site.Infopoint;
+import jdk.vm.ci.code.site.InfopointReason;
+import jdk.vm.ci.code.site.Mark;
+import jdk.vm.ci.code.site.Site;
+import jdk.vm.ci.hotspot.HotSpotCompiledCode.Comment;
+import jdk.vm.ci.hotspot.HotSpotCompiledNmethod;
+import jdk.vm.ci.hotspot.HotSpotReferenceMap;
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.meta.Assumptions.Assumption;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.JavaValue;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ValueKind;
+import jdk.vm.ci.runtime.JVMCICompiler;
+
+/**
+ * Measures the time to install an nmethod with many safepoints, each described by a chain of
+ * inlined frames. The {@code installEncoded} variant runs with {@code jvmci.EncodeDebugInfo} set so
+ * that the debug info is passed to the VM as a byte stream instead of being read from the
+ * {@link DebugInfo} objects. The machine code itself is never executed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodeInstallBenchmark extends JVMCIBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class CodeState {
+        @Param({"100", "1000"}) int infopointCount;
+        @Param({"4"}) int inliningDepth;
+
+        CodeCacheProvider codeCache;
+        HotSpotResolvedJavaMethod method;
+        HotSpotCompiledNmethod compiledCode;
+
+        @Setup
+        public void setup() throws Exception {
+            codeCache = getBackend().getCodeCache();
+            method = (HotSpotResolvedJavaMethod) getMetaAccess().lookupJavaMethod(CodeInstallBenchmark.class.getDeclaredMethod("target", int.class, int.class, int.class, int.class,
+                            int.class, int.class, int.class, int.class));
+            Map<String, Long> constants = runtime().getConfigStore().getConstants();
+
+            int codeSize = 16 + infopointCount * 8;
+            List<Site> sites = new ArrayList<>();
+            sites.add(new Mark(0, mark(constants, "UNVERIFIED_ENTRY")));
+            sites.add(new Mark(0, mark(constants, "VERIFIED_ENTRY")));
+            for (int i = 0; i < infopointCount; i++) {
+                DebugInfo debugInfo = new DebugInfo(frames(method, inliningDepth, i));
+                debugInfo.setReferenceMap(new HotSpotReferenceMap(new Location[0], new Location[0], new int[0], 8));
+                sites.add(new Infopoint(8 + i * 8, debugInfo, InfopointReason.SAFEPOINT));
+            }
+            sites.add(new Mark(codeSize - 8, mark(constants, "EXCEPTION_HANDLER_ENTRY")));
+            sites.add(new Mark(codeSize - 4, mark(constants, "DEOPT_HANDLER_ENTRY")));
+
+            compiledCode = new HotSpotCompiledNmethod("CodeInstallBenchmark", new byte[codeSize], codeSize, sites.toArray(new Site[sites.size()]), new Assumption[0],
+                            new ResolvedJavaMethod[]{method}, new Comment[0], new byte[0], 1, new DataPatch[0], false, 16, StackSlot.get(ValueKind.Illegal, 0, true), method,
+                            JVMCICompiler.INVOCATION_ENTRY_BCI, -1, 0L, false);
+        }
+    }
+
+    private static int mark(Map<String, Long> constants, String name) {
+        return constants.get("CodeInstaller::" + name).intValue();
+    }
+
+    private static BytecodeFrame frames(ResolvedJavaMethod method, int depth, int seed) {
+        int numLocals = method.getMaxLocals();
+        BytecodeFrame frame = null;
+        for (int d = 0; d < depth; d++) {
+            JavaValue[] values = new JavaValue[numLocals];
+            JavaKind[] slotKinds = new JavaKind[numLocals];
+            for (int i = 0; i < numLocals; i++) {
+                values[i] = JavaConstant.forInt(seed * numLocals + i);
+                slotKinds[i] = JavaKind.Int;
+            }
+            frame = new BytecodeFrame(frame, method, 0, false, false, values, slotKinds, numLocals, 0, 0);
+        }
+        return frame;
+    }
+
+    @SuppressWarnings("unused")
+    private static int target(int a, int b, int c, int d, int e, int f, int g, int h) {
+        return a + b + c + d + e + f + g + h;
+    }
+
+    private static void install(CodeState s) {
+        InstalledCode code = s.codeCache.addCode(s.method, s.compiledCode, null, null);
+        code.invalidate();
+    }
+
+    @Benchmark
+    public void installFromObjects(CodeState s) {
+        install(s);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-XX:+UnlockExperimentalVMOptions", "-XX:+EnableJVMCI", "-XX:-UseJVMCICompiler", "-Djvmci.EncodeDebugInfo=true"})
+    public void installEncoded(CodeState s) {
+        install(s);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.jmh;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jdk.vm.ci.hotspot.HotSpotConstantPool;
+import jdk.vm.ci.meta.JavaType;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * Compares looking up every {@code JVM_CONSTANT_Class} entry of a large constant pool one entry
+ * at a time against looking them all up with {@link HotSpotConstantPool#lookupTypes(int[])}.
+ */
+public class ConstantPoolLookupBenchmark extends JVMCIBenchmark {
+
+    private static final int CONSTANT_Utf8 = 1;
+    private static final int CONSTANT_Long = 5;
+    private static final int CONSTANT_Double = 6;
+    private static final int CONSTANT_Class = 7;
+    private static final int CONSTANT_String = 8;
+    private static final int CONSTANT_MethodHandle = 15;
+    private static final int CONSTANT_MethodType = 16;
+
+    @State(Scope.Benchmark)
+    public static class ConstantPoolState {
+        @Param({"java.lang.Class", "java.util.Collections", "java.util.concurrent.ConcurrentHashMap"}) String className;
+
+        HotSpotConstantPool constantPool;
+        int[] classEntries;
+
+        @Setup
+        public void setup() throws Exception {
+            Class<?> c = Class.forName(className);
+            ResolvedJavaType type = getMetaAccess().lookupJavaType(c);
+            constantPool = (HotSpotConstantPool) type.getDeclaredMethods()[0].getConstantPool();
+            classEntries = readClassEntries(c);
+        }
+    }
+
+    /**
+     * Gets the indexes of the {@code CONSTANT_Class} entries in the class file of {@code c}. The
+     * VM preserves class file constant pool indexes so these are also valid indexes into the
+     * runtime constant pool.
+     */
+    static int[] readClassEntries(Class<?> c) throws IOException {
+        String resource = "/" + c.getName().replace('.', '/') + ".class";
+        try (InputStream in = c.getResourceAsStream(resource)) {
+            DataInputStream data = new DataInputStream(in);
+            data.readInt(); // magic
+            data.readUnsignedShort(); // minor_version
+            data.readUnsignedShort(); // major_version
+            int count = data.readUnsignedShort();
+            int[] entries = new int[count];
+            int length = 0;
+            for (int i = 1; i < count; i++) {
+                int tag = data.readUnsignedByte();
+                switch (tag) {
+                    case CONSTANT_Utf8:
+                        data.skipBytes(data.readUnsignedShort());
+                        break;
+                    case CONSTANT_Class:
+                        entries[length++] = i;
+                        data.skipBytes(2);
+                        break;
+                    case CONSTANT_Long:
+                    case CONSTANT_Double:
+                        data.skipBytes(8);
+                        i++;
+                        break;
+                    case CONSTANT_MethodHandle:
+                        data.skipBytes(3);
+                        break;
+                    case CONSTANT_String:
+                    case CONSTANT_MethodType:
+                        data.skipBytes(2);
+                        break;
+                    default:
+                        // Integer, Float, Fieldref, Methodref, InterfaceMethodref, NameAndType
+                        // and InvokeDynamic entries are all 4 bytes long
+                        data.skipBytes(4);
+                        break;
+                }
+            }
+            return Arrays.copyOf(entries, length);
+        }
+    }
+
+    @Benchmark
+    public void lookupTypePerEntry(ConstantPoolState state, Blackhole blackhole) {
+        HotSpotConstantPool constantPool = state.constantPool;
+        for (int cpi : state.classEntries) {
+            blackhole.consume(constantPool.lookupType(cpi, -1));
+        }
+    }
+
+    @Benchmark
+    public JavaType[] lookupTypesBatched(ConstantPoolState state) {
+        return state.constantPool.lookupTypes(state.classEntries);
+    }
+}
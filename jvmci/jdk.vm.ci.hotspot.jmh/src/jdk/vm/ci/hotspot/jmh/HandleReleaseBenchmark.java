@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares releasing the {@code jobject} handles of a cleaner pass one VM transition per handle
+ * against releasing them in batches of 256 as {@code HandleCleaner} does. The sampled times are
+ * the stalls seen by the thread processing the cleaners.
+ *
+ * Each invocation releases {@code handleCount} live handles created before the invocation with
+ * {@code CompilerToVM.createGlobalHandlesForTesting}. No other path creates {@code jobject}
+ * handles when JVMCI runs on the HotSpot heap.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-XX:+UnlockExperimentalVMOptions", "-XX:+EnableJVMCI", "-XX:-UseJVMCICompiler", "-XX:+UnlockDiagnosticVMOptions"})
+public class HandleReleaseBenchmark extends JVMCIBenchmark {
+
+    private static final int RELEASE_BATCH_SIZE = 256;
+
+    @State(Scope.Benchmark)
+    public static class HandleState {
+        @Param({"1000", "10000"}) int handleCount;
+
+        MethodHandle createGlobalHandles;
+        MethodHandle deleteGlobalHandle;
+        MethodHandle deleteGlobalHandles;
+        final Object referent = new Object();
+        long[] handles;
+        long[] batch;
+
+        @Setup
+        public void setup() throws Exception {
+            Class<?> c = Class.forName("jdk.vm.ci.hotspot.CompilerToVM");
+            Method compilerToVMMethod = c.getDeclaredMethod("compilerToVM");
+            Method createGlobalHandlesMethod = c.getDeclaredMethod("createGlobalHandlesForTesting", Object.class, long[].class, int.class);
+            Method deleteGlobalHandleMethod = c.getDeclaredMethod("deleteGlobalHandle", long.class);
+            Method deleteGlobalHandlesMethod = c.getDeclaredMethod("deleteGlobalHandles", long[].class, int.class);
+            compilerToVMMethod.setAccessible(true);
+            createGlobalHandlesMethod.setAccessible(true);
+            deleteGlobalHandleMethod.setAccessible(true);
+            deleteGlobalHandlesMethod.setAccessible(true);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Object compilerToVM = compilerToVMMethod.invoke(null);
+            createGlobalHandles = lookup.unreflect(createGlobalHandlesMethod).bindTo(compilerToVM);
+            deleteGlobalHandle = lookup.unreflect(deleteGlobalHandleMethod).bindTo(compilerToVM);
+            deleteGlobalHandles = lookup.unreflect(deleteGlobalHandlesMethod).bindTo(compilerToVM);
+            handles = new long[handleCount];
+            batch = new long[RELEASE_BATCH_SIZE];
+        }
+
+        @Setup(Level.Invocation)
+        public void createHandles() throws Throwable {
+            createGlobalHandles.invoke(referent, handles, handleCount);
+        }
+
+        /**
+         * Releases any handles an invocation did not release.
+         */
+        @TearDown(Level.Invocation)
+        public void releaseHandles() throws Throwable {
+            deleteGlobalHandles.invoke(handles, handleCount);
+            Arrays.fill(handles, 0L);
+        }
+    }
+
+    @Benchmark
+    public void releaseEach(HandleState s) throws Throwable {
+        long[] handles = s.handles;
+        for (int i = 0; i < handles.length; i++) {
+            s.deleteGlobalHandle.invoke(handles[i]);
+            handles[i] = 0;
+        }
+    }
+
+    /**
+     * Queues the handles in a fixed size buffer and releases the buffer whenever it is full, as
+     * {@code HandleCleaner} does.
+     */
+    @Benchmark
+    public void releaseBatched(HandleState s) throws Throwable {
+        long[] handles = s.handles;
+        long[] batch = s.batch;
+        int pending = 0;
+        for (int i = 0; i < handles.length; i++) {
+            batch[pending++] = handles[i];
+            handles[i] = 0;
+            if (pending == RELEASE_BATCH_SIZE) {
+                s.deleteGlobalHandles.invoke(batch, pending);
+                pending = 0;
+            }
+        }
+        if (pending != 0) {
+            s.deleteGlobalHandles.invoke(batch, pending);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.jmh;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jdk.vm.ci.meta.LineNumberTable;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Measures line number lookups. The lookup benchmarks map every bci of a line number table with
+ * {@code entryCount} entries to its line, once with {@link LineNumberTable#getLineNumber(int)} and
+ * once with the linear search it used before. The {@code getLineNumberTable} benchmark gets the
+ * line number table of every method of {@link String}, which after the first iteration
+ * decodes the table cached by each method instead of reading it from the VM.
+ */
+public class LineNumberTableBenchmark extends JVMCIBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TableState {
+        @Param({"100", "1000", "10000"}) int entryCount;
+
+        LineNumberTable table;
+        int[] bcis;
+        int[] lines;
+        int[] queries;
+
+        @Setup
+        public void setup() {
+            Random random = new Random(42);
+            bcis = new int[entryCount];
+            lines = new int[entryCount];
+            int bci = 0;
+            for (int i = 0; i < entryCount; i++) {
+                bcis[i] = bci;
+                lines[i] = i + 1;
+                bci += 1 + random.nextInt(8);
+            }
+            table = new LineNumberTable(lines.clone(), bcis.clone());
+            queries = new int[1024];
+            for (int i = 0; i < queries.length; i++) {
+                queries[i] = random.nextInt(bci);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class MethodState {
+        ResolvedJavaMethod[] methods;
+
+        @Setup
+        public void setup() {
+            methods = getMetaAccess().lookupJavaType(String.class).getDeclaredMethods();
+        }
+    }
+
+    /**
+     * The search done by {@link LineNumberTable#getLineNumber(int)} before it used a binary search.
+     */
+    private static int linearLineNumber(int[] bcis, int[] lines, int atBci) {
+        for (int i = 0; i < bcis.length - 1; i++) {
+            if (bcis[i] <= atBci && atBci < bcis[i + 1]) {
+                return lines[i];
+            }
+        }
+        return lines[lines.length - 1];
+    }
+
+    @Benchmark
+    public void lookupLinear(TableState s, Blackhole blackhole) {
+        for (int bci : s.queries) {
+            blackhole.consume(linearLineNumber(s.bcis, s.lines, bci));
+        }
+    }
+
+    @Benchmark
+    public void lookupBinary(TableState s, Blackhole blackhole) {
+        for (int bci : s.queries) {
+            blackhole.consume(s.table.getLineNumber(bci));
+        }
+    }
+
+    @Benchmark
+    public void getLineNumberTable(MethodState s, Blackhole blackhole) {
+        for (ResolvedJavaMethod method : s.methods) {
+            blackhole.consume(method.getLineNumberTable());
+        }
+    }
+}
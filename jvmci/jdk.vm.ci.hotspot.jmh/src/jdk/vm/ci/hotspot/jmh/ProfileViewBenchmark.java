@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jdk.vm.ci.hotspot.HotSpotItemProfile;
+import jdk.vm.ci.hotspot.HotSpotItemProfileProvider;
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.hotspot.HotSpotResolvedObjectType;
+import jdk.vm.ci.meta.JavaMethodProfile;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Compares reading the receiver type and call target profiles of a megamorphic call site as
+ * {@link JavaTypeProfile} and {@link JavaMethodProfile} objects against reading them through
+ * {@link HotSpotItemProfileProvider}. Each invocation models one compilation that queries the same
+ * call site {@code queryCount} times. The profile is collected by the VM in the forked benchmark
+ * VM so the queries read a real {@code MethodData}. Run with {@code -prof gc} to see the
+ * allocation per compilation.
+ */
+public class ProfileViewBenchmark extends JVMCIBenchmark {
+
+    /**
+     * The BCI of the {@code invokevirtual} in {@link #callSite}.
+     */
+    private static final int CALL_SITE_BCI = 1;
+
+    abstract static class Shape {
+        abstract int sides();
+    }
+
+    static final class Triangle extends Shape {
+        @Override
+        int sides() {
+            return 3;
+        }
+    }
+
+    static final class Square extends Shape {
+        @Override
+        int sides() {
+            return 4;
+        }
+    }
+
+    static final class Pentagon extends Shape {
+        @Override
+        int sides() {
+            return 5;
+        }
+    }
+
+    static int callSite(Shape shape) {
+        return shape.sides();
+    }
+
+    @State(Scope.Benchmark)
+    public static class ProfileState {
+        @Param({"1", "10"}) int queryCount;
+
+        ResolvedJavaMethod method;
+
+        @Setup
+        public void setup() throws Exception {
+            Shape[] shapes = {new Triangle(), new Square(), new Pentagon()};
+            int sum = 0;
+            for (int i = 0; i < 200_000; i++) {
+                sum += callSite(shapes[i % shapes.length]);
+            }
+            method = getMetaAccess().lookupJavaMethod(ProfileViewBenchmark.class.getDeclaredMethod("callSite", Shape.class));
+            if (!(profilingInfo() instanceof HotSpotItemProfileProvider)) {
+                throw new IllegalStateException("no MethodData for " + method + " after " + sum + " sides");
+            }
+        }
+
+        ProfilingInfo profilingInfo() {
+            ProfilingInfo info = method.getProfilingInfo();
+            info.setMature();
+            return info;
+        }
+    }
+
+    @Benchmark
+    public void javaProfiles(ProfileState s, Blackhole blackhole) {
+        ProfilingInfo info = s.profilingInfo();
+        for (int q = 0; q < s.queryCount; q++) {
+            JavaTypeProfile types = info.getTypeProfile(CALL_SITE_BCI);
+            if (types != null) {
+                for (JavaTypeProfile.ProfiledType type : types.getTypes()) {
+                    blackhole.consume(type.getType());
+                    blackhole.consume(type.getProbability());
+                }
+            }
+            JavaMethodProfile methods = info.getMethodProfile(CALL_SITE_BCI);
+            if (methods != null) {
+                for (JavaMethodProfile.ProfiledMethod m : methods.getMethods()) {
+                    blackhole.consume(m.getMethod());
+                    blackhole.consume(m.getProbability());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void profileViews(ProfileState s, Blackhole blackhole) {
+        HotSpotItemProfileProvider info = (HotSpotItemProfileProvider) s.profilingInfo();
+        for (int q = 0; q < s.queryCount; q++) {
+            HotSpotItemProfile<HotSpotResolvedObjectType> types = info.getTypeProfileView(CALL_SITE_BCI);
+            if (types != null) {
+                for (int i = 0; i < types.getEntryCount(); i++) {
+                    blackhole.consume(types.getItem(i));
+                    blackhole.consume(types.getProbability(i));
+                }
+            }
+            HotSpotItemProfile<HotSpotResolvedJavaMethod> methods = info.getMethodProfileView(CALL_SITE_BCI);
+            if (methods != null) {
+                for (int i = 0; i < methods.getEntryCount(); i++) {
+                    blackhole.consume(methods.getItem(i));
+                    blackhole.consume(methods.getProbability(i));
+                }
+            }
+        }
+    }
+}
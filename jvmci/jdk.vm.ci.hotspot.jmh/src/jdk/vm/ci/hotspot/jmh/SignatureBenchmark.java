@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.jmh;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jdk.vm.ci.hotspot.HotSpotSignature;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.meta.Signature;
+
+/**
+ * Measures getting the signatures of the methods declared by the classes used by the
+ * {@code MethodUniverse} runtime tests. {@code parseEach} creates a new {@link HotSpotSignature}
+ * for each descriptor as was done before signatures were interned while {@code parseInterned} gets
+ * them from {@link MetaAccessProvider#parseMethodDescriptor}.
+ */
+public class SignatureBenchmark extends JVMCIBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SignatureState {
+        String[] descriptors;
+
+        @Setup
+        public void setup() {
+            Class<?>[] classes = {Object.class, Class.class, ClassLoader.class, String.class, Serializable.class, Cloneable.class, List.class, Collection.class, Map.class, Queue.class,
+                            HashMap.class, LinkedHashMap.class, IdentityHashMap.class, AbstractCollection.class, AbstractList.class, ArrayList.class};
+            MetaAccessProvider metaAccess = getMetaAccess();
+            List<String> result = new ArrayList<>();
+            for (Class<?> c : classes) {
+                ResolvedJavaType type = metaAccess.lookupJavaType(c);
+                for (ResolvedJavaMethod m : type.getDeclaredMethods()) {
+                    result.add(m.getSignature().toMethodDescriptor());
+                }
+                for (ResolvedJavaMethod m : type.getDeclaredConstructors()) {
+                    result.add(m.getSignature().toMethodDescriptor());
+                }
+            }
+            descriptors = result.toArray(new String[result.size()]);
+        }
+    }
+
+    private static void consume(Signature signature, Blackhole blackhole) {
+        int count = signature.getParameterCount(false);
+        for (int i = 0; i < count; i++) {
+            blackhole.consume(signature.getParameterKind(i));
+        }
+        blackhole.consume(signature.getReturnKind());
+    }
+
+    @Benchmark
+    public void parseEach(SignatureState s, Blackhole blackhole) {
+        for (String descriptor : s.descriptors) {
+            consume(new HotSpotSignature(runtime(), descriptor), blackhole);
+        }
+    }
+
+    @Benchmark
+    public void parseInterned(SignatureState s, Blackhole blackhole) {
+        MetaAccessProvider metaAccess = getMetaAccess();
+        for (String descriptor : s.descriptors) {
+            consume(metaAccess.parseMethodDescriptor(descriptor), blackhole);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jdk.vm.ci.code.stack.InspectedFrame;
+import jdk.vm.ci.code.stack.StackIntrospection;
+
+/**
+ * Measures walking a stack of {@code depth} frames and reading the method and bci of each frame,
+ * once with the visitor based {@link StackIntrospection#iterateFrames} that decodes the locals of
+ * every frame and once with the batched variant that does not decode them.
+ */
+public class StackWalkBenchmark extends JVMCIBenchmark {
+
+    @State(Scope.Thread)
+    public static class WalkState {
+        @Param({"16", "64"}) int depth;
+        @Param({"32"}) int batchSize;
+
+        StackIntrospection stackIntrospection;
+
+        @Setup
+        public void setup() {
+            stackIntrospection = getBackend().getStackIntrospection();
+        }
+    }
+
+    private static long visit(InspectedFrame frame, long[] hash) {
+        hash[0] = hash[0] * 31 + frame.getMethod().hashCode() + frame.getBytecodeIndex();
+        return hash[0];
+    }
+
+    private static long walk(WalkState s, int depth, boolean batched) {
+        if (depth > 0) {
+            return walk(s, depth - 1, batched);
+        }
+        long[] hash = {0};
+        if (batched) {
+            s.stackIntrospection.iterateFrames(null, null, 0, Integer.MAX_VALUE, s.batchSize, frame -> {
+                visit(frame, hash);
+                return null;
+            });
+        } else {
+            s.stackIntrospection.iterateFrames(null, null, 0, frame -> {
+                visit(frame, hash);
+                return null;
+            });
+        }
+        return hash[0];
+    }
+
+    @Benchmark
+    public void iterateFrames(WalkState s, Blackhole blackhole) {
+        blackhole.consume(walk(s, s.depth, false));
+    }
+
+    @Benchmark
+    public void iterateFramesBatched(WalkState s, Blackhole blackhole) {
+        blackhole.consume(walk(s, s.depth, true));
+    }
+}
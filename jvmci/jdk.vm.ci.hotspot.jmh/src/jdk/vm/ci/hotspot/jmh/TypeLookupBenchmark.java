@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import jdk.vm.ci.hotspot.HotSpotResolvedObjectType;
+import jdk.vm.ci.meta.JavaType;
+
+/**
+ * Measures the throughput of resolving types by name from 1 to N concurrent threads. Each lookup
+ * transitions into the VM which then maps the resolved {@code Klass*} to its JVMCI mirror via
+ * {@code HotSpotJVMCIRuntime.fromMetaspace}.
+ */
+public class TypeLookupBenchmark extends JVMCIBenchmark {
+
+    private static final String[] NAMES = {
+                    "Ljava/lang/Object;",
+                    "Ljava/lang/String;",
+                    "Ljava/lang/Class;",
+                    "Ljava/lang/Integer;",
+                    "Ljava/lang/Thread;",
+                    "Ljava/lang/StringBuilder;",
+                    "Ljava/util/HashMap;",
+                    "Ljava/util/ArrayList;",
+                    "Ljava/util/Arrays;",
+                    "Ljava/util/Collections;",
+                    "[Ljava/lang/Object;",
+                    "[Ljava/lang/String;",
+    };
+
+    @State(Scope.Benchmark)
+    public static class AccessingType {
+        HotSpotResolvedObjectType type;
+
+        @Setup
+        public void setup() {
+            // java.* types are resolvable from the boot loader
+            type = (HotSpotResolvedObjectType) getMetaAccess().lookupJavaType(Object.class);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        String next() {
+            String name = NAMES[index];
+            index = (index + 1) % NAMES.length;
+            return name;
+        }
+    }
+
+    private static JavaType lookup(AccessingType accessingType, Cursor cursor) {
+        return runtime().lookupType(cursor.next(), accessingType.type, true);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public JavaType lookupType1Thread(AccessingType accessingType, Cursor cursor) {
+        return lookup(accessingType, cursor);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public JavaType lookupType2Threads(AccessingType accessingType, Cursor cursor) {
+        return lookup(accessingType, cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public JavaType lookupType4Threads(AccessingType accessingType, Cursor cursor) {
+        return lookup(accessingType, cursor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public JavaType lookupTypeMaxThreads(AccessingType accessingType, Cursor cursor) {
+        return lookup(accessingType, cursor);
+    }
+}
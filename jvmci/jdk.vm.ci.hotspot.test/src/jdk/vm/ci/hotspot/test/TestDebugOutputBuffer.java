@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotJVMCIMetrics;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+
+/**
+ * Tests the ring buffer through which unflushed debug output is passed to the VM. The runtime only
+ * creates the buffer if {@code -Djvmci.DebugOutputBufferSize} is specified.
+ */
+public class TestDebugOutputBuffer {
+
+    private final HotSpotJVMCIRuntime runtime = HotSpotJVMCIRuntime.runtime();
+
+    /**
+     * The capacity of the buffer created for the {@code jvmci.DebugOutputBufferSize} option.
+     */
+    private int capacity;
+
+    @Before
+    public void checkBuffer() {
+        String size = HotSpotJVMCIRuntime.Option.DebugOutputBufferSize.getString();
+        Assume.assumeTrue("requires -Djvmci.DebugOutputBufferSize", size != null && Integer.parseInt(size) > 0);
+        // Mirrors the rounding in DebugOutputBuffer.create
+        capacity = 4096;
+        while (capacity < Integer.parseInt(size)) {
+            capacity <<= 1;
+        }
+    }
+
+    private void write(byte[] bytes) {
+        Assert.assertEquals(0, runtime.writeDebugOutput(bytes, 0, bytes.length, false, true));
+    }
+
+    @Test
+    public void backPressureTest() throws Exception {
+        HotSpotJVMCIMetrics metrics = runtime.getMetrics();
+        runtime.getLogStream().flush();
+        long stalls = metrics.getDebugOutputStalls();
+        long droppedWrites = metrics.getDebugOutputDroppedWrites();
+        long droppedBytes = metrics.getDebugOutputDroppedBytes();
+
+        byte[] line = String.format("%s: %063d%n", TestDebugOutputBuffer.class.getSimpleName(), 0).getBytes(StandardCharsets.US_ASCII);
+        // Write just more than fits in the buffer between two periodic drains
+        for (int written = 0; written <= capacity; written += line.length) {
+            write(line);
+        }
+        Assert.assertTrue("writes must stall when the buffer is full", metrics.getDebugOutputStalls() > stalls);
+        // A stalled write waits for the VM to drain the buffer so nothing is dropped by a single writer
+        Assert.assertEquals(droppedWrites, metrics.getDebugOutputDroppedWrites());
+        Assert.assertEquals(droppedBytes, metrics.getDebugOutputDroppedBytes());
+
+        // A flush drains the buffer so that a write of half the capacity does not stall
+        runtime.getLogStream().flush();
+        stalls = metrics.getDebugOutputStalls();
+        byte[] half = new byte[capacity / 2 - 4];
+        Arrays.fill(half, (byte) '\n');
+        write(half);
+        Assert.assertEquals(stalls, metrics.getDebugOutputStalls());
+
+        // Writes larger than half the buffer are written directly and never stall
+        byte[] large = new byte[capacity / 2 + 1];
+        Arrays.fill(large, (byte) '\n');
+        write(large);
+        Assert.assertEquals(stalls, metrics.getDebugOutputStalls());
+        runtime.getLogStream().flush();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotAssumptionIndex;
+import jdk.vm.ci.hotspot.HotSpotAssumptionIndex.KindStatistics;
+import jdk.vm.ci.hotspot.HotSpotInstalledCode;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.hotspot.HotSpotNmethod;
+import jdk.vm.ci.meta.Assumptions.LeafType;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.runtime.JVMCI;
+
+public class TestHotSpotAssumptionIndex {
+
+    private static HotSpotAssumptionIndex getIndex() {
+        return HotSpotJVMCIRuntime.runtime().getAssumptionIndex();
+    }
+
+    @Test
+    public void testQueries() throws Exception {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaType type = metaAccess.lookupJavaType(CharSequence.class);
+        ResolvedJavaMethod method = metaAccess.lookupJavaMethod(CharSequence.class.getDeclaredMethod("length"));
+        List<HotSpotInstalledCode> typeDependents = getIndex().getDependents(type);
+        List<HotSpotInstalledCode> methodDependents = getIndex().getDependents(method);
+        for (HotSpotInstalledCode code : typeDependents) {
+            Assert.assertNotNull(code);
+        }
+        for (HotSpotInstalledCode code : methodDependents) {
+            Assert.assertNotNull(code);
+        }
+    }
+
+    private static final class Leaf {
+    }
+
+    private static void target() {
+    }
+
+    private static KindStatistics getStatistics(String kind) {
+        Map<String, KindStatistics> statistics = getIndex().getStatistics();
+        KindStatistics result = statistics.get(kind);
+        Assert.assertNotNull(kind + " not in " + statistics, result);
+        return result;
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaType leaf = metaAccess.lookupJavaType(Leaf.class);
+        ResolvedJavaMethod method = metaAccess.lookupJavaMethod(TestHotSpotAssumptionIndex.class.getDeclaredMethod("target"));
+        HotSpotNmethod code = TrivialCode.installNmethod(method, new LeafType(leaf));
+        Assert.assertTrue(code.isValid());
+        Assert.assertTrue(getIndex().getDependents(leaf).contains(code));
+        KindStatistics before = getStatistics(LeafType.class.getSimpleName());
+        Assert.assertTrue(before.toString(), before.getDependentCount() > 0);
+
+        code.invalidate();
+        Assert.assertFalse(getIndex().getDependents(leaf).contains(code));
+        KindStatistics after = getStatistics(LeafType.class.getSimpleName());
+        Assert.assertTrue(after.toString(), after.getInvalidationCount() > before.getInvalidationCount());
+    }
+
+    @Test
+    public void testStatistics() {
+        for (KindStatistics statistics : getIndex().getStatistics().values()) {
+            Assert.assertTrue(statistics.toString(), statistics.getDependentCount() >= 0);
+            Assert.assertTrue(statistics.toString(), statistics.getInvalidationCount() >= 0);
+            Assert.assertTrue(statistics.toString(), statistics.getDependentCount() > 0 || statistics.getInvalidationCount() > 0);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotCodeCacheProvider;
+import jdk.vm.ci.hotspot.HotSpotCodeCacheStatistics;
+import jdk.vm.ci.hotspot.HotSpotCodeCacheUsageListener;
+import jdk.vm.ci.runtime.JVMCI;
+
+public class TestHotSpotCodeCacheStatistics {
+
+    private static HotSpotCodeCacheProvider getCodeCache() {
+        return (HotSpotCodeCacheProvider) JVMCI.getRuntime().getHostJVMCIBackend().getCodeCache();
+    }
+
+    @Test
+    public void testStatistics() {
+        HotSpotCodeCacheStatistics stats = getCodeCache().getCodeCacheStatistics();
+        Assert.assertTrue(stats.toString(), stats.getReservedBytes() > 0);
+        Assert.assertTrue(stats.toString(), stats.getCommittedBytes() <= stats.getReservedBytes());
+        Assert.assertTrue(stats.toString(), stats.getUsedBytes() > 0);
+        Assert.assertEquals(stats.toString(), stats.getReservedBytes(), stats.getUsedBytes() + stats.getFreeBytes());
+        Assert.assertTrue(stats.toString(), stats.getNmethodCount() >= stats.getJVMCINmethodCount());
+        Assert.assertTrue(stats.toString(), stats.getJVMCINmethodBytes() <= stats.getUsedBytes());
+        Assert.assertTrue(stats.toString(), stats.getPressure() > 0D && stats.getPressure() <= 1D);
+    }
+
+    @Test
+    public void testPressure() {
+        double pressure = getCodeCache().getCodeCachePressure();
+        Assert.assertTrue(String.valueOf(pressure), pressure > 0D && pressure <= 1D);
+    }
+
+    @Test
+    public void testListenerRegistration() {
+        HotSpotCodeCacheProvider codeCache = getCodeCache();
+        HotSpotCodeCacheUsageListener listener = (threshold, rising, pressure) -> {
+        };
+        Assert.assertFalse(codeCache.removeCodeCacheUsageListener(listener));
+        codeCache.addCodeCacheUsageListener(listener, 0.9D, 0.5D);
+        Assert.assertTrue(codeCache.removeCodeCacheUsageListener(listener));
+        Assert.assertFalse(codeCache.removeCodeCacheUsageListener(listener));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoThresholds() {
+        getCodeCache().addCodeCacheUsageListener((threshold, rising, pressure) -> {
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThresholdOutOfRange() {
+        getCodeCache().addCodeCacheUsageListener((threshold, rising, pressure) -> {
+        }, 0.5D, 1.5D);
+    }
+}
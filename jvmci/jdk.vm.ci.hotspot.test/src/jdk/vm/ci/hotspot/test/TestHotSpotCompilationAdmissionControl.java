@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotCodeCacheProvider;
+import jdk.vm.ci.hotspot.HotSpotCompilationAdmissionControl;
+import jdk.vm.ci.hotspot.HotSpotCompilationListener;
+import jdk.vm.ci.hotspot.HotSpotCompilationRecord;
+import jdk.vm.ci.hotspot.HotSpotCompilationRequest;
+import jdk.vm.ci.hotspot.HotSpotCompilationRequestResult;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.runtime.JVMCI;
+
+public class TestHotSpotCompilationAdmissionControl {
+
+    private static HotSpotCompilationAdmissionControl newControl() {
+        return new HotSpotCompilationAdmissionControl((HotSpotCodeCacheProvider) JVMCI.getRuntime().getHostJVMCIBackend().getCodeCache());
+    }
+
+    private static HotSpotCompilationRequest newRequest() throws NoSuchMethodException {
+        HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess().lookupJavaMethod(
+                        TestHotSpotCompilationAdmissionControl.class.getDeclaredMethod("newRequest"));
+        return new HotSpotCompilationRequest(method, -1, 0L, 0);
+    }
+
+    @Test
+    public void testAdmitByDefault() throws Exception {
+        Assert.assertNull(newControl().admit(newRequest()));
+    }
+
+    @Test
+    public void testCodeCachePressure() throws Exception {
+        HotSpotCompilationAdmissionControl control = newControl();
+        control.setMaxCodeCachePressure(1D);
+        Assert.assertNull(control.admit(newRequest()));
+        control.setMaxCodeCachePressure(0D);
+        HotSpotCompilationRequestResult result = control.admit(newRequest());
+        Assert.assertNotNull(result);
+        Assert.assertTrue("pressure must defer", result.getRetry());
+        control.setMaxCodeCachePressure(Double.POSITIVE_INFINITY);
+        Assert.assertNull(control.admit(newRequest()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCodeCachePressure() {
+        newControl().setMaxCodeCachePressure(Double.NaN);
+    }
+
+    @Test
+    public void testExcludedClassLoaders() throws Exception {
+        HotSpotCompilationAdmissionControl control = newControl();
+        control.setExcludedClassLoaders(new ClassLoader() {
+        });
+        Assert.assertNull(control.admit(newRequest()));
+        control.setExcludedClassLoaders(TestHotSpotCompilationAdmissionControl.class.getClassLoader());
+        HotSpotCompilationRequestResult result = control.admit(newRequest());
+        Assert.assertNotNull(result);
+        Assert.assertTrue("excluded loaders must defer", result.getRetry());
+        control.setExcludedClassLoaders();
+        Assert.assertNull(control.admit(newRequest()));
+    }
+
+    /**
+     * Creates the record the runtime reports when {@code request} ends with {@code outcome}.
+     */
+    private static HotSpotCompilationRecord newRecord(HotSpotCompilationRequest request, HotSpotCompilationRecord.Outcome outcome) throws Exception {
+        Constructor<HotSpotCompilationRecord> constructor = HotSpotCompilationRecord.class.getDeclaredConstructor(HotSpotCompilationRequest.class, HotSpotCompilationRecord.Outcome.class, String.class, long.class,
+                        long.class, long.class);
+        constructor.setAccessible(true);
+        String failureMessage = outcome == HotSpotCompilationRecord.Outcome.SUCCEEDED ? null : "test failure";
+        return constructor.newInstance(request, outcome, failureMessage, 0L, 0L, 0L);
+    }
+
+    @Test
+    public void testMaxFailures() throws Exception {
+        HotSpotCompilationAdmissionControl control = newControl();
+        HotSpotCompilationRequest request = newRequest();
+        long windowMillis = 1000;
+        control.setMaxFailures(2, windowMillis, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        control.compilationFinished(newRecord(request, HotSpotCompilationRecord.Outcome.FAILED));
+        Assert.assertNull("one failure must not defer", control.admit(request));
+        control.compilationFinished(newRecord(request, HotSpotCompilationRecord.Outcome.FAILED));
+        HotSpotCompilationRequestResult result = control.admit(request);
+        if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(windowMillis)) {
+            Assert.assertNotNull("two failures within the window must defer", result);
+            Assert.assertTrue("failures must defer", result.getRetry());
+        }
+
+        // The deferral expires with the window
+        Thread.sleep(windowMillis + 100);
+        Assert.assertNull(control.admit(request));
+
+        // A failure after the window starts a new window
+        control.compilationFinished(newRecord(request, HotSpotCompilationRecord.Outcome.FAILED));
+        Assert.assertNull(control.admit(request));
+
+        // Success forgets the failures
+        control.compilationFinished(newRecord(request, HotSpotCompilationRecord.Outcome.SUCCEEDED));
+        control.compilationFinished(newRecord(request, HotSpotCompilationRecord.Outcome.FAILED));
+        Assert.assertNull(control.admit(request));
+    }
+
+    @Test
+    public void testListenerRegistration() {
+        HotSpotJVMCIRuntime runtime = (HotSpotJVMCIRuntime) JVMCI.getRuntime();
+        HotSpotCompilationListener listener = record -> {
+        };
+        Assert.assertFalse(runtime.removeCompilationListener(listener));
+        runtime.addCompilationListener(listener);
+        Assert.assertTrue(runtime.removeCompilationListener(listener));
+        Assert.assertFalse(runtime.removeCompilationListener(listener));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotConstantPool;
+import jdk.vm.ci.meta.JavaMethod;
+import jdk.vm.ci.meta.JavaType;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.runtime.JVMCI;
+
+/**
+ * Tests that the batched lookups of {@link HotSpotConstantPool} agree with the lookups of single
+ * entries.
+ */
+public class TestHotSpotConstantPool {
+
+    private static final int INVOKESTATIC = 184; // 0xB8
+
+    static class Linked {
+        static Object get() {
+            return "linked";
+        }
+    }
+
+    static class NeverLinked {
+        static Object get() {
+            return "never linked";
+        }
+    }
+
+    static Object callLinked() {
+        return Linked.get();
+    }
+
+    static Object callNeverLinked() {
+        return NeverLinked.get();
+    }
+
+    static Object callIdentityHashCode() {
+        return System.identityHashCode(null);
+    }
+
+    private static int beU2(byte[] data, int bci) {
+        return ((data[bci] & 0xff) << 8) | (data[bci + 1] & 0xff);
+    }
+
+    @Test
+    public void testLookupMethods() {
+        Assert.assertEquals("linked", callLinked());
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaType type = metaAccess.lookupJavaType(TestHotSpotConstantPool.class);
+        HotSpotConstantPool cp = null;
+        List<Integer> cpis = new ArrayList<>();
+        for (ResolvedJavaMethod m : type.getDeclaredMethods()) {
+            if (m.getName().startsWith("call")) {
+                byte[] code = m.getCode();
+                Assert.assertEquals(m.toString(), INVOKESTATIC, code[0] & 0xff);
+                cpis.add(beU2(code, 1));
+                cp = (HotSpotConstantPool) m.getConstantPool();
+            }
+        }
+        Assert.assertEquals(3, cpis.size());
+
+        int[] rawIndexes = new int[cpis.size()];
+        int[] opcodes = new int[cpis.size()];
+        for (int i = 0; i < rawIndexes.length; i++) {
+            rawIndexes[i] = cpis.get(i);
+            opcodes[i] = INVOKESTATIC;
+        }
+        JavaMethod[] methods = cp.lookupMethods(rawIndexes, opcodes);
+        Assert.assertEquals(rawIndexes.length, methods.length);
+        boolean sawLinked = false;
+        for (int i = 0; i < rawIndexes.length; i++) {
+            JavaMethod expected = cp.lookupMethod(rawIndexes[i], INVOKESTATIC);
+            Assert.assertEquals(expected, methods[i]);
+            Assert.assertEquals(expected.getSignature().toMethodDescriptor(), methods[i].getSignature().toMethodDescriptor());
+            JavaType holder = methods[i].getDeclaringClass();
+            if (holder.getName().equals("L" + Linked.class.getName().replace('.', '/') + ";")) {
+                Assert.assertTrue(methods[i].toString(), methods[i] instanceof ResolvedJavaMethod);
+                sawLinked = true;
+            }
+        }
+        Assert.assertTrue(sawLinked);
+        Assert.assertEquals(0, cp.lookupMethods(new int[0], new int[0]).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLookupMethodsLengthMismatch() {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaType type = metaAccess.lookupJavaType(TestHotSpotConstantPool.class);
+        HotSpotConstantPool cp = (HotSpotConstantPool) type.getDeclaredMethods()[0].getConstantPool();
+        cp.lookupMethods(new int[1], new int[0]);
+    }
+}
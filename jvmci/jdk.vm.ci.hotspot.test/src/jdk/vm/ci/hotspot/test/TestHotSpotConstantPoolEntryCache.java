@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.io.FileOutputStream;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.ProtectionDomain;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotJVMCIMetrics;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.meta.ConstantPool;
+import jdk.vm.ci.meta.JavaMethod;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.runtime.JVMCI;
+import jdk.vm.ci.runtime.test.RedefineClassTest;
+
+/**
+ * Tests the constant pool entry cache. The VM must be started with
+ * {@code -Djvmci.UseConstantPoolEntryCache=true} for these tests to run.
+ */
+public class TestHotSpotConstantPoolEntryCache {
+
+    private static final int INVOKESTATIC = 184; // 0xB8
+
+    static class Callee {
+        public static Object getName() {
+            return "foo";
+        }
+    }
+
+    static class Caller {
+        static Object callCallee() {
+            return Callee.getName();
+        }
+    }
+
+    public static class CalleeAgent {
+
+        public static void agentmain(@SuppressWarnings("unused") String args, Instrumentation inst) throws Exception {
+            if (inst.isRedefineClassesSupported() && inst.isRetransformClassesSupported()) {
+                ClassFileTransformer transformer = new CalleeTransformer();
+                inst.addTransformer(transformer, true);
+                try {
+                    inst.retransformClasses(Callee.class);
+                } finally {
+                    inst.removeTransformer(transformer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the first instance of the constant "foo" in the class file for {@link Callee} with
+     * "bar".
+     */
+    static class CalleeTransformer implements ClassFileTransformer {
+
+        @Override
+        public byte[] transform(ClassLoader cl, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer) throws IllegalClassFormatException {
+            if (Callee.class.equals(classBeingRedefined)) {
+                String cf = new String(classfileBuffer);
+                int i = cf.indexOf("foo");
+                Assert.assertTrue("cannot find \"foo\" constant in " + Callee.class.getSimpleName() + "'s class file", i > 0);
+                classfileBuffer[i] = 'b';
+                classfileBuffer[i + 1] = 'a';
+                classfileBuffer[i + 2] = 'r';
+            }
+            return classfileBuffer;
+        }
+    }
+
+    private static void redefineCallee() throws Exception {
+        Manifest manifest = new Manifest();
+        Attributes mainAttrs = manifest.getMainAttributes();
+        mainAttrs.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        mainAttrs.putValue("Agent-Class", CalleeAgent.class.getName());
+        mainAttrs.putValue("Can-Redefine-Classes", "true");
+        mainAttrs.putValue("Can-Retransform-Classes", "true");
+
+        Path jar = Files.createTempFile("calleeagent", ".jar");
+        try {
+            try (JarOutputStream jarStream = new JarOutputStream(new FileOutputStream(jar.toFile()), manifest)) {
+                RedefineClassTest.add(jarStream, CalleeAgent.class);
+                RedefineClassTest.add(jarStream, CalleeTransformer.class);
+            }
+            RedefineClassTest.loadAgent(jar);
+        } finally {
+            Files.deleteIfExists(jar);
+        }
+    }
+
+    private static HotSpotJVMCIMetrics metrics() {
+        return HotSpotJVMCIRuntime.runtime().getMetrics();
+    }
+
+    @Before
+    public void checkEnabled() {
+        Assume.assumeTrue("-Djvmci.UseConstantPoolEntryCache=true not specified", HotSpotJVMCIRuntime.Option.UseConstantPoolEntryCache.getBoolean());
+    }
+
+    @Test
+    public void testRepeatedLookup() throws Exception {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaMethod caller = metaAccess.lookupJavaMethod(Caller.class.getDeclaredMethod("callCallee"));
+        Caller.callCallee();
+        byte[] bytecode = caller.getCode();
+        Assert.assertEquals(INVOKESTATIC, bytecode[0] & 0xff);
+        int cpi = ((bytecode[1] & 0xff) << 8) | (bytecode[2] & 0xff);
+        ConstantPool cp = caller.getConstantPool();
+
+        JavaMethod first = cp.lookupMethod(cpi, INVOKESTATIC);
+        long hits = metrics().getConstantPoolEntryCacheHits();
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(first, cp.lookupMethod(cpi, INVOKESTATIC));
+        }
+        Assert.assertTrue(metrics().getConstantPoolEntryCacheHits() >= hits + 3);
+    }
+
+    @Test
+    public void testLookupAfterRedefinition() throws Exception {
+        RedefineClassTest.assumeManagementLibraryIsLoadable();
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaMethod caller = metaAccess.lookupJavaMethod(Caller.class.getDeclaredMethod("callCallee"));
+        byte[] bytecode = caller.getCode();
+        Assert.assertEquals(INVOKESTATIC, bytecode[0] & 0xff);
+        int cpi = ((bytecode[1] & 0xff) << 8) | (bytecode[2] & 0xff);
+        ConstantPool cp = caller.getConstantPool();
+
+        Assert.assertEquals("foo", Caller.callCallee());
+        JavaMethod before = cp.lookupMethod(cpi, INVOKESTATIC);
+        Assert.assertTrue(before.toString(), before instanceof ResolvedJavaMethod);
+        long hits = metrics().getConstantPoolEntryCacheHits();
+        Assert.assertEquals(before, cp.lookupMethod(cpi, INVOKESTATIC));
+        Assert.assertTrue(metrics().getConstantPoolEntryCacheHits() > hits);
+
+        redefineCallee();
+        Assert.assertEquals("bar", Caller.callCallee());
+
+        // The cached method was replaced by the redefinition so it must be looked up again
+        long misses = metrics().getConstantPoolEntryCacheMisses();
+        JavaMethod after = cp.lookupMethod(cpi, INVOKESTATIC);
+        Assert.assertTrue(metrics().getConstantPoolEntryCacheMisses() > misses);
+        Assert.assertNotEquals(before, after);
+
+        hits = metrics().getConstantPoolEntryCacheHits();
+        Assert.assertEquals(after, cp.lookupMethod(cpi, INVOKESTATIC));
+        Assert.assertTrue(metrics().getConstantPoolEntryCacheHits() > hits);
+    }
+}
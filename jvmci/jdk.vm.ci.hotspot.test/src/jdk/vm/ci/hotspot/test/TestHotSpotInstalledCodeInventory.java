@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotInstalledCode;
+import jdk.vm.ci.hotspot.HotSpotInstalledCodeInventory;
+import jdk.vm.ci.hotspot.HotSpotInstalledCodeInventory.Entry;
+import jdk.vm.ci.hotspot.HotSpotInstalledCodeInventory.HolderSummary;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.hotspot.HotSpotNmethod;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.runtime.JVMCI;
+
+public class TestHotSpotInstalledCodeInventory {
+
+    private static final String HOLDER = TestHotSpotInstalledCodeInventory.class.getName();
+
+    private static HotSpotInstalledCodeInventory getInventory() {
+        return HotSpotJVMCIRuntime.runtime().getInstalledCodeInventory();
+    }
+
+    private static void target() {
+    }
+
+    private static HotSpotNmethod installNmethod() throws Exception {
+        ResolvedJavaMethod method = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess().lookupJavaMethod(TestHotSpotInstalledCodeInventory.class.getDeclaredMethod("target"));
+        return TrivialCode.installNmethod(method);
+    }
+
+    private static Entry findEntry(HotSpotInstalledCode code) {
+        for (Entry entry : getInventory().getEntries()) {
+            if (entry.getInstalledCode() == code) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testSummary() throws Exception {
+        HotSpotNmethod code = installNmethod();
+        HolderSummary summary = getInventory().getSummaryByHolder().get(HOLDER);
+        Assert.assertNotNull(summary);
+        Assert.assertTrue(summary.toString(), summary.getValidCount() > 0);
+        Assert.assertTrue(summary.toString(), summary.getSize() >= code.getSize());
+        for (HolderSummary s : getInventory().getSummaryByHolder().values()) {
+            Assert.assertTrue(s.toString(), s.getCount() > 0);
+            Assert.assertTrue(s.toString(), s.getValidCount() <= s.getCount());
+            Assert.assertTrue(s.toString(), s.getCodeSize() <= s.getSize());
+        }
+    }
+
+    @Test
+    public void testEntries() throws Exception {
+        HotSpotNmethod code = installNmethod();
+        Entry entry = findEntry(code);
+        Assert.assertNotNull(entry);
+        Assert.assertTrue(entry.toString(), entry.isNmethod());
+        Assert.assertTrue(entry.toString(), entry.isValid());
+        Assert.assertEquals(HOLDER, entry.getHolder());
+        Assert.assertEquals("target()V", entry.getMethod());
+        Assert.assertEquals(code.getSize(), entry.getSize());
+        Assert.assertEquals(code.getCodeSize(), entry.getCodeSize());
+
+        code.invalidate();
+        entry = findEntry(code);
+        Assert.assertNotNull("invalid code is kept until it is freed", entry);
+        Assert.assertFalse(entry.toString(), entry.isValid());
+
+        for (Entry e : getInventory().getEntries()) {
+            Assert.assertEquals(e.toString(), e.isNmethod(), e.getMethod() != null);
+            Assert.assertTrue(e.toString(), e.getInstallTimeMillis() > 0);
+        }
+    }
+
+    @Test
+    public void testStubOutlivesMirror() {
+        String name = "TestHotSpotInstalledCodeInventory.stub." + System.nanoTime();
+        TrivialCode.installStub(name);
+        // The stub stays in the code cache after its mirror is reclaimed
+        System.gc();
+        int count = 0;
+        for (Entry entry : getInventory().getEntries()) {
+            if (name.equals(entry.getName())) {
+                Assert.assertFalse(entry.toString(), entry.isNmethod());
+                Assert.assertTrue(entry.toString(), entry.isValid());
+                Assert.assertNull(entry.getHolder());
+                count++;
+            }
+        }
+        Assert.assertEquals(1, count);
+    }
+
+    @Test
+    public void testDump() throws Exception {
+        HotSpotNmethod code = installNmethod();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        getInventory().dump(out);
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        Assert.assertEquals("kind,name,holder,method,size,codeSize,start,entryPoint,valid,installTimeMillis", lines[0]);
+        String prefix = String.format("nmethod,%s,%s,target()V,%d,%d,", code.getName(), HOLDER, code.getSize(), code.getCodeSize());
+        boolean found = false;
+        for (int i = 1; i < lines.length; i++) {
+            Assert.assertTrue(lines[i], lines[i].startsWith("nmethod,") || lines[i].startsWith("stub,"));
+            found |= lines[i].startsWith(prefix);
+        }
+        Assert.assertTrue(prefix, found);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotItemProfile;
+import jdk.vm.ci.hotspot.HotSpotItemProfileProvider;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.hotspot.HotSpotResolvedObjectType;
+import jdk.vm.ci.hotspot.HotSpotVMConfigAccess;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.meta.TriState;
+import jdk.vm.ci.runtime.JVMCI;
+
+public class TestHotSpotItemProfile {
+
+    /**
+     * The bci of the {@code invokeinterface} in {@link #profiled}.
+     */
+    private static final int INVOKE_BCI = 1;
+
+    static int profiled(CharSequence s) {
+        return s.length();
+    }
+
+    @Test
+    public void testReceiverTypeView() throws Exception {
+        HotSpotVMConfigAccess config = new HotSpotVMConfigAccess(HotSpotJVMCIRuntime.runtime().getConfigStore());
+        Assume.assumeTrue("fewer than 3 receiver types are profiled", config.getFlag("TypeProfileWidth", Integer.class) >= 3);
+
+        CharSequence[] values = {"s", new StringBuilder("sb"), new StringBuffer("sbf")};
+        for (int i = 0; i < 30000; i++) {
+            profiled(values[i % values.length]);
+        }
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaMethod method = metaAccess.lookupJavaMethod(TestHotSpotItemProfile.class.getDeclaredMethod("profiled", CharSequence.class));
+        ProfilingInfo info = method.getProfilingInfo();
+        Assume.assumeTrue("no MethodData", info instanceof HotSpotItemProfileProvider);
+        info.setMature();
+        HotSpotItemProfileProvider provider = (HotSpotItemProfileProvider) info;
+
+        HotSpotItemProfile<HotSpotResolvedObjectType> view = provider.getTypeProfileView(INVOKE_BCI);
+        Assert.assertNotNull(view);
+        Assert.assertEquals(TriState.FALSE, view.getNullSeen());
+        Assert.assertEquals(0, view.getNotRecordedProbability(), 0);
+        Assert.assertEquals(3, view.getEntryCount());
+        Set<ResolvedJavaType> types = new HashSet<>();
+        for (int i = 0; i < view.getEntryCount(); i++) {
+            types.add(view.getItem(i));
+            Assert.assertEquals(1.0 / 3, view.getProbability(i), 0.05);
+        }
+        Set<ResolvedJavaType> expected = new HashSet<>();
+        for (CharSequence value : values) {
+            expected.add(metaAccess.lookupJavaType(value.getClass()));
+        }
+        Assert.assertEquals(expected, types);
+        Assert.assertSame(view, provider.getTypeProfileView(INVOKE_BCI));
+
+        Assert.assertNull(provider.getTypeProfileView(info.getCodeSize()));
+    }
+}
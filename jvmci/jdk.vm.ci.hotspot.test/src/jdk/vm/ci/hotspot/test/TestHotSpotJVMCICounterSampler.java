@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotJVMCICounterSampler;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.runtime.JVMCI;
+import sun.management.counter.Counter;
+import sun.management.counter.perf.PerfInstrumentation;
+import sun.misc.Perf;
+
+public class TestHotSpotJVMCICounterSampler {
+
+    private static HotSpotJVMCIRuntime runtime() {
+        return (HotSpotJVMCIRuntime) JVMCI.getRuntime();
+    }
+
+    @Test
+    public void testSample() {
+        HotSpotJVMCICounterSampler sampler = runtime().getCounterSampler();
+        HotSpotJVMCICounterSampler.Snapshot first = sampler.sample();
+        HotSpotJVMCICounterSampler.Snapshot second = sampler.sample();
+        Assert.assertSame(second, sampler.getLastSnapshot());
+        Assert.assertEquals(runtime().getCountersSize(), second.getCounterCount());
+        Assert.assertTrue(second.getNanoTime() >= first.getNanoTime());
+        if (!sampler.isRunning()) {
+            // A periodic sample could otherwise be taken in between
+            for (int i = 0; i < second.getCounterCount(); i++) {
+                Assert.assertEquals(second.getValue(i) - first.getValue(i), second.getDelta(i));
+            }
+        }
+    }
+
+    @Test
+    public void testRegisterCounterName() {
+        HotSpotJVMCICounterSampler sampler = runtime().getCounterSampler();
+        int index = 1000;
+        sampler.registerCounterName(index, "test.counter_1000");
+        // Registering the same name again is allowed
+        sampler.registerCounterName(index, "test.counter_1000");
+        Assert.assertEquals("test.counter_1000", sampler.getCounterNames()[index]);
+        try {
+            sampler.registerCounterName(index, "test.other");
+            Assert.fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCounterName() {
+        runtime().getCounterSampler().registerCounterName(1001, "not a name");
+    }
+
+    @Test
+    public void testStartStop() {
+        HotSpotJVMCICounterSampler sampler = runtime().getCounterSampler();
+        boolean wasRunning = sampler.isRunning();
+        if (!wasRunning) {
+            sampler.start(10, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(sampler.isRunning());
+            try {
+                sampler.start(10, TimeUnit.MILLISECONDS);
+                Assert.fail("expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            sampler.stop();
+            Assert.assertFalse(sampler.isRunning());
+        }
+    }
+
+    /**
+     * Reads the PerfData entry named {@code name} of this VM.
+     */
+    private static long readPerfData(String name) throws Exception {
+        ByteBuffer buffer = Perf.getPerf().attach(0, "r");
+        List<Counter> counters = new PerfInstrumentation(buffer).findByPattern(Pattern.quote(name) + "$");
+        Assert.assertEquals(name, 1, counters.size());
+        return (Long) counters.get(0).getValue();
+    }
+
+    /**
+     * Checks that a named counter is published as PerfData. This requires the VM to be run with
+     * {@code -XX:JVMCICounterSize} greater than 0.
+     */
+    @Test
+    public void testPublishedAsPerfData() throws Exception {
+        int size = runtime().getCountersSize();
+        Assume.assumeTrue("no JVMCI counters", size > 0);
+        HotSpotJVMCICounterSampler sampler = runtime().getCounterSampler();
+        Assume.assumeTrue("sampler is running", !sampler.isRunning());
+
+        int index = size - 1;
+        String name = "test.perf_data_" + index;
+        sampler.registerCounterName(index, name);
+        sampler.sample();
+        HotSpotJVMCICounterSampler.Snapshot snapshot = sampler.sample();
+
+        Assert.assertEquals(snapshot.getValue(index), readPerfData("sun.ci.jvmci.counters." + name));
+        Assert.assertEquals(snapshot.getDelta(index), readPerfData("sun.ci.jvmci.counters." + name + ".delta"));
+    }
+}
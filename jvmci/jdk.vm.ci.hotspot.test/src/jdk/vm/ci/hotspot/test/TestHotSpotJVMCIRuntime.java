@@ -30,6 +30,7 @@ import java.util.function.Predicate;
 import org.junit.Assert;
 import org.junit.Test;
 
+import jdk.vm.ci.hotspot.HotSpotJVMCIMetrics;
 import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
 import jdk.vm.ci.meta.MetaAccessProvider;
 import jdk.vm.ci.meta.ResolvedJavaType;
@@ -79,6 +80,28 @@ public class TestHotSpotJVMCIRuntime {
         }
     }
 
+    @Test
+    public void getMetricsTest() {
+        HotSpotJVMCIMetrics metrics = HotSpotJVMCIRuntime.runtime().getMetrics();
+        // Releases are read first since handles may be created and released concurrently
+        long released = metrics.getMetadataHandlesReleased();
+        Assert.assertTrue(released <= metrics.getMetadataHandlesCreated());
+        released = metrics.getObjectHandlesReleased();
+        Assert.assertTrue(released <= metrics.getObjectHandlesCreated());
+        // Handle arenas only exist in a JVMCI shared library where objects are referenced by handles
+        Assert.assertEquals(0, metrics.getHandleArenasReleased());
+        Assert.assertEquals(0, metrics.getHandleArenaHandles());
+        Assert.assertEquals(0, metrics.getMaxHandleArenaSize());
+        Assert.assertEquals(0, metrics.getLeakedHandles());
+        long droppedWrites = metrics.getDebugOutputDroppedWrites();
+        Assert.assertTrue(droppedWrites <= metrics.getDebugOutputDroppedBytes());
+        Assert.assertTrue(droppedWrites <= metrics.getDebugOutputStalls());
+        for (HotSpotJVMCIMetrics.CallCounter c : metrics.getCompilerToVMCalls()) {
+            Assert.assertTrue(c.toString(), c.getCount() > 0 && c.getMaxNanos() <= c.getTotalNanos());
+        }
+        Assert.assertNotNull(metrics.toString());
+    }
+
     @Test
     public void getIntrinsificationTrustPredicateTest() throws Exception {
         HotSpotJVMCIRuntime runtime = HotSpotJVMCIRuntime.runtime();
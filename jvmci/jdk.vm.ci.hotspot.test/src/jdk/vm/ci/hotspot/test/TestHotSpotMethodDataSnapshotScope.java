@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotMethodDataSnapshotScope;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.runtime.JVMCI;
+
+public class TestHotSpotMethodDataSnapshotScope {
+
+    static int profiled(int i) {
+        if (i > 0) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Summarizes the branch profile of {@code info}.
+     */
+    private static String branchProfile(ProfilingInfo info) {
+        StringBuilder sb = new StringBuilder();
+        for (int bci = 0; bci < info.getCodeSize(); bci++) {
+            sb.append(bci).append(':').append(info.getExecutionCount(bci)).append('/').append(info.getBranchTakenProbability(bci)).append(' ');
+        }
+        return sb.toString();
+    }
+
+    private static String liveBranchProfile(ResolvedJavaMethod method) throws InterruptedException {
+        // A thread without a scope reads the live MethodData
+        AtomicReference<String> result = new AtomicReference<>();
+        Thread reader = new Thread(() -> result.set(branchProfile(method.getProfilingInfo())));
+        reader.start();
+        reader.join();
+        return result.get();
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testSnapshotTakenOncePerScope() throws Exception {
+        for (int i = 0; i < 5000; i++) {
+            profiled(i % 2);
+        }
+        ResolvedJavaMethod method = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess().lookupJavaMethod(TestHotSpotMethodDataSnapshotScope.class.getDeclaredMethod("profiled", int.class));
+        Assume.assumeTrue("no MethodData", method.getProfilingInfo().getCodeSize() != 0 && method.getProfilingInfo().getExecutionCount(1) >= 0);
+
+        String before;
+        String after;
+        String live;
+        try (HotSpotMethodDataSnapshotScope scope = HotSpotMethodDataSnapshotScope.open()) {
+            before = branchProfile(method.getProfilingInfo());
+            for (int i = 0; i < 20000; i++) {
+                profiled(1);
+            }
+            live = liveBranchProfile(method);
+            after = branchProfile(method.getProfilingInfo());
+        }
+        // The MethodData stops being updated once the method is compiled
+        Assume.assumeTrue("MethodData not updated", !live.equals(before));
+        Assert.assertEquals(before, after);
+        Assert.assertEquals(live, branchProfile(method.getProfilingInfo()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCloseNonActive() {
+        try (HotSpotMethodDataSnapshotScope outer = HotSpotMethodDataSnapshotScope.open()) {
+            HotSpotMethodDataSnapshotScope inner = HotSpotMethodDataSnapshotScope.open();
+            try {
+                outer.close();
+            } finally {
+                inner.close();
+            }
+        }
+    }
+}
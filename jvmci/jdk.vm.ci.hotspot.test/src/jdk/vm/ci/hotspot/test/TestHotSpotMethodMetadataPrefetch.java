@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.meta.ExceptionHandler;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.runtime.JVMCI;
+
+public class TestHotSpotMethodMetadataPrefetch {
+
+    /**
+     * The methods of this class are only used by this test so their metadata is not read before
+     * it is prefetched.
+     */
+    static class Subject {
+        static int divide(int a, int b) {
+            try {
+                return a / b;
+            } catch (ArithmeticException e) {
+                return -1;
+            }
+        }
+
+        static int negate(int a) {
+            return -a;
+        }
+    }
+
+    private static HotSpotResolvedJavaMethod lookup(String name, Class<?>... parameterTypes) throws Exception {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        return (HotSpotResolvedJavaMethod) metaAccess.lookupJavaMethod(Subject.class.getDeclaredMethod(name, parameterTypes));
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        HotSpotResolvedJavaMethod divide = lookup("divide", int.class, int.class);
+        HotSpotResolvedJavaMethod negate = lookup("negate", int.class);
+        HotSpotResolvedJavaMethod.prefetchMetadata(divide, negate);
+
+        for (HotSpotResolvedJavaMethod method : new HotSpotResolvedJavaMethod[]{divide, negate}) {
+            // The first query uses the prefetched value and the second one queries the VM
+            for (int i = 0; i < 2; i++) {
+                Assert.assertTrue(method.toString(), method.canBeInlined());
+                Assert.assertFalse(method.toString(), method.shouldBeInlined());
+                Assert.assertFalse(method.toString(), method.hasNeverInlineDirective());
+            }
+            Assert.assertEquals(method.getCodeSize(), method.getCode().length);
+            Assert.assertNotNull(method.getLineNumberTable());
+        }
+
+        ExceptionHandler[] handlers = divide.getExceptionHandlers();
+        Assert.assertEquals(1, handlers.length);
+        Assert.assertEquals("ArithmeticException", handlers[0].getCatchType().toJavaName(false));
+        Assert.assertEquals(0, negate.getExceptionHandlers().length);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullMethod() throws Exception {
+        HotSpotResolvedJavaMethod.prefetchMetadata(lookup("negate", int.class), null);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import jdk.vm.ci.hotspot.HotSpotConstantPool;
+import jdk.vm.ci.hotspot.HotSpotReplayData;
+import jdk.vm.ci.hotspot.HotSpotReplayMetaAccessProvider;
+import jdk.vm.ci.hotspot.HotSpotReplayRecorder;
+import jdk.vm.ci.meta.ConstantPool;
+import jdk.vm.ci.meta.JavaType;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.runtime.JVMCI;
+
+public class TestHotSpotReplay {
+
+    private static final int CHECKCAST = 192;
+
+    static Object profiled(Object o) {
+        if (o instanceof String) {
+            return ((String) o).length();
+        }
+        return o;
+    }
+
+    static class LoadedAfterRecording {
+    }
+
+    static Object castToLoadedAfterRecording(Object o) {
+        return (LoadedAfterRecording) o;
+    }
+
+    private static int findOperand(ResolvedJavaMethod method, int opcode) {
+        byte[] code = method.getCode();
+        for (int bci = 0; bci < code.length; bci++) {
+            if ((code[bci] & 0xFF) == opcode) {
+                return ((code[bci + 1] & 0xFF) << 8) | (code[bci + 2] & 0xFF);
+            }
+        }
+        throw new AssertionError(method + " has no instruction with opcode " + opcode);
+    }
+
+    private static boolean isReplayed(ProfilingInfo info) {
+        return info.toString().startsWith("HotSpotReplayProfilingInfo");
+    }
+
+    private static HotSpotReplayData roundTrip(HotSpotReplayRecorder recorder) throws IOException {
+        return HotSpotReplayData.read(new ByteArrayInputStream(recorder.toByteArray()));
+    }
+
+    @Test
+    public void testProfileReplay() throws Exception {
+        for (int i = 0; i < 10000; i++) {
+            profiled(i % 2 == 0 ? "s" : Integer.valueOf(i));
+        }
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaMethod method = metaAccess.lookupJavaMethod(TestHotSpotReplay.class.getDeclaredMethod("profiled", Object.class));
+
+        HotSpotReplayRecorder recorder = HotSpotReplayRecorder.start();
+        ProfilingInfo recorded;
+        try {
+            recorded = method.getProfilingInfo();
+        } finally {
+            recorder.stop();
+        }
+
+        HotSpotReplayMetaAccessProvider replay = roundTrip(recorder).createMetaAccessProvider(metaAccess, TestHotSpotReplay.class.getClassLoader());
+        ProfilingInfo replayed = replay.getProfilingInfo(method);
+        Assert.assertEquals(recorded.getCodeSize(), replayed.getCodeSize());
+        Assert.assertEquals(recorded.isMature(), replayed.isMature());
+        for (int bci = 0; bci < recorded.getCodeSize(); bci++) {
+            Assert.assertEquals(recorded.getExecutionCount(bci), replayed.getExecutionCount(bci));
+            Assert.assertEquals(recorded.getBranchTakenProbability(bci), replayed.getBranchTakenProbability(bci), 0);
+            Assert.assertEquals(recorded.getExceptionSeen(bci), replayed.getExceptionSeen(bci));
+            Assert.assertEquals(recorded.getNullSeen(bci), replayed.getNullSeen(bci));
+            Assert.assertEquals(String.valueOf(recorded.getTypeProfile(bci)), String.valueOf(replayed.getTypeProfile(bci)));
+        }
+    }
+
+    /**
+     * Checks that an active provider serves recorded profiles through
+     * {@link ResolvedJavaMethod#getProfilingInfo(boolean, boolean)} and only for the include flags
+     * they were recorded with.
+     */
+    @Test
+    public void testActiveProfileReplay() throws Exception {
+        for (int i = 0; i < 10000; i++) {
+            profiled(i % 2 == 0 ? "s" : Integer.valueOf(i));
+        }
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaMethod method = metaAccess.lookupJavaMethod(TestHotSpotReplay.class.getDeclaredMethod("profiled", Object.class));
+
+        HotSpotReplayRecorder recorder = HotSpotReplayRecorder.start();
+        ProfilingInfo recorded;
+        try {
+            recorded = method.getProfilingInfo(true, false);
+        } finally {
+            recorder.stop();
+        }
+
+        HotSpotReplayMetaAccessProvider replay = roundTrip(recorder).createMetaAccessProvider(metaAccess, TestHotSpotReplay.class.getClassLoader());
+        replay.activate();
+        try {
+            ProfilingInfo replayed = method.getProfilingInfo(true, false);
+            Assert.assertTrue(replayed.toString(), isReplayed(replayed));
+            Assert.assertEquals(recorded.getCodeSize(), replayed.getCodeSize());
+            for (int bci = 0; bci < recorded.getCodeSize(); bci++) {
+                Assert.assertEquals(recorded.getExecutionCount(bci), replayed.getExecutionCount(bci));
+            }
+            Assert.assertFalse(isReplayed(method.getProfilingInfo(true, true)));
+            Assert.assertFalse(isReplayed(replay.getProfilingInfo(method)));
+        } finally {
+            replay.deactivate();
+        }
+        Assert.assertFalse(isReplayed(method.getProfilingInfo(true, false)));
+    }
+
+    /**
+     * Checks that an active provider serves recorded entries through {@link ConstantPool} lookups,
+     * even when the live entry has changed since it was recorded.
+     */
+    @Test
+    public void testActiveConstantPoolReplay() throws Exception {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaMethod method = metaAccess.lookupJavaMethod(TestHotSpotReplay.class.getDeclaredMethod("castToLoadedAfterRecording", Object.class));
+        HotSpotConstantPool cp = (HotSpotConstantPool) method.getConstantPool();
+        int cpi = findOperand(method, CHECKCAST);
+
+        HotSpotReplayRecorder recorder = HotSpotReplayRecorder.start();
+        JavaType recorded;
+        try {
+            recorded = cp.lookupType(cpi, CHECKCAST);
+        } finally {
+            recorder.stop();
+        }
+        Assume.assumeTrue("class was loaded before recording", !(recorded instanceof ResolvedJavaType));
+
+        Assert.assertNotNull(castToLoadedAfterRecording(new LoadedAfterRecording()));
+        Assert.assertTrue(cp.lookupType(cpi, CHECKCAST) instanceof ResolvedJavaType);
+
+        HotSpotReplayMetaAccessProvider replay = roundTrip(recorder).createMetaAccessProvider(metaAccess, TestHotSpotReplay.class.getClassLoader());
+        replay.activate();
+        try {
+            JavaType replayed = cp.lookupType(cpi, CHECKCAST);
+            Assert.assertFalse(replayed instanceof ResolvedJavaType);
+            Assert.assertEquals(recorded.getName(), replayed.getName());
+            Assert.assertFalse(cp.lookupTypes(new int[]{cpi})[0] instanceof ResolvedJavaType);
+        } finally {
+            replay.deactivate();
+        }
+        Assert.assertTrue(cp.lookupType(cpi, CHECKCAST) instanceof ResolvedJavaType);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDeactivateInactive() throws Exception {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        HotSpotReplayRecorder recorder = HotSpotReplayRecorder.start();
+        recorder.stop();
+        roundTrip(recorder).createMetaAccessProvider(metaAccess, TestHotSpotReplay.class.getClassLoader()).deactivate();
+    }
+
+    @Test
+    public void testConstantPoolReplay() throws Exception {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaMethod method = metaAccess.lookupJavaMethod(TestHotSpotReplay.class.getDeclaredMethod("profiled", Object.class));
+        ResolvedJavaType holder = method.getDeclaringClass();
+        ConstantPool cp = method.getConstantPool();
+        byte[] code = method.getCode();
+        int cpi = -1;
+        for (int bci = 0; bci < code.length; bci++) {
+            if ((code[bci] & 0xFF) == CHECKCAST) {
+                cpi = ((code[bci + 1] & 0xFF) << 8) | (code[bci + 2] & 0xFF);
+                break;
+            }
+        }
+        Assert.assertNotEquals(-1, cpi);
+
+        HotSpotReplayRecorder recorder = HotSpotReplayRecorder.start();
+        JavaType type;
+        try {
+            type = cp.lookupType(cpi, CHECKCAST);
+        } finally {
+            recorder.stop();
+        }
+
+        HotSpotReplayMetaAccessProvider replay = roundTrip(recorder).createMetaAccessProvider(metaAccess, TestHotSpotReplay.class.getClassLoader());
+        Assert.assertEquals(type, replay.lookupConstantPoolEntry(holder, cpi, CHECKCAST));
+        Assert.assertNull(replay.lookupConstantPoolEntry(holder, cpi + 1, CHECKCAST));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNestedStart() {
+        HotSpotReplayRecorder recorder = HotSpotReplayRecorder.start();
+        try {
+            HotSpotReplayRecorder.start();
+        } finally {
+            recorder.stop();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidMagic() throws IOException {
+        HotSpotReplayData.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 0, 1, 0}));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.meta.Signature;
+import jdk.vm.ci.runtime.JVMCI;
+
+public class TestHotSpotSignature {
+
+    private static final Class<?>[] CLASSES = {Object.class, String.class, HashMap.class, ArrayList.class, TestHotSpotSignature.class};
+
+    /**
+     * Checks that the (possibly shared) signatures of methods agree with reflection.
+     */
+    @Test
+    public void testMethodSignatures() {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        for (Class<?> c : CLASSES) {
+            for (Method m : c.getDeclaredMethods()) {
+                ResolvedJavaMethod method = metaAccess.lookupJavaMethod(m);
+                Signature signature = method.getSignature();
+                Class<?>[] parameterTypes = m.getParameterTypes();
+                Assert.assertEquals(m.toString(), parameterTypes.length, signature.getParameterCount(false));
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    Assert.assertEquals(m.toString(), JavaKind.fromJavaClass(parameterTypes[i]), signature.getParameterKind(i));
+                    Assert.assertEquals(m.toString(), metaAccess.lookupJavaType(parameterTypes[i]), signature.getParameterType(i, method.getDeclaringClass()));
+                }
+                Assert.assertEquals(m.toString(), metaAccess.lookupJavaType(m.getReturnType()), signature.getReturnType(method.getDeclaringClass()));
+                Assert.assertEquals(m.toString(), signature, metaAccess.parseMethodDescriptor(signature.toMethodDescriptor()));
+            }
+        }
+    }
+
+    @Test
+    public void testParseMethodDescriptor() {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        Signature signature = metaAccess.parseMethodDescriptor("(ILjava/lang/String;[J)Z");
+        Assert.assertEquals(3, signature.getParameterCount(false));
+        Assert.assertEquals(JavaKind.Int, signature.getParameterKind(0));
+        Assert.assertEquals(JavaKind.Object, signature.getParameterKind(1));
+        Assert.assertEquals(JavaKind.Object, signature.getParameterKind(2));
+        Assert.assertEquals(JavaKind.Boolean, signature.getReturnKind());
+        Assert.assertEquals(0, metaAccess.parseMethodDescriptor("()V").getParameterCount(false));
+    }
+
+    /**
+     * Checks that resolving the types of an interned signature does not resolve them in the
+     * signature shared through the global signature cache.
+     */
+    @Test
+    public void testSharedSignatureHoldsNoResolvedTypes() throws Exception {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaType accessingClass = metaAccess.lookupJavaType(TestHotSpotSignature.class);
+        String descriptor = "(Ljdk/vm/ci/hotspot/test/TestHotSpotSignature;)Ljdk/vm/ci/hotspot/test/TestHotSpotSignature;";
+        Signature first = metaAccess.parseMethodDescriptor(descriptor);
+        Assert.assertEquals(accessingClass, first.getParameterType(0, accessingClass));
+        Assert.assertEquals(accessingClass, first.getReturnType(accessingClass));
+
+        Signature second = metaAccess.parseMethodDescriptor(descriptor);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first, second);
+
+        Class<?> signatureClass = Class.forName("jdk.vm.ci.hotspot.HotSpotSignature");
+        Field parameterTypes = signatureClass.getDeclaredField("parameterTypes");
+        parameterTypes.setAccessible(true);
+        Field returnTypeCache = signatureClass.getDeclaredField("returnTypeCache");
+        returnTypeCache.setAccessible(true);
+        Assert.assertNull(parameterTypes.get(second));
+        Assert.assertNull(returnTypeCache.get(second));
+
+        Field byString = Class.forName("jdk.vm.ci.hotspot.SignatureCache").getDeclaredField("byString");
+        byString.setAccessible(true);
+        AtomicReferenceArray<?> cached = (AtomicReferenceArray<?>) byString.get(null);
+        for (int i = 0; i < cached.length(); i++) {
+            Object shared = cached.get(i);
+            if (shared != null) {
+                Assert.assertNull(shared.toString(), parameterTypes.get(shared));
+                Assert.assertNull(shared.toString(), returnTypeCache.get(shared));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDescriptor() {
+        JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess().parseMethodDescriptor("(Q)V");
+    }
+}
@@ -109,4 +109,20 @@ public class TestHotSpotSpeculationLog {
         Assert.assertFalse(log.maySpeculate(reason1));
         Assert.assertFalse(log.toString(), log.maySpeculate(reason2));
     }
+
+    @Test
+    public void testSpeculationIdentity() {
+        HotSpotSpeculationLog log = new HotSpotSpeculationLog();
+        DummyReason reason1 = new DummyReason("dummy1");
+        DummyReason reason2 = new DummyReason("dummy2");
+
+        HotSpotSpeculationLog.HotSpotSpeculation s1 = (HotSpotSpeculationLog.HotSpotSpeculation) log.speculate(reason1);
+        HotSpotSpeculationLog.HotSpotSpeculation s2 = (HotSpotSpeculationLog.HotSpotSpeculation) log.speculate(reason2);
+        HotSpotSpeculationLog.HotSpotSpeculation s1Again = (HotSpotSpeculationLog.HotSpotSpeculation) log.speculate(new DummyReason("dummy1"));
+
+        Assert.assertEquals(s1.getEncoding(), s1Again.getEncoding());
+        Assert.assertNotEquals(s1.getEncoding(), s2.getEncoding());
+        Assert.assertEquals(reason1, log.lookupSpeculation(s1.getEncoding()).getReason());
+        Assert.assertEquals(reason2, log.lookupSpeculation(s2.getEncoding()).getReason());
+    }
 }
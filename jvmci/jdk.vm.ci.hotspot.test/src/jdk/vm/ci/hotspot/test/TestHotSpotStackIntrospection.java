@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import jdk.vm.ci.code.stack.InspectedFrame;
+import jdk.vm.ci.code.stack.StackIntrospection;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.runtime.JVMCI;
+import jdk.vm.ci.runtime.JVMCIBackend;
+
+public class TestHotSpotStackIntrospection {
+
+    private static final int DEPTH = 10;
+
+    private static final StackIntrospection stackIntrospection;
+    private static final ResolvedJavaMethod recurse;
+    private static final ResolvedJavaMethod allocateBox;
+    private static final ResolvedJavaMethod useBox;
+
+    static {
+        JVMCIBackend backend = JVMCI.getRuntime().getHostJVMCIBackend();
+        stackIntrospection = backend.getStackIntrospection();
+        try {
+            recurse = backend.getMetaAccess().lookupJavaMethod(TestHotSpotStackIntrospection.class.getDeclaredMethod("recurse", int.class, Object.class, boolean.class, int.class, int.class));
+            allocateBox = backend.getMetaAccess().lookupJavaMethod(TestHotSpotStackIntrospection.class.getDeclaredMethod("allocateBox", int.class, boolean.class));
+            useBox = backend.getMetaAccess().lookupJavaMethod(TestHotSpotStackIntrospection.class.getDeclaredMethod("useBox", Box.class, boolean.class));
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Describes a visited frame by its method, bci and the object local in slot 1.
+     */
+    private static String describe(InspectedFrame frame, boolean withLocal) {
+        String description = frame.getMethod().format("%H.%n") + "@" + frame.getBytecodeIndex();
+        if (withLocal) {
+            description += " " + frame.getLocal(1);
+        }
+        return description;
+    }
+
+    private static List<String> recurse(int depth, Object marker, boolean withLocals, int maxFrames, int batchSize) {
+        if (depth > 0) {
+            return recurse(depth - 1, marker, withLocals, maxFrames, batchSize);
+        }
+        ResolvedJavaMethod[] methods = {recurse};
+        List<String> eager = new ArrayList<>();
+        stackIntrospection.iterateFrames(methods, methods, 0, frame -> {
+            eager.add(describe(frame, withLocals));
+            return eager.size() == maxFrames ? frame : null;
+        });
+        List<String> batched = new ArrayList<>();
+        Object result = stackIntrospection.iterateFrames(methods, methods, 0, maxFrames, batchSize, frame -> {
+            batched.add(describe(frame, withLocals));
+            return null;
+        });
+        Assert.assertNull(result);
+        Assert.assertEquals(eager, batched);
+        return batched;
+    }
+
+    @Test
+    public void testMethodsAndBcis() {
+        List<String> frames = recurse(DEPTH, "marker", false, Integer.MAX_VALUE, 4);
+        Assert.assertEquals(DEPTH + 1, frames.size());
+    }
+
+    @Test
+    public void testLocals() {
+        List<String> frames = recurse(DEPTH, "marker", true, Integer.MAX_VALUE, 3);
+        for (String frame : frames) {
+            Assert.assertTrue(frame, frame.endsWith(" marker"));
+        }
+    }
+
+    @Test
+    public void testMaxFrames() {
+        for (int maxFrames = 1; maxFrames <= DEPTH + 2; maxFrames++) {
+            List<String> frames = recurse(DEPTH, "marker", false, maxFrames, 3);
+            Assert.assertEquals(Math.min(maxFrames, DEPTH + 1), frames.size());
+        }
+    }
+
+    @Test
+    public void testInitialSkip() {
+        for (int skip = 0; skip <= DEPTH + 1; skip++) {
+            skipAndStop(DEPTH, skip);
+        }
+    }
+
+    private static void skipAndStop(int depth, int skip) {
+        if (depth > 0) {
+            skipAndStop(depth - 1, skip);
+            return;
+        }
+        ResolvedJavaMethod[] methods = {skipAndStopMethod()};
+        InspectedFrame eager = stackIntrospection.iterateFrames(methods, methods, skip, frame -> frame);
+        InspectedFrame batched = stackIntrospection.iterateFrames(methods, methods, skip, Integer.MAX_VALUE, 1, frame -> frame);
+        Assert.assertEquals(eager == null, batched == null);
+        if (eager != null) {
+            Assert.assertEquals(describe(eager, false), describe(batched, false));
+        }
+    }
+
+    private static ResolvedJavaMethod skipAndStopMethod() {
+        try {
+            return JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess().lookupJavaMethod(TestHotSpotStackIntrospection.class.getDeclaredMethod("skipAndStop", int.class, int.class));
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    static final class Box {
+        final int value;
+
+        Box(int value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * The box local of {@link #useBox} and {@link #allocateBox} as seen by a batched stack walk.
+     */
+    private static Object[] boxLocals;
+
+    /**
+     * Whether the box local of {@link #useBox} was virtual in the last stack walk.
+     */
+    private static boolean boxVirtual;
+
+    /**
+     * Once compiled, {@link #useBox} is inlined and {@code box} is scalar replaced so that both
+     * frames reference the same virtual object.
+     */
+    private static int allocateBox(int value, boolean walk) {
+        Box box = new Box(value);
+        return useBox(box, walk) + box.value;
+    }
+
+    private static int useBox(Box box, boolean walk) {
+        if (walk) {
+            List<InspectedFrame> frames = new ArrayList<>();
+            // a batch size of 1 puts the frames in separate batches
+            stackIntrospection.iterateFrames(new ResolvedJavaMethod[]{useBox}, new ResolvedJavaMethod[]{useBox, allocateBox}, 0, 2, 1, frame -> {
+                frames.add(frame);
+                return null;
+            });
+            Assert.assertEquals(2, frames.size());
+            boxVirtual = frames.get(0).isVirtual(0);
+            boxLocals = new Object[]{frames.get(0).getLocal(0), frames.get(1).getLocal(2)};
+        }
+        return box.value;
+    }
+
+    @Test
+    public void testVirtualObjectIdentity() {
+        // profile the walk so that it is compiled instead of deoptimizing on first use
+        for (int i = 0; i < 20000; i++) {
+            allocateBox(i, i % 100 == 0);
+        }
+        allocateBox(42, true);
+        Assume.assumeTrue("box is not scalar replaced in a compiled frame", boxVirtual);
+        Assert.assertTrue(String.valueOf(boxLocals[0]), boxLocals[0] instanceof Box);
+        Assert.assertEquals(42, ((Box) boxLocals[0]).value);
+        Assert.assertSame("frames inlined in one physical frame must share virtual objects", boxLocals[0], boxLocals[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBatchSize() {
+        stackIntrospection.iterateFrames(null, null, 0, 1, 0, frame -> null);
+    }
+}
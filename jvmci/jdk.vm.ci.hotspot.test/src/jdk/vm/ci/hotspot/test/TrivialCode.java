@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot.test;
+
+import org.junit.Assume;
+
+import jdk.vm.ci.code.TargetDescription;
+import jdk.vm.ci.code.site.DataPatch;
+import jdk.vm.ci.code.site.Site;
+import jdk.vm.ci.hotspot.HotSpotCodeCacheProvider;
+import jdk.vm.ci.hotspot.HotSpotCompiledCode;
+import jdk.vm.ci.hotspot.HotSpotCompiledCode.Comment;
+import jdk.vm.ci.hotspot.HotSpotCompiledNmethod;
+import jdk.vm.ci.hotspot.HotSpotInstalledCode;
+import jdk.vm.ci.hotspot.HotSpotNmethod;
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.meta.Assumptions.Assumption;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.runtime.JVMCI;
+import jdk.vm.ci.runtime.JVMCICompiler;
+
+/**
+ * Installs code consisting of a single return instruction. The code is only installed to exercise
+ * the bookkeeping done by {@link HotSpotCodeCacheProvider} and is never executed.
+ */
+final class TrivialCode {
+
+    private TrivialCode() {
+    }
+
+    private static HotSpotCodeCacheProvider getCodeCache() {
+        return (HotSpotCodeCacheProvider) JVMCI.getRuntime().getHostJVMCIBackend().getCodeCache();
+    }
+
+    private static byte[] returnInstruction(TargetDescription target) {
+        switch (target.arch.getName()) {
+            case "AMD64":
+                return new byte[]{(byte) 0xc3};
+            case "aarch64":
+                return new byte[]{(byte) 0xc0, 0x03, 0x5f, (byte) 0xd6};
+            default:
+                Assume.assumeTrue("no return instruction for " + target.arch.getName(), false);
+                return null;
+        }
+    }
+
+    /**
+     * Installs a non-default nmethod for {@code method} that depends on {@code assumptions}.
+     */
+    static HotSpotNmethod installNmethod(ResolvedJavaMethod method, Assumption... assumptions) {
+        HotSpotCodeCacheProvider codeCache = getCodeCache();
+        TargetDescription target = codeCache.getTarget();
+        byte[] code = returnInstruction(target);
+        HotSpotCompiledNmethod compiledCode = new HotSpotCompiledNmethod(method.getName(), code, code.length, new Site[0], assumptions, new ResolvedJavaMethod[]{method}, new Comment[0],
+                        new byte[0], 1, new DataPatch[0], false, target.wordSize, null, (HotSpotResolvedJavaMethod) method, JVMCICompiler.INVOCATION_ENTRY_BCI, -1, 0L, false);
+        return (HotSpotNmethod) codeCache.installCode(method, compiledCode, null, null, false);
+    }
+
+    /**
+     * Installs a runtime stub named {@code name}.
+     */
+    static HotSpotInstalledCode installStub(String name) {
+        HotSpotCodeCacheProvider codeCache = getCodeCache();
+        TargetDescription target = codeCache.getTarget();
+        byte[] code = returnInstruction(target);
+        HotSpotCompiledCode compiledCode = new HotSpotCompiledCode(name, code, code.length, new Site[0], null, new ResolvedJavaMethod[0], new Comment[0], new byte[0], 1, new DataPatch[0], false,
+                        target.wordSize, null);
+        return (HotSpotInstalledCode) codeCache.installCode(null, compiledCode, null, null, false);
+    }
+}
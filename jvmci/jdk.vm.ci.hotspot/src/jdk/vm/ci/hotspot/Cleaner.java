@@ -105,11 +105,16 @@ abstract class Cleaner extends WeakReference<Object> {
      */
     static void clean() {
         Cleaner c = (Cleaner) queue.poll();
+        if (c == null) {
+            return;
+        }
         while (c != null) {
             remove(c);
             c.doCleanup();
             c = (Cleaner) queue.poll();
         }
+        // Release the handles queued by the HandleCleaners processed above
+        HandleCleaner.releasePendingHandles();
     }
 
     /**
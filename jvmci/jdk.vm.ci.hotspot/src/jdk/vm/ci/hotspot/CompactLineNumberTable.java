@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import jdk.vm.ci.meta.LineNumberTable;
+
+/**
+ * Encodes a line number table as a byte array in which each entry is stored as the difference of
+ * its bci and line number to those of the previous entry. Each value is a zig-zag encoded LEB128
+ * integer so a typical entry takes 2 bytes instead of the 16 bytes of the {@code long[]} returned
+ * by {@link CompilerToVM#getLineNumberTable} or the 8 bytes of a {@link LineNumberTable}.
+ *
+ * The encoding starts with the number of entries as an unsigned LEB128 integer.
+ */
+final class CompactLineNumberTable {
+
+    private CompactLineNumberTable() {
+    }
+
+    /**
+     * Encodes a line number table.
+     *
+     * @param values (bci, line number) pairs as returned by {@link CompilerToVM#getLineNumberTable}
+     */
+    static byte[] encode(long[] values) {
+        assert values.length % 2 == 0;
+        int entries = values.length / 2;
+        // Worst case is 5 bytes per value
+        byte[] buffer = new byte[5 + entries * 10];
+        int pos = writeUnsigned(buffer, 0, entries);
+        int lastBci = 0;
+        int lastLine = 0;
+        for (int i = 0; i < entries; i++) {
+            int bci = (int) values[i * 2];
+            int line = (int) values[i * 2 + 1];
+            pos = writeSigned(buffer, pos, bci - lastBci);
+            pos = writeSigned(buffer, pos, line - lastLine);
+            lastBci = bci;
+            lastLine = line;
+        }
+        byte[] result = new byte[pos];
+        System.arraycopy(buffer, 0, result, 0, pos);
+        return result;
+    }
+
+    /**
+     * Decodes a line number table encoded by {@link #encode}.
+     *
+     * @return {@code null} if the table has no entries
+     */
+    static LineNumberTable decode(byte[] table) {
+        int[] pos = {0};
+        int entries = readUnsigned(table, pos);
+        if (entries == 0) {
+            return null;
+        }
+        int[] bcis = new int[entries];
+        int[] lines = new int[entries];
+        int bci = 0;
+        int line = 0;
+        for (int i = 0; i < entries; i++) {
+            bci += readSigned(table, pos);
+            line += readSigned(table, pos);
+            bcis[i] = bci;
+            lines[i] = line;
+        }
+        assert pos[0] == table.length;
+        return new LineNumberTable(lines, bcis);
+    }
+
+    private static int writeUnsigned(byte[] buffer, int pos, int value) {
+        int p = pos;
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            buffer[p++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[p++] = (byte) v;
+        return p;
+    }
+
+    private static int writeSigned(byte[] buffer, int pos, int value) {
+        return writeUnsigned(buffer, pos, (value << 1) ^ (value >> 31));
+    }
+
+    private static int readUnsigned(byte[] table, int[] pos) {
+        int result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = table[pos[0]++];
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    private static int readSigned(byte[] table, int[] pos) {
+        int value = readUnsigned(table, pos);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -247,6 +247,19 @@ final class CompilerToVM {
      */
     native String lookupNameInPool(HotSpotConstantPool constantPool, int which);
 
+    /**
+     * Gets the names of the {@code JVM_CONSTANT_NameAndType} entries referenced by the entries
+     * denoted by the elements of {@code which} in {@code constantPool} with a single transition
+     * into the VM. The name for {@code which[i]} is stored in {@code result[i]} and is the same
+     * value {@link #lookupNameInPool} would return for it.
+     *
+     * The behavior of this method is undefined if an element of {@code which} does not denote a
+     * entry that references a {@code JVM_CONSTANT_NameAndType} entry.
+     *
+     * @throws IllegalArgumentException if {@code result} is shorter than {@code which}
+     */
+    native void lookupNamesInPool(HotSpotConstantPool constantPool, int[] which, String[] result);
+
     /**
      * Gets the signature of the {@code JVM_CONSTANT_NameAndType} entry referenced by another entry
      * denoted by {@code which} in {@code constantPool}.
@@ -256,6 +269,19 @@ final class CompilerToVM {
      */
     native String lookupSignatureInPool(HotSpotConstantPool constantPool, int which);
 
+    /**
+     * Gets the signatures of the {@code JVM_CONSTANT_NameAndType} entries referenced by the
+     * entries denoted by the elements of {@code which} in {@code constantPool} with a single
+     * transition into the VM. The signature for {@code which[i]} is stored in {@code result[i]}
+     * and is the same value {@link #lookupSignatureInPool} would return for it.
+     *
+     * The behavior of this method is undefined if an element of {@code which} does not denote a
+     * entry that references a {@code JVM_CONSTANT_NameAndType} entry.
+     *
+     * @throws IllegalArgumentException if {@code result} is shorter than {@code which}
+     */
+    native void lookupSignaturesInPool(HotSpotConstantPool constantPool, int[] which, String[] result);
+
     /**
      * Gets the {@code JVM_CONSTANT_Class} index from the entry at index {@code cpi} in
      * {@code constantPool}.
@@ -265,6 +291,19 @@ final class CompilerToVM {
      */
     native int lookupKlassRefIndexInPool(HotSpotConstantPool constantPool, int cpi);
 
+    /**
+     * Gets the {@code JVM_CONSTANT_Class} indexes from the entries at the indexes in {@code cpis}
+     * in {@code constantPool} with a single transition into the VM. The index for {@code cpis[i]}
+     * is stored in {@code result[i]} and is the same value {@link #lookupKlassRefIndexInPool}
+     * would return for it.
+     *
+     * The behavior of this method is undefined if an element of {@code cpis} does not denote an
+     * entry containing a {@code JVM_CONSTANT_Class} index.
+     *
+     * @throws IllegalArgumentException if {@code result} is shorter than {@code cpis}
+     */
+    native void lookupKlassRefIndexesInPool(HotSpotConstantPool constantPool, int[] cpis, int[] result);
+
     /**
      * Looks up a class denoted by the {@code JVM_CONSTANT_Class} entry at index {@code cpi} in
      * {@code constantPool}. This method does not perform any resolution.
@@ -276,6 +315,17 @@ final class CompilerToVM {
      */
     native Object lookupKlassInPool(HotSpotConstantPool constantPool, int cpi);
 
+    /**
+     * Looks up the classes denoted by the {@code JVM_CONSTANT_Class} entries at the indexes in
+     * {@code cpis} with a single transition into the VM. The lookup for {@code cpis[i]} is stored
+     * in {@code result[i]} and is the same value {@link #lookupKlassInPool} would return for the
+     * entry. This method does not perform any resolution.
+     *
+     * @throws IllegalArgumentException if {@code result} is shorter than {@code cpis} or an element
+     *             of {@code cpis} does not denote a {@code JVM_CONSTANT_Class} entry
+     */
+    native void lookupKlassesInPool(HotSpotConstantPool constantPool, int[] cpis, Object[] result);
+
     /**
      * Looks up a method denoted by the entry at index {@code cpi} in {@code constantPool}. This
      * method does not perform any resolution.
@@ -291,6 +341,21 @@ final class CompilerToVM {
      */
     native HotSpotResolvedJavaMethodImpl lookupMethodInPool(HotSpotConstantPool constantPool, int cpi, byte opcode);
 
+    /**
+     * Looks up the methods denoted by the entries at the indexes in {@code cpis} in
+     * {@code constantPool} with a single transition into the VM. The lookup for {@code cpis[i]}
+     * with opcode {@code opcodes[i]} is stored in {@code result[i]} and is the same value
+     * {@link #lookupMethodInPool} would return for it. This method does not perform any
+     * resolution.
+     *
+     * The behavior of this method is undefined if an element of {@code cpis} does not denote an
+     * entry representing a method.
+     *
+     * @throws IllegalArgumentException if {@code opcodes} and {@code cpis} differ in length or
+     *             {@code result} is shorter than {@code cpis}
+     */
+    native void lookupMethodsInPool(HotSpotConstantPool constantPool, int[] cpis, byte[] opcodes, HotSpotResolvedJavaMethodImpl[] result);
+
     // TODO resolving JVM_CONSTANT_Dynamic
 
     /**
@@ -386,7 +451,24 @@ final class CompilerToVM {
      * @throws JVMCIError if there is something wrong with the compiled code or the associated
      *             metadata.
      */
-    native int installCode(TargetDescription target, HotSpotCompiledCode compiledCode, InstalledCode code, long failedSpeculationsAddress, byte[] speculations);
+    int installCode(TargetDescription target, HotSpotCompiledCode compiledCode, InstalledCode code, long failedSpeculationsAddress, byte[] speculations) {
+        return installCode0(target, compiledCode, code, failedSpeculationsAddress, speculations, null, null);
+    }
+
+    /**
+     * Installs the result of a compilation into the code cache, reading the debug info of the
+     * {@link jdk.vm.ci.code.site.Infopoint} sites in {@code compiledCode} from {@code debugInfo}
+     * instead of from the sites themselves.
+     *
+     * @param debugInfo the encoded debug info of {@code compiledCode}
+     * @see #installCode(TargetDescription, HotSpotCompiledCode, InstalledCode, long, byte[])
+     */
+    int installCode(TargetDescription target, HotSpotCompiledCode compiledCode, InstalledCode code, long failedSpeculationsAddress, byte[] speculations, HotSpotCompiledCodeStream debugInfo) {
+        return installCode0(target, compiledCode, code, failedSpeculationsAddress, speculations, debugInfo.toByteArray(), debugInfo.getObjectPool());
+    }
+
+    private native int installCode0(TargetDescription target, HotSpotCompiledCode compiledCode, InstalledCode code, long failedSpeculationsAddress, byte[] speculations, byte[] debugInfo,
+                    Object[] debugInfoObjects);
 
     /**
      * Generates the VM metadata for some compiled code and copies them into {@code metaData}. This
@@ -410,6 +492,58 @@ final class CompilerToVM {
      */
     native void resetCompilationStatistics();
 
+    /**
+     * Indexes of the values stored by {@link #getCodeCacheStatistics}. Must be kept in sync with
+     * the {@code CodeCacheStatistic} enum in jvmciCompilerToVM.cpp.
+     */
+    static final int CODE_CACHE_RESERVED_BYTES = 0;
+    static final int CODE_CACHE_COMMITTED_BYTES = 1;
+    static final int CODE_CACHE_USED_BYTES = 2;
+    static final int CODE_CACHE_FREE_BYTES = 3;
+    static final int CODE_CACHE_NMETHOD_COUNT = 4;
+    static final int CODE_CACHE_JVMCI_NMETHOD_COUNT = 5;
+    static final int CODE_CACHE_JVMCI_NMETHOD_BYTES = 6;
+    static final int CODE_CACHE_FULL_COUNT = 7;
+    static final int CODE_CACHE_STATISTICS_LENGTH = 8;
+
+    /**
+     * Fills {@code statistics} with the {@code CODE_CACHE_*} values describing the current state of
+     * the code cache. The values are read while holding the {@code CodeCache_lock} and are thus
+     * consistent with each other.
+     *
+     * @throws IllegalArgumentException if {@code statistics.length < CODE_CACHE_STATISTICS_LENGTH}
+     */
+    native void getCodeCacheStatistics(long[] statistics);
+
+    /**
+     * Gets the number of bytes currently allocated in the code cache. This value is read without
+     * taking any lock and may be slightly stale.
+     */
+    native long getCodeCacheUsedBytes();
+
+    /**
+     * Values stored by {@link #getCodeStates}. Must be kept in sync with the {@code CodeState} enum
+     * in jvmciCompilerToVM.cpp.
+     */
+    static final int CODE_STATE_FREED = -1;
+    static final int CODE_STATE_IN_USE = 0;
+    static final int CODE_STATE_NOT_ENTRANT = 1;
+
+    /**
+     * Determines the state of code blobs without requiring their {@link HotSpotInstalledCode}
+     * objects. The blob described by element {@code i} of the arguments is the one at
+     * {@code addresses[i]}. If {@code compileIds[i] != 0}, it is the nmethod with that compile
+     * identifier. Otherwise, it is a blob that is not an nmethod. The blobs are checked while
+     * holding the {@code CodeCache_lock}.
+     *
+     * @param states receives {@link #CODE_STATE_FREED} for each blob that is no longer in the code
+     *            cache, {@link #CODE_STATE_IN_USE} for each blob that can be executed and
+     *            {@link #CODE_STATE_NOT_ENTRANT} for each nmethod that is still in the code cache
+     *            but can no longer be entered
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    native void getCodeStates(long[] addresses, int[] compileIds, int[] states);
+
     /**
      * Reads the database of VM info. The return value encodes the info in a nested object array
      * that is described by the pseudo Java object {@code info} below:
@@ -522,6 +656,48 @@ final class CompilerToVM {
      */
     native long getLocalVariableTableStart(HotSpotResolvedJavaMethodImpl method);
 
+    /**
+     * Indexes of the values stored for each method by {@link #getMethodMetadata}. Must be kept in
+     * sync with the {@code MethodMetadata} enum in jvmciCompilerToVM.cpp.
+     */
+    static final int METHOD_METADATA_EXCEPTION_TABLE_START = 0;
+    static final int METHOD_METADATA_EXCEPTION_TABLE_LENGTH = 1;
+    static final int METHOD_METADATA_LOCAL_VARIABLE_TABLE_START = 2;
+    static final int METHOD_METADATA_LOCAL_VARIABLE_TABLE_LENGTH = 3;
+    static final int METHOD_METADATA_FLAGS = 4;
+    static final int METHOD_METADATA_LENGTH = 5;
+
+    /**
+     * Bits in the {@link #METHOD_METADATA_FLAGS} value.
+     */
+    static final int METHOD_METADATA_COMPILABLE = 1;
+    static final int METHOD_METADATA_NEVER_INLINE = 2;
+    static final int METHOD_METADATA_SHOULD_INLINE = 4;
+
+    /**
+     * Gets the metadata consulted when deciding whether to inline a method for the first
+     * {@code count} elements of {@code methods} with a single transition into the VM. For
+     * {@code m = methods[i]}:
+     *
+     * <ul>
+     * <li>if {@code codes[i] == null}, {@code m} has bytecode and the holder of {@code m} is linked,
+     * {@code codes[i]} is set to the value {@link #getBytecode} would return for {@code m}</li>
+     * <li>if {@code lineNumberTables[i] == null}, {@code lineNumberTables[i]} is set to the value
+     * {@link #getLineNumberTable} would return for {@code m}</li>
+     * <li>{@code metadata[i * METHOD_METADATA_LENGTH + METHOD_METADATA_*]} is set to the value
+     * returned by {@link #getExceptionTableStart}, {@link #getExceptionTableLength},
+     * {@link #getLocalVariableTableStart} and {@link #getLocalVariableTableLength} for {@code m}
+     * and to a {@link #METHOD_METADATA_FLAGS} value with a bit set for each of
+     * {@link #isCompilable}, {@link #hasNeverInlineDirective} and {@link #shouldInlineMethod} that
+     * is true for {@code m}</li>
+     * </ul>
+     *
+     * @throws IllegalArgumentException if one of the arrays is too short for {@code count} methods
+     * @throws NullPointerException if one of the first {@code count} elements of {@code methods} is
+     *             null
+     */
+    native void getMethodMetadata(HotSpotResolvedJavaMethodImpl[] methods, int count, byte[][] codes, long[][] lineNumberTables, long[] metadata);
+
     /**
      * Sets flags on {@code method} indicating that it should never be inlined or compiled by the
      * VM.
@@ -547,6 +723,15 @@ final class CompilerToVM {
      */
     native long[] collectCounters();
 
+    /**
+     * Collects the call counters of the {@link CompilerToVM} native methods that have been called
+     * since the VM started with {@code -XX:+JVMCICountCompilerToVMCalls}.
+     *
+     * @return a {@code String[]} with the names of the called methods followed by a {@code long[]}
+     *         holding the call count, total time and maximum time in nanoseconds of each method
+     */
+    native Object[] collectCallCounters();
+
     /**
      * Get the current number of counters allocated for use by JVMCI. Should be the same value as
      * the flag {@code JVMCICounterSize}.
@@ -559,6 +744,18 @@ final class CompilerToVM {
      */
     native boolean setCountersSize(int newSize);
 
+    /**
+     * Creates a {@code long} PerfData entry named {@code "sun.ci." + name} with units of events,
+     * or gets the existing entry with that name.
+     *
+     * @param variable specifies if the entry is a variable rather than a monotonic counter
+     * @return the address of the entry's value or 0L if the VM was started with
+     *         {@code -XX:-UsePerfData}
+     * @throws IllegalArgumentException if an entry named {@code "sun.ci." + name} exists and is
+     *             not of the requested kind
+     */
+    native long createPerfDataLong(String name, boolean variable);
+
     /**
      * Determines if {@code metaspaceMethodData} is mature.
      */
@@ -569,6 +766,21 @@ final class CompilerToVM {
      */
     native int allocateCompileId(HotSpotResolvedJavaMethodImpl method, int entryBCI);
 
+    /**
+     * Gets the nanoseconds elapsed since the compile task associated with a native
+     * {@code JVMCICompileState} was put on the compile queue.
+     *
+     * @param compileState address of a native {@code JVMCICompileState} object or 0L
+     * @return -1 if {@code compileState == 0L}
+     */
+    native long getCompileQueueTime(long compileState);
+
+    /**
+     * Gets the number of bytes allocated in the HotSpot heap by the current thread since it
+     * started.
+     */
+    native long getThreadAllocatedBytes();
+
     /**
      * Determines if {@code method} has OSR compiled code identified by {@code entryBCI} for
      * compilation level {@code level}.
@@ -585,6 +797,21 @@ final class CompilerToVM {
      */
     native <T> T iterateFrames(ResolvedJavaMethod[] initialMethods, ResolvedJavaMethod[] matchingMethods, int initialSkip, InspectedFrameVisitor<T> visitor);
 
+    /**
+     * Walks the stack like {@link #iterateFrames} but stores the matching frames in {@code frames}
+     * instead of passing them to a visitor. The walk stops once {@code frames} is full. The locals
+     * of the returned frames are not decoded (see {@link #decodeFrameLocals}).
+     *
+     * @param resumeStackPointer if non-zero, the walk starts with the caller of the frame
+     *            identified by this value and {@code resumeFrameNumber} (i.e. the last frame
+     *            returned by a previous call)
+     * @return the number of frames stored in {@code frames}. A value less than
+     *         {@code frames.length} means the end of the stack was reached.
+     * @throws IllegalStateException if the frame at which to resume could not be found
+     */
+    native int iterateFramesBatch(ResolvedJavaMethod[] initialMethods, ResolvedJavaMethod[] matchingMethods, int initialSkip, long resumeStackPointer, int resumeFrameNumber,
+                    HotSpotStackFrameReference[] frames);
+
     /**
      * Materializes all virtual objects within {@code stackFrame} and updates its locals.
      *
@@ -593,6 +820,16 @@ final class CompilerToVM {
      */
     native void materializeVirtualObjects(HotSpotStackFrameReference stackFrame, boolean invalidate);
 
+    /**
+     * Decodes the locals of {@code stackFrame} and stores them in its {@code locals} and
+     * {@code localIsVirtual} fields. Virtual objects referenced by the locals are reallocated once
+     * per physical frame so that all frames in it that are linked to the same physical frame
+     * reference see the same copies.
+     *
+     * @throws IllegalStateException if {@code stackFrame} is no longer on the stack
+     */
+    native void decodeFrameLocals(HotSpotStackFrameReference stackFrame);
+
     /**
      * Gets the v-table index for interface method {@code method} in the receiver {@code type} or
      * {@link HotSpotVMConfig#invalidVtableIndex} if {@code method} is not in {@code type}'s
@@ -619,10 +856,31 @@ final class CompilerToVM {
     native void writeDebugOutput(long buffer, int length, boolean flush);
 
     /**
-     * Flush HotSpot's log stream.
+     * Writes the contents of the registered {@link DebugOutputBuffer} (if any) to HotSpot's log
+     * stream and then flushes the stream.
      */
     native void flushDebugOutput();
 
+    /**
+     * Registers a {@link DebugOutputBuffer} that the VM periodically drains to its log stream. The
+     * output in the buffer is also drained before any output written by {@link #writeDebugOutput}
+     * so that a thread's buffered output precedes its subsequent direct output.
+     *
+     * @param buffer the address of the buffer
+     * @param capacity the size of the buffer's data area which must be a power of 2
+     * @return {@code false} if a buffer has already been registered (e.g. by another JVMCI
+     *         runtime) or {@code capacity} is invalid
+     */
+    native boolean registerDebugOutputBuffer(long buffer, int capacity);
+
+    /**
+     * Writes the records in the registered {@link DebugOutputBuffer} to HotSpot's log stream. This
+     * waits for any other thread draining the buffer to finish and for records reserved before the
+     * call to be published. A record that is not published within a VM defined timeout is left in
+     * the buffer along with all records after it.
+     */
+    native void drainDebugOutputBuffer();
+
     /**
      * Writes {@code length} bytes from {@code bytes} starting at offset {@code offset} to the
      * current threads CompileLog stream, if it exists.
@@ -920,6 +1178,26 @@ final class CompilerToVM {
      */
     native void deleteGlobalHandle(long handle);
 
+    /**
+     * Releases the resources backing the first {@code length} global JNI handles in
+     * {@code handles} with a single transition into the VM. Zero elements are ignored.
+     */
+    native void deleteGlobalHandles(long[] handles, int length);
+
+    /**
+     * Creates {@code length} global handles to {@code object} with a single transition into the
+     * VM, storing them in the first {@code length} elements of {@code handles}. The handles must be
+     * released with {@link #deleteGlobalHandle} or {@link #deleteGlobalHandles}.
+     *
+     * This is only for testing and benchmarking the release of handles when JVMCI does not run in
+     * a shared library, in which case no other handles are created from Java. It requires
+     * {@code -XX:+UnlockDiagnosticVMOptions}.
+     *
+     * @throws UnsupportedOperationException if JVMCI runs in a shared library or diagnostic VM
+     *             options are not unlocked
+     */
+    native void createGlobalHandlesForTesting(Object object, long[] handles, int length);
+
     /**
      * Gets the failed speculations pointed to by {@code *failedSpeculationsAddress}.
      *
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import jdk.vm.ci.hotspot.HotSpotConstantPool.Bytecodes;
+import jdk.vm.ci.meta.JavaType;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * A cache of the resolved entries of a single {@link HotSpotConstantPool}. Only results that
+ * cannot change for the lifetime of the {@code ConstantPool} are cached:
+ * <ul>
+ * <li>resolved types and UTF-8 strings, indexed by constant pool index</li>
+ * <li>resolved fields and methods, indexed by the constant pool cache index that is the raw
+ * operand of field access and invoke bytecodes</li>
+ * </ul>
+ *
+ * A field is resolved with access checks relative to the method accessing it so a cached field is
+ * only returned for a lookup from the same method.
+ *
+ * Redefining the holder of the constant pool replaces its {@code ConstantPool} and thus the
+ * {@link HotSpotConstantPool} (and this cache) used for the new methods. Redefining the holder of a
+ * cached method is detected by the {@code JVM_ACC_IS_OLD} flag the VM sets on the replaced method,
+ * in which case the entry is ignored and looked up again.
+ *
+ * Lookups and updates are lock free. Racing updates for the same index store equivalent values.
+ */
+final class ConstantPoolEntryCache {
+
+    /**
+     * A cached method and the invoke opcode it was looked up with.
+     */
+    private static final class MethodEntry {
+        final HotSpotResolvedJavaMethodImpl method;
+        final int opcode;
+
+        MethodEntry(HotSpotResolvedJavaMethodImpl method, int opcode) {
+            this.method = method;
+            this.opcode = opcode;
+        }
+    }
+
+    /**
+     * A cached field and the method it was accessed from.
+     */
+    private static final class FieldEntry {
+        final HotSpotResolvedJavaField field;
+        final ResolvedJavaMethod accessingMethod;
+
+        FieldEntry(HotSpotResolvedJavaField field, ResolvedJavaMethod accessingMethod) {
+            this.field = field;
+            this.accessingMethod = accessingMethod;
+        }
+    }
+
+    /**
+     * Resolved types and strings indexed by constant pool index.
+     */
+    private final AtomicReferenceArray<Object> entries;
+
+    /**
+     * {@link FieldEntry}s and {@link MethodEntry}s indexed by constant pool cache index. The number
+     * of cache entries is not known up front so this array is grown on demand.
+     */
+    private volatile AtomicReferenceArray<Object> members;
+
+    ConstantPoolEntryCache(int length) {
+        entries = new AtomicReferenceArray<>(length);
+        members = new AtomicReferenceArray<>(length);
+    }
+
+    private static <T> T count(T value) {
+        HotSpotJVMCIMetrics.instance.recordConstantPoolEntryCacheLookup(value != null);
+        return value;
+    }
+
+    /**
+     * Gets the cached type for the {@code JVM_CONSTANT_Class} entry at {@code cpi}.
+     */
+    JavaType getType(int cpi) {
+        Object entry = entries.get(cpi);
+        return count(entry instanceof JavaType ? (JavaType) entry : null);
+    }
+
+    void putType(int cpi, JavaType type) {
+        if (type instanceof ResolvedJavaType) {
+            entries.set(cpi, type);
+        }
+    }
+
+    /**
+     * Gets the cached string for the {@code JVM_CONSTANT_Utf8} entry at {@code cpi}.
+     */
+    String getUtf8(int cpi) {
+        Object entry = entries.get(cpi);
+        return count(entry instanceof String ? (String) entry : null);
+    }
+
+    void putUtf8(int cpi, String utf8) {
+        entries.set(cpi, utf8);
+    }
+
+    private Object getMember(int index) {
+        AtomicReferenceArray<Object> m = members;
+        return index >= 0 && index < m.length() ? m.get(index) : null;
+    }
+
+    private void putMember(int index, Object value) {
+        if (index < 0) {
+            return;
+        }
+        AtomicReferenceArray<Object> m = members;
+        if (index >= m.length()) {
+            synchronized (this) {
+                m = members;
+                if (index >= m.length()) {
+                    AtomicReferenceArray<Object> larger = new AtomicReferenceArray<>(Math.max(index + 1, m.length() * 2));
+                    for (int i = 0; i < m.length(); i++) {
+                        larger.set(i, m.get(i));
+                    }
+                    members = m = larger;
+                }
+            }
+        }
+        m.set(index, value);
+    }
+
+    /**
+     * Gets the cached field for the field access bytecode {@code opcode} whose operand is
+     * {@code index} in {@code accessingMethod}. A field is only returned if resolving it for
+     * {@code opcode} from {@code accessingMethod} cannot fail.
+     */
+    HotSpotResolvedJavaField getField(int index, ResolvedJavaMethod accessingMethod, int opcode) {
+        Object entry = getMember(index);
+        HotSpotResolvedJavaField field = null;
+        if (entry instanceof FieldEntry && Objects.equals(((FieldEntry) entry).accessingMethod, accessingMethod)) {
+            field = ((FieldEntry) entry).field;
+            boolean isStatic = opcode == Bytecodes.GETSTATIC || opcode == Bytecodes.PUTSTATIC;
+            boolean isPut = opcode == Bytecodes.PUTFIELD || opcode == Bytecodes.PUTSTATIC;
+            if (field.isStatic() != isStatic || (isPut && field.isFinal())) {
+                // Let the VM produce the linkage error or check the final field access
+                field = null;
+            }
+        }
+        return count(field);
+    }
+
+    void putField(int index, ResolvedJavaMethod accessingMethod, HotSpotResolvedJavaField field) {
+        putMember(index, new FieldEntry(field, accessingMethod));
+    }
+
+    /**
+     * Gets the cached method for the invoke bytecode {@code opcode} whose operand is
+     * {@code index}.
+     */
+    HotSpotResolvedJavaMethodImpl getMethod(int index, int opcode) {
+        Object entry = getMember(index);
+        HotSpotResolvedJavaMethodImpl method = null;
+        if (entry instanceof MethodEntry) {
+            MethodEntry methodEntry = (MethodEntry) entry;
+            if (methodEntry.opcode == opcode && !methodEntry.method.isOld()) {
+                method = methodEntry.method;
+            }
+        }
+        return count(method);
+    }
+
+    void putMethod(int index, int opcode, HotSpotResolvedJavaMethodImpl method) {
+        putMember(index, new MethodEntry(method, opcode));
+    }
+
+    /**
+     * Gets a description of the hit and miss counters of all constant pool entry caches.
+     */
+    static String getStatistics() {
+        long h = HotSpotJVMCIMetrics.instance.getConstantPoolEntryCacheHits();
+        long m = HotSpotJVMCIMetrics.instance.getConstantPoolEntryCacheMisses();
+        long total = h + m;
+        return String.format("ConstantPoolEntryCache: hits=%d, misses=%d, hitRate=%.2f%%", h, m, total == 0 ? 0D : h * 100D / total);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import static jdk.vm.ci.hotspot.UnsafeAccess.UNSAFE;
+
+/**
+ * A ring buffer in native memory through which debug output is passed to HotSpot's log stream
+ * without a call into the VM for each write. Writers append records to the buffer and the VM
+ * drains the buffer periodically, on {@link CompilerToVM#flushDebugOutput()} and before any
+ * output written directly with {@link CompilerToVM#writeDebugOutput}.
+ *
+ * Output appended by a single thread is written in order and before any output the thread
+ * subsequently writes directly or flushes. Output appended by different threads is interleaved at
+ * record granularity. The only exception is a record whose writer does not publish it within the
+ * VM's timeout (e.g. because the writer died while copying its bytes). Such a record and all
+ * records after it are written by a later drain instead.
+ *
+ * The layout of the buffer is described with the {@code JVMCIDebugOutputBuffer} class in
+ * {@code jvmciCompilerToVM.cpp} and must be kept in sync with the constants below.
+ */
+final class DebugOutputBuffer {
+
+    /**
+     * Offset of the position up to which space has been reserved by writers. Positions increase
+     * monotonically.
+     */
+    static final int HEAD_OFFSET = 0;
+
+    /**
+     * Offset of the position up to which the VM has drained the buffer. This is on a separate
+     * cache line from {@link #HEAD_OFFSET} as it is written by a different thread.
+     */
+    static final int TAIL_OFFSET = 64;
+
+    /**
+     * Offset of the records.
+     */
+    static final int DATA_OFFSET = 128;
+
+    /**
+     * Size of a record header. A positive header is the length of the bytes that follow it, a
+     * negative header is the negated size of padding up to the end of the data and 0 denotes a
+     * record that has not yet been published.
+     */
+    private static final int RECORD_HEADER_SIZE = 4;
+
+    /**
+     * Number of times a writer that finds the buffer full asks the VM to drain it before dropping
+     * its output. More than one attempt is needed as other writers can refill the buffer between
+     * the drain and the writer's next reservation.
+     */
+    private static final int MAX_DRAIN_ATTEMPTS = 4;
+
+    private static final int MIN_CAPACITY = 4096;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final CompilerToVM vm;
+    private final long address;
+    private final int capacity;
+
+    private DebugOutputBuffer(CompilerToVM vm, long address, int capacity) {
+        this.vm = vm;
+        this.address = address;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Allocates a buffer whose data area is at least {@code size} bytes and registers it with the
+     * VM. The size is rounded up to a power of 2. The buffer is never freed.
+     *
+     * @return {@code null} if the VM did not accept the buffer
+     */
+    static DebugOutputBuffer create(CompilerToVM vm, int size) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < size && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        long address = UNSAFE.allocateMemory(DATA_OFFSET + capacity);
+        UNSAFE.setMemory(address, DATA_OFFSET + capacity, (byte) 0);
+        if (!vm.registerDebugOutputBuffer(address, capacity)) {
+            UNSAFE.freeMemory(address);
+            return null;
+        }
+        return new DebugOutputBuffer(vm, address, capacity);
+    }
+
+    /**
+     * Appends {@code length} bytes from {@code bytes} starting at {@code offset} to this buffer.
+     * If the buffer is full, the VM is asked to drain it, up to {@link #MAX_DRAIN_ATTEMPTS} times.
+     * If there is still no space, the bytes are dropped. This method does not allocate.
+     *
+     * @return {@code false} if the bytes are too large for this buffer and must be written
+     *         directly
+     */
+    boolean write(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return true;
+        }
+        int recordSize = (RECORD_HEADER_SIZE + length + RECORD_HEADER_SIZE - 1) & -RECORD_HEADER_SIZE;
+        if (recordSize > capacity / 2) {
+            return false;
+        }
+        long position = reserve(recordSize);
+        if (position < 0) {
+            HotSpotJVMCIMetrics.instance.recordDebugOutputStall();
+            for (int attempt = 0; position < 0 && attempt < MAX_DRAIN_ATTEMPTS; attempt++) {
+                vm.drainDebugOutputBuffer();
+                position = reserve(recordSize);
+            }
+            if (position < 0) {
+                HotSpotJVMCIMetrics.instance.recordDebugOutputDropped(length);
+                return true;
+            }
+        }
+        long record = address + DATA_OFFSET + (position & (capacity - 1));
+        UNSAFE.copyMemory(bytes, vm.ARRAY_BYTE_BASE_OFFSET + offset, null, record + RECORD_HEADER_SIZE, length);
+        UNSAFE.putIntVolatile(null, record, length);
+        return true;
+    }
+
+    /**
+     * Reserves space for a record of {@code recordSize} bytes, including any padding required to
+     * prevent the record from wrapping around the end of the data.
+     *
+     * @return the position of the record or -1 if there is not enough free space
+     */
+    private long reserve(int recordSize) {
+        while (true) {
+            long head = UNSAFE.getLongVolatile(null, address + HEAD_OFFSET);
+            long tail = UNSAFE.getLongVolatile(null, address + TAIL_OFFSET);
+            int index = (int) (head & (capacity - 1));
+            int padding = index + recordSize > capacity ? capacity - index : 0;
+            long end = head + padding + recordSize;
+            if (end - tail > capacity) {
+                return -1;
+            }
+            if (UNSAFE.compareAndSwapLong(null, address + HEAD_OFFSET, head, end)) {
+                if (padding != 0) {
+                    UNSAFE.putIntVolatile(null, address + DATA_OFFSET + index, -padding);
+                }
+                return head + padding;
+            }
+        }
+    }
+}
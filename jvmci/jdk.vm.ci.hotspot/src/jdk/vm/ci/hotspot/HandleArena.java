@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import java.util.Arrays;
+
+/**
+ * The {@code jobject} handles created for {@link IndirectHotSpotObjectConstantImpl}s in a local
+ * {@link HotSpotObjectConstantScope}. The handles are stored in a contiguous array so that they
+ * can all be released with a single call into the VM when the scope closes.
+ *
+ * If a scope is never closed (e.g. because its thread died), the arena is released some time after
+ * the scope becomes unreachable and the handles are counted as
+ * {@linkplain HotSpotJVMCIMetrics#getLeakedHandles() leaked}.
+ */
+final class HandleArena {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] handles;
+    private IndirectHotSpotObjectConstantImpl[] constants;
+    private int count;
+    private boolean released;
+
+    /**
+     * Releases the arena of a scope that became unreachable without being closed.
+     */
+    private static final class LeakCleaner extends Cleaner {
+        private final HandleArena arena;
+
+        LeakCleaner(HotSpotObjectConstantScope scope, HandleArena arena) {
+            super(scope);
+            this.arena = arena;
+        }
+
+        @Override
+        void doCleanup() {
+            synchronized (arena) {
+                if (!arena.released) {
+                    HotSpotJVMCIMetrics.instance.recordLeakedHandles(arena.count);
+                    arena.release(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an arena for the handles of {@code scope}.
+     */
+    HandleArena(HotSpotObjectConstantScope scope) {
+        new LeakCleaner(scope, this);
+    }
+
+    /**
+     * Adds {@code handle}, the handle encapsulated by {@code constant}, to this arena.
+     */
+    synchronized void add(IndirectHotSpotObjectConstantImpl constant, long handle) {
+        assert !released;
+        if (handles == null) {
+            handles = new long[INITIAL_CAPACITY];
+            constants = new IndirectHotSpotObjectConstantImpl[INITIAL_CAPACITY];
+        } else if (count == handles.length) {
+            handles = Arrays.copyOf(handles, count * 2);
+            constants = Arrays.copyOf(constants, count * 2);
+        }
+        handles[count] = handle;
+        constants[count] = constant;
+        count++;
+    }
+
+    /**
+     * Clears the foreign object references of the constants in this arena and releases their
+     * handles.
+     *
+     * @param scopeDescription describes the scope that created the constants
+     */
+    synchronized void release(Object scopeDescription) {
+        assert !released;
+        released = true;
+        if (count != 0) {
+            for (int i = 0; i < count; i++) {
+                constants[i].clear(scopeDescription);
+            }
+            CompilerToVM.compilerToVM().deleteGlobalHandles(handles, count);
+        }
+        HotSpotJVMCIMetrics.instance.recordHandleArenaReleased(count);
+        handles = null;
+        constants = null;
+    }
+}
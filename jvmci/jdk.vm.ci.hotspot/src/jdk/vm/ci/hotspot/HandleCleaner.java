@@ -37,6 +37,18 @@ import static jdk.vm.ci.hotspot.UnsafeAccess.UNSAFE;
  */
 final class HandleCleaner extends Cleaner {
 
+    /**
+     * Maximum number of {@code jobject} handles released by a single call into the VM.
+     */
+    private static final int RELEASE_BATCH_SIZE = 256;
+
+    /**
+     * {@code jobject} handles whose wrappers have become unreachable but that have not yet been
+     * released. Only accessed while holding the lock on {@link HandleCleaner}.
+     */
+    private static final long[] pendingHandles = new long[RELEASE_BATCH_SIZE];
+    private static int pendingHandleCount;
+
     /**
      * A {@code jmetadata} or {@code jobject} handle.
      */
@@ -62,13 +74,34 @@ final class HandleCleaner extends Cleaner {
             // The sentinel value used to denote a free handle is
             // an object on the HotSpot heap so we call into the
             // VM to set the target of an object handle to this value.
-            CompilerToVM.compilerToVM().deleteGlobalHandle(handle);
+            // This is done in batches to amortize the VM transition.
+            releaseLater(handle);
         } else {
             // Setting the target of a jmetadata handle to 0 enables
             // the handle to be reused. See MetadataHandles in
             // metadataHandles.hpp for more info.
             long value = UNSAFE.getLong(null, handle);
             UNSAFE.compareAndSwapLong(null, handle, value, 0);
+            HotSpotJVMCIMetrics.instance.recordHandleReleased(false);
+        }
+    }
+
+    private static synchronized void releaseLater(long handle) {
+        pendingHandles[pendingHandleCount++] = handle;
+        if (pendingHandleCount == RELEASE_BATCH_SIZE) {
+            releasePendingHandles();
+        }
+    }
+
+    /**
+     * Releases the {@code jobject} handles queued by {@link #doCleanup()}. The handles are only
+     * counted as released once the VM has released them.
+     */
+    static synchronized void releasePendingHandles() {
+        if (pendingHandleCount != 0) {
+            CompilerToVM.compilerToVM().deleteGlobalHandles(pendingHandles, pendingHandleCount);
+            HotSpotJVMCIMetrics.instance.recordObjectHandlesReleased(pendingHandleCount);
+            pendingHandleCount = 0;
         }
     }
 
@@ -79,6 +112,11 @@ final class HandleCleaner extends Cleaner {
     @SuppressWarnings("unused")
     static void create(Object wrapper, long handle) {
         assert wrapper instanceof IndirectHotSpotObjectConstantImpl || wrapper instanceof MetaspaceHandleObject;
-        new HandleCleaner(wrapper, handle, wrapper instanceof IndirectHotSpotObjectConstantImpl);
+        boolean isJObject = wrapper instanceof IndirectHotSpotObjectConstantImpl;
+        if (!isJObject) {
+            // jobject handles are counted when their wrapper is created
+            HotSpotJVMCIMetrics.instance.recordHandleCreated(false);
+        }
+        new HandleCleaner(wrapper, handle, isJObject);
     }
 }
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import jdk.vm.ci.meta.Assumptions.Assumption;
+import jdk.vm.ci.meta.Assumptions.CallSiteTargetValue;
+import jdk.vm.ci.meta.Assumptions.ConcreteMethod;
+import jdk.vm.ci.meta.Assumptions.ConcreteSubtype;
+import jdk.vm.ci.meta.Assumptions.LeafType;
+import jdk.vm.ci.meta.Assumptions.NoFinalizableSubclass;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * An index from the types, methods and call sites named by the {@link Assumption}s of installed
+ * nmethods to those nmethods. The index is updated by {@link HotSpotCodeCacheProvider#installCode}
+ * and is available via {@link HotSpotJVMCIRuntime#getAssumptionIndex()}.
+ *
+ * The VM does not notify JVMCI when it invalidates code. Instead, the index asks the VM for the
+ * state of the nmethods it records whenever it is queried and periodically when code is installed.
+ * An nmethod is identified by the address and compile identifier it had when it was installed so
+ * its invalidation is counted even if its {@link HotSpotInstalledCode} object has been reclaimed.
+ * An nmethod found to be invalid is removed from the index and counted as an invalidation of each
+ * kind of assumption it depends on. Since code can also be invalidated for reasons unrelated to
+ * its assumptions (e.g. explicit invalidation, an uncommon trap or unloading), the invalidation
+ * counts are an upper bound on the invalidations caused by an assumption kind.
+ *
+ * The index does not extend the lifetime of anything it records. Types and methods are keyed by
+ * their metaspace pointers and call sites and {@link HotSpotInstalledCode} objects are weakly
+ * referenced. An nmethod whose {@link HotSpotInstalledCode} object has been reclaimed is counted
+ * by {@link #getStatistics()} but not returned by the {@code getDependents} methods. Call sites
+ * are only indexed when JVMCI runs in the HotSpot heap.
+ */
+public final class HotSpotAssumptionIndex {
+
+    static final HotSpotAssumptionIndex instance = new HotSpotAssumptionIndex();
+
+    /**
+     * An installed nmethod and the kinds of assumptions it was installed with.
+     */
+    private static final class Dependent {
+        final long address;
+        final int compileId;
+        final WeakReference<HotSpotInstalledCode> code;
+        final Class<?>[] kinds;
+
+        /**
+         * Set once the nmethod has been found to be invalid. Guarded by the index.
+         */
+        boolean invalid;
+
+        Dependent(HotSpotInstalledCode code, long address, int compileId, Class<?>[] kinds) {
+            this.address = address;
+            this.compileId = compileId;
+            this.code = new WeakReference<>(code);
+            this.kinds = kinds;
+        }
+    }
+
+    /**
+     * Map from the metaspace pointer of a {@link ResolvedJavaType} or {@link ResolvedJavaMethod} to
+     * the code with an assumption about it. Guarded by this object.
+     */
+    private final Map<Long, List<Dependent>> metadataIndex = new HashMap<>();
+
+    /**
+     * Map from a call site object to the code with an assumption about it. Guarded by this object.
+     */
+    private final Map<Object, List<Dependent>> callSiteIndex = new WeakHashMap<>();
+
+    /**
+     * All recorded code in installation order. Guarded by this object.
+     */
+    private final List<Dependent> dependents = new ArrayList<>();
+
+    /**
+     * The number of {@link #dependents} after the last {@link #expunge()}. Guarded by this object.
+     */
+    private int dependentsAfterExpunge;
+
+    /**
+     * Number of recorded code invalidations per assumption kind. Guarded by this object.
+     */
+    private final Map<Class<?>, long[]> invalidations = new IdentityHashMap<>();
+
+    private HotSpotAssumptionIndex() {
+    }
+
+    /**
+     * The number of recorded code depending on an assumption kind and the number of invalidations
+     * of such code.
+     */
+    public static final class KindStatistics {
+        private final String kind;
+        private final int dependentCount;
+        private final long invalidationCount;
+
+        KindStatistics(String kind, int dependentCount, long invalidationCount) {
+            this.kind = kind;
+            this.dependentCount = dependentCount;
+            this.invalidationCount = invalidationCount;
+        }
+
+        /**
+         * Gets the simple name of the {@link Assumption} subclass.
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        /**
+         * Gets the number of valid installed nmethods with at least one assumption of this kind.
+         */
+        public int getDependentCount() {
+            return dependentCount;
+        }
+
+        /**
+         * Gets the number of installed nmethods with at least one assumption of this kind that have
+         * been invalidated.
+         */
+        public long getInvalidationCount() {
+            return invalidationCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[dependents=%d, invalidations=%d]", kind, dependentCount, invalidationCount);
+        }
+    }
+
+    private static Long metadataKey(ResolvedJavaType type) {
+        if (type instanceof HotSpotResolvedObjectTypeImpl) {
+            return ((HotSpotResolvedObjectTypeImpl) type).getMetaspaceKlass();
+        }
+        return null;
+    }
+
+    private static Long metadataKey(ResolvedJavaMethod method) {
+        if (method instanceof HotSpotResolvedJavaMethodImpl) {
+            return ((HotSpotResolvedJavaMethodImpl) method).getMetaspaceMethod();
+        }
+        return null;
+    }
+
+    private static Object callSiteKey(JavaConstant callSite) {
+        if (callSite instanceof DirectHotSpotObjectConstantImpl) {
+            return ((DirectHotSpotObjectConstantImpl) callSite).object;
+        }
+        return null;
+    }
+
+    /**
+     * Adds the keys the index uses for {@code assumption} to {@code metadataKeys} and
+     * {@code callSiteKeys}.
+     */
+    private static void addKeys(Assumption assumption, Set<Long> metadataKeys, Set<Object> callSiteKeys) {
+        if (assumption instanceof LeafType) {
+            metadataKeys.add(metadataKey(((LeafType) assumption).context));
+        } else if (assumption instanceof ConcreteSubtype) {
+            ConcreteSubtype concreteSubtype = (ConcreteSubtype) assumption;
+            metadataKeys.add(metadataKey(concreteSubtype.context));
+            metadataKeys.add(metadataKey(concreteSubtype.subtype));
+        } else if (assumption instanceof ConcreteMethod) {
+            ConcreteMethod concreteMethod = (ConcreteMethod) assumption;
+            metadataKeys.add(metadataKey(concreteMethod.context));
+            metadataKeys.add(metadataKey(concreteMethod.method));
+            metadataKeys.add(metadataKey(concreteMethod.impl));
+        } else if (assumption instanceof CallSiteTargetValue) {
+            callSiteKeys.add(callSiteKey(((CallSiteTargetValue) assumption).callSite));
+        } else if (assumption instanceof NoFinalizableSubclass) {
+            metadataKeys.add(metadataKey(((NoFinalizableSubclass) assumption).getReceiverType()));
+        }
+    }
+
+    /**
+     * Records that {@code code} has just been installed with {@code assumptions}.
+     *
+     * @param compileId the compile identifier of the nmethod
+     */
+    void add(HotSpotInstalledCode code, int compileId, Assumption[] assumptions) {
+        if (!(code instanceof HotSpotNmethod) || assumptions == null || assumptions.length == 0) {
+            return;
+        }
+        Set<Class<?>> kinds = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Long> metadataKeys = new LinkedHashSet<>();
+        Set<Object> callSiteKeys = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Assumption assumption : assumptions) {
+            if (assumption != null) {
+                kinds.add(assumption.getClass());
+                addKeys(assumption, metadataKeys, callSiteKeys);
+            }
+        }
+        metadataKeys.remove(null);
+        callSiteKeys.remove(null);
+        Dependent dependent = new Dependent(code, code.getAddress(), compileId, kinds.toArray(new Class<?>[kinds.size()]));
+        synchronized (this) {
+            if (dependents.size() >= Math.max(64, dependentsAfterExpunge * 2)) {
+                expunge();
+            }
+            dependents.add(dependent);
+            for (Long key : metadataKeys) {
+                metadataIndex.computeIfAbsent(key, k -> new ArrayList<>(2)).add(dependent);
+            }
+            for (Object key : callSiteKeys) {
+                callSiteIndex.computeIfAbsent(key, k -> new ArrayList<>(2)).add(dependent);
+            }
+        }
+    }
+
+    /**
+     * Removes the code that is no longer in use from the index, counting the invalidations.
+     */
+    private void expunge() {
+        assert Thread.holdsLock(this);
+        int length = dependents.size();
+        if (length != 0) {
+            long[] addresses = new long[length];
+            int[] compileIds = new int[length];
+            int[] states = new int[length];
+            for (int i = 0; i < length; i++) {
+                addresses[i] = dependents.get(i).address;
+                compileIds[i] = dependents.get(i).compileId;
+            }
+            HotSpotJVMCIRuntime.runtime().getCompilerToVM().getCodeStates(addresses, compileIds, states);
+            boolean removed = false;
+            for (int i = 0; i < length; i++) {
+                if (states[i] != CompilerToVM.CODE_STATE_IN_USE) {
+                    Dependent dependent = dependents.get(i);
+                    for (Class<?> kind : dependent.kinds) {
+                        invalidations.computeIfAbsent(kind, k -> new long[1])[0]++;
+                    }
+                    dependent.invalid = true;
+                    removed = true;
+                }
+            }
+            if (removed) {
+                dependents.removeIf(d -> d.invalid);
+                expunge(metadataIndex);
+                expunge(callSiteIndex);
+            }
+        }
+        dependentsAfterExpunge = dependents.size();
+    }
+
+    private static void expunge(Map<?, List<Dependent>> map) {
+        for (Iterator<List<Dependent>> iter = map.values().iterator(); iter.hasNext();) {
+            List<Dependent> list = iter.next();
+            list.removeIf(d -> d.invalid);
+            if (list.isEmpty()) {
+                iter.remove();
+            }
+        }
+    }
+
+    private synchronized List<HotSpotInstalledCode> getDependentsOf(Map<?, List<Dependent>> map, Object key) {
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        expunge();
+        List<Dependent> list = map.get(key);
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        List<HotSpotInstalledCode> result = new ArrayList<>(list.size());
+        for (Dependent dependent : list) {
+            HotSpotInstalledCode code = dependent.code.get();
+            if (code != null) {
+                result.add(code);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the valid installed code with an assumption about {@code type}. This includes
+     * assumptions where {@code type} is the context of a {@link LeafType}, {@link ConcreteSubtype}
+     * or {@link ConcreteMethod} assumption, the subtype of a {@link ConcreteSubtype} assumption or
+     * the receiver type of a {@link NoFinalizableSubclass} assumption.
+     */
+    public List<HotSpotInstalledCode> getDependents(ResolvedJavaType type) {
+        return getDependentsOf(metadataIndex, metadataKey(type));
+    }
+
+    /**
+     * Gets the valid installed code with a {@link ConcreteMethod} assumption whose method or
+     * implementation is {@code method}.
+     */
+    public List<HotSpotInstalledCode> getDependents(ResolvedJavaMethod method) {
+        return getDependentsOf(metadataIndex, metadataKey(method));
+    }
+
+    /**
+     * Gets the valid installed code with a {@link CallSiteTargetValue} assumption about
+     * {@code callSite}.
+     */
+    public List<HotSpotInstalledCode> getDependents(JavaConstant callSite) {
+        return getDependentsOf(callSiteIndex, callSiteKey(callSite));
+    }
+
+    /**
+     * Gets the dependent and invalidation counts for each assumption kind seen so far.
+     *
+     * @return a map from {@link KindStatistics#getKind()} to statistics, sorted by kind
+     */
+    public synchronized Map<String, KindStatistics> getStatistics() {
+        expunge();
+        Map<Class<?>, int[]> dependentCounts = new IdentityHashMap<>();
+        for (Dependent dependent : dependents) {
+            for (Class<?> kind : dependent.kinds) {
+                dependentCounts.computeIfAbsent(kind, k -> new int[1])[0]++;
+            }
+        }
+        Set<Class<?>> kinds = Collections.newSetFromMap(new IdentityHashMap<>());
+        kinds.addAll(dependentCounts.keySet());
+        kinds.addAll(invalidations.keySet());
+        Map<String, KindStatistics> result = new TreeMap<>();
+        for (Class<?> kind : kinds) {
+            int[] dependentCount = dependentCounts.get(kind);
+            long[] invalidationCount = invalidations.get(kind);
+            result.put(kind.getSimpleName(), new KindStatistics(kind.getSimpleName(), dependentCount == null ? 0 : dependentCount[0], invalidationCount == null ? 0 : invalidationCount[0]));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Assumption index:");
+        for (KindStatistics statistics : getStatistics().values()) {
+            sb.append(String.format("%n  %s", statistics));
+        }
+        return sb.toString();
+    }
+}
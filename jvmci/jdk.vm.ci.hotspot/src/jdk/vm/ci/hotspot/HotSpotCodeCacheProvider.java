@@ -22,6 +22,7 @@
  */
 package jdk.vm.ci.hotspot;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 
@@ -47,6 +48,17 @@ public class HotSpotCodeCacheProvider implements CodeCacheProvider {
     protected final TargetDescription target;
     protected final RegisterConfig regConfig;
 
+    /**
+     * The size of the address space reserved for the code cache. This does not change once the VM
+     * has started and is read lazily.
+     */
+    private long reservedCodeCacheBytes;
+
+    /**
+     * The registered code cache usage listeners.
+     */
+    private final ListenerList<UsageListenerRegistration> usageListeners = new ListenerList<>();
+
     public HotSpotCodeCacheProvider(HotSpotJVMCIRuntime runtime, TargetDescription target, RegisterConfig regConfig) {
         this.runtime = runtime;
         this.config = runtime.getConfig();
@@ -134,7 +146,25 @@ public class HotSpotCodeCacheProvider implements CodeCacheProvider {
             speculations = new byte[0];
             failedSpeculationsAddress = 0L;
         }
-        int result = runtime.getCompilerToVM().installCode(target, (HotSpotCompiledCode) compiledCode, resultInstalledCode, failedSpeculationsAddress, speculations);
+        HotSpotReplayRecorder recorder = HotSpotReplayRecorder.current();
+        if (recorder != null) {
+            recorder.recordAssumptions(hsCompiledCode.assumptions);
+            if (log instanceof HotSpotSpeculationLog) {
+                recorder.recordSpeculationLog((HotSpotSpeculationLog) log);
+            }
+        }
+        long start = System.nanoTime();
+        int result;
+        if (HotSpotJVMCIRuntime.Option.EncodeDebugInfo.getBoolean()) {
+            HotSpotCompiledCodeStream debugInfo = HotSpotCompiledCodeStream.encode(target, hsCompiledCode);
+            result = runtime.getCompilerToVM().installCode(target, hsCompiledCode, resultInstalledCode, failedSpeculationsAddress, speculations, debugInfo);
+        } else {
+            result = runtime.getCompilerToVM().installCode(target, hsCompiledCode, resultInstalledCode, failedSpeculationsAddress, speculations);
+        }
+        HotSpotJVMCIMetrics.instance.recordInstallCode(System.nanoTime() - start, config.getCodeInstallResultDescription(result));
+        if (result == config.codeInstallResultOk || result == config.codeInstallResultCacheFull) {
+            checkCodeCacheUsage();
+        }
         if (result != config.codeInstallResultOk) {
             String resultDesc = config.getCodeInstallResultDescription(result);
             if (hsCompiledNmethod != null) {
@@ -152,6 +182,10 @@ public class HotSpotCodeCacheProvider implements CodeCacheProvider {
                 throw new BailoutException("Error installing %s: %s", ((HotSpotCompiledCode) compiledCode).getName(), resultDesc);
             }
         }
+        // The VM has set the compile identifier of an nmethod if one was not provided
+        int compileId = hsCompiledNmethod != null ? hsCompiledNmethod.id : 0;
+        HotSpotInstalledCodeInventory.instance.add((HotSpotInstalledCode) resultInstalledCode, compileId);
+        HotSpotAssumptionIndex.instance.add((HotSpotInstalledCode) resultInstalledCode, compileId, hsCompiledCode.assumptions);
         return logOrDump(resultInstalledCode, compiledCode);
     }
 
@@ -201,4 +235,111 @@ public class HotSpotCodeCacheProvider implements CodeCacheProvider {
     public void resetCompilationStatistics() {
         runtime.getCompilerToVM().resetCompilationStatistics();
     }
+
+    /**
+     * Gets a snapshot of the code cache occupancy. This iterates over all nmethods in the code
+     * cache while holding the {@code CodeCache_lock} so it should not be called on a hot path. Use
+     * {@link #getCodeCachePressure()} for a cheap approximation.
+     */
+    public HotSpotCodeCacheStatistics getCodeCacheStatistics() {
+        long[] values = new long[CompilerToVM.CODE_CACHE_STATISTICS_LENGTH];
+        runtime.getCompilerToVM().getCodeCacheStatistics(values);
+        return new HotSpotCodeCacheStatistics(values);
+    }
+
+    /**
+     * Gets the fraction of the reserved code cache that is in use. The value is read without
+     * taking any lock and may be slightly stale.
+     *
+     * @return a value between 0 and 1
+     */
+    public double getCodeCachePressure() {
+        long reserved = reservedCodeCacheBytes;
+        if (reserved == 0) {
+            reserved = getCodeCacheStatistics().getReservedBytes();
+            reservedCodeCacheBytes = reserved;
+        }
+        long used = runtime.getCompilerToVM().getCodeCacheUsedBytes();
+        return reserved == 0 ? 0D : Math.min(1D, (double) used / reserved);
+    }
+
+    /**
+     * Registers {@code listener} to be notified whenever the {@linkplain #getCodeCachePressure()
+     * code cache pressure} crosses one of {@code thresholds}, either upwards or downwards. The
+     * pressure is checked each time code is installed by this provider. The listener is called on
+     * the installing thread and should not block. The initial pressure is taken at registration
+     * time and does not cause a notification.
+     *
+     * @param thresholds values in the range {@code (0, 1]}
+     * @throws IllegalArgumentException if {@code thresholds} is empty or contains a value outside
+     *             the range {@code (0, 1]}
+     */
+    public void addCodeCacheUsageListener(HotSpotCodeCacheUsageListener listener, double... thresholds) {
+        Objects.requireNonNull(listener);
+        if (thresholds.length == 0) {
+            throw new IllegalArgumentException("at least one threshold is required");
+        }
+        double[] sorted = thresholds.clone();
+        Arrays.sort(sorted);
+        if (!(sorted[0] > 0D) || !(sorted[sorted.length - 1] <= 1D)) {
+            throw new IllegalArgumentException("thresholds must be in the range (0, 1]: " + Arrays.toString(thresholds));
+        }
+        usageListeners.add(new UsageListenerRegistration(listener, sorted, getCodeCachePressure()));
+    }
+
+    /**
+     * Removes all registrations of {@code listener}.
+     *
+     * @return {@code true} if {@code listener} was registered
+     */
+    public boolean removeCodeCacheUsageListener(HotSpotCodeCacheUsageListener listener) {
+        return usageListeners.removeIf(registration -> registration.listener == listener);
+    }
+
+    private void checkCodeCacheUsage() {
+        if (!usageListeners.isEmpty()) {
+            double pressure = getCodeCachePressure();
+            usageListeners.notify(registration -> registration.update(pressure));
+        }
+    }
+
+    private static final class UsageListenerRegistration {
+        final HotSpotCodeCacheUsageListener listener;
+
+        /**
+         * The thresholds in ascending order.
+         */
+        private final double[] thresholds;
+
+        /**
+         * The number of {@link #thresholds} at or below the last observed pressure.
+         */
+        private int level;
+
+        UsageListenerRegistration(HotSpotCodeCacheUsageListener listener, double[] thresholds, double pressure) {
+            this.listener = listener;
+            this.thresholds = thresholds;
+            this.level = levelOf(pressure);
+        }
+
+        private int levelOf(double pressure) {
+            int result = 0;
+            while (result < thresholds.length && thresholds[result] <= pressure) {
+                result++;
+            }
+            return result;
+        }
+
+        synchronized void update(double pressure) {
+            int newLevel = levelOf(pressure);
+            while (level < newLevel) {
+                double threshold = thresholds[level++];
+                ListenerList.invoke(listener, l -> l.thresholdCrossed(threshold, true, pressure));
+            }
+            while (level > newLevel) {
+                double threshold = thresholds[--level];
+                ListenerList.invoke(listener, l -> l.thresholdCrossed(threshold, false, pressure));
+            }
+        }
+    }
 }
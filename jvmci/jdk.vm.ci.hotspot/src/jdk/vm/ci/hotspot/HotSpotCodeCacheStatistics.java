@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import static jdk.vm.ci.hotspot.CompilerToVM.CODE_CACHE_COMMITTED_BYTES;
+import static jdk.vm.ci.hotspot.CompilerToVM.CODE_CACHE_FREE_BYTES;
+import static jdk.vm.ci.hotspot.CompilerToVM.CODE_CACHE_FULL_COUNT;
+import static jdk.vm.ci.hotspot.CompilerToVM.CODE_CACHE_JVMCI_NMETHOD_BYTES;
+import static jdk.vm.ci.hotspot.CompilerToVM.CODE_CACHE_JVMCI_NMETHOD_COUNT;
+import static jdk.vm.ci.hotspot.CompilerToVM.CODE_CACHE_NMETHOD_COUNT;
+import static jdk.vm.ci.hotspot.CompilerToVM.CODE_CACHE_RESERVED_BYTES;
+import static jdk.vm.ci.hotspot.CompilerToVM.CODE_CACHE_USED_BYTES;
+
+/**
+ * A snapshot of the occupancy of the HotSpot code cache.
+ *
+ * @see HotSpotCodeCacheProvider#getCodeCacheStatistics()
+ */
+public final class HotSpotCodeCacheStatistics {
+
+    private final long reservedBytes;
+    private final long committedBytes;
+    private final long usedBytes;
+    private final long freeBytes;
+    private final long nmethodCount;
+    private final long jvmciNmethodCount;
+    private final long jvmciNmethodBytes;
+    private final long fullCount;
+
+    HotSpotCodeCacheStatistics(long[] values) {
+        this.reservedBytes = values[CODE_CACHE_RESERVED_BYTES];
+        this.committedBytes = values[CODE_CACHE_COMMITTED_BYTES];
+        this.usedBytes = values[CODE_CACHE_USED_BYTES];
+        this.freeBytes = values[CODE_CACHE_FREE_BYTES];
+        this.nmethodCount = values[CODE_CACHE_NMETHOD_COUNT];
+        this.jvmciNmethodCount = values[CODE_CACHE_JVMCI_NMETHOD_COUNT];
+        this.jvmciNmethodBytes = values[CODE_CACHE_JVMCI_NMETHOD_BYTES];
+        this.fullCount = values[CODE_CACHE_FULL_COUNT];
+    }
+
+    /**
+     * Gets the size of the address space reserved for the code cache.
+     */
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * Gets the size of the memory currently committed for the code cache.
+     */
+    public long getCommittedBytes() {
+        return committedBytes;
+    }
+
+    /**
+     * Gets the number of bytes allocated to code blobs.
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Gets the number of reserved bytes that are not allocated to code blobs.
+     */
+    public long getFreeBytes() {
+        return freeBytes;
+    }
+
+    /**
+     * Gets the number of nmethods in the code cache, including those not compiled by JVMCI.
+     */
+    public long getNmethodCount() {
+        return nmethodCount;
+    }
+
+    /**
+     * Gets the number of alive nmethods compiled by JVMCI.
+     */
+    public long getJVMCINmethodCount() {
+        return jvmciNmethodCount;
+    }
+
+    /**
+     * Gets the total size in bytes of the alive nmethods compiled by JVMCI.
+     */
+    public long getJVMCINmethodBytes() {
+        return jvmciNmethodBytes;
+    }
+
+    /**
+     * Gets the number of times the code cache has been full.
+     */
+    public long getFullCount() {
+        return fullCount;
+    }
+
+    /**
+     * Gets the fraction of the reserved code cache that is in use.
+     *
+     * @return a value between 0 and 1
+     */
+    public double getPressure() {
+        return reservedBytes == 0 ? 0D : Math.min(1D, (double) usedBytes / reservedBytes);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("used %d of %d bytes (%d committed, %d free), %d nmethods, %d JVMCI nmethods (%d bytes), full %d times",
+                        usedBytes, reservedBytes, committedBytes, freeBytes, nmethodCount, jvmciNmethodCount, jvmciNmethodBytes, fullCount);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+/**
+ * Listener notified when the occupancy of the code cache crosses one of the thresholds it was
+ * registered with.
+ *
+ * @see HotSpotCodeCacheProvider#addCodeCacheUsageListener
+ */
+public interface HotSpotCodeCacheUsageListener {
+
+    /**
+     * Notifies this listener that the code cache pressure has crossed {@code threshold}.
+     *
+     * @param threshold the threshold that was crossed
+     * @param rising {@code true} if the pressure rose to or above {@code threshold}, {@code false}
+     *            if it fell below it
+     * @param pressure the fraction of the reserved code cache that is in use
+     */
+    void thresholdCrossed(double threshold, boolean rising, double pressure);
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import static jdk.vm.ci.hotspot.HotSpotJVMCIRuntime.runtime;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link HotSpotCompilationAdmissionPolicy} that defers compilation requests based on:
+ * <ul>
+ * <li>the {@linkplain HotSpotCodeCacheProvider#getCodeCachePressure() code cache pressure}.</li>
+ * <li>the number of recent compilation failures of the requested method.</li>
+ * <li>a set of excluded class loaders. Unlike
+ * {@link HotSpotJVMCIRuntime#excludeFromJVMCICompilation(ClassLoader...)}, the set can be changed
+ * at any time.</li>
+ * </ul>
+ * All rejections are retryable so that a method whose request was rejected is compiled once the
+ * criterion that rejected it no longer applies (e.g. its failure window expired or its class
+ * loader was removed from the excluded set) and the VM requests its compilation again. Each
+ * criterion is disabled until it is configured.
+ */
+public final class HotSpotCompilationAdmissionControl implements HotSpotCompilationAdmissionPolicy {
+
+    /**
+     * Maximum number of methods whose failures are tracked. Methods are removed from the tracking
+     * table once they compile successfully or their failures are older than the failure window.
+     */
+    private static final int MAX_TRACKED_METHODS = 1024;
+
+    /**
+     * The compilation failures of a method within the current failure window.
+     */
+    private static final class FailureHistory {
+        long windowStart;
+        int count;
+    }
+
+    private final HotSpotCodeCacheProvider codeCache;
+
+    private volatile double maxCodeCachePressure = Double.POSITIVE_INFINITY;
+    private volatile int maxFailures;
+    private volatile long failureWindowNanos;
+    private volatile List<WeakReference<ClassLoader>> excludedLoaders = new ArrayList<>();
+
+    /**
+     * The failure histories keyed by {@code Method*} so that tracking a method does not keep its
+     * class and class loader alive.
+     */
+    private final ConcurrentHashMap<Long, FailureHistory> failures = new ConcurrentHashMap<>();
+
+    public HotSpotCompilationAdmissionControl(HotSpotCodeCacheProvider codeCache) {
+        this.codeCache = codeCache;
+    }
+
+    /**
+     * Defers all requests while the code cache pressure is at or above {@code pressure}.
+     *
+     * @param pressure a value between 0 and 1 or {@link Double#POSITIVE_INFINITY} to disable this
+     *            criterion
+     */
+    public void setMaxCodeCachePressure(double pressure) {
+        if (!(pressure >= 0D)) {
+            throw new IllegalArgumentException("invalid code cache pressure: " + pressure);
+        }
+        this.maxCodeCachePressure = pressure;
+    }
+
+    /**
+     * Defers all requests for a method that has failed to compile {@code count} times within
+     * {@code window} of its first recorded failure, until {@code window} has elapsed.
+     *
+     * @param count the number of failures at which requests are deferred or 0 to disable this
+     *            criterion
+     */
+    public void setMaxFailures(int count, long window, TimeUnit unit) {
+        if (count < 0 || window < 0) {
+            throw new IllegalArgumentException("invalid failure limit: " + count + " in " + window + " " + unit);
+        }
+        this.failureWindowNanos = unit.toNanos(window);
+        this.maxFailures = count;
+        if (count == 0) {
+            failures.clear();
+        }
+    }
+
+    /**
+     * Defers all requests for methods whose declaring class was loaded by one of {@code loaders}.
+     * The loaders are weakly referenced. This replaces any previously excluded loaders.
+     *
+     * This criterion has no effect if the runtime cannot map types to {@link Class} objects (see
+     * {@link HotSpotJVMCIRuntime#getMirror}).
+     */
+    public void setExcludedClassLoaders(ClassLoader... loaders) {
+        List<WeakReference<ClassLoader>> list = new ArrayList<>(loaders.length);
+        for (ClassLoader loader : loaders) {
+            list.add(new WeakReference<>(loader));
+        }
+        this.excludedLoaders = list;
+    }
+
+    @Override
+    public HotSpotCompilationRequestResult admit(HotSpotCompilationRequest request) {
+        HotSpotResolvedJavaMethod method = request.getMethod();
+        if (isExcluded(method)) {
+            return HotSpotCompilationRequestResult.failure("class loader excluded from JVMCI compilation", true);
+        }
+        if (maxFailures != 0) {
+            FailureHistory history = failures.get(key(method));
+            if (history != null) {
+                synchronized (history) {
+                    if (history.count >= maxFailures && System.nanoTime() - history.windowStart <= failureWindowNanos) {
+                        return HotSpotCompilationRequestResult.failure(String.format("failed %d times in %dms", history.count, TimeUnit.NANOSECONDS.toMillis(failureWindowNanos)), true);
+                    }
+                }
+            }
+        }
+        double max = maxCodeCachePressure;
+        if (max <= 1D) {
+            double pressure = codeCache.getCodeCachePressure();
+            if (pressure >= max) {
+                return HotSpotCompilationRequestResult.failure(String.format("code cache pressure %.2f", pressure), true);
+            }
+        }
+        return null;
+    }
+
+    private boolean isExcluded(HotSpotResolvedJavaMethod method) {
+        List<WeakReference<ClassLoader>> loaders = excludedLoaders;
+        if (loaders.isEmpty()) {
+            return false;
+        }
+        Class<?> mirror = runtime().getMirror(method.getDeclaringClass());
+        if (mirror == null) {
+            return false;
+        }
+        ClassLoader loader = mirror.getClassLoader();
+        if (loader == null) {
+            return false;
+        }
+        for (WeakReference<ClassLoader> ref : loaders) {
+            if (ref.get() == loader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void compilationFinished(HotSpotCompilationRecord record) {
+        if (maxFailures == 0) {
+            return;
+        }
+        HotSpotCompilationRecord.Outcome outcome = record.getOutcome();
+        if (outcome == HotSpotCompilationRecord.Outcome.SUCCEEDED) {
+            failures.remove(key(record.getMethod()));
+        } else if (outcome == HotSpotCompilationRecord.Outcome.FAILED) {
+            long now = System.nanoTime();
+            if (failures.size() >= MAX_TRACKED_METHODS) {
+                expire(now);
+            }
+            FailureHistory history = failures.computeIfAbsent(key(record.getMethod()), m -> new FailureHistory());
+            synchronized (history) {
+                if (history.count == 0 || now - history.windowStart > failureWindowNanos) {
+                    history.windowStart = now;
+                    history.count = 0;
+                }
+                history.count++;
+            }
+        }
+    }
+
+    private static Long key(HotSpotResolvedJavaMethod method) {
+        return ((HotSpotResolvedJavaMethodImpl) method).getMetaspaceMethod();
+    }
+
+    /**
+     * Removes the methods whose failures are older than the failure window. If that does not make
+     * room, all failures are forgotten.
+     */
+    private void expire(long now) {
+        for (Iterator<FailureHistory> iter = failures.values().iterator(); iter.hasNext();) {
+            FailureHistory history = iter.next();
+            synchronized (history) {
+                if (now - history.windowStart > failureWindowNanos) {
+                    iter.remove();
+                }
+            }
+        }
+        if (failures.size() >= MAX_TRACKED_METHODS) {
+            failures.clear();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+/**
+ * Decides which compilation requests received by {@link HotSpotJVMCIRuntime#compileMethod} are
+ * passed on to the JVMCI compiler. A policy is called concurrently by all compiler threads.
+ *
+ * @see HotSpotJVMCIRuntime#setCompilationAdmissionPolicy
+ * @see HotSpotCompilationAdmissionControl
+ */
+public interface HotSpotCompilationAdmissionPolicy extends HotSpotCompilationListener {
+
+    /**
+     * Determines if {@code request} is to be compiled.
+     *
+     * @return {@code null} if the request is to be compiled, otherwise the result returned to the
+     *         VM instead of compiling. A {@linkplain HotSpotCompilationRequestResult#getRetry()
+     *         retryable} failure defers the request: the method keeps running in its current
+     *         (interpreted or lower tier) code and the VM may request the compilation again later,
+     *         at which point the policy is consulted again. A non-retryable failure is permanent:
+     *         the VM marks the method as not compilable at the JVMCI tier and never requests its
+     *         compilation again. Policies whose decisions can change over time must therefore
+     *         only return retryable failures.
+     */
+    HotSpotCompilationRequestResult admit(HotSpotCompilationRequest request);
+
+    /**
+     * Notifies this policy of the outcome of a request, including those it rejected.
+     */
+    @Override
+    default void compilationFinished(HotSpotCompilationRecord record) {
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+/**
+ * Timing and outcome of a single compilation request received by
+ * {@link HotSpotJVMCIRuntime#compileMethod}.
+ *
+ * @see HotSpotJVMCIRuntime#addCompilationListener
+ */
+public final class HotSpotCompilationRecord {
+
+    /**
+     * The ways a compilation request can end.
+     */
+    public enum Outcome {
+        /**
+         * The compiler produced code for the request.
+         */
+        SUCCEEDED,
+
+        /**
+         * The compiler reported a failure (e.g. a bailout).
+         */
+        FAILED,
+
+        /**
+         * The {@link HotSpotCompilationAdmissionPolicy} rejected the request but allowed the VM to
+         * issue it again later.
+         */
+        DEFERRED,
+
+        /**
+         * The {@link HotSpotCompilationAdmissionPolicy} rejected the request permanently. The VM
+         * marks the method as not compilable at the JVMCI tier.
+         */
+        DROPPED
+    }
+
+    private final int id;
+    private final HotSpotResolvedJavaMethod method;
+    private final int entryBCI;
+    private final Outcome outcome;
+    private final String failureMessage;
+    private final long queueNanos;
+    private final long compileNanos;
+    private final long allocatedBytes;
+
+    HotSpotCompilationRecord(HotSpotCompilationRequest request, Outcome outcome, String failureMessage, long queueNanos, long compileNanos, long allocatedBytes) {
+        this.id = request.getId();
+        this.method = request.getMethod();
+        this.entryBCI = request.getEntryBCI();
+        this.outcome = outcome;
+        this.failureMessage = failureMessage;
+        this.queueNanos = queueNanos;
+        this.compileNanos = compileNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Gets the VM allocated identifier of the request.
+     */
+    public int getId() {
+        return id;
+    }
+
+    public HotSpotResolvedJavaMethod getMethod() {
+        return method;
+    }
+
+    public int getEntryBCI() {
+        return entryBCI;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Gets the failure reported by the compiler or the reason the request was rejected.
+     *
+     * @return {@code null} if the outcome is {@link Outcome#SUCCEEDED}
+     */
+    public String getFailureMessage() {
+        return failureMessage;
+    }
+
+    /**
+     * Gets the time the request spent in the VM's compile queue.
+     *
+     * @return -1 if the request did not come from the compile queue
+     */
+    public long getQueueNanos() {
+        return queueNanos;
+    }
+
+    /**
+     * Gets the time spent in {@link jdk.vm.ci.runtime.JVMCICompiler#compileMethod}. This is 0 for
+     * a rejected request.
+     */
+    public long getCompileNanos() {
+        return compileNanos;
+    }
+
+    /**
+     * Gets the number of bytes allocated in the HotSpot heap by the compiler thread while
+     * processing the request. This does not include memory allocated by a compiler running in the
+     * JVMCI shared library.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        String bci = entryBCI == -1 ? "" : "@" + entryBCI;
+        String failure = failureMessage == null ? "" : " (" + failureMessage + ")";
+        return String.format("%d:%s%s %s%s queue=%dns compile=%dns allocated=%dB", id, method.format("%H.%n(%p)"), bci, outcome, failure, queueNanos, compileNanos, allocatedBytes);
+    }
+}
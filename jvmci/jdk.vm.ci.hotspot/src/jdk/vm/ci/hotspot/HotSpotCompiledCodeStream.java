@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Map;
+
+import jdk.vm.ci.code.BytecodeFrame;
+import jdk.vm.ci.code.BytecodePosition;
+import jdk.vm.ci.code.DebugInfo;
+import jdk.vm.ci.code.Location;
+import jdk.vm.ci.code.ReferenceMap;
+import jdk.vm.ci.code.Register;
+import jdk.vm.ci.code.RegisterSaveLayout;
+import jdk.vm.ci.code.RegisterValue;
+import jdk.vm.ci.code.StackLockValue;
+import jdk.vm.ci.code.StackSlot;
+import jdk.vm.ci.code.TargetDescription;
+import jdk.vm.ci.code.VirtualObject;
+import jdk.vm.ci.code.site.Call;
+import jdk.vm.ci.code.site.Infopoint;
+import jdk.vm.ci.code.site.InfopointReason;
+import jdk.vm.ci.code.site.Site;
+import jdk.vm.ci.common.JVMCIError;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.JavaValue;
+import jdk.vm.ci.meta.PlatformKind;
+import jdk.vm.ci.meta.PrimitiveConstant;
+import jdk.vm.ci.meta.RawConstant;
+import jdk.vm.ci.meta.Value;
+
+/**
+ * Encodes the debug info of the {@link Infopoint} sites in a {@link HotSpotCompiledCode} into a
+ * compact byte stream that the VM decodes in a single pass while installing the code, instead of
+ * reading the {@link DebugInfo}, {@link BytecodeFrame} and {@link VirtualObject} graph one field at
+ * a time. The stream starts with {@link #MAGIC} and {@link #VERSION} followed by one entry per
+ * {@link Infopoint} in {@link HotSpotCompiledCode#sites} order.
+ *
+ * Integers are written as unsigned LEB128 values, with signed values zig-zag encoded first. Methods
+ * and types are written as metadata handles and {@code Klass*} pointers respectively. They are kept
+ * alive by the compiled code while it is being installed. Object constants are written as indexes
+ * into {@link #getObjectPool()}.
+ */
+// The format is decoded by CodeInstaller in jvmciCodeInstaller.cpp - keep in sync.
+final class HotSpotCompiledCodeStream extends ByteArrayOutputStream {
+
+    static final int MAGIC = 0x4A564349;
+    static final int VERSION = 1;
+
+    static final int ILLEGAL = 0;
+    static final int REGISTER = 1;
+    /**
+     * A register whose platform kind is not the word kind (e.g. a compressed oop).
+     */
+    static final int REGISTER_NARROW = 2;
+    static final int STACK_SLOT = 3;
+    /**
+     * A stack slot whose platform kind is not the word kind (e.g. a compressed oop).
+     */
+    static final int STACK_SLOT_NARROW = 4;
+    static final int NULL_CONSTANT = 5;
+    static final int RAW_CONSTANT = 6;
+    static final int PRIMITIVE_CONSTANT = 7;
+    static final int OBJECT_CONSTANT = 8;
+    static final int VIRTUAL_OBJECT = 9;
+
+    static final int LOCATION_NONE = 0;
+    static final int LOCATION_REGISTER = 1;
+    static final int LOCATION_STACK = 2;
+
+    private final PlatformKind wordKind;
+    private final int totalFrameSize;
+    private final ArrayList<Object> objectPool = new ArrayList<>();
+
+    private HotSpotCompiledCodeStream(TargetDescription target, HotSpotCompiledCode compiledCode) {
+        super(256);
+        this.wordKind = target.arch.getWordKind();
+        this.totalFrameSize = compiledCode.totalFrameSize;
+    }
+
+    /**
+     * Encodes the debug info of {@code compiledCode}.
+     *
+     * @throws JVMCIError if the debug info is malformed in a way the VM would also reject
+     */
+    static HotSpotCompiledCodeStream encode(TargetDescription target, HotSpotCompiledCode compiledCode) {
+        HotSpotCompiledCodeStream stream = new HotSpotCompiledCodeStream(target, compiledCode);
+        stream.writeUnsigned(MAGIC);
+        stream.writeUnsigned(VERSION);
+        for (Site site : compiledCode.sites) {
+            if (site instanceof Infopoint) {
+                stream.writeInfopoint((Infopoint) site);
+            }
+        }
+        return stream;
+    }
+
+    /**
+     * Gets the objects referenced by index from the stream.
+     */
+    Object[] getObjectPool() {
+        return objectPool.toArray();
+    }
+
+    /**
+     * Determines if the VM records a full frame state and a reference map for {@code site}. This
+     * mirrors the dispatch in {@code CodeInstaller::initialize_buffer}.
+     */
+    private static boolean isSafepoint(Infopoint site) {
+        return site instanceof Call || site.reason == InfopointReason.SAFEPOINT || site.reason == InfopointReason.CALL || site.reason == InfopointReason.IMPLICIT_EXCEPTION;
+    }
+
+    private void writeInfopoint(Infopoint site) {
+        DebugInfo debugInfo = site.debugInfo;
+        writeBoolean(debugInfo != null);
+        if (debugInfo == null) {
+            return;
+        }
+        boolean fullFrame = isSafepoint(site);
+        if (fullFrame) {
+            writeReferenceMap(debugInfo.getReferenceMap());
+            writeCalleeSaveInfo(debugInfo.getCalleeSaveInfo());
+        }
+        BytecodePosition position = debugInfo.getBytecodePosition();
+        writeBoolean(position != null);
+        if (position == null) {
+            // Stubs do not record scope info, just oop maps
+            return;
+        }
+        if (fullFrame) {
+            writeVirtualObjects(debugInfo.getVirtualObjectMapping());
+        }
+        int depth = 0;
+        for (BytecodePosition p = position; p != null; p = p.getCaller()) {
+            depth++;
+        }
+        writeUnsigned(depth);
+        writePosition(position, fullFrame, site.pcOffset);
+    }
+
+    private void writeReferenceMap(ReferenceMap referenceMap) {
+        if (referenceMap == null) {
+            throw new NullPointerException();
+        }
+        if (!(referenceMap instanceof HotSpotReferenceMap)) {
+            throw new JVMCIError("unknown reference map: %s", referenceMap.getClass().getName());
+        }
+        HotSpotReferenceMap map = (HotSpotReferenceMap) referenceMap;
+        if (map.objects.length != map.derivedBase.length || map.objects.length != map.sizeInBytes.length) {
+            throw new JVMCIError("arrays in reference map have different sizes: %d %d %d", map.objects.length, map.derivedBase.length, map.sizeInBytes.length);
+        }
+        writeUnsigned(map.maxRegisterSize);
+        writeUnsigned(map.objects.length);
+        for (int i = 0; i < map.objects.length; i++) {
+            if (map.objects[i] == null) {
+                throw new NullPointerException();
+            }
+            writeLocation(map.objects[i]);
+            writeLocation(map.derivedBase[i]);
+            writeUnsigned(map.sizeInBytes[i]);
+        }
+    }
+
+    private void writeLocation(Location location) {
+        if (location == null) {
+            writeByte(LOCATION_NONE);
+        } else if (location.reg != null) {
+            writeByte(LOCATION_REGISTER);
+            writeUnsigned(location.reg.number);
+            writeSigned(location.offset);
+        } else {
+            writeByte(LOCATION_STACK);
+            writeSigned(location.offset);
+        }
+    }
+
+    private void writeCalleeSaveInfo(RegisterSaveLayout calleeSaveInfo) {
+        if (calleeSaveInfo == null) {
+            writeUnsigned(0);
+            return;
+        }
+        Map<Register, Integer> registersToSlots = calleeSaveInfo.registersToSlots(false);
+        writeUnsigned(registersToSlots.size());
+        for (Map.Entry<Register, Integer> e : registersToSlots.entrySet()) {
+            writeUnsigned(e.getKey().number);
+            writeSigned(e.getValue());
+        }
+    }
+
+    private void writeVirtualObjects(VirtualObject[] virtualObjects) {
+        if (virtualObjects == null) {
+            writeUnsigned(0);
+            return;
+        }
+        // The count is biased by one to distinguish an empty mapping from no mapping
+        writeUnsigned(virtualObjects.length + 1);
+        for (VirtualObject vobj : virtualObjects) {
+            writeSigned(vobj.getId());
+            writeType(vobj);
+            writeBoolean(vobj.isAutoBox());
+            JavaValue baseObject = vobj.getBaseObject();
+            writeBoolean(baseObject != null);
+            if (baseObject != null) {
+                writeValue(baseObject);
+            }
+        }
+        for (VirtualObject vobj : virtualObjects) {
+            JavaValue[] values = vobj.getValues();
+            writeUnsigned(values.length);
+            for (int i = 0; i < values.length; i++) {
+                writeKind(vobj.getSlotKind(i));
+                writeValue(values[i]);
+            }
+        }
+    }
+
+    private void writeType(VirtualObject vobj) {
+        writeUnsignedLong(((HotSpotResolvedObjectTypeImpl) vobj.getType()).getMetaspaceKlass());
+    }
+
+    /**
+     * Writes the frames of {@code position} starting with the outermost caller.
+     */
+    private void writePosition(BytecodePosition position, boolean fullFrame, int pcOffset) {
+        BytecodePosition caller = position.getCaller();
+        if (caller != null) {
+            writePosition(caller, fullFrame, pcOffset);
+        }
+        writeUnsignedLong(((HotSpotResolvedJavaMethodImpl) position.getMethod()).getMetadataHandle());
+        writeSigned(position.getBCI());
+        if (!fullFrame) {
+            return;
+        }
+        if (!(position instanceof BytecodeFrame)) {
+            throw new JVMCIError("Full frame expected for debug info at %d", pcOffset);
+        }
+        BytecodeFrame frame = (BytecodeFrame) position;
+        int localCount = frame.numLocals;
+        int expressionCount = frame.numStack;
+        int monitorCount = frame.numLocks;
+        if (localCount + expressionCount + monitorCount != frame.values.length) {
+            throw new JVMCIError("unexpected values length %d in scope (%d locals, %d expressions, %d monitors)", frame.values.length, localCount, expressionCount, monitorCount);
+        }
+        writeBoolean(frame.duringCall);
+        writeBoolean(frame.rethrowException);
+        writeUnsigned(localCount);
+        writeUnsigned(expressionCount);
+        writeUnsigned(monitorCount);
+        for (int i = 0; i < localCount; i++) {
+            writeKind(frame.getLocalValueKind(i));
+            writeValue(frame.values[i]);
+        }
+        for (int i = 0; i < expressionCount; i++) {
+            writeKind(frame.getStackValueKind(i));
+            writeValue(frame.values[localCount + i]);
+        }
+        for (int i = 0; i < monitorCount; i++) {
+            JavaValue value = frame.getLockValue(i);
+            if (value == null) {
+                throw new NullPointerException();
+            }
+            if (!(value instanceof StackLockValue)) {
+                throw new JVMCIError("Monitors must be of type StackLockValue, got %s", value.getClass().getName());
+            }
+            StackLockValue lock = (StackLockValue) value;
+            writeValue(lock.getOwner());
+            writeValue(lock.getSlot());
+            writeBoolean(lock.isEliminated());
+        }
+    }
+
+    private void writeKind(JavaKind kind) {
+        if (kind == null) {
+            throw new NullPointerException();
+        }
+        writeByte(kind.getTypeChar());
+    }
+
+    private void writeValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        } else if (value == Value.ILLEGAL) {
+            writeByte(ILLEGAL);
+        } else if (value instanceof RegisterValue) {
+            RegisterValue reg = (RegisterValue) value;
+            writeByte(reg.getPlatformKind() == wordKind ? REGISTER : REGISTER_NARROW);
+            writeUnsigned(reg.getRegister().number);
+        } else if (value instanceof StackSlot) {
+            StackSlot slot = (StackSlot) value;
+            writeByte(slot.getPlatformKind() == wordKind ? STACK_SLOT : STACK_SLOT_NARROW);
+            writeSigned(slot.getOffset(totalFrameSize));
+        } else if (value == JavaConstant.NULL_POINTER || value instanceof HotSpotCompressedNullConstant) {
+            writeByte(NULL_CONSTANT);
+        } else if (value instanceof RawConstant) {
+            writeByte(RAW_CONSTANT);
+            writeSignedLong(((RawConstant) value).asLong());
+        } else if (value instanceof PrimitiveConstant) {
+            PrimitiveConstant constant = (PrimitiveConstant) value;
+            writeByte(PRIMITIVE_CONSTANT);
+            writeKind(constant.getJavaKind());
+            writeSignedLong(rawValue(constant));
+        } else if (value instanceof HotSpotObjectConstantImpl) {
+            writeByte(OBJECT_CONSTANT);
+            writeUnsigned(objectPool.size());
+            objectPool.add(value);
+        } else if (value instanceof VirtualObject) {
+            writeByte(VIRTUAL_OBJECT);
+            writeSigned(((VirtualObject) value).getId());
+        } else {
+            throw new JVMCIError("unexpected value in scope: %s", value.getClass().getName());
+        }
+    }
+
+    /**
+     * Gets the value of the {@code primitive} field of {@code constant}.
+     */
+    private static long rawValue(PrimitiveConstant constant) {
+        switch (constant.getJavaKind()) {
+            case Float:
+                return Float.floatToRawIntBits(constant.asFloat());
+            case Double:
+                return Double.doubleToRawLongBits(constant.asDouble());
+            case Long:
+                return constant.asLong();
+            default:
+                return constant.asInt();
+        }
+    }
+
+    private void writeByte(int value) {
+        write(value);
+    }
+
+    private void writeBoolean(boolean value) {
+        write(value ? 1 : 0);
+    }
+
+    private void writeUnsigned(int value) {
+        writeUnsignedLong(value & 0xFFFFFFFFL);
+    }
+
+    private void writeSigned(int value) {
+        writeUnsigned((value << 1) ^ (value >> 31));
+    }
+
+    private void writeSignedLong(long value) {
+        writeUnsignedLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeUnsignedLong(long value) {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        write((int) v);
+    }
+}
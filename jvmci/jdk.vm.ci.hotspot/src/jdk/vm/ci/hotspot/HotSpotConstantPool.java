@@ -27,8 +27,11 @@ import static jdk.vm.ci.hotspot.HotSpotJVMCIRuntime.runtime;
 import static jdk.vm.ci.hotspot.HotSpotVMConfig.config;
 import static jdk.vm.ci.hotspot.UnsafeAccess.UNSAFE;
 
+import java.util.Arrays;
+
 import jdk.vm.ci.common.JVMCIError;
 import jdk.vm.ci.common.NativeImageReinitialize;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime.Option;
 import jdk.vm.ci.meta.ConstantPool;
 import jdk.vm.ci.meta.JavaConstant;
 import jdk.vm.ci.meta.JavaField;
@@ -199,6 +202,12 @@ public final class HotSpotConstantPool implements ConstantPool, MetaspaceHandleO
     private volatile LookupTypeCacheElement lastLookupType;
     private final JvmConstants constants;
 
+    /**
+     * Cache of resolved entries. This is allocated on first use if
+     * {@link Option#UseConstantPoolEntryCache} is enabled.
+     */
+    private volatile ConstantPoolEntryCache entryCache;
+
     /**
      * Gets the JVMCI mirror from a HotSpot constant pool.The VM is responsible for ensuring that
      * the ConstantPool is kept alive for the duration of this call and the
@@ -287,6 +296,27 @@ public final class HotSpotConstantPool implements ConstantPool, MetaspaceHandleO
         return getMetaspacePointer();
     }
 
+    /**
+     * Gets the cache of resolved entries for this constant pool.
+     *
+     * @return {@code null} if the cache is disabled
+     */
+    private ConstantPoolEntryCache getEntryCache() {
+        if (!Option.UseConstantPoolEntryCache.getBoolean()) {
+            return null;
+        }
+        ConstantPoolEntryCache cache = entryCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = entryCache;
+                if (cache == null) {
+                    entryCache = cache = new ConstantPoolEntryCache(length());
+                }
+            }
+        }
+        return cache;
+    }
+
     @Override
     public long getMetadataHandle() {
         return metadataHandle;
@@ -546,11 +576,24 @@ public final class HotSpotConstantPool implements ConstantPool, MetaspaceHandleO
     @Override
     public String lookupUtf8(int cpi) {
         assert checkTag(cpi, constants.jvmUtf8);
+        ConstantPoolEntryCache cache = getEntryCache();
+        if (cache != null) {
+            String utf8 = cache.getUtf8(cpi);
+            if (utf8 == null) {
+                utf8 = compilerToVM().getSymbol(getEntryAt(cpi));
+                cache.putUtf8(cpi, utf8);
+            }
+            return utf8;
+        }
         return compilerToVM().getSymbol(getEntryAt(cpi));
     }
 
     @Override
     public Signature lookupSignature(int cpi) {
+        if (Option.UseSignatureCache.getBoolean()) {
+            assert checkTag(cpi, constants.jvmUtf8);
+            return SignatureCache.lookup(getEntryAt(cpi), () -> lookupUtf8(cpi));
+        }
         return new HotSpotSignature(runtime(), lookupUtf8(cpi));
     }
 
@@ -577,28 +620,169 @@ public final class HotSpotConstantPool implements ConstantPool, MetaspaceHandleO
 
     @Override
     public JavaMethod lookupMethod(int cpi, int opcode) {
+        JavaMethod replayed = replayEntry(cpi, opcode, JavaMethod.class);
+        if (replayed != null) {
+            return replayed;
+        }
+        return recordEntry(cpi, opcode, lookupMethod0(cpi, opcode));
+    }
+
+    private JavaMethod lookupMethod0(int cpi, int opcode) {
+        ConstantPoolEntryCache cache = opcode != Bytecodes.INVOKEDYNAMIC ? getEntryCache() : null;
+        if (cache != null) {
+            HotSpotResolvedJavaMethodImpl cached = cache.getMethod(cpi, opcode);
+            if (cached != null) {
+                return cached;
+            }
+        }
         final int index = rawIndexToConstantPoolCacheIndex(cpi, opcode);
-        final HotSpotResolvedJavaMethod method = compilerToVM().lookupMethodInPool(this, index, (byte) opcode);
+        final HotSpotResolvedJavaMethodImpl method = compilerToVM().lookupMethodInPool(this, index, (byte) opcode);
         if (method != null) {
-            return method;
+            return resolvedMethod(cache, cpi, opcode, method);
         } else {
             // Get the method's name and signature.
             String name = getNameOf(index);
-            HotSpotSignature signature = new HotSpotSignature(runtime(), getSignatureOf(index));
-            if (opcode == Bytecodes.INVOKEDYNAMIC) {
-                HotSpotResolvedObjectType holder = runtime().getMethodHandleClass();
-                return new UnresolvedJavaMethod(name, signature, holder);
-            } else {
-                final int klassIndex = getKlassRefIndexAt(index);
-                final Object type = compilerToVM().lookupKlassInPool(this, klassIndex);
-                JavaType holder = getJavaType(type);
-                return new UnresolvedJavaMethod(name, signature, holder);
+            String descriptor = getSignatureOf(index);
+            Object holder = opcode == Bytecodes.INVOKEDYNAMIC ? null : compilerToVM().lookupKlassInPool(this, getKlassRefIndexAt(index));
+            return unresolvedMethod(opcode, name, descriptor, holder);
+        }
+    }
+
+    private HotSpotResolvedJavaMethodImpl resolvedMethod(ConstantPoolEntryCache cache, int cpi, int opcode, HotSpotResolvedJavaMethodImpl method) {
+        if (cache != null && !isSignaturePolymorphicHolder(method.getDeclaringClass())) {
+            // The method for a signature polymorphic call site changes once it is linked
+            cache.putMethod(cpi, opcode, method);
+        }
+        return method;
+    }
+
+    /**
+     * Creates the method for an invoke whose target is not resolved.
+     *
+     * @param holder the result of {@link CompilerToVM#lookupKlassInPool} for the holder of the
+     *            method or {@code null} for {@code invokedynamic}
+     */
+    private static JavaMethod unresolvedMethod(int opcode, String name, String descriptor, Object holder) {
+        HotSpotSignature signature = Option.UseSignatureCache.getBoolean() ? SignatureCache.intern(descriptor) : new HotSpotSignature(runtime(), descriptor);
+        if (opcode == Bytecodes.INVOKEDYNAMIC) {
+            return new UnresolvedJavaMethod(name, signature, runtime().getMethodHandleClass());
+        } else {
+            return new UnresolvedJavaMethod(name, signature, getJavaType(holder));
+        }
+    }
+
+    /**
+     * Looks up the methods denoted by a number of invoke instructions with a constant number of
+     * transitions into the VM. This is equivalent to calling {@link #lookupMethod(int, int)} for
+     * each pair of elements of {@code cpis} and {@code opcodes} but avoids the per-entry overhead of
+     * calling into the VM, making it suitable for prefetching the call targets of a method before
+     * parsing its bytecodes.
+     *
+     * @param cpis the raw operands of the invoke instructions
+     * @param opcodes the opcodes of the invoke instructions
+     * @return the methods denoted by the instructions, in the same order as {@code cpis}
+     * @throws IllegalArgumentException if {@code cpis} and {@code opcodes} differ in length
+     */
+    public JavaMethod[] lookupMethods(int[] cpis, int[] opcodes) {
+        if (cpis.length != opcodes.length) {
+            throw new IllegalArgumentException(cpis.length + " != " + opcodes.length);
+        }
+        JavaMethod[] result = new JavaMethod[cpis.length];
+        if (HotSpotReplayMetaAccessProvider.current() != null) {
+            for (int i = 0; i < cpis.length; i++) {
+                result[i] = lookupMethod(cpis[i], opcodes[i]);
+            }
+            return result;
+        }
+        ConstantPoolEntryCache cache = getEntryCache();
+
+        // Look up all the methods not in the entry cache
+        int[] pending = new int[cpis.length];
+        int pendingCount = 0;
+        for (int i = 0; i < cpis.length; i++) {
+            if (cache != null && opcodes[i] != Bytecodes.INVOKEDYNAMIC) {
+                result[i] = cache.getMethod(cpis[i], opcodes[i]);
+            }
+            if (result[i] == null) {
+                pending[pendingCount++] = i;
             }
         }
+        if (pendingCount != 0) {
+            int[] indexes = new int[pendingCount];
+            byte[] pendingOpcodes = new byte[pendingCount];
+            for (int j = 0; j < pendingCount; j++) {
+                int i = pending[j];
+                indexes[j] = rawIndexToConstantPoolCacheIndex(cpis[i], opcodes[i]);
+                pendingOpcodes[j] = (byte) opcodes[i];
+            }
+            HotSpotResolvedJavaMethodImpl[] methods = new HotSpotResolvedJavaMethodImpl[pendingCount];
+            compilerToVM().lookupMethodsInPool(this, indexes, pendingOpcodes, methods);
+
+            // Get the name, signature and holder of all the unresolved methods
+            int[] unresolved = new int[pendingCount];
+            int unresolvedCount = 0;
+            for (int j = 0; j < pendingCount; j++) {
+                int i = pending[j];
+                if (methods[j] != null) {
+                    result[i] = resolvedMethod(cache, cpis[i], opcodes[i], methods[j]);
+                } else {
+                    unresolved[unresolvedCount] = indexes[j];
+                    pending[unresolvedCount++] = i;
+                }
+            }
+            if (unresolvedCount != 0) {
+                unresolved = Arrays.copyOf(unresolved, unresolvedCount);
+                String[] names = new String[unresolvedCount];
+                String[] descriptors = new String[unresolvedCount];
+                compilerToVM().lookupNamesInPool(this, unresolved, names);
+                compilerToVM().lookupSignaturesInPool(this, unresolved, descriptors);
+
+                int[] holderIndexes = new int[unresolvedCount];
+                int holderCount = 0;
+                for (int j = 0; j < unresolvedCount; j++) {
+                    if (opcodes[pending[j]] != Bytecodes.INVOKEDYNAMIC) {
+                        holderIndexes[holderCount++] = unresolved[j];
+                    }
+                }
+                Object[] holders = new Object[holderCount];
+                if (holderCount != 0) {
+                    holderIndexes = Arrays.copyOf(holderIndexes, holderCount);
+                    int[] holderCpis = new int[holderCount];
+                    compilerToVM().lookupKlassRefIndexesInPool(this, holderIndexes, holderCpis);
+                    compilerToVM().lookupKlassesInPool(this, holderCpis, holders);
+                }
+                for (int j = 0, h = 0; j < unresolvedCount; j++) {
+                    int i = pending[j];
+                    Object holder = opcodes[i] == Bytecodes.INVOKEDYNAMIC ? null : holders[h++];
+                    result[i] = unresolvedMethod(opcodes[i], names[j], descriptors[j], holder);
+                }
+            }
+        }
+        for (int i = 0; i < cpis.length; i++) {
+            recordEntry(cpis[i], opcodes[i], result[i]);
+        }
+        return result;
     }
 
     @Override
     public JavaType lookupType(int cpi, int opcode) {
+        JavaType replayed = replayEntry(cpi, opcode, JavaType.class);
+        if (replayed != null) {
+            return replayed;
+        }
+        return recordEntry(cpi, opcode, lookupType0(cpi));
+    }
+
+    private JavaType lookupType0(int cpi) {
+        ConstantPoolEntryCache cache = getEntryCache();
+        if (cache != null) {
+            JavaType type = cache.getType(cpi);
+            if (type == null) {
+                type = getJavaType(compilerToVM().lookupKlassInPool(this, cpi));
+                cache.putType(cpi, type);
+            }
+            return type;
+        }
         final LookupTypeCacheElement elem = this.lastLookupType;
         if (elem != null && elem.lastCpi == cpi) {
             return elem.javaType;
@@ -612,6 +796,41 @@ public final class HotSpotConstantPool implements ConstantPool, MetaspaceHandleO
         }
     }
 
+    /**
+     * Looks up the types denoted by a number of {@code JVM_CONSTANT_Class} entries with a single
+     * transition into the VM. This is equivalent to calling {@link #lookupType(int, int)} for each
+     * element of {@code cpis} but avoids the per-entry overhead of calling into the VM, making it
+     * suitable for prefetching the types referenced by a method before parsing its bytecodes.
+     *
+     * @param cpis indexes of {@code JVM_CONSTANT_Class} entries in this constant pool
+     * @return the types denoted by the entries, in the same order as {@code cpis}
+     * @throws IllegalArgumentException if an element of {@code cpis} does not denote a
+     *             {@code JVM_CONSTANT_Class} entry
+     */
+    public JavaType[] lookupTypes(int[] cpis) {
+        if (HotSpotReplayMetaAccessProvider.current() != null) {
+            JavaType[] result = new JavaType[cpis.length];
+            for (int i = 0; i < cpis.length; i++) {
+                result[i] = lookupType(cpis[i], -1);
+            }
+            return result;
+        }
+        Object[] types = new Object[cpis.length];
+        if (cpis.length != 0) {
+            compilerToVM().lookupKlassesInPool(this, cpis, types);
+        }
+        ConstantPoolEntryCache cache = getEntryCache();
+        JavaType[] result = new JavaType[cpis.length];
+        for (int i = 0; i < cpis.length; i++) {
+            result[i] = getJavaType(types[i]);
+            if (cache != null) {
+                cache.putType(cpis[i], result[i]);
+            }
+            recordEntry(cpis[i], -1, result[i]);
+        }
+        return result;
+    }
+
     @Override
     public JavaType lookupReferencedType(int cpi, int opcode) {
         int index;
@@ -647,6 +866,21 @@ public final class HotSpotConstantPool implements ConstantPool, MetaspaceHandleO
 
     @Override
     public JavaField lookupField(int cpi, ResolvedJavaMethod method, int opcode) {
+        JavaField replayed = replayEntry(cpi, opcode, JavaField.class);
+        if (replayed != null) {
+            return replayed;
+        }
+        return recordEntry(cpi, opcode, lookupField0(cpi, method, opcode));
+    }
+
+    private JavaField lookupField0(int cpi, ResolvedJavaMethod method, int opcode) {
+        ConstantPoolEntryCache cache = getEntryCache();
+        if (cache != null) {
+            HotSpotResolvedJavaField cached = cache.getField(cpi, method, opcode);
+            if (cached != null) {
+                return cached;
+            }
+        }
         final int index = rawIndexToConstantPoolCacheIndex(cpi, opcode);
         final int nameAndTypeIndex = getNameAndTypeRefIndexAt(index);
         final int typeIndex = getSignatureRefIndexAt(nameAndTypeIndex);
@@ -672,12 +906,45 @@ public final class HotSpotConstantPool implements ConstantPool, MetaspaceHandleO
             final int offset = info[1];
             final int fieldIndex = info[2];
             HotSpotResolvedJavaField result = resolvedHolder.createField(type, offset, flags, fieldIndex);
+            if (cache != null) {
+                cache.putField(cpi, method, result);
+            }
             return result;
         } else {
             return new UnresolvedJavaField(holder, lookupUtf8(getNameRefIndexAt(nameAndTypeIndex)), type);
         }
     }
 
+    /**
+     * Gets the recorded result of a constant pool lookup if a
+     * {@link HotSpotReplayMetaAccessProvider} is active on the current thread.
+     *
+     * @return {@code null} if no provider is active or it has no entry of type {@code kind} for
+     *         the lookup
+     */
+    private <T> T replayEntry(int cpi, int opcode, Class<T> kind) {
+        HotSpotReplayMetaAccessProvider replay = HotSpotReplayMetaAccessProvider.current();
+        if (replay != null) {
+            Object entry = replay.lookupConstantPoolEntry(getHolder(), cpi, opcode);
+            if (kind.isInstance(entry)) {
+                return kind.cast(entry);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records the result of a constant pool lookup if a {@link HotSpotReplayRecorder} is active on
+     * the current thread.
+     */
+    private <T> T recordEntry(int cpi, int opcode, T entry) {
+        HotSpotReplayRecorder recorder = HotSpotReplayRecorder.current();
+        if (recorder != null) {
+            recorder.recordConstantPoolEntry(getHolder(), cpi, opcode, entry);
+        }
+        return entry;
+    }
+
     /**
      * Converts a raw index from the bytecodes to a constant pool index (not a cache index).
      *
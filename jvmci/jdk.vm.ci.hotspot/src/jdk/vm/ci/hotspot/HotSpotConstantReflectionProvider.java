@@ -166,8 +166,13 @@ public class HotSpotConstantReflectionProvider implements ConstantReflectionProv
         if (hotspotField.isStatic()) {
             HotSpotResolvedObjectTypeImpl holder = (HotSpotResolvedObjectTypeImpl) hotspotField.getDeclaringClass();
             if (holder.isInitialized()) {
-                return runtime().compilerToVm.readFieldValue(holder, (HotSpotResolvedObjectTypeImpl) hotspotField.getDeclaringClass(), hotspotField.getOffset(), field.isVolatile(),
+                JavaConstant value = runtime().compilerToVm.readFieldValue(holder, (HotSpotResolvedObjectTypeImpl) hotspotField.getDeclaringClass(), hotspotField.getOffset(), field.isVolatile(),
                                 hotspotField.getType().getJavaKind());
+                HotSpotReplayRecorder recorder = HotSpotReplayRecorder.current();
+                if (recorder != null) {
+                    recorder.recordFieldValue(field, value);
+                }
+                return value;
             }
         } else if (receiver instanceof HotSpotObjectConstantImpl) {
             return ((HotSpotObjectConstantImpl) receiver).readFieldValue(hotspotField, field.isVolatile());
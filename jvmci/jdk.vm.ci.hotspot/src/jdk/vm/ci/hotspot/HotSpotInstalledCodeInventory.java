@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * An inventory of the code installed by {@link HotSpotCodeCacheProvider}. The details of each code
+ * blob are captured when it is installed and the blob is identified by its address and, for an
+ * nmethod, its compile identifier. An entry is kept until the VM has freed the blob, regardless of
+ * whether its {@link HotSpotInstalledCode} object is still alive. The inventory only weakly
+ * references the {@link HotSpotInstalledCode} objects and does not reference the methods the code
+ * was compiled for so it does not extend their lifetime. The inventory is available via
+ * {@link HotSpotJVMCIRuntime#getInstalledCodeInventory()}.
+ */
+public final class HotSpotInstalledCodeInventory {
+
+    static final HotSpotInstalledCodeInventory instance = new HotSpotInstalledCodeInventory();
+
+    /**
+     * The details of a code blob captured when it was installed.
+     */
+    private static final class Record {
+        final WeakReference<HotSpotInstalledCode> code;
+        final long address;
+        final int compileId;
+        final String name;
+        final String holder;
+        final String method;
+        final long installTimeMillis;
+        final int size;
+        final long codeSize;
+        final long start;
+        final long entryPoint;
+
+        Record(HotSpotInstalledCode code, int compileId, long installTimeMillis) {
+            this.code = new WeakReference<>(code);
+            this.address = code.getAddress();
+            this.compileId = compileId;
+            this.name = code.getName();
+            if (code instanceof HotSpotNmethod) {
+                ResolvedJavaMethod m = ((HotSpotNmethod) code).getMethod();
+                this.holder = m.getDeclaringClass().toJavaName();
+                this.method = m.getName() + m.getSignature().toMethodDescriptor();
+            } else {
+                this.holder = null;
+                this.method = null;
+            }
+            this.installTimeMillis = installTimeMillis;
+            this.size = code.getSize();
+            this.codeSize = code.getCodeSize();
+            this.start = code.getStart();
+            this.entryPoint = code.getEntryPoint();
+        }
+    }
+
+    /**
+     * The recorded code in installation order. Guarded by this object.
+     */
+    private final List<Record> records = new ArrayList<>();
+
+    /**
+     * The number of {@link #records} after the last {@link #expunge}. Guarded by this object.
+     */
+    private int recordsAfterExpunge;
+
+    private HotSpotInstalledCodeInventory() {
+    }
+
+    /**
+     * A snapshot of the state of a single piece of installed code.
+     */
+    public static final class Entry {
+        private final Record record;
+        private final boolean valid;
+
+        Entry(Record record, boolean valid) {
+            this.record = record;
+            this.valid = valid;
+        }
+
+        /**
+         * Gets the object representing the code.
+         *
+         * @return {@code null} if the object has been reclaimed
+         */
+        public HotSpotInstalledCode getInstalledCode() {
+            return record.code.get();
+        }
+
+        /**
+         * @see HotSpotInstalledCode#getName()
+         */
+        public String getName() {
+            return record.name;
+        }
+
+        /**
+         * Determines if the code is an {@link HotSpotNmethod} as opposed to a
+         * {@link HotSpotRuntimeStub}.
+         */
+        public boolean isNmethod() {
+            return record.compileId != 0;
+        }
+
+        /**
+         * Gets the {@linkplain jdk.vm.ci.meta.JavaType#toJavaName() name} of the class declaring
+         * the method the code was compiled for.
+         *
+         * @return {@code null} if the code is a {@link HotSpotRuntimeStub}
+         */
+        public String getHolder() {
+            return record.holder;
+        }
+
+        /**
+         * Gets the name and descriptor of the method the code was compiled for.
+         *
+         * @return {@code null} if the code is a {@link HotSpotRuntimeStub}
+         */
+        public String getMethod() {
+            return record.method;
+        }
+
+        /**
+         * Gets the value of {@link System#currentTimeMillis()} when the code was installed.
+         */
+        public long getInstallTimeMillis() {
+            return record.installTimeMillis;
+        }
+
+        /**
+         * Gets the value of {@link HotSpotInstalledCode#getSize()} when the code was installed.
+         */
+        public int getSize() {
+            return record.size;
+        }
+
+        /**
+         * Gets the value of {@link HotSpotInstalledCode#getCodeSize()} when the code was
+         * installed.
+         */
+        public long getCodeSize() {
+            return record.codeSize;
+        }
+
+        /**
+         * Gets the value of {@link HotSpotInstalledCode#getStart()} when the code was installed.
+         */
+        public long getStart() {
+            return record.start;
+        }
+
+        /**
+         * Gets the value of {@link HotSpotInstalledCode#getEntryPoint()} when the code was
+         * installed.
+         */
+        public long getEntryPoint() {
+            return record.entryPoint;
+        }
+
+        /**
+         * Determines if the code could be executed when this snapshot was taken.
+         */
+        public boolean isValid() {
+            return valid;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[size=%d, codeSize=%d, start=0x%x, entryPoint=0x%x, valid=%b, installTimeMillis=%d]",
+                            record.name, record.size, record.codeSize, record.start, record.entryPoint, valid, record.installTimeMillis);
+        }
+    }
+
+    /**
+     * The aggregated sizes of the nmethods compiled for the methods of a single class.
+     */
+    public static final class HolderSummary {
+        private final String holder;
+        private int count;
+        private int validCount;
+        private long size;
+        private long codeSize;
+
+        HolderSummary(String holder) {
+            this.holder = holder;
+        }
+
+        void add(Entry entry) {
+            count++;
+            if (entry.isValid()) {
+                validCount++;
+            }
+            size += entry.getSize();
+            codeSize += entry.getCodeSize();
+        }
+
+        /**
+         * Gets the {@linkplain jdk.vm.ci.meta.JavaType#toJavaName() name} of the class.
+         */
+        public String getHolder() {
+            return holder;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getValidCount() {
+            return validCount;
+        }
+
+        /**
+         * Gets the sum of {@link Entry#getSize()} for the nmethods of the class.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Gets the sum of {@link Entry#getCodeSize()} for the nmethods of the class.
+         */
+        public long getCodeSize() {
+            return codeSize;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[count=%d, valid=%d, size=%d, codeSize=%d]", holder, count, validCount, size, codeSize);
+        }
+    }
+
+    /**
+     * Records {@code installedCode} as having just been installed.
+     *
+     * @param compileId the compile identifier of the code if it is an nmethod, otherwise 0
+     */
+    void add(HotSpotInstalledCode installedCode, int compileId) {
+        Record record = new Record(installedCode, compileId, System.currentTimeMillis());
+        synchronized (this) {
+            if (records.size() >= Math.max(64, recordsAfterExpunge * 2)) {
+                expunge();
+            }
+            records.add(record);
+        }
+    }
+
+    /**
+     * Removes the records of the code freed by the VM, preserving installation order.
+     *
+     * @return the states of the remaining records as reported by {@link CompilerToVM#getCodeStates}
+     */
+    private int[] expunge() {
+        assert Thread.holdsLock(this);
+        int length = records.size();
+        long[] addresses = new long[length];
+        int[] compileIds = new int[length];
+        int[] states = new int[length];
+        for (int i = 0; i < length; i++) {
+            addresses[i] = records.get(i).address;
+            compileIds[i] = records.get(i).compileId;
+        }
+        if (length != 0) {
+            HotSpotJVMCIRuntime.runtime().getCompilerToVM().getCodeStates(addresses, compileIds, states);
+        }
+        int live = 0;
+        for (int i = 0; i < length; i++) {
+            if (states[i] != CompilerToVM.CODE_STATE_FREED) {
+                records.set(live, records.get(i));
+                states[live] = states[i];
+                live++;
+            }
+        }
+        records.subList(live, length).clear();
+        recordsAfterExpunge = live;
+        return states;
+    }
+
+    /**
+     * Gets a snapshot of the recorded code that has not been freed, in installation order.
+     */
+    public synchronized List<Entry> getEntries() {
+        int[] states = expunge();
+        List<Entry> entries = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            entries.add(new Entry(records.get(i), states[i] == CompilerToVM.CODE_STATE_IN_USE));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Gets the sizes of the recorded nmethods aggregated by the class declaring the method they
+     * were compiled for. Runtime stubs are not included.
+     *
+     * @return a map from class name to summary, sorted by class name
+     */
+    public Map<String, HolderSummary> getSummaryByHolder() {
+        Map<String, HolderSummary> result = new TreeMap<>();
+        for (Entry entry : getEntries()) {
+            String holder = entry.getHolder();
+            if (holder != null) {
+                result.computeIfAbsent(holder, HolderSummary::new).add(entry);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Writes the recorded code to {@code stream} as UTF-8 encoded comma separated values. The
+     * first line is a header naming the columns. Each subsequent line describes one entry
+     * returned by {@link #getEntries()}. Fields containing a comma or quote are quoted.
+     */
+    public void dump(OutputStream stream) throws IOException {
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        out.print("kind,name,holder,method,size,codeSize,start,entryPoint,valid,installTimeMillis\n");
+        for (Entry entry : getEntries()) {
+            out.print(entry.isNmethod() ? "nmethod" : "stub");
+            out.print(',');
+            out.print(csv(entry.getName()));
+            out.print(',');
+            out.print(csv(entry.getHolder()));
+            out.print(',');
+            out.print(csv(entry.getMethod()));
+            out.printf(",%d,%d,0x%x,0x%x,%b,%d\n", entry.getSize(), entry.getCodeSize(), entry.getStart(), entry.getEntryPoint(), entry.isValid(), entry.getInstallTimeMillis());
+        }
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("error writing installed code inventory");
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
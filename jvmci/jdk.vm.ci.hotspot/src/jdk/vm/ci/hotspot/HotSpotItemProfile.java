@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import jdk.vm.ci.meta.JavaMethodProfile;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.TriState;
+
+/**
+ * A read-only view of the rows of a receiver type or call target profile in a HotSpot
+ * {@code MethodData}. Unlike {@link JavaTypeProfile} and {@link JavaMethodProfile}, the rows are
+ * held in parallel arrays and accessed by index so that reading a profile does not allocate an
+ * object per row. Rows are ordered by decreasing count.
+ *
+ * @param <T> the type of the profiled items, either {@link HotSpotResolvedObjectType} or
+ *            {@link HotSpotResolvedJavaMethod}
+ */
+public final class HotSpotItemProfile<T> {
+
+    private final TriState nullSeen;
+    private final int entries;
+    private final T[] items;
+    private final long[] counts;
+    private final long totalCount;
+    private final double notRecordedProbability;
+
+    /**
+     * Creates a view of the first {@code entries} rows of {@code items} and {@code counts}. The
+     * arrays are sorted in place.
+     *
+     * @param profileWidth the number of rows available in the profile. The profile may have
+     *            missed items only if all rows are used.
+     */
+    HotSpotItemProfile(TriState nullSeen, int entries, T[] items, long[] counts, long totalCount, int profileWidth) {
+        this.nullSeen = nullSeen;
+        this.entries = entries;
+        this.items = items;
+        this.counts = counts;
+        this.totalCount = totalCount;
+        this.notRecordedProbability = computeNotRecordedProbability(profileWidth);
+        sortByDecreasingCount();
+    }
+
+    private double computeNotRecordedProbability(int profileWidth) {
+        if (entries < profileWidth || totalCount <= 0) {
+            return 0.0;
+        }
+        double totalProbability = 0.0;
+        for (int i = 0; i < entries; i++) {
+            totalProbability += (double) counts[i] / totalCount;
+        }
+        return Math.min(1.0, Math.max(0.0, 1.0 - totalProbability));
+    }
+
+    /**
+     * Stable insertion sort of the rows. Profiles have at most a handful of rows.
+     */
+    private void sortByDecreasingCount() {
+        for (int i = 1; i < entries; i++) {
+            T item = items[i];
+            long count = counts[i];
+            int j = i - 1;
+            while (j >= 0 && counts[j] < count) {
+                items[j + 1] = items[j];
+                counts[j + 1] = counts[j];
+                j--;
+            }
+            items[j + 1] = item;
+            counts[j + 1] = count;
+        }
+    }
+
+    /**
+     * Determines if this profile has no rows or no recorded executions. The corresponding
+     * {@link JavaTypeProfile} or {@link JavaMethodProfile} is {@code null} in that case.
+     */
+    boolean isEmpty() {
+        return entries <= 0 || totalCount <= 0;
+    }
+
+    /**
+     * Returns whether {@code null} was seen at the profiled bytecode. This is
+     * {@link TriState#UNKNOWN} for call target profiles.
+     */
+    public TriState getNullSeen() {
+        return nullSeen;
+    }
+
+    /**
+     * Returns the number of rows in this profile.
+     */
+    public int getEntryCount() {
+        return entries;
+    }
+
+    /**
+     * Returns the item recorded in row {@code index}.
+     */
+    public T getItem(int index) {
+        checkIndex(index);
+        return items[index];
+    }
+
+    /**
+     * Returns the number of executions recorded for the item in row {@code index}.
+     */
+    public long getCount(int index) {
+        checkIndex(index);
+        return counts[index];
+    }
+
+    /**
+     * Returns the probability of the item in row {@code index}, computed in the same way as
+     * {@link JavaTypeProfile} and {@link JavaMethodProfile} compute it.
+     */
+    public double getProbability(int index) {
+        checkIndex(index);
+        return (double) counts[index] / totalCount;
+    }
+
+    /**
+     * Returns the total number of executions of the profiled bytecode, including those with an
+     * item that was not recorded in a row.
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the probability that the profiled bytecode saw an item not recorded in a row.
+     */
+    public double getNotRecordedProbability() {
+        return notRecordedProbability;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= entries) {
+            throw new IndexOutOfBoundsException("index " + index + " not in [0, " + entries + ")");
+        }
+    }
+
+    JavaTypeProfile toTypeProfile() {
+        assert !isEmpty();
+        JavaTypeProfile.ProfiledType[] ptypes = new JavaTypeProfile.ProfiledType[entries];
+        for (int i = 0; i < entries; i++) {
+            ptypes[i] = new JavaTypeProfile.ProfiledType((HotSpotResolvedObjectType) items[i], getProbability(i));
+        }
+        return new JavaTypeProfile(nullSeen, notRecordedProbability, ptypes);
+    }
+
+    JavaMethodProfile toMethodProfile() {
+        assert !isEmpty();
+        JavaMethodProfile.ProfiledMethod[] pmethods = new JavaMethodProfile.ProfiledMethod[entries];
+        for (int i = 0; i < entries; i++) {
+            pmethods[i] = new JavaMethodProfile.ProfiledMethod((HotSpotResolvedJavaMethod) items[i], getProbability(i));
+        }
+        return new JavaMethodProfile(notRecordedProbability, pmethods);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("HotSpotItemProfile<nullSeen=").append(nullSeen).append(", total=").append(totalCount);
+        for (int i = 0; i < entries; i++) {
+            sb.append(", ").append(items[i]).append(':').append(counts[i]);
+        }
+        return sb.append('>').toString();
+    }
+}
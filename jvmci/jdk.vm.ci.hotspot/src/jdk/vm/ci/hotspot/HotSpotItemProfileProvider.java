@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import jdk.vm.ci.meta.ProfilingInfo;
+
+/**
+ * Implemented by {@link ProfilingInfo} objects backed by a HotSpot {@code MethodData} to give
+ * access to receiver type and call target profiles without converting them to
+ * {@link ProfilingInfo#getTypeProfile(int) JavaTypeProfile} and
+ * {@link ProfilingInfo#getMethodProfile(int) JavaMethodProfile} objects. The views are read once
+ * per bytecode and then cached for the life of the {@link ProfilingInfo} object, which is
+ * typically a single compilation.
+ */
+public interface HotSpotItemProfileProvider {
+
+    /**
+     * Gets the receiver type profile at {@code bci}.
+     *
+     * @return {@code null} if and only if {@link ProfilingInfo#getTypeProfile(int)} would return
+     *         {@code null}
+     */
+    HotSpotItemProfile<HotSpotResolvedObjectType> getTypeProfileView(int bci);
+
+    /**
+     * Gets the call target profile at {@code bci}.
+     *
+     * @return {@code null} if and only if {@link ProfilingInfo#getMethodProfile(int)} would return
+     *         {@code null}
+     */
+    HotSpotItemProfile<HotSpotResolvedJavaMethod> getMethodProfileView(int bci);
+}
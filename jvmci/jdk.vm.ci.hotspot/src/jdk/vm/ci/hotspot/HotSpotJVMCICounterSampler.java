@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import static jdk.vm.ci.hotspot.CompilerToVM.compilerToVM;
+import static jdk.vm.ci.hotspot.HotSpotJVMCIRuntime.runtime;
+import static jdk.vm.ci.hotspot.UnsafeAccess.UNSAFE;
+import static jdk.vm.ci.services.Services.IS_IN_NATIVE_IMAGE;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically samples the JVMCI benchmark counters (see
+ * {@link HotSpotJVMCIRuntime#collectCounters()}) and publishes the counters named by the compiler
+ * as jvmstat PerfData entries. For a counter named {@code name}, the entry
+ * {@code sun.ci.jvmci.counters.<name>} holds its value and {@code sun.ci.jvmci.counters.<name>.delta}
+ * holds its change since the previous sample. These entries can be read with {@code jstat} and
+ * other jvmstat clients without attaching to the VM.
+ *
+ * The sampler can be started with {@link #start} or with the
+ * {@code jvmci.CounterSamplingInterval} option.
+ */
+public final class HotSpotJVMCICounterSampler {
+
+    private static final String PERF_DATA_PREFIX = "jvmci.counters.";
+
+    /**
+     * The values of the counters at some point in time.
+     */
+    public static final class Snapshot {
+        private final long nanoTime;
+        private final long[] values;
+        private final long[] deltas;
+        private final String[] names;
+
+        Snapshot(long nanoTime, long[] values, long[] deltas, String[] names) {
+            this.nanoTime = nanoTime;
+            this.values = values;
+            this.deltas = deltas;
+            this.names = names;
+        }
+
+        /**
+         * Gets the value of {@link System#nanoTime()} when this snapshot was taken.
+         */
+        public long getNanoTime() {
+            return nanoTime;
+        }
+
+        public int getCounterCount() {
+            return values.length;
+        }
+
+        public long getValue(int index) {
+            return values[index];
+        }
+
+        /**
+         * Gets the change in the value of a counter since the previous snapshot. This is the
+         * counter's value for the first snapshot.
+         */
+        public long getDelta(int index) {
+            return deltas[index];
+        }
+
+        /**
+         * Gets the name registered for a counter.
+         *
+         * @return {@code null} if no name was registered for the counter
+         */
+        public String getName(int index) {
+            return index < names.length ? names[index] : null;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("JVMCI counters:");
+            for (int i = 0; i < values.length; i++) {
+                String name = getName(i);
+                sb.append(String.format("%n  %s: %d (+%d)", name == null ? "#" + i : name, values[i], deltas[i]));
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * The thread taking snapshots at a fixed interval.
+     */
+    private final class SamplerThread extends Thread {
+        private final long intervalMillis;
+        private volatile boolean stopped;
+
+        SamplerThread(long intervalMillis) {
+            super("JVMCI Counter Sampler");
+            this.intervalMillis = intervalMillis;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            boolean attached = IS_IN_NATIVE_IMAGE && runtime().attachCurrentThread(true);
+            try {
+                while (!stopped) {
+                    sample();
+                    try {
+                        Thread.sleep(intervalMillis);
+                    } catch (InterruptedException e) {
+                        // Check whether stop was requested
+                    }
+                }
+            } finally {
+                if (attached) {
+                    runtime().detachCurrentThread();
+                }
+            }
+        }
+    }
+
+    static final HotSpotJVMCICounterSampler instance = new HotSpotJVMCICounterSampler();
+
+    /**
+     * The registered counter names. Guarded by this object.
+     */
+    private String[] names = new String[0];
+
+    /**
+     * The addresses of the PerfData entries holding the value and delta of each counter. An
+     * address of 0L means the entry does not exist (yet). Only accessed while holding the lock on
+     * this object.
+     */
+    private long[] valueAddresses = new long[0];
+    private long[] deltaAddresses = new long[0];
+
+    private volatile Snapshot lastSnapshot;
+
+    private SamplerThread thread;
+
+    private HotSpotJVMCICounterSampler() {
+    }
+
+    /**
+     * Associates a name with the counter at {@code index}. The counter is published as PerfData
+     * from the next sample on.
+     *
+     * @param name a non-empty string of letters, digits, {@code '_'} and {@code '.'}
+     * @throws IllegalArgumentException if {@code name} is invalid or a different name has already
+     *             been registered for {@code index}
+     */
+    public synchronized void registerCounterName(int index, String name) {
+        if (index < 0) {
+            throw new IllegalArgumentException("invalid counter index: " + index);
+        }
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("invalid counter name: " + name);
+        }
+        if (index >= names.length) {
+            names = Arrays.copyOf(names, index + 1);
+            valueAddresses = Arrays.copyOf(valueAddresses, index + 1);
+            deltaAddresses = Arrays.copyOf(deltaAddresses, index + 1);
+        } else if (names[index] != null && !names[index].equals(name)) {
+            throw new IllegalArgumentException("counter " + index + " is already named " + names[index]);
+        }
+        names[index] = name;
+    }
+
+    private static boolean isValidName(String name) {
+        if (name == null || name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') && c != '_' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the registered counter names, indexed by counter. Unnamed counters have a {@code null}
+     * entry.
+     */
+    public synchronized String[] getCounterNames() {
+        return names.clone();
+    }
+
+    /**
+     * Starts taking a snapshot every {@code interval}.
+     *
+     * @throws IllegalStateException if the sampler is already running
+     */
+    public synchronized void start(long interval, TimeUnit unit) {
+        long millis = unit.toMillis(interval);
+        if (millis <= 0) {
+            throw new IllegalArgumentException("sampling interval must be at least 1ms: " + interval + " " + unit);
+        }
+        if (thread != null) {
+            throw new IllegalStateException("sampler is already running");
+        }
+        thread = new SamplerThread(millis);
+        thread.start();
+    }
+
+    /**
+     * Stops taking periodic snapshots. The last snapshot remains available.
+     */
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.stopped = true;
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Takes a snapshot of the counters now, computing the deltas relative to the previous snapshot
+     * and updating the PerfData entries of the named counters.
+     */
+    public synchronized Snapshot sample() {
+        long[] values = compilerToVM().collectCounters();
+        long now = System.nanoTime();
+        Snapshot previous = lastSnapshot;
+        long[] deltas = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            long previousValue = previous != null && i < previous.values.length ? previous.values[i] : 0L;
+            deltas[i] = values[i] - previousValue;
+        }
+        int published = Math.min(values.length, names.length);
+        for (int i = 0; i < published; i++) {
+            if (names[i] != null) {
+                if (valueAddresses[i] == 0L) {
+                    valueAddresses[i] = compilerToVM().createPerfDataLong(PERF_DATA_PREFIX + names[i], false);
+                    deltaAddresses[i] = compilerToVM().createPerfDataLong(PERF_DATA_PREFIX + names[i] + ".delta", true);
+                }
+                if (valueAddresses[i] != 0L) {
+                    UNSAFE.putLongVolatile(null, valueAddresses[i], values[i]);
+                    UNSAFE.putLongVolatile(null, deltaAddresses[i], deltas[i]);
+                }
+            }
+        }
+        Snapshot snapshot = new Snapshot(now, values, deltas, names.clone());
+        lastSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Gets the most recent snapshot.
+     *
+     * @return {@code null} if no snapshot has been taken
+     */
+    public Snapshot getLastSnapshot() {
+        return lastSnapshot;
+    }
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import static jdk.vm.ci.hotspot.CompilerToVM.compilerToVM;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics describing the interaction between JVMCI compilers and the VM. The metrics can be polled
+ * at any time by a compiler or agent via {@link HotSpotJVMCIRuntime#getMetrics()}. All values are
+ * cumulative since VM start so the cost of a compilation is the difference between two polls.
+ *
+ * The per-method {@link CompilerToVM} call counters are only collected when the VM is started with
+ * {@code -XX:+JVMCICountCompilerToVMCalls}. All other metrics are always collected.
+ */
+public final class HotSpotJVMCIMetrics {
+
+    /**
+     * The number of calls to and time spent in a {@link CompilerToVM} native method. The time
+     * includes the transitions into and out of the VM.
+     */
+    public static final class CallCounter {
+        private final String name;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        CallCounter(String name, long count, long totalNanos, long maxNanos) {
+            this.name = name;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Gets the name of the {@link CompilerToVM} method.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: count=%d total=%dns max=%dns", name, count, totalNanos, maxNanos);
+        }
+    }
+
+    /**
+     * A histogram of latencies in nanoseconds. Bucket {@code i} counts the latencies {@code l} with
+     * {@code 2^(i-1) <= l < 2^i} (bucket 0 counts latencies of 0).
+     */
+    public static final class LatencyHistogram {
+        private static final int BUCKETS = 64;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder totalNanos = new LongAdder();
+
+        LatencyHistogram() {
+        }
+
+        void record(long nanos) {
+            long value = Math.max(nanos, 0);
+            buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+            totalNanos.add(value);
+        }
+
+        /**
+         * Gets the number of recorded latencies.
+         */
+        public long getCount() {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * Gets the sum of the recorded latencies.
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * Gets the number of recorded latencies in each bucket.
+         */
+        public long[] getBucketCounts() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return counts;
+        }
+
+        /**
+         * Gets the exclusive upper bound in nanoseconds of the latencies counted by bucket
+         * {@code index}.
+         */
+        public static long getBucketUpperBound(int index) {
+            return index == BUCKETS - 1 ? Long.MAX_VALUE : 1L << index;
+        }
+
+        /**
+         * Gets an upper bound for the latency below which {@code percentile} percent of the
+         * recorded latencies fall.
+         *
+         * @return 0 if no latencies have been recorded
+         */
+        public long getPercentile(double percentile) {
+            long[] counts = getBucketCounts();
+            long count = 0;
+            for (long c : counts) {
+                count += c;
+            }
+            long threshold = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen != 0 && seen >= threshold) {
+                    return getBucketUpperBound(i);
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d total=%dns p50<%dns p90<%dns p99<%dns", getCount(), getTotalNanos(), getPercentile(50), getPercentile(90), getPercentile(99));
+        }
+    }
+
+    static final HotSpotJVMCIMetrics instance = new HotSpotJVMCIMetrics();
+
+    private final LatencyHistogram installCodeLatency = new LatencyHistogram();
+    private final ConcurrentHashMap<String, LongAdder> installCodeResults = new ConcurrentHashMap<>();
+    private final LongAdder objectHandlesCreated = new LongAdder();
+    private final LongAdder objectHandlesReleased = new LongAdder();
+    private final LongAdder metadataHandlesCreated = new LongAdder();
+    private final LongAdder metadataHandlesReleased = new LongAdder();
+    private final LongAdder handleArenasReleased = new LongAdder();
+    private final LongAdder handleArenaHandles = new LongAdder();
+    private final AtomicLong maxHandleArenaSize = new AtomicLong();
+    private final LongAdder leakedHandles = new LongAdder();
+    private final LatencyHistogram compileQueueLatency = new LatencyHistogram();
+    private final LatencyHistogram compileLatency = new LatencyHistogram();
+    private final LongAdder compileAllocatedBytes = new LongAdder();
+    private final LongAdder constantPoolEntryCacheHits = new LongAdder();
+    private final LongAdder constantPoolEntryCacheMisses = new LongAdder();
+    private final ConcurrentHashMap<HotSpotCompilationRecord.Outcome, LongAdder> compileOutcomes = new ConcurrentHashMap<>();
+    // Updated by DebugOutputBuffer which must not allocate so LongAdder is not used
+    private final AtomicLong debugOutputStalls = new AtomicLong();
+    private final AtomicLong debugOutputDroppedWrites = new AtomicLong();
+    private final AtomicLong debugOutputDroppedBytes = new AtomicLong();
+
+    private HotSpotJVMCIMetrics() {
+    }
+
+    void recordInstallCode(long nanos, String result) {
+        installCodeLatency.record(nanos);
+        LongAdder counter = installCodeResults.get(result);
+        if (counter == null) {
+            counter = installCodeResults.computeIfAbsent(result, r -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    void recordHandleCreated(boolean isJObject) {
+        (isJObject ? objectHandlesCreated : metadataHandlesCreated).increment();
+    }
+
+    void recordHandleReleased(boolean isJObject) {
+        (isJObject ? objectHandlesReleased : metadataHandlesReleased).increment();
+    }
+
+    void recordObjectHandlesReleased(int count) {
+        objectHandlesReleased.add(count);
+    }
+
+    void recordHandleArenaReleased(int size) {
+        handleArenasReleased.increment();
+        handleArenaHandles.add(size);
+        maxHandleArenaSize.accumulateAndGet(size, Math::max);
+    }
+
+    void recordLeakedHandles(int count) {
+        leakedHandles.add(count);
+    }
+
+    void recordCompilation(HotSpotCompilationRecord record) {
+        if (record.getQueueNanos() >= 0) {
+            compileQueueLatency.record(record.getQueueNanos());
+        }
+        if (record.getOutcome() == HotSpotCompilationRecord.Outcome.SUCCEEDED || record.getOutcome() == HotSpotCompilationRecord.Outcome.FAILED) {
+            compileLatency.record(record.getCompileNanos());
+            compileAllocatedBytes.add(record.getAllocatedBytes());
+        }
+        compileOutcomes.computeIfAbsent(record.getOutcome(), o -> new LongAdder()).increment();
+    }
+
+    void recordConstantPoolEntryCacheLookup(boolean hit) {
+        (hit ? constantPoolEntryCacheHits : constantPoolEntryCacheMisses).increment();
+    }
+
+    void recordDebugOutputStall() {
+        debugOutputStalls.incrementAndGet();
+    }
+
+    void recordDebugOutputDropped(int length) {
+        debugOutputDroppedBytes.addAndGet(length);
+        debugOutputDroppedWrites.incrementAndGet();
+    }
+
+    /**
+     * Gets the call counters of the {@link CompilerToVM} methods that have been called at least
+     * once, sorted by descending total time.
+     *
+     * @return an empty list unless the VM was started with
+     *         {@code -XX:+JVMCICountCompilerToVMCalls}
+     */
+    public List<CallCounter> getCompilerToVMCalls() {
+        Object[] raw = compilerToVM().collectCallCounters();
+        String[] names = (String[]) raw[0];
+        long[] values = (long[]) raw[1];
+        List<CallCounter> result = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            result.add(new CallCounter(names[i], values[i * 3], values[i * 3 + 1], values[i * 3 + 2]));
+        }
+        result.sort(Comparator.comparingLong(CallCounter::getTotalNanos).reversed());
+        return result;
+    }
+
+    /**
+     * Gets the latencies of {@link HotSpotCodeCacheProvider#installCode} calls, including failed
+     * installations.
+     */
+    public LatencyHistogram getInstallCodeLatency() {
+        return installCodeLatency;
+    }
+
+    /**
+     * Gets the number of code installations for each installation result, e.g. {@code "ok"} or
+     * {@code "code cache is full"}.
+     */
+    public Map<String, Long> getInstallCodeResults() {
+        TreeMap<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : installCodeResults.entrySet()) {
+            result.put(e.getKey(), e.getValue().sum());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Gets the number of {@code jobject} handles created for {@link HotSpotObjectConstant}s.
+     */
+    public long getObjectHandlesCreated() {
+        return objectHandlesCreated.sum();
+    }
+
+    /**
+     * Gets the number of {@code jobject} handles released, either explicitly or after their
+     * {@link HotSpotObjectConstant} became unreachable.
+     */
+    public long getObjectHandlesReleased() {
+        return objectHandlesReleased.sum();
+    }
+
+    /**
+     * Gets the number of {@code jmetadata} handles created for metaspace object mirrors.
+     */
+    public long getMetadataHandlesCreated() {
+        return metadataHandlesCreated.sum();
+    }
+
+    /**
+     * Gets the number of {@code jmetadata} handles released after their mirror became unreachable.
+     */
+    public long getMetadataHandlesReleased() {
+        return metadataHandlesReleased.sum();
+    }
+
+    /**
+     * Gets the number of {@link HotSpotObjectConstantScope} handle arenas that have been released.
+     */
+    public long getHandleArenasReleased() {
+        return handleArenasReleased.sum();
+    }
+
+    /**
+     * Gets the total number of {@code jobject} handles released by handle arenas.
+     */
+    public long getHandleArenaHandles() {
+        return handleArenaHandles.sum();
+    }
+
+    /**
+     * Gets the largest number of {@code jobject} handles released by a single handle arena.
+     */
+    public long getMaxHandleArenaSize() {
+        return maxHandleArenaSize.get();
+    }
+
+    /**
+     * Gets the number of {@code jobject} handles created in local
+     * {@link HotSpotObjectConstantScope}s that were never closed. These handles are released some
+     * time after the scope becomes unreachable.
+     */
+    public long getLeakedHandles() {
+        return leakedHandles.sum();
+    }
+
+    /**
+     * Gets the time compilation requests received by {@link HotSpotJVMCIRuntime} spent in the VM's
+     * compile queue.
+     */
+    public LatencyHistogram getCompileQueueLatency() {
+        return compileQueueLatency;
+    }
+
+    /**
+     * Gets the time spent compiling the requests received by {@link HotSpotJVMCIRuntime}. Requests
+     * rejected by the {@link HotSpotCompilationAdmissionPolicy} are not included.
+     */
+    public LatencyHistogram getCompileLatency() {
+        return compileLatency;
+    }
+
+    /**
+     * Gets the number of bytes allocated in the HotSpot heap while compiling the requests received
+     * by {@link HotSpotJVMCIRuntime}.
+     */
+    public long getCompileAllocatedBytes() {
+        return compileAllocatedBytes.sum();
+    }
+
+    /**
+     * Gets the number of compilation requests received by {@link HotSpotJVMCIRuntime} for each
+     * outcome.
+     */
+    public Map<HotSpotCompilationRecord.Outcome, Long> getCompileOutcomes() {
+        TreeMap<HotSpotCompilationRecord.Outcome, Long> result = new TreeMap<>();
+        for (Map.Entry<HotSpotCompilationRecord.Outcome, LongAdder> e : compileOutcomes.entrySet()) {
+            result.put(e.getKey(), e.getValue().sum());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Gets the number of constant pool lookups answered by a constant pool entry cache (see
+     * {@code jvmci.UseConstantPoolEntryCache}).
+     */
+    public long getConstantPoolEntryCacheHits() {
+        return constantPoolEntryCacheHits.sum();
+    }
+
+    /**
+     * Gets the number of constant pool lookups that missed in a constant pool entry cache and had
+     * to call into the VM.
+     */
+    public long getConstantPoolEntryCacheMisses() {
+        return constantPoolEntryCacheMisses.sum();
+    }
+
+    /**
+     * Gets the number of times a write to the debug output buffer (see
+     * {@code jvmci.DebugOutputBufferSize}) found the buffer full and had to wait for the VM to
+     * drain it.
+     */
+    public long getDebugOutputStalls() {
+        return debugOutputStalls.get();
+    }
+
+    /**
+     * Gets the number of writes to the debug output buffer that were dropped because the buffer
+     * was still full after being drained.
+     */
+    public long getDebugOutputDroppedWrites() {
+        return debugOutputDroppedWrites.get();
+    }
+
+    /**
+     * Gets the number of bytes in the writes counted by {@link #getDebugOutputDroppedWrites()}.
+     */
+    public long getDebugOutputDroppedBytes() {
+        return debugOutputDroppedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        Formatter buf = new Formatter();
+        buf.format("JVMCI metrics:%n");
+        buf.format("  installCode latency: %s%n", installCodeLatency);
+        buf.format("  installCode results: %s%n", getInstallCodeResults());
+        buf.format("  jobject handles: created=%d released=%d%n", getObjectHandlesCreated(), getObjectHandlesReleased());
+        buf.format("  jmetadata handles: created=%d released=%d%n", getMetadataHandlesCreated(), getMetadataHandlesReleased());
+        buf.format("  compile queue latency: %s%n", compileQueueLatency);
+        buf.format("  compile latency: %s%n", compileLatency);
+        buf.format("  compile outcomes: %s allocated=%dB%n", getCompileOutcomes(), getCompileAllocatedBytes());
+        buf.format("  constant pool entry caches: hits=%d misses=%d%n", getConstantPoolEntryCacheHits(), getConstantPoolEntryCacheMisses());
+        buf.format("  handle arenas: released=%d handles=%d max=%d leaked=%d%n", getHandleArenasReleased(), getHandleArenaHandles(), getMaxHandleArenaSize(), getLeakedHandles());
+        buf.format("  debug output buffer: stalls=%d dropped=%d (%dB)%n", getDebugOutputStalls(), getDebugOutputDroppedWrites(), getDebugOutputDroppedBytes());
+        List<CallCounter> calls = getCompilerToVMCalls();
+        if (!calls.isEmpty()) {
+            buf.format("  CompilerToVM calls:%n");
+            for (CallCounter c : calls) {
+                buf.format("    %s%n", c);
+            }
+        }
+        return buf.toString();
+    }
+}
@@ -27,6 +27,7 @@ import static jdk.vm.ci.hotspot.HotSpotJVMCICompilerFactory.CompilationLevelAdju
 import static jdk.vm.ci.services.Services.IS_BUILDING_NATIVE_IMAGE;
 import static jdk.vm.ci.services.Services.IS_IN_NATIVE_IMAGE;
 
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
@@ -44,6 +45,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
 import jdk.vm.ci.code.Architecture;
@@ -233,7 +235,24 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
                 "Enables tracing of profiling info when read by JVMCI.",
                 "Empty value: trace all methods",
                         "Non-empty value: trace methods whose fully qualified name contains the value."),
-        UseProfilingInformation(Boolean.class, true, "");
+        UseProfilingInformation(Boolean.class, true, ""),
+        SnapshotMethodData(Boolean.class, false, "Copies the MethodData of a method the first time its ProfilingInfo is requested by a " +
+                "compilation so that all profile reads made by the compilation see the same consistent profile."),
+        PrintMethodCacheStatistics(Boolean.class, false, "Prints the contention counters of the per-type method mirror caches at shutdown."),
+        UseConstantPoolEntryCache(Boolean.class, false, "Caches resolved types, methods, fields and strings in each constant pool mirror."),
+        UseSignatureCache(Boolean.class, true, "Shares the parsed signature of all methods with the same signature."),
+        PrintConstantPoolEntryCacheStatistics(Boolean.class, false, "Prints the hit and miss counters of the constant pool entry caches at shutdown."),
+        PrintMetrics(Boolean.class, false, "Prints the JVMCI metrics (see HotSpotJVMCIRuntime.getMetrics()) at shutdown."),
+        EncodeDebugInfo(Boolean.class, false, "Passes the debug info of installed code to the VM as a compact byte stream " +
+                "instead of having the VM read it from the DebugInfo objects."),
+        DumpInstalledCodeInventory(String.class, null, "Writes the installed code inventory (see HotSpotJVMCIRuntime.getInstalledCodeInventory()) " +
+                "as comma separated values to the file named by this option at shutdown."),
+        PrintCompilationRecords(Boolean.class, false, "Prints the timing and outcome of each compilation request received from the VM."),
+        CounterSamplingInterval(String.class, null, "Interval in milliseconds at which the JVMCI benchmark counters are sampled and " +
+                "published as PerfData (see HotSpotJVMCIRuntime.getCounterSampler())."),
+        DebugOutputBufferSize(String.class, null, "Size in bytes of a native ring buffer through which debug output is passed to " +
+                "HotSpot's log stream. The VM drains the buffer periodically and on each flush. Output that " +
+                "does not fit in the buffer after it has been drained is dropped (see HotSpotJVMCIRuntime.getMetrics()).");
         // @formatter:on
 
         /**
@@ -459,7 +478,11 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
      */
     @NativeImageReinitialize private volatile ClassValue<WeakReference<HotSpotResolvedJavaType>> resolvedJavaType;
 
-    @NativeImageReinitialize private HashMap<Long, WeakReference<ResolvedJavaType>> resolvedJavaTypes;
+    /**
+     * Cache for speeding up {@link #fromMetaspace(long, String)}. Lookups in this cache do not take
+     * a lock so that concurrent compiler threads do not contend on it.
+     */
+    @NativeImageReinitialize private volatile LongKeyedWeakCache<HotSpotResolvedObjectTypeImpl> resolvedJavaTypes;
 
     /**
      * Stores the value set by {@link #excludeFromJVMCICompilation(ClassLoader...)} so that it can
@@ -472,6 +495,16 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
 
     private volatile List<HotSpotVMEventListener> vmEventListeners;
 
+    @NativeImageReinitialize private volatile HotSpotCompilationAdmissionPolicy compilationAdmissionPolicy;
+
+    /**
+     * The buffer through which {@link #writeDebugOutput} passes unflushed output to the VM or
+     * {@code null} if output is written directly.
+     */
+    @NativeImageReinitialize private DebugOutputBuffer debugOutputBuffer;
+
+    private final ListenerList<HotSpotCompilationListener> compilationListeners = new ListenerList<>();
+
     private Iterable<HotSpotVMEventListener> getVmEventListeners() {
         if (vmEventListeners == null) {
             synchronized (this) {
@@ -505,6 +538,19 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
         // Initialize the Option values.
         Option.parse(this);
 
+        String debugOutputBufferSize = Option.DebugOutputBufferSize.getString();
+        if (debugOutputBufferSize != null) {
+            int size;
+            try {
+                size = Integer.parseInt(debugOutputBufferSize);
+            } catch (NumberFormatException e) {
+                throw new JVMCIError("Invalid value for %s: %s", Option.DebugOutputBufferSize.getPropertyName(), debugOutputBufferSize);
+            }
+            if (size > 0) {
+                debugOutputBuffer = DebugOutputBuffer.create(compilerToVm, size);
+            }
+        }
+
         String hostArchitecture = config.getHostArchitectureName();
 
         HotSpotJVMCIBackendFactory factory;
@@ -541,6 +587,15 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
         if (Option.PrintConfig.getBoolean()) {
             configStore.printConfig(this);
         }
+
+        String samplingInterval = Option.CounterSamplingInterval.getString();
+        if (samplingInterval != null) {
+            try {
+                getCounterSampler().start(Long.parseLong(samplingInterval), TimeUnit.MILLISECONDS);
+            } catch (IllegalArgumentException e) {
+                throw new JVMCIError("Invalid value for %s: %s", Option.CounterSamplingInterval.getPropertyName(), samplingInterval);
+            }
+        }
     }
 
     HotSpotResolvedJavaType createClass(Class<?> javaClass) {
@@ -598,21 +653,18 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
         return fromClass0(javaClass);
     }
 
-    synchronized HotSpotResolvedObjectTypeImpl fromMetaspace(long klassPointer, String signature) {
-        if (resolvedJavaTypes == null) {
-            resolvedJavaTypes = new HashMap<>();
+    HotSpotResolvedObjectTypeImpl fromMetaspace(long klassPointer, String signature) {
+        LongKeyedWeakCache<HotSpotResolvedObjectTypeImpl> types = resolvedJavaTypes;
+        if (types == null) {
+            synchronized (this) {
+                types = resolvedJavaTypes;
+                if (types == null) {
+                    resolvedJavaTypes = types = new LongKeyedWeakCache<>();
+                }
+            }
         }
         assert klassPointer != 0;
-        WeakReference<ResolvedJavaType> klassReference = resolvedJavaTypes.get(klassPointer);
-        HotSpotResolvedObjectTypeImpl javaType = null;
-        if (klassReference != null) {
-            javaType = (HotSpotResolvedObjectTypeImpl) klassReference.get();
-        }
-        if (javaType == null) {
-            javaType = new HotSpotResolvedObjectTypeImpl(klassPointer, signature);
-            resolvedJavaTypes.put(klassPointer, new WeakReference<>(javaType));
-        }
-        return javaType;
+        return types.computeIfAbsent(klassPointer, k -> new HotSpotResolvedObjectTypeImpl(k, signature));
     }
 
     private JVMCIBackend registerBackend(JVMCIBackend backend) {
@@ -622,6 +674,34 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
         return backend;
     }
 
+    /**
+     * Gets the metrics describing the interaction between JVMCI compilers and the VM.
+     */
+    public HotSpotJVMCIMetrics getMetrics() {
+        return HotSpotJVMCIMetrics.instance;
+    }
+
+    /**
+     * Gets the inventory of the code installed by this runtime.
+     */
+    public HotSpotInstalledCodeInventory getInstalledCodeInventory() {
+        return HotSpotInstalledCodeInventory.instance;
+    }
+
+    /**
+     * Gets the index from the assumptions of the code installed by this runtime to that code.
+     */
+    public HotSpotAssumptionIndex getAssumptionIndex() {
+        return HotSpotAssumptionIndex.instance;
+    }
+
+    /**
+     * Gets the service that samples the JVMCI benchmark counters and publishes them as PerfData.
+     */
+    public HotSpotJVMCICounterSampler getCounterSampler() {
+        return HotSpotJVMCICounterSampler.instance;
+    }
+
     public HotSpotVMConfigStore getConfigStore() {
         return configStore;
     }
@@ -770,7 +850,31 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
     private HotSpotCompilationRequestResult compileMethod(HotSpotResolvedJavaMethod method, int entryBCI, long compileState, int id) {
         Thread.currentThread().setContextClassLoader(HotSpotJVMCIRuntime.class.getClassLoader());
         HotSpotCompilationRequest request = new HotSpotCompilationRequest(method, entryBCI, compileState, id);
-        CompilationRequestResult result = getCompiler().compileMethod(request);
+        long queueNanos = compilerToVm.getCompileQueueTime(compileState);
+        HotSpotCompilationAdmissionPolicy policy = compilationAdmissionPolicy;
+        if (policy != null) {
+            HotSpotCompilationRequestResult rejection = null;
+            try {
+                rejection = policy.admit(request);
+            } catch (Throwable t) {
+                // Compile the request rather than fail it because of a broken policy
+                ListenerList.report(policy, t);
+            }
+            if (rejection != null) {
+                assert rejection.getFailureMessage() != null : "a rejection must be a failure";
+                HotSpotCompilationRecord.Outcome outcome = rejection.getRetry() ? HotSpotCompilationRecord.Outcome.DEFERRED : HotSpotCompilationRecord.Outcome.DROPPED;
+                notifyCompilationFinished(policy, new HotSpotCompilationRecord(request, outcome, rejection.getFailureMessage(), queueNanos, 0L, 0L));
+                return rejection;
+            }
+        }
+        long allocatedBytes = compilerToVm.getThreadAllocatedBytes();
+        long start = System.nanoTime();
+        CompilationRequestResult result;
+        try (HotSpotMethodDataSnapshotScope scope = Option.SnapshotMethodData.getBoolean() ? HotSpotMethodDataSnapshotScope.open() : null) {
+            result = getCompiler().compileMethod(request);
+        }
+        long compileNanos = System.nanoTime() - start;
+        allocatedBytes = compilerToVm.getThreadAllocatedBytes() - allocatedBytes;
         assert result != null : "compileMethod must always return something";
         HotSpotCompilationRequestResult hsResult;
         if (result instanceof HotSpotCompilationRequestResult) {
@@ -785,9 +889,56 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
                 hsResult = HotSpotCompilationRequestResult.success(inlinedBytecodes);
             }
         }
+        HotSpotCompilationRecord.Outcome outcome = hsResult.getFailureMessage() == null ? HotSpotCompilationRecord.Outcome.SUCCEEDED : HotSpotCompilationRecord.Outcome.FAILED;
+        notifyCompilationFinished(policy, new HotSpotCompilationRecord(request, outcome, hsResult.getFailureMessage(), queueNanos, compileNanos, allocatedBytes));
         return hsResult;
     }
 
+    /**
+     * Reports {@code record} to the metrics, the policy and the compilation listeners. An exception
+     * thrown by any of them is reported and does not propagate to the VM.
+     */
+    private void notifyCompilationFinished(HotSpotCompilationAdmissionPolicy policy, HotSpotCompilationRecord record) {
+        ListenerList.invoke(getMetrics(), metrics -> metrics.recordCompilation(record));
+        if (policy != null) {
+            ListenerList.invoke(policy, p -> p.compilationFinished(record));
+        }
+        compilationListeners.notify(listener -> listener.compilationFinished(record));
+        if (Option.PrintCompilationRecords.getBoolean()) {
+            byte[] line = String.format("%s%n", record).getBytes();
+            writeDebugOutput(line, 0, line.length, true, false);
+        }
+    }
+
+    /**
+     * Sets the policy deciding which compilation requests received from the VM are passed on to
+     * the JVMCI compiler.
+     *
+     * @param policy {@code null} to compile all requests
+     */
+    public void setCompilationAdmissionPolicy(HotSpotCompilationAdmissionPolicy policy) {
+        this.compilationAdmissionPolicy = policy;
+    }
+
+    public HotSpotCompilationAdmissionPolicy getCompilationAdmissionPolicy() {
+        return compilationAdmissionPolicy;
+    }
+
+    /**
+     * Registers a listener to be notified of the timing and outcome of each compilation request
+     * received from the VM. The listener is called on the compiler thread and should not block.
+     */
+    public void addCompilationListener(HotSpotCompilationListener listener) {
+        compilationListeners.add(listener);
+    }
+
+    /**
+     * @return {@code true} if {@code listener} was registered
+     */
+    public boolean removeCompilationListener(HotSpotCompilationListener listener) {
+        return compilationListeners.removeIf(l -> l == listener);
+    }
+
     /**
      * Guard to ensure shut down actions are performed at most once.
      */
@@ -807,6 +958,28 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
             for (HotSpotVMEventListener vmEventListener : getVmEventListeners()) {
                 vmEventListener.notifyShutdown();
             }
+
+            if (Option.PrintMethodCacheStatistics.getBoolean()) {
+                byte[] statistics = String.format("%s%n", MethodCache.getStatistics()).getBytes();
+                writeDebugOutput(statistics, 0, statistics.length, true, true);
+            }
+            if (Option.PrintConstantPoolEntryCacheStatistics.getBoolean()) {
+                byte[] statistics = String.format("%s%n", ConstantPoolEntryCache.getStatistics()).getBytes();
+                writeDebugOutput(statistics, 0, statistics.length, true, true);
+            }
+            if (Option.PrintMetrics.getBoolean()) {
+                byte[] metrics = getMetrics().toString().getBytes();
+                writeDebugOutput(metrics, 0, metrics.length, true, true);
+            }
+            String inventoryFile = Option.DumpInstalledCodeInventory.getString();
+            if (inventoryFile != null) {
+                try (FileOutputStream out = new FileOutputStream(inventoryFile)) {
+                    getInstalledCodeInventory().dump(out);
+                }
+            }
+            if (debugOutputBuffer != null) {
+                compilerToVm.flushDebugOutput();
+            }
         }
     }
 
@@ -847,13 +1020,15 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
      * @throws IndexOutOfBoundsException if copying would cause access of data outside array bounds
      */
     public int writeDebugOutput(byte[] bytes, int offset, int length, boolean flush, boolean canThrow) {
-        return writeDebugOutput0(compilerToVm, bytes, offset, length, flush, canThrow);
+        return writeDebugOutput0(compilerToVm, flush ? null : debugOutputBuffer, bytes, offset, length, flush, canThrow);
     }
 
     /**
+     * @param outputBuffer if non-null, the bytes are appended to this buffer instead of being
+     *            written directly unless they do not fit
      * @see #writeDebugOutput
      */
-    static int writeDebugOutput0(CompilerToVM vm, byte[] bytes, int offset, int length, boolean flush, boolean canThrow) {
+    static int writeDebugOutput0(CompilerToVM vm, DebugOutputBuffer outputBuffer, byte[] bytes, int offset, int length, boolean flush, boolean canThrow) {
         if (bytes == null) {
             if (!canThrow) {
                 return -1;
@@ -866,6 +1041,9 @@ public final class HotSpotJVMCIRuntime implements JVMCIRuntime {
             }
             throw new ArrayIndexOutOfBoundsException();
         }
+        if (outputBuffer != null && outputBuffer.write(bytes, offset, length)) {
+            return 0;
+        }
         if (length <= 8) {
             ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
             if (length != 8) {
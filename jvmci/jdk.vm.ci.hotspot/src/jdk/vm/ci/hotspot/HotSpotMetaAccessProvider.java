@@ -73,6 +73,9 @@ public class HotSpotMetaAccessProvider implements MetaAccessProvider {
 
     @Override
     public Signature parseMethodDescriptor(String signature) {
+        if (HotSpotJVMCIRuntime.Option.UseSignatureCache.getBoolean()) {
+            return SignatureCache.intern(signature);
+        }
         return new HotSpotSignature(runtime, signature);
     }
 
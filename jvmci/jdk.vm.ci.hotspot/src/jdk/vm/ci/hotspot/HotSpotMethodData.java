@@ -28,16 +28,10 @@ import static jdk.vm.ci.hotspot.HotSpotJVMCIRuntime.runtime;
 import static jdk.vm.ci.hotspot.HotSpotVMConfig.config;
 import static jdk.vm.ci.hotspot.UnsafeAccess.UNSAFE;
 
-import java.util.Arrays;
-
 import jdk.vm.ci.common.NativeImageReinitialize;
 import jdk.vm.ci.meta.DeoptimizationReason;
 import jdk.vm.ci.meta.JavaMethodProfile;
-import jdk.vm.ci.meta.JavaMethodProfile.ProfiledMethod;
 import jdk.vm.ci.meta.JavaTypeProfile;
-import jdk.vm.ci.meta.JavaTypeProfile.ProfiledType;
-import jdk.vm.ci.meta.ResolvedJavaMethod;
-import jdk.vm.ci.meta.ResolvedJavaType;
 import jdk.vm.ci.meta.TriState;
 import sun.misc.Unsafe;
 
@@ -168,17 +162,104 @@ final class HotSpotMethodData {
     private final HotSpotResolvedJavaMethodImpl method;
     private final VMState state;
 
+    /**
+     * Copy of the C++ MethodData object taken by {@link #snapshot()} or {@code null} if this
+     * object reads the live MethodData.
+     */
+    private final byte[] snapshot;
+
     HotSpotMethodData(long metaspaceMethodData, HotSpotResolvedJavaMethodImpl method) {
+        this(metaspaceMethodData, method, null);
+    }
+
+    private HotSpotMethodData(long metaspaceMethodData, HotSpotResolvedJavaMethodImpl method, byte[] snapshot) {
         this.metaspaceMethodData = metaspaceMethodData;
         this.method = method;
         this.state = VMState.instance();
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Creates an object that reads the profile from a copy of this MethodData taken with a single
+     * bulk copy. The counters read from the returned object are therefore consistent with each
+     * other and do not change while a compilation uses them. The receiver types and methods
+     * recorded in the profile are still read from the live MethodData since they can be unloaded.
+     * A type or method row whose value changed since the copy was taken is treated as empty.
+     * Compilations take one snapshot per method through a {@link HotSpotMethodDataSnapshotScope}.
+     */
+    HotSpotMethodData snapshot() {
+        int size = UNSAFE.getInt(metaspaceMethodData + state.config.methodDataSize);
+        byte[] copy = new byte[size];
+        UNSAFE.copyMemory(null, metaspaceMethodData, copy, Unsafe.ARRAY_BYTE_BASE_OFFSET, size);
+        return new HotSpotMethodData(metaspaceMethodData, method, copy);
+    }
+
+    /**
+     * Determines if this object reads from a copy of the MethodData.
+     */
+    boolean isSnapshot() {
+        return snapshot != null;
+    }
+
+    private boolean checkSnapshotBounds(long offset, int size) {
+        assert offset >= 0 && offset + size <= snapshot.length : "offset " + offset + " out of snapshot bounds " + snapshot.length;
+        return true;
+    }
+
+    private int getByte(long offset) {
+        if (snapshot != null) {
+            assert checkSnapshotBounds(offset, Byte.BYTES);
+            return snapshot[(int) offset];
+        }
+        return UNSAFE.getByte(metaspaceMethodData + offset);
+    }
+
+    private int getShort(long offset) {
+        if (snapshot != null) {
+            assert checkSnapshotBounds(offset, Short.BYTES);
+            return UNSAFE.getShort(snapshot, Unsafe.ARRAY_BYTE_BASE_OFFSET + offset);
+        }
+        return UNSAFE.getShort(metaspaceMethodData + offset);
+    }
+
+    private int getInt(long offset) {
+        if (snapshot != null) {
+            assert checkSnapshotBounds(offset, Integer.BYTES);
+            return UNSAFE.getInt(snapshot, Unsafe.ARRAY_BYTE_BASE_OFFSET + offset);
+        }
+        return UNSAFE.getInt(metaspaceMethodData + offset);
+    }
+
+    /**
+     * Reads a cell (platform word) in the same way as {@link Unsafe#getAddress}.
+     */
+    private long getCell(long offset) {
+        if (snapshot != null) {
+            if (UNSAFE.addressSize() == Long.BYTES) {
+                assert checkSnapshotBounds(offset, Long.BYTES);
+                return UNSAFE.getLong(snapshot, Unsafe.ARRAY_BYTE_BASE_OFFSET + offset);
+            }
+            assert checkSnapshotBounds(offset, Integer.BYTES);
+            return UNSAFE.getInt(snapshot, Unsafe.ARRAY_BYTE_BASE_OFFSET + offset) & 0xFFFFFFFFL;
+        }
+        return UNSAFE.getAddress(metaspaceMethodData + offset);
+    }
+
+    /**
+     * Determines if the metadata pointer in the cell at {@code offset} of a snapshot is non-null and
+     * has not changed in the live MethodData since the snapshot was taken.
+     */
+    private boolean isSnapshotMetadataCellLive(long offset) {
+        assert snapshot != null;
+        long value = getCell(offset);
+        return value != 0 && UNSAFE.getAddress(metaspaceMethodData + offset) == value;
     }
 
     /**
      * @return value of the MethodData::_data_size field
      */
     private int normalDataSize() {
-        return UNSAFE.getInt(metaspaceMethodData + state.config.methodDataDataSize);
+        return getInt(state.config.methodDataDataSize);
     }
 
     /**
@@ -189,7 +270,7 @@ final class HotSpotMethodData {
      */
     private int extraDataSize() {
         final int extraDataBase = state.config.methodDataOopDataOffset + normalDataSize();
-        final int extraDataLimit = UNSAFE.getInt(metaspaceMethodData + state.config.methodDataSize);
+        final int extraDataLimit = getInt(state.config.methodDataSize);
         return extraDataLimit - extraDataBase;
     }
 
@@ -212,25 +293,25 @@ final class HotSpotMethodData {
     public int getDeoptimizationCount(DeoptimizationReason reason) {
         HotSpotMetaAccessProvider metaAccess = (HotSpotMetaAccessProvider) runtime().getHostJVMCIBackend().getMetaAccess();
         int reasonIndex = metaAccess.convertDeoptReason(reason);
-        return UNSAFE.getByte(metaspaceMethodData + state.config.methodDataOopTrapHistoryOffset + reasonIndex) & 0xFF;
+        return getByte(state.config.methodDataOopTrapHistoryOffset + reasonIndex) & 0xFF;
     }
 
     public int getOSRDeoptimizationCount(DeoptimizationReason reason) {
         HotSpotMetaAccessProvider metaAccess = (HotSpotMetaAccessProvider) runtime().getHostJVMCIBackend().getMetaAccess();
         int reasonIndex = metaAccess.convertDeoptReason(reason);
-        return UNSAFE.getByte(metaspaceMethodData + state.config.methodDataOopTrapHistoryOffset + state.config.deoptReasonOSROffset + reasonIndex) & 0xFF;
+        return getByte(state.config.methodDataOopTrapHistoryOffset + state.config.deoptReasonOSROffset + reasonIndex) & 0xFF;
     }
 
     public int getDecompileCount() {
-        return UNSAFE.getInt(metaspaceMethodData + state.config.methodDataDecompiles);
+        return getInt(state.config.methodDataDecompiles);
     }
 
     public int getOverflowRecompileCount() {
-        return UNSAFE.getInt(metaspaceMethodData + state.config.methodDataOverflowRecompiles);
+        return getInt(state.config.methodDataOverflowRecompiles);
     }
 
     public int getOverflowTrapCount() {
-        return UNSAFE.getInt(metaspaceMethodData + state.config.methodDataOverflowTraps);
+        return getInt(state.config.methodDataOverflowTraps);
     }
 
     public HotSpotMethodDataAccessor getNormalData(int position) {
@@ -270,21 +351,21 @@ final class HotSpotMethodData {
 
     int readUnsignedByte(int position, int offsetInBytes) {
         long fullOffsetInBytes = state.computeFullOffset(position, offsetInBytes);
-        return UNSAFE.getByte(metaspaceMethodData + fullOffsetInBytes) & 0xFF;
+        return getByte(fullOffsetInBytes) & 0xFF;
     }
 
     int readUnsignedShort(int position, int offsetInBytes) {
         long fullOffsetInBytes = state.computeFullOffset(position, offsetInBytes);
-        return UNSAFE.getShort(metaspaceMethodData + fullOffsetInBytes) & 0xFFFF;
+        return getShort(fullOffsetInBytes) & 0xFFFF;
     }
 
     /**
-     * Since the values are stored in cells (platform words) this method uses
-     * {@link Unsafe#getAddress} to read the right value on both little and big endian machines.
+     * Since the values are stored in cells (platform words) this method uses {@link #getCell} to
+     * read the right value on both little and big endian machines.
      */
     private long readUnsignedInt(int position, int offsetInBytes) {
         long fullOffsetInBytes = state.computeFullOffset(position, offsetInBytes);
-        return UNSAFE.getAddress(metaspaceMethodData + fullOffsetInBytes) & 0xFFFFFFFFL;
+        return getCell(fullOffsetInBytes) & 0xFFFFFFFFL;
     }
 
     private int readUnsignedIntAsSignedInt(int position, int offsetInBytes) {
@@ -293,21 +374,27 @@ final class HotSpotMethodData {
     }
 
     /**
-     * Since the values are stored in cells (platform words) this method uses
-     * {@link Unsafe#getAddress} to read the right value on both little and big endian machines.
+     * Since the values are stored in cells (platform words) this method uses {@link #getCell} to
+     * read the right value on both little and big endian machines.
      */
     private int readInt(int position, int offsetInBytes) {
         long fullOffsetInBytes = state.computeFullOffset(position, offsetInBytes);
-        return (int) UNSAFE.getAddress(metaspaceMethodData + fullOffsetInBytes);
+        return (int) getCell(fullOffsetInBytes);
     }
 
     private HotSpotResolvedJavaMethod readMethod(int position, int offsetInBytes) {
         long fullOffsetInBytes = state.computeFullOffset(position, offsetInBytes);
+        if (snapshot != null && !isSnapshotMetadataCellLive(fullOffsetInBytes)) {
+            return null;
+        }
         return compilerToVM().getResolvedJavaMethod(null, metaspaceMethodData + fullOffsetInBytes);
     }
 
     private HotSpotResolvedObjectTypeImpl readKlass(int position, int offsetInBytes) {
         long fullOffsetInBytes = state.computeFullOffset(position, offsetInBytes);
+        if (snapshot != null && !isSnapshotMetadataCellLive(fullOffsetInBytes)) {
+            return null;
+        }
         return compilerToVM().getResolvedJavaType(metaspaceMethodData + fullOffsetInBytes, false);
     }
 
@@ -462,20 +549,6 @@ final class HotSpotMethodData {
         }
     }
 
-    static class RawItemProfile<T> {
-        final int entries;
-        final T[] items;
-        final long[] counts;
-        final long totalCount;
-
-        RawItemProfile(int entries, T[] items, long[] counts, long totalCount) {
-            this.entries = entries;
-            this.items = items;
-            this.counts = counts;
-            this.totalCount = totalCount;
-        }
-    }
-
     abstract static class AbstractTypeData extends CounterData {
 
         protected AbstractTypeData(VMState state, int tag, int staticSize) {
@@ -484,13 +557,20 @@ final class HotSpotMethodData {
 
         @Override
         public JavaTypeProfile getTypeProfile(HotSpotMethodData data, int position) {
-            return createTypeProfile(getNullSeen(data, position), getRawTypeProfile(data, position));
+            HotSpotItemProfile<HotSpotResolvedObjectType> profile = getTypeProfileView(data, position);
+            return profile == null ? null : profile.toTypeProfile();
+        }
+
+        @Override
+        HotSpotItemProfile<HotSpotResolvedObjectType> getTypeProfileView(HotSpotMethodData data, int position) {
+            HotSpotItemProfile<HotSpotResolvedObjectType> profile = readTypeProfile(data, position);
+            return profile.isEmpty() ? null : profile;
         }
 
-        private RawItemProfile<ResolvedJavaType> getRawTypeProfile(HotSpotMethodData data, int position) {
+        private HotSpotItemProfile<HotSpotResolvedObjectType> readTypeProfile(HotSpotMethodData data, int position) {
             int typeProfileWidth = config.typeProfileWidth;
 
-            ResolvedJavaType[] types = new ResolvedJavaType[typeProfileWidth];
+            HotSpotResolvedObjectType[] types = new HotSpotResolvedObjectType[typeProfileWidth];
             long[] counts = new long[typeProfileWidth];
             long totalCount = 0;
             int entries = 0;
@@ -520,7 +600,7 @@ final class HotSpotMethodData {
             }
 
             totalCount += getTypesNotRecordedExecutionCount(data, position);
-            return new RawItemProfile<>(entries, types, counts, totalCount);
+            return new HotSpotItemProfile<>(getNullSeen(data, position), entries, types, counts, totalCount, typeProfileWidth);
         }
 
         protected abstract long getTypesNotRecordedExecutionCount(HotSpotMethodData data, int position);
@@ -529,27 +609,6 @@ final class HotSpotMethodData {
             return data.readUnsignedIntAsSignedInt(position, state.nonprofiledCountOffset);
         }
 
-        private JavaTypeProfile createTypeProfile(TriState nullSeen, RawItemProfile<ResolvedJavaType> profile) {
-            if (profile.entries <= 0 || profile.totalCount <= 0) {
-                return null;
-            }
-
-            ProfiledType[] ptypes = new ProfiledType[profile.entries];
-            double totalProbability = 0.0;
-            for (int i = 0; i < profile.entries; i++) {
-                double p = profile.counts[i];
-                p = p / profile.totalCount;
-                totalProbability += p;
-                ptypes[i] = new ProfiledType(profile.items[i], p);
-            }
-
-            Arrays.sort(ptypes);
-
-            double notRecordedTypeProbability = profile.entries < config.typeProfileWidth ? 0.0 : Math.min(1.0, Math.max(0.0, 1.0 - totalProbability));
-            assert notRecordedTypeProbability == 0 || profile.entries == config.typeProfileWidth;
-            return new JavaTypeProfile(nullSeen, notRecordedTypeProbability, ptypes);
-        }
-
         private int getTypeOffset(int row) {
             return state.typeDataFirstTypeOffset + row * state.typeDataRowSize;
         }
@@ -560,14 +619,14 @@ final class HotSpotMethodData {
 
         @Override
         public StringBuilder appendTo(StringBuilder sb, HotSpotMethodData data, int pos) {
-            RawItemProfile<ResolvedJavaType> profile = getRawTypeProfile(data, pos);
-            TriState nullSeen = getNullSeen(data, pos);
+            HotSpotItemProfile<HotSpotResolvedObjectType> profile = readTypeProfile(data, pos);
+            TriState nullSeen = profile.getNullSeen();
             TriState exceptionSeen = getExceptionSeen(data, pos);
             sb.append(format("count(%d) null_seen(%s) exception_seen(%s) nonprofiled_count(%d) entries(%d)", getCounterValue(data, pos), nullSeen, exceptionSeen,
-                            getNonprofiledCount(data, pos), profile.entries));
-            for (int i = 0; i < profile.entries; i++) {
-                long count = profile.counts[i];
-                sb.append(format("%n  %s (%d, %4.2f)", profile.items[i].toJavaName(), count, (double) count / profile.totalCount));
+                            getNonprofiledCount(data, pos), profile.getEntryCount()));
+            for (int i = 0; i < profile.getEntryCount(); i++) {
+                long count = profile.getCount(i);
+                sb.append(format("%n  %s (%d, %4.2f)", profile.getItem(i).toJavaName(), count, (double) count / profile.getTotalCount()));
             }
             return sb;
         }
@@ -628,13 +687,20 @@ final class HotSpotMethodData {
 
         @Override
         public JavaMethodProfile getMethodProfile(HotSpotMethodData data, int position) {
-            return createMethodProfile(getRawMethodProfile(data, position));
+            HotSpotItemProfile<HotSpotResolvedJavaMethod> profile = getMethodProfileView(data, position);
+            return profile == null ? null : profile.toMethodProfile();
+        }
+
+        @Override
+        HotSpotItemProfile<HotSpotResolvedJavaMethod> getMethodProfileView(HotSpotMethodData data, int position) {
+            HotSpotItemProfile<HotSpotResolvedJavaMethod> profile = readMethodProfile(data, position);
+            return profile.isEmpty() ? null : profile;
         }
 
-        private RawItemProfile<ResolvedJavaMethod> getRawMethodProfile(HotSpotMethodData data, int position) {
+        private HotSpotItemProfile<HotSpotResolvedJavaMethod> readMethodProfile(HotSpotMethodData data, int position) {
             int profileWidth = config.methodProfileWidth;
 
-            ResolvedJavaMethod[] methods = new ResolvedJavaMethod[profileWidth];
+            HotSpotResolvedJavaMethod[] methods = new HotSpotResolvedJavaMethod[profileWidth];
             long[] counts = new long[profileWidth];
             long totalCount = 0;
             int entries = 0;
@@ -660,28 +726,7 @@ final class HotSpotMethodData {
                 counts[0] = totalCount;
             }
 
-            return new RawItemProfile<>(entries, methods, counts, totalCount);
-        }
-
-        private JavaMethodProfile createMethodProfile(RawItemProfile<ResolvedJavaMethod> profile) {
-            if (profile.entries <= 0 || profile.totalCount <= 0) {
-                return null;
-            }
-
-            ProfiledMethod[] pmethods = new ProfiledMethod[profile.entries];
-            double totalProbability = 0.0;
-            for (int i = 0; i < profile.entries; i++) {
-                double p = profile.counts[i];
-                p = p / profile.totalCount;
-                totalProbability += p;
-                pmethods[i] = new ProfiledMethod(profile.items[i], p);
-            }
-
-            Arrays.sort(pmethods);
-
-            double notRecordedMethodProbability = profile.entries < config.methodProfileWidth ? 0.0 : Math.min(1.0, Math.max(0.0, 1.0 - totalProbability));
-            assert notRecordedMethodProbability == 0 || profile.entries == config.methodProfileWidth;
-            return new JavaMethodProfile(notRecordedMethodProbability, pmethods);
+            return new HotSpotItemProfile<>(TriState.UNKNOWN, entries, methods, counts, totalCount, profileWidth);
         }
 
         private int getMethodOffset(int row) {
@@ -694,11 +739,11 @@ final class HotSpotMethodData {
 
         @Override
         public StringBuilder appendTo(StringBuilder sb, HotSpotMethodData data, int pos) {
-            RawItemProfile<ResolvedJavaMethod> profile = getRawMethodProfile(data, pos);
-            super.appendTo(sb.append(format("exception_seen(%s) ", getExceptionSeen(data, pos))), data, pos).append(format("%nmethod_entries(%d)", profile.entries));
-            for (int i = 0; i < profile.entries; i++) {
-                long count = profile.counts[i];
-                sb.append(format("%n  %s (%d, %4.2f)", profile.items[i].format("%H.%n(%p)"), count, (double) count / profile.totalCount));
+            HotSpotItemProfile<HotSpotResolvedJavaMethod> profile = readMethodProfile(data, pos);
+            super.appendTo(sb.append(format("exception_seen(%s) ", getExceptionSeen(data, pos))), data, pos).append(format("%nmethod_entries(%d)", profile.getEntryCount()));
+            for (int i = 0; i < profile.getEntryCount(); i++) {
+                long count = profile.getCount(i);
+                sb.append(format("%n  %s (%d, %4.2f)", profile.getItem(i).format("%H.%n(%p)"), count, (double) count / profile.getTotalCount()));
             }
             return sb;
         }
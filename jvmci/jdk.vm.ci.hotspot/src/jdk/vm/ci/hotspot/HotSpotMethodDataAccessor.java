@@ -104,6 +104,26 @@ abstract class HotSpotMethodDataAccessor {
         return null;
     }
 
+    /**
+     * Gets a view of the receiver type profile at {@code position} that is not converted to a
+     * {@link JavaTypeProfile}.
+     *
+     * @return {@code null} if and only if {@link #getTypeProfile} returns {@code null}
+     */
+    HotSpotItemProfile<HotSpotResolvedObjectType> getTypeProfileView(HotSpotMethodData data, int position) {
+        return null;
+    }
+
+    /**
+     * Gets a view of the call target profile at {@code position} that is not converted to a
+     * {@link JavaMethodProfile}.
+     *
+     * @return {@code null} if and only if {@link #getMethodProfile} returns {@code null}
+     */
+    HotSpotItemProfile<HotSpotResolvedJavaMethod> getMethodProfileView(HotSpotMethodData data, int position) {
+        return null;
+    }
+
     /**
      * @param data
      * @param position
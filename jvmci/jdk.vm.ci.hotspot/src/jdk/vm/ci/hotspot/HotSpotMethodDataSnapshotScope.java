@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import java.util.HashMap;
+
+/**
+ * A scope in which the profile of each method is read from a single {@linkplain HotSpotMethodData
+ * snapshot} of its MethodData. The snapshot of a method is taken the first time its profile is
+ * requested in the scope and every later {@link HotSpotResolvedJavaMethod#getProfilingInfo}
+ * request for the method in the scope reads from that same snapshot. Updates made to the
+ * MethodData after the snapshot was taken are therefore not seen in the scope.
+ *
+ * A scope is opened around each compilation request when {@code -Djvmci.SnapshotMethodData=true}.
+ * The object returned by {@link #open()} should always be used in a try-with-resources statement.
+ */
+public final class HotSpotMethodDataSnapshotScope implements AutoCloseable {
+    static final ThreadLocal<HotSpotMethodDataSnapshotScope> CURRENT = new ThreadLocal<>();
+
+    private final HotSpotMethodDataSnapshotScope parent;
+    private final HashMap<Long, HotSpotMethodData> snapshots = new HashMap<>();
+
+    /**
+     * Opens a scope on the current thread.
+     */
+    public static HotSpotMethodDataSnapshotScope open() {
+        return new HotSpotMethodDataSnapshotScope();
+    }
+
+    private HotSpotMethodDataSnapshotScope() {
+        this.parent = CURRENT.get();
+        CURRENT.set(this);
+    }
+
+    /**
+     * Gets the snapshot of {@code methodData} taken in this scope, taking it if this is the first
+     * request for it.
+     */
+    HotSpotMethodData snapshot(HotSpotMethodData methodData) {
+        assert !methodData.isSnapshot();
+        HotSpotMethodData snapshot = snapshots.get(methodData.metaspaceMethodData);
+        if (snapshot == null) {
+            snapshot = methodData.snapshot();
+            snapshots.put(methodData.metaspaceMethodData, snapshot);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void close() {
+        if (CURRENT.get() != this) {
+            throw new IllegalStateException("Cannot close non-active scope");
+        }
+        snapshots.clear();
+        CURRENT.set(parent);
+    }
+}
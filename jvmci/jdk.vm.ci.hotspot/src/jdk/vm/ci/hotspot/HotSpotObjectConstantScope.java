@@ -22,8 +22,6 @@
  */
 package jdk.vm.ci.hotspot;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 import jdk.vm.ci.services.Services;
@@ -48,7 +46,7 @@ public final class HotSpotObjectConstantScope implements AutoCloseable {
     static final ThreadLocal<HotSpotObjectConstantScope> CURRENT = new ThreadLocal<>();
 
     private final HotSpotObjectConstantScope parent;
-    private List<IndirectHotSpotObjectConstantImpl> foreignObjects;
+    private HandleArena foreignObjects;
 
     /**
      * An object whose {@link Object#toString()} value describes a non-global scope. This is
@@ -96,12 +94,12 @@ public final class HotSpotObjectConstantScope implements AutoCloseable {
         return localScopeDescription == null;
     }
 
-    void add(IndirectHotSpotObjectConstantImpl obj) {
+    void add(IndirectHotSpotObjectConstantImpl obj, long handle) {
         assert !isGlobal();
         if (foreignObjects == null) {
-            foreignObjects = new ArrayList<>();
+            foreignObjects = new HandleArena(this);
         }
-        foreignObjects.add(obj);
+        foreignObjects.add(obj, handle);
     }
 
     @VMEntryPoint
@@ -111,9 +109,7 @@ public final class HotSpotObjectConstantScope implements AutoCloseable {
             throw new IllegalStateException("Cannot close non-active scope");
         }
         if (foreignObjects != null) {
-            for (IndirectHotSpotObjectConstantImpl obj : foreignObjects) {
-                obj.clear(localScopeDescription);
-            }
+            foreignObjects.release(localScopeDescription);
             foreignObjects = null;
         }
         CURRENT.set(parent);
@@ -28,7 +28,13 @@ import jdk.vm.ci.meta.JavaTypeProfile;
 import jdk.vm.ci.meta.ProfilingInfo;
 import jdk.vm.ci.meta.TriState;
 
-final class HotSpotProfilingInfo implements ProfilingInfo {
+final class HotSpotProfilingInfo implements ProfilingInfo, HotSpotItemProfileProvider {
+
+    /**
+     * Placeholder in {@link #typeProfileViews} and {@link #methodProfileViews} for a bytecode
+     * that has no profile.
+     */
+    private static final HotSpotItemProfile<?> NO_PROFILE = new HotSpotItemProfile<>(TriState.UNKNOWN, 0, new Object[0], new long[0], 0, 0);
 
     private final HotSpotMethodData methodData;
     private final HotSpotResolvedJavaMethod method;
@@ -42,6 +48,12 @@ final class HotSpotProfilingInfo implements ProfilingInfo {
     private boolean includeNormal;
     private boolean includeOSR;
 
+    /**
+     * Profile views indexed by BCI, allocated on first use.
+     */
+    private HotSpotItemProfile<?>[] typeProfileViews;
+    private HotSpotItemProfile<?>[] methodProfileViews;
+
     HotSpotProfilingInfo(HotSpotMethodData methodData, HotSpotResolvedJavaMethod method, boolean includeNormal, boolean includeOSR) {
         this.methodData = methodData;
         this.method = method;
@@ -87,6 +99,50 @@ final class HotSpotProfilingInfo implements ProfilingInfo {
         return dataAccessor.getMethodProfile(methodData, position);
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public HotSpotItemProfile<HotSpotResolvedObjectType> getTypeProfileView(int bci) {
+        if (!isMature) {
+            return null;
+        }
+        if (typeProfileViews == null) {
+            typeProfileViews = new HotSpotItemProfile<?>[getCodeSize()];
+        }
+        if (bci < 0 || bci >= typeProfileViews.length) {
+            findBCI(bci, false);
+            return dataAccessor.getTypeProfileView(methodData, position);
+        }
+        HotSpotItemProfile<?> profile = typeProfileViews[bci];
+        if (profile == null) {
+            findBCI(bci, false);
+            profile = dataAccessor.getTypeProfileView(methodData, position);
+            typeProfileViews[bci] = profile == null ? NO_PROFILE : profile;
+        }
+        return profile == NO_PROFILE ? null : (HotSpotItemProfile<HotSpotResolvedObjectType>) profile;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public HotSpotItemProfile<HotSpotResolvedJavaMethod> getMethodProfileView(int bci) {
+        if (!isMature) {
+            return null;
+        }
+        if (methodProfileViews == null) {
+            methodProfileViews = new HotSpotItemProfile<?>[getCodeSize()];
+        }
+        if (bci < 0 || bci >= methodProfileViews.length) {
+            findBCI(bci, false);
+            return dataAccessor.getMethodProfileView(methodData, position);
+        }
+        HotSpotItemProfile<?> profile = methodProfileViews[bci];
+        if (profile == null) {
+            findBCI(bci, false);
+            profile = dataAccessor.getMethodProfileView(methodData, position);
+            methodProfileViews[bci] = profile == null ? NO_PROFILE : profile;
+        }
+        return profile == NO_PROFILE ? null : (HotSpotItemProfile<HotSpotResolvedJavaMethod>) profile;
+    }
+
     @Override
     public double getBranchTakenProbability(int bci) {
         if (!isMature) {
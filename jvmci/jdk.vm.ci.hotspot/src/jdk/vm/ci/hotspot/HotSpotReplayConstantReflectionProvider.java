@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import jdk.vm.ci.meta.Constant;
+import jdk.vm.ci.meta.ConstantReflectionProvider;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.MemoryAccessProvider;
+import jdk.vm.ci.meta.MethodHandleAccessProvider;
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * A {@link ConstantReflectionProvider} serving the static field values recorded by
+ * {@link HotSpotReplayRecorder}. Reads of fields whose value was not recorded are delegated to the
+ * host provider.
+ */
+public class HotSpotReplayConstantReflectionProvider implements ConstantReflectionProvider {
+
+    private final HotSpotReplayData data;
+    private final ConstantReflectionProvider host;
+
+    HotSpotReplayConstantReflectionProvider(HotSpotReplayData data, ConstantReflectionProvider host) {
+        this.data = data;
+        this.host = host;
+    }
+
+    @Override
+    public JavaConstant readFieldValue(ResolvedJavaField field, JavaConstant receiver) {
+        if (field.isStatic()) {
+            JavaConstant value = data.fieldValues.get(HotSpotReplayFormat.fieldKey(field.getDeclaringClass().getName(), field.getName(), field.getType().getName()));
+            if (value != null) {
+                return value;
+            }
+        }
+        return host.readFieldValue(field, receiver);
+    }
+
+    @Override
+    public Boolean constantEquals(Constant x, Constant y) {
+        return host.constantEquals(x, y);
+    }
+
+    @Override
+    public Integer readArrayLength(JavaConstant array) {
+        return host.readArrayLength(array);
+    }
+
+    @Override
+    public JavaConstant readArrayElement(JavaConstant array, int index) {
+        return host.readArrayElement(array, index);
+    }
+
+    @Override
+    public JavaConstant boxPrimitive(JavaConstant source) {
+        return host.boxPrimitive(source);
+    }
+
+    @Override
+    public JavaConstant unboxPrimitive(JavaConstant source) {
+        return host.unboxPrimitive(source);
+    }
+
+    @Override
+    public JavaConstant forString(String value) {
+        return host.forString(value);
+    }
+
+    @Override
+    public ResolvedJavaType asJavaType(Constant constant) {
+        return host.asJavaType(constant);
+    }
+
+    @Override
+    public MethodHandleAccessProvider getMethodHandleAccess() {
+        return host.getMethodHandleAccess();
+    }
+
+    @Override
+    public MemoryAccessProvider getMemoryAccessProvider() {
+        return host.getMemoryAccessProvider();
+    }
+
+    @Override
+    public JavaConstant asJavaClass(ResolvedJavaType type) {
+        return host.asJavaClass(type);
+    }
+
+    @Override
+    public Constant asObjectHub(ResolvedJavaType type) {
+        return host.asObjectHub(type);
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import static jdk.vm.ci.hotspot.CompilerToVM.compilerToVM;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ASSUMPTION;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.BCI_BRANCH_PROBABILITY;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.BCI_EXECUTION_COUNT;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.BCI_METHOD_PROFILE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.BCI_SWITCH_PROBABILITIES;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.BCI_TYPE_PROFILE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.CONCRETE_METHOD;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.CONCRETE_SUBTYPE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.CONSTANT_POOL_ENTRY;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.END;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ENTRY_FIELD;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ENTRY_METHOD;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ENTRY_RESOLVED;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ENTRY_TYPE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.FAILED_SPECULATION;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.FIELD_VALUE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.LEAF_TYPE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.MAGIC;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.NO_FINALIZABLE_SUBCLASS;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.PROFILE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.SPECULATION;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.VERSION;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import jdk.vm.ci.meta.ConstantReflectionProvider;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.TriState;
+
+/**
+ * The data of a compilation recorded by {@link HotSpotReplayRecorder}. Replay providers serving
+ * this data to a compiler are created with {@link #createMetaAccessProvider} and
+ * {@link #createConstantReflectionProvider}.
+ */
+public final class HotSpotReplayData {
+
+    /**
+     * The profile of a method. The per-bci arrays are indexed by bci.
+     */
+    static final class RecordedProfile {
+        boolean mature;
+        int[] deoptimizationCounts;
+        int[] flags;
+        int[] executionCounts;
+        double[] branchProbabilities;
+        double[][] switchProbabilities;
+        RecordedTypeProfile[] typeProfiles;
+        RecordedMethodProfile[] methodProfiles;
+    }
+
+    static final class RecordedTypeProfile {
+        TriState nullSeen;
+        double notRecordedProbability;
+        String[] types;
+        double[] probabilities;
+    }
+
+    static final class RecordedMethodProfile {
+        double notRecordedProbability;
+        String[][] methods;
+        double[] probabilities;
+    }
+
+    /**
+     * A constant pool entry. {@link #names} holds the type name for a type, the holder, name and
+     * signature for a method and the holder, name and type for a field.
+     */
+    static final class RecordedEntry {
+        final int kind;
+        final boolean resolved;
+        final String[] names;
+
+        RecordedEntry(int kind, boolean resolved, String... names) {
+            this.kind = kind;
+            this.resolved = resolved;
+            this.names = names;
+        }
+    }
+
+    /**
+     * An assumption. {@link #names} holds the type names and method triples of the assumption in
+     * the order they were recorded.
+     */
+    static final class RecordedAssumption {
+        final int kind;
+        final String[] names;
+
+        RecordedAssumption(int kind, String... names) {
+            this.kind = kind;
+            this.names = names;
+        }
+    }
+
+    final HashMap<String, RecordedProfile> profiles = new HashMap<>();
+    final HashMap<String, RecordedEntry> constantPoolEntries = new HashMap<>();
+    final HashMap<String, JavaConstant> fieldValues = new HashMap<>();
+    final List<RecordedAssumption> assumptions = new ArrayList<>();
+    private final List<byte[]> failedSpeculations = new ArrayList<>();
+    private byte[] speculations = {};
+
+    private HotSpotReplayData() {
+    }
+
+    /**
+     * Reads data in the format written by {@link HotSpotReplayRecorder#write}.
+     */
+    public static HotSpotReplayData read(InputStream stream) throws IOException {
+        HotSpotReplayFormat.Input in = new HotSpotReplayFormat.Input(new DataInputStream(stream));
+        if (in.in.readInt() != MAGIC) {
+            throw new IOException("Not a JVMCI replay file");
+        }
+        int version = in.in.readUnsignedShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported JVMCI replay file version " + version);
+        }
+        HotSpotReplayData data = new HotSpotReplayData();
+        while (true) {
+            int tag = in.in.readUnsignedByte();
+            switch (tag) {
+                case END:
+                    return data;
+                case PROFILE:
+                    data.readProfile(in);
+                    break;
+                case CONSTANT_POOL_ENTRY:
+                    data.readConstantPoolEntry(in);
+                    break;
+                case FIELD_VALUE:
+                    data.readFieldValue(in);
+                    break;
+                case ASSUMPTION:
+                    data.readAssumption(in);
+                    break;
+                case FAILED_SPECULATION:
+                    data.failedSpeculations.add(in.readBytes());
+                    break;
+                case SPECULATION:
+                    data.speculations = in.readBytes();
+                    break;
+                default:
+                    throw new IOException("Invalid JVMCI replay record tag " + tag);
+            }
+        }
+    }
+
+    private static String readMethodKey(HotSpotReplayFormat.Input in) throws IOException {
+        String[] method = readMethod(in);
+        return HotSpotReplayFormat.methodKey(method[0], method[1], method[2]);
+    }
+
+    private static String[] readMethod(HotSpotReplayFormat.Input in) throws IOException {
+        return new String[]{in.readString(), in.readString(), in.readString()};
+    }
+
+    private static TriState decodeTriState(int value) {
+        return TriState.values()[value];
+    }
+
+    private void readProfile(HotSpotReplayFormat.Input in) throws IOException {
+        String methodKey = readMethodKey(in);
+        boolean includeNormal = in.in.readBoolean();
+        boolean includeOSR = in.in.readBoolean();
+        String key = HotSpotReplayFormat.profileKey(methodKey, includeNormal, includeOSR);
+        RecordedProfile profile = new RecordedProfile();
+        profile.mature = in.in.readBoolean();
+        profile.deoptimizationCounts = new int[DeoptimizationReason.values().length];
+        for (int i = 0; i < profile.deoptimizationCounts.length; i++) {
+            profile.deoptimizationCounts[i] = in.readUnsigned();
+        }
+        int codeSize = in.readUnsigned();
+        profile.flags = new int[codeSize];
+        profile.executionCounts = new int[codeSize];
+        profile.branchProbabilities = new double[codeSize];
+        profile.switchProbabilities = new double[codeSize][];
+        profile.typeProfiles = new RecordedTypeProfile[codeSize];
+        profile.methodProfiles = new RecordedMethodProfile[codeSize];
+        for (int bci = 0; bci < codeSize; bci++) {
+            int flags = in.readUnsigned();
+            profile.flags[bci] = flags;
+            profile.executionCounts[bci] = (flags & BCI_EXECUTION_COUNT) != 0 ? in.readUnsigned() : -1;
+            profile.branchProbabilities[bci] = (flags & BCI_BRANCH_PROBABILITY) != 0 ? in.in.readDouble() : -1;
+            if ((flags & BCI_SWITCH_PROBABILITIES) != 0) {
+                double[] probabilities = new double[in.readUnsigned()];
+                for (int i = 0; i < probabilities.length; i++) {
+                    probabilities[i] = in.in.readDouble();
+                }
+                profile.switchProbabilities[bci] = probabilities;
+            }
+            if ((flags & BCI_TYPE_PROFILE) != 0) {
+                RecordedTypeProfile typeProfile = new RecordedTypeProfile();
+                typeProfile.nullSeen = decodeTriState(in.in.readUnsignedByte());
+                typeProfile.notRecordedProbability = in.in.readDouble();
+                int length = in.readUnsigned();
+                typeProfile.types = new String[length];
+                typeProfile.probabilities = new double[length];
+                for (int i = 0; i < length; i++) {
+                    typeProfile.types[i] = in.readString();
+                    typeProfile.probabilities[i] = in.in.readDouble();
+                }
+                profile.typeProfiles[bci] = typeProfile;
+            }
+            if ((flags & BCI_METHOD_PROFILE) != 0) {
+                RecordedMethodProfile methodProfile = new RecordedMethodProfile();
+                methodProfile.notRecordedProbability = in.in.readDouble();
+                int length = in.readUnsigned();
+                methodProfile.methods = new String[length][];
+                methodProfile.probabilities = new double[length];
+                for (int i = 0; i < length; i++) {
+                    methodProfile.methods[i] = readMethod(in);
+                    methodProfile.probabilities[i] = in.in.readDouble();
+                }
+                profile.methodProfiles[bci] = methodProfile;
+            }
+        }
+        profiles.put(key, profile);
+    }
+
+    private void readConstantPoolEntry(HotSpotReplayFormat.Input in) throws IOException {
+        String holder = in.readString();
+        int cpi = in.readUnsigned();
+        int opcode = in.readUnsigned();
+        int kindAndResolved = in.in.readUnsignedByte();
+        int kind = kindAndResolved & ~ENTRY_RESOLVED;
+        boolean resolved = (kindAndResolved & ENTRY_RESOLVED) != 0;
+        RecordedEntry entry;
+        switch (kind) {
+            case ENTRY_TYPE:
+                entry = new RecordedEntry(kind, resolved, in.readString());
+                break;
+            case ENTRY_METHOD:
+                entry = new RecordedEntry(kind, resolved, readMethod(in));
+                break;
+            case ENTRY_FIELD:
+                entry = new RecordedEntry(kind, resolved, in.readString(), in.readString(), in.readString());
+                break;
+            default:
+                throw new IOException("Invalid constant pool entry kind " + kind);
+        }
+        constantPoolEntries.put(HotSpotReplayFormat.constantPoolEntryKey(holder, cpi, opcode), entry);
+    }
+
+    private void readFieldValue(HotSpotReplayFormat.Input in) throws IOException {
+        String key = HotSpotReplayFormat.fieldKey(in.readString(), in.readString(), in.readString());
+        JavaKind kind = JavaKind.fromPrimitiveOrVoidTypeChar((char) in.in.readUnsignedByte());
+        long bits = in.in.readLong();
+        JavaConstant value;
+        switch (kind) {
+            case Boolean:
+                value = JavaConstant.forBoolean(bits != 0);
+                break;
+            case Byte:
+                value = JavaConstant.forByte((byte) bits);
+                break;
+            case Short:
+                value = JavaConstant.forShort((short) bits);
+                break;
+            case Char:
+                value = JavaConstant.forChar((char) bits);
+                break;
+            case Int:
+                value = JavaConstant.forInt((int) bits);
+                break;
+            case Long:
+                value = JavaConstant.forLong(bits);
+                break;
+            case Float:
+                value = JavaConstant.forFloat(Float.intBitsToFloat((int) bits));
+                break;
+            case Double:
+                value = JavaConstant.forDouble(Double.longBitsToDouble(bits));
+                break;
+            default:
+                throw new IOException("Invalid field value kind " + kind);
+        }
+        fieldValues.put(key, value);
+    }
+
+    private void readAssumption(HotSpotReplayFormat.Input in) throws IOException {
+        int kind = in.in.readUnsignedByte();
+        switch (kind) {
+            case NO_FINALIZABLE_SUBCLASS:
+            case LEAF_TYPE:
+                assumptions.add(new RecordedAssumption(kind, in.readString()));
+                break;
+            case CONCRETE_SUBTYPE:
+                assumptions.add(new RecordedAssumption(kind, in.readString(), in.readString()));
+                break;
+            case CONCRETE_METHOD: {
+                String[] method = readMethod(in);
+                String context = in.readString();
+                String[] impl = readMethod(in);
+                assumptions.add(new RecordedAssumption(kind, method[0], method[1], method[2], context, impl[0], impl[1], impl[2]));
+                break;
+            }
+            default:
+                throw new IOException("Invalid assumption kind " + kind);
+        }
+    }
+
+    /**
+     * Gets the encodings of the failed speculations that were visible to the recorded compilation.
+     */
+    public List<byte[]> getFailedSpeculations() {
+        return Collections.unmodifiableList(failedSpeculations);
+    }
+
+    /**
+     * Gets the flattened encodings of the speculations made by the recorded compilation.
+     */
+    public byte[] getSpeculations() {
+        return speculations.clone();
+    }
+
+    /**
+     * Creates a speculation log whose failed speculations are those recorded. Replaying a
+     * compilation with this log makes the same speculation decisions as the recorded compilation.
+     */
+    public HotSpotSpeculationLog createSpeculationLog() {
+        HotSpotSpeculationLog log = new HotSpotSpeculationLog();
+        for (byte[] failed : failedSpeculations) {
+            compilerToVM().addFailedSpeculation(log.getFailedSpeculationsAddress(), failed);
+        }
+        log.collectFailedSpeculations();
+        return log;
+    }
+
+    /**
+     * Creates a {@link MetaAccessProvider} that serves the recorded profiles, constant pool entries
+     * and assumptions. All other requests are delegated to {@code host}. While the provider is
+     * {@linkplain HotSpotReplayMetaAccessProvider#activate() active} on a thread, the recorded
+     * profiles and constant pool entries are also returned by
+     * {@link jdk.vm.ci.meta.ResolvedJavaMethod#getProfilingInfo} and {@link HotSpotConstantPool}
+     * lookups on that thread.
+     *
+     * @param loader the class loader used to resolve recorded type names
+     */
+    public HotSpotReplayMetaAccessProvider createMetaAccessProvider(MetaAccessProvider host, ClassLoader loader) {
+        return new HotSpotReplayMetaAccessProvider(this, host, loader);
+    }
+
+    /**
+     * Creates a {@link ConstantReflectionProvider} that serves the recorded static field values.
+     * All other requests are delegated to {@code host}.
+     */
+    public HotSpotReplayConstantReflectionProvider createConstantReflectionProvider(ConstantReflectionProvider host) {
+        return new HotSpotReplayConstantReflectionProvider(this, host);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Constants and primitive encoders shared by {@link HotSpotReplayRecorder} and
+ * {@link HotSpotReplayData}.
+ *
+ * A replay file starts with {@link #MAGIC} and {@link #VERSION} followed by a sequence of records,
+ * each starting with a tag byte, and ends with {@link #END}. Integers are written as unsigned
+ * LEB128 values. Each distinct string is written once in full and afterwards referred to by its
+ * index in the order of first use.
+ */
+final class HotSpotReplayFormat {
+
+    static final int MAGIC = 0x4A56524C; // "JVRL"
+    static final int VERSION = 2;
+
+    // Record tags
+    static final int END = 0;
+    static final int PROFILE = 1;
+    static final int CONSTANT_POOL_ENTRY = 2;
+    static final int FIELD_VALUE = 3;
+    static final int ASSUMPTION = 4;
+    static final int FAILED_SPECULATION = 5;
+    static final int SPECULATION = 6;
+
+    // Constant pool entry kinds
+    static final int ENTRY_TYPE = 0;
+    static final int ENTRY_METHOD = 1;
+    static final int ENTRY_FIELD = 2;
+    static final int ENTRY_RESOLVED = 0x80;
+
+    /**
+     * The opcode under which type entries are recorded. The type denoted by a
+     * {@code JVM_CONSTANT_Class} entry does not depend on the bytecode referencing it.
+     */
+    static final int TYPE_ENTRY_OPCODE = 0;
+
+    // Assumption kinds
+    static final int NO_FINALIZABLE_SUBCLASS = 0;
+    static final int CONCRETE_SUBTYPE = 1;
+    static final int LEAF_TYPE = 2;
+    static final int CONCRETE_METHOD = 3;
+
+    // Per-bci profile flags. The low 4 bits hold the exception seen and null seen states.
+    static final int BCI_EXECUTION_COUNT = 0x10;
+    static final int BCI_BRANCH_PROBABILITY = 0x20;
+    static final int BCI_SWITCH_PROBABILITIES = 0x40;
+    static final int BCI_TYPE_PROFILE = 0x80;
+    static final int BCI_METHOD_PROFILE = 0x100;
+
+    private HotSpotReplayFormat() {
+    }
+
+    /**
+     * Gets the key identifying a method in a replay file.
+     */
+    static String methodKey(String holder, String name, String signature) {
+        return holder + "." + name + signature;
+    }
+
+    /**
+     * Gets the key identifying the profile of a method in a replay file. A method can have a
+     * different profile for each combination of the {@code includeNormal} and {@code includeOSR}
+     * arguments of {@link jdk.vm.ci.meta.ResolvedJavaMethod#getProfilingInfo(boolean, boolean)}.
+     */
+    static String profileKey(String methodKey, boolean includeNormal, boolean includeOSR) {
+        return methodKey + "#" + (includeNormal ? "normal" : "") + "#" + (includeOSR ? "osr" : "");
+    }
+
+    /**
+     * Gets the key identifying a constant pool entry in a replay file.
+     */
+    static String constantPoolEntryKey(String holder, int cpi, int opcode) {
+        return holder + "#" + cpi + "#" + opcode;
+    }
+
+    /**
+     * Gets the key identifying a field in a replay file.
+     */
+    static String fieldKey(String holder, String name, String type) {
+        return holder + "." + name + ":" + type;
+    }
+
+    static final class Output {
+        final DataOutputStream out;
+        private final HashMap<String, Integer> strings = new HashMap<>();
+
+        Output(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeUnsigned(int value) throws IOException {
+            int v = value;
+            while ((v & ~0x7F) != 0) {
+                out.writeByte((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            out.writeByte(v);
+        }
+
+        void writeString(String s) throws IOException {
+            Integer index = strings.get(s);
+            if (index != null) {
+                writeUnsigned(index + 1);
+            } else {
+                strings.put(s, strings.size());
+                writeUnsigned(0);
+                out.writeUTF(s);
+            }
+        }
+
+        void writeBytes(byte[] bytes) throws IOException {
+            writeUnsigned(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    static final class Input {
+        final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+
+        Input(DataInputStream in) {
+            this.in = in;
+        }
+
+        int readUnsigned() throws IOException {
+            int result = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = in.readUnsignedByte();
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return result;
+        }
+
+        String readString() throws IOException {
+            int index = readUnsigned();
+            if (index == 0) {
+                String s = in.readUTF();
+                strings.add(s);
+                return s;
+            }
+            if (index > strings.size()) {
+                throw new IOException("Invalid string reference " + index);
+            }
+            return strings.get(index - 1);
+        }
+
+        byte[] readBytes() throws IOException {
+            byte[] bytes = new byte[readUnsigned()];
+            in.readFully(bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.CONCRETE_METHOD;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.CONCRETE_SUBTYPE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ENTRY_METHOD;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ENTRY_TYPE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.LEAF_TYPE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.TYPE_ENTRY_OPCODE;
+
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jdk.vm.ci.meta.Assumptions;
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.JavaType;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.MetaUtil;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.meta.Signature;
+import jdk.vm.ci.meta.SpeculationLog;
+import jdk.vm.ci.meta.SpeculationLog.Speculation;
+import jdk.vm.ci.meta.UnresolvedJavaField;
+import jdk.vm.ci.meta.UnresolvedJavaMethod;
+import jdk.vm.ci.meta.UnresolvedJavaType;
+
+/**
+ * A {@link MetaAccessProvider} serving the data recorded by {@link HotSpotReplayRecorder}. Recorded
+ * names are resolved against the classes of the replaying VM.
+ *
+ * A compiler that obtains profiles and constant pool entries through {@link ResolvedJavaMethod}
+ * and {@link HotSpotConstantPool} rather than through this provider replays a compilation by
+ * {@linkplain #activate() activating} the provider on the compiling thread for the duration of the
+ * compilation.
+ */
+public class HotSpotReplayMetaAccessProvider implements MetaAccessProvider {
+
+    private static final ThreadLocal<HotSpotReplayMetaAccessProvider> current = new ThreadLocal<>();
+
+    /**
+     * Number of active providers. This avoids the thread local lookup in {@link #current()} in the
+     * common case of no replay.
+     */
+    private static final AtomicInteger active = new AtomicInteger();
+
+    private final HotSpotReplayData data;
+    private final MetaAccessProvider host;
+    private final ClassLoader loader;
+
+    HotSpotReplayMetaAccessProvider(HotSpotReplayData data, MetaAccessProvider host, ClassLoader loader) {
+        this.data = data;
+        this.host = host;
+        this.loader = loader;
+    }
+
+    /**
+     * Makes {@link ResolvedJavaMethod#getProfilingInfo(boolean, boolean)} and the type, method and
+     * field lookups of {@link HotSpotConstantPool} on the current thread return the recorded data
+     * where there is any, until {@link #deactivate()} is called on the current thread.
+     *
+     * @throws IllegalStateException if a replay provider is already active on the current thread
+     */
+    public void activate() {
+        if (current.get() != null) {
+            throw new IllegalStateException("A replay provider is already active on " + Thread.currentThread());
+        }
+        current.set(this);
+        active.incrementAndGet();
+    }
+
+    /**
+     * Undoes {@link #activate()} on the current thread.
+     *
+     * @throws IllegalStateException if this provider is not active on the current thread
+     */
+    public void deactivate() {
+        if (current.get() != this) {
+            throw new IllegalStateException("Replay provider is not active on " + Thread.currentThread());
+        }
+        current.remove();
+        active.decrementAndGet();
+    }
+
+    /**
+     * Gets the provider active on the current thread.
+     *
+     * @return {@code null} if no provider is active on the current thread
+     */
+    static HotSpotReplayMetaAccessProvider current() {
+        if (active.get() == 0) {
+            return null;
+        }
+        return current.get();
+    }
+
+    /**
+     * Gets the recorded profile of {@code method} for
+     * {@link ResolvedJavaMethod#getProfilingInfo() getProfilingInfo()}.
+     *
+     * @return the live profile of {@code method} if none was recorded
+     */
+    public ProfilingInfo getProfilingInfo(ResolvedJavaMethod method) {
+        return getProfilingInfo(method, true, true);
+    }
+
+    /**
+     * Gets the recorded profile of {@code method} for
+     * {@link ResolvedJavaMethod#getProfilingInfo(boolean, boolean) getProfilingInfo(includeNormal,
+     * includeOSR)}.
+     *
+     * @return the live profile of {@code method} if none was recorded
+     */
+    public ProfilingInfo getProfilingInfo(ResolvedJavaMethod method, boolean includeNormal, boolean includeOSR) {
+        ProfilingInfo info = getRecordedProfilingInfo(method, includeNormal, includeOSR);
+        if (info == null) {
+            return method.getProfilingInfo(includeNormal, includeOSR);
+        }
+        return info;
+    }
+
+    /**
+     * Gets the recorded profile of {@code method}.
+     *
+     * @return {@code null} if no profile was recorded for {@code method} and the include flags
+     */
+    ProfilingInfo getRecordedProfilingInfo(ResolvedJavaMethod method, boolean includeNormal, boolean includeOSR) {
+        String methodKey = HotSpotReplayFormat.methodKey(method.getDeclaringClass().getName(), method.getName(), method.getSignature().toMethodDescriptor());
+        HotSpotReplayData.RecordedProfile profile = data.profiles.get(HotSpotReplayFormat.profileKey(methodKey, includeNormal, includeOSR));
+        if (profile == null) {
+            return null;
+        }
+        return new HotSpotReplayProfilingInfo(this, profile);
+    }
+
+    /**
+     * Gets the recorded result of looking up the constant pool entry {@code cpi} of {@code holder}
+     * for {@code opcode}. Entries that were unresolved when recorded are returned as
+     * {@link UnresolvedJavaType}, {@link UnresolvedJavaMethod} or {@link UnresolvedJavaField}.
+     *
+     * @return {@code null} if the entry was not recorded
+     */
+    public Object lookupConstantPoolEntry(ResolvedJavaType holder, int cpi, int opcode) {
+        HotSpotReplayData.RecordedEntry entry = data.constantPoolEntries.get(HotSpotReplayFormat.constantPoolEntryKey(holder.getName(), cpi, opcode));
+        if (entry == null) {
+            entry = data.constantPoolEntries.get(HotSpotReplayFormat.constantPoolEntryKey(holder.getName(), cpi, TYPE_ENTRY_OPCODE));
+            if (entry == null) {
+                return null;
+            }
+        }
+        String[] names = entry.names;
+        if (entry.kind == ENTRY_TYPE) {
+            return entry.resolved ? lookupJavaType(names[0]) : UnresolvedJavaType.create(names[0]);
+        } else if (entry.kind == ENTRY_METHOD) {
+            if (entry.resolved) {
+                return lookupJavaMethod(names[0], names[1], names[2]);
+            }
+            return new UnresolvedJavaMethod(names[1], parseMethodDescriptor(names[2]), UnresolvedJavaType.create(names[0]));
+        } else {
+            if (entry.resolved) {
+                return lookupJavaField(names[0], names[1], names[2]);
+            }
+            return new UnresolvedJavaField(UnresolvedJavaType.create(names[0]), names[1], UnresolvedJavaType.create(names[2]));
+        }
+    }
+
+    /**
+     * Gets the recorded assumptions, resolved against the replaying VM.
+     */
+    public Assumptions getAssumptions() {
+        Assumptions assumptions = new Assumptions();
+        for (HotSpotReplayData.RecordedAssumption a : data.assumptions) {
+            String[] names = a.names;
+            if (a.kind == CONCRETE_METHOD) {
+                ResolvedJavaMethod method = lookupJavaMethod(names[0], names[1], names[2]);
+                ResolvedJavaMethod impl = lookupJavaMethod(names[4], names[5], names[6]);
+                assumptions.record(new Assumptions.ConcreteMethod(method, lookupJavaType(names[3]), impl));
+            } else if (a.kind == CONCRETE_SUBTYPE) {
+                assumptions.record(new Assumptions.ConcreteSubtype(lookupJavaType(names[0]), lookupJavaType(names[1])));
+            } else if (a.kind == LEAF_TYPE) {
+                assumptions.record(new Assumptions.LeafType(lookupJavaType(names[0])));
+            } else {
+                assumptions.record(new Assumptions.NoFinalizableSubclass(lookupJavaType(names[0])));
+            }
+        }
+        return assumptions;
+    }
+
+    /**
+     * Resolves a type name in the format of {@link JavaType#getName()}.
+     *
+     * @throws IllegalArgumentException if the type cannot be found
+     */
+    public ResolvedJavaType lookupJavaType(String name) {
+        if (name.length() == 1) {
+            return host.lookupJavaType(JavaKind.fromTypeString(name).toJavaClass());
+        }
+        try {
+            return host.lookupJavaType(Class.forName(MetaUtil.internalNameToJava(name, true, true), false, loader));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Cannot resolve recorded type " + name, e);
+        }
+    }
+
+    ResolvedJavaMethod lookupJavaMethod(String holder, String name, String descriptor) {
+        ResolvedJavaType type = lookupJavaType(holder);
+        if (name.equals("<clinit>")) {
+            ResolvedJavaMethod clinit = type.getClassInitializer();
+            if (clinit != null) {
+                return clinit;
+            }
+        }
+        for (ResolvedJavaMethod m : name.equals("<init>") ? type.getDeclaredConstructors() : type.getDeclaredMethods()) {
+            if (m.getName().equals(name) && m.getSignature().toMethodDescriptor().equals(descriptor)) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("Cannot resolve recorded method " + holder + "." + name + descriptor);
+    }
+
+    ResolvedJavaField lookupJavaField(String holder, String name, String fieldType) {
+        ResolvedJavaType type = lookupJavaType(holder);
+        for (ResolvedJavaField f : type.getInstanceFields(false)) {
+            if (f.getName().equals(name) && f.getType().getName().equals(fieldType)) {
+                return f;
+            }
+        }
+        for (ResolvedJavaField f : type.getStaticFields()) {
+            if (f.getName().equals(name) && f.getType().getName().equals(fieldType)) {
+                return f;
+            }
+        }
+        throw new IllegalArgumentException("Cannot resolve recorded field " + holder + "." + name);
+    }
+
+    @Override
+    public ResolvedJavaType lookupJavaType(Class<?> clazz) {
+        return host.lookupJavaType(clazz);
+    }
+
+    @Override
+    public ResolvedJavaMethod lookupJavaMethod(Executable reflectionMethod) {
+        return host.lookupJavaMethod(reflectionMethod);
+    }
+
+    @Override
+    public ResolvedJavaField lookupJavaField(Field reflectionField) {
+        return host.lookupJavaField(reflectionField);
+    }
+
+    @Override
+    public ResolvedJavaType lookupJavaType(JavaConstant constant) {
+        return host.lookupJavaType(constant);
+    }
+
+    @Override
+    public long getMemorySize(JavaConstant constant) {
+        return host.getMemorySize(constant);
+    }
+
+    @Override
+    public Signature parseMethodDescriptor(String methodDescriptor) {
+        return host.parseMethodDescriptor(methodDescriptor);
+    }
+
+    @Override
+    public JavaConstant encodeDeoptActionAndReason(DeoptimizationAction action, DeoptimizationReason reason, int debugId) {
+        return host.encodeDeoptActionAndReason(action, reason, debugId);
+    }
+
+    @Override
+    public JavaConstant encodeSpeculation(Speculation speculation) {
+        return host.encodeSpeculation(speculation);
+    }
+
+    @Override
+    public Speculation decodeSpeculation(JavaConstant constant, SpeculationLog speculationLog) {
+        return host.decodeSpeculation(constant, speculationLog);
+    }
+
+    @Override
+    public DeoptimizationReason decodeDeoptReason(JavaConstant constant) {
+        return host.decodeDeoptReason(constant);
+    }
+
+    @Override
+    public DeoptimizationAction decodeDeoptAction(JavaConstant constant) {
+        return host.decodeDeoptAction(constant);
+    }
+
+    @Override
+    public int decodeDebugId(JavaConstant constant) {
+        return host.decodeDebugId(constant);
+    }
+
+    @Override
+    public int getArrayBaseOffset(JavaKind elementKind) {
+        return host.getArrayBaseOffset(elementKind);
+    }
+
+    @Override
+    public int getArrayIndexScale(JavaKind elementKind) {
+        return host.getArrayIndexScale(elementKind);
+    }
+}
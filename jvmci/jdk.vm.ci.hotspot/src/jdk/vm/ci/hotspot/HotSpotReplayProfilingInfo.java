@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaMethodProfile;
+import jdk.vm.ci.meta.JavaMethodProfile.ProfiledMethod;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.JavaTypeProfile.ProfiledType;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.TriState;
+
+/**
+ * A {@link ProfilingInfo} for a profile recorded by {@link HotSpotReplayRecorder}. Types and
+ * methods in type and method profiles are resolved when requested.
+ */
+final class HotSpotReplayProfilingInfo implements ProfilingInfo {
+
+    private final HotSpotReplayMetaAccessProvider metaAccess;
+    private final HotSpotReplayData.RecordedProfile profile;
+    private boolean mature;
+
+    HotSpotReplayProfilingInfo(HotSpotReplayMetaAccessProvider metaAccess, HotSpotReplayData.RecordedProfile profile) {
+        this.metaAccess = metaAccess;
+        this.profile = profile;
+        this.mature = profile.mature;
+    }
+
+    private boolean inRange(int bci) {
+        return bci >= 0 && bci < profile.flags.length;
+    }
+
+    @Override
+    public int getCodeSize() {
+        return profile.flags.length;
+    }
+
+    @Override
+    public double getBranchTakenProbability(int bci) {
+        return inRange(bci) ? profile.branchProbabilities[bci] : -1;
+    }
+
+    @Override
+    public double[] getSwitchProbabilities(int bci) {
+        if (!inRange(bci) || profile.switchProbabilities[bci] == null) {
+            return null;
+        }
+        return profile.switchProbabilities[bci].clone();
+    }
+
+    @Override
+    public JavaTypeProfile getTypeProfile(int bci) {
+        if (!inRange(bci) || profile.typeProfiles[bci] == null) {
+            return null;
+        }
+        HotSpotReplayData.RecordedTypeProfile recorded = profile.typeProfiles[bci];
+        ProfiledType[] types = new ProfiledType[recorded.types.length];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = new ProfiledType(metaAccess.lookupJavaType(recorded.types[i]), recorded.probabilities[i]);
+        }
+        return new JavaTypeProfile(recorded.nullSeen, recorded.notRecordedProbability, types);
+    }
+
+    @Override
+    public JavaMethodProfile getMethodProfile(int bci) {
+        if (!inRange(bci) || profile.methodProfiles[bci] == null) {
+            return null;
+        }
+        HotSpotReplayData.RecordedMethodProfile recorded = profile.methodProfiles[bci];
+        ProfiledMethod[] methods = new ProfiledMethod[recorded.methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            String[] m = recorded.methods[i];
+            methods[i] = new ProfiledMethod(metaAccess.lookupJavaMethod(m[0], m[1], m[2]), recorded.probabilities[i]);
+        }
+        return new JavaMethodProfile(recorded.notRecordedProbability, methods);
+    }
+
+    @Override
+    public TriState getExceptionSeen(int bci) {
+        return inRange(bci) ? TriState.values()[profile.flags[bci] & 0x3] : TriState.UNKNOWN;
+    }
+
+    @Override
+    public TriState getNullSeen(int bci) {
+        return inRange(bci) ? TriState.values()[(profile.flags[bci] >> 2) & 0x3] : TriState.UNKNOWN;
+    }
+
+    @Override
+    public int getExecutionCount(int bci) {
+        return inRange(bci) ? profile.executionCounts[bci] : -1;
+    }
+
+    @Override
+    public int getDeoptimizationCount(DeoptimizationReason reason) {
+        return profile.deoptimizationCounts[reason.ordinal()];
+    }
+
+    @Override
+    public boolean setCompilerIRSize(Class<?> irType, int irSize) {
+        return false;
+    }
+
+    @Override
+    public int getCompilerIRSize(Class<?> irType) {
+        return -1;
+    }
+
+    @Override
+    public boolean isMature() {
+        return mature;
+    }
+
+    @Override
+    public void setMature() {
+        mature = true;
+    }
+
+    @Override
+    public String toString() {
+        return "HotSpotReplayProfilingInfo<" + getCodeSize() + " bytes>";
+    }
+}
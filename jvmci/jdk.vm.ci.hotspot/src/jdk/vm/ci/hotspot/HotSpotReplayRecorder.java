@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ASSUMPTION;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.BCI_BRANCH_PROBABILITY;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.BCI_EXECUTION_COUNT;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.BCI_METHOD_PROFILE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.BCI_SWITCH_PROBABILITIES;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.BCI_TYPE_PROFILE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.CONCRETE_METHOD;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.CONCRETE_SUBTYPE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.CONSTANT_POOL_ENTRY;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.END;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ENTRY_FIELD;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ENTRY_METHOD;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ENTRY_RESOLVED;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.ENTRY_TYPE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.FAILED_SPECULATION;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.FIELD_VALUE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.LEAF_TYPE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.MAGIC;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.NO_FINALIZABLE_SUBCLASS;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.PROFILE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.SPECULATION;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.TYPE_ENTRY_OPCODE;
+import static jdk.vm.ci.hotspot.HotSpotReplayFormat.VERSION;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jdk.vm.ci.common.JVMCIError;
+import jdk.vm.ci.meta.Assumptions.Assumption;
+import jdk.vm.ci.meta.Assumptions.ConcreteMethod;
+import jdk.vm.ci.meta.Assumptions.ConcreteSubtype;
+import jdk.vm.ci.meta.Assumptions.LeafType;
+import jdk.vm.ci.meta.Assumptions.NoFinalizableSubclass;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaField;
+import jdk.vm.ci.meta.JavaMethod;
+import jdk.vm.ci.meta.JavaMethodProfile;
+import jdk.vm.ci.meta.JavaMethodProfile.ProfiledMethod;
+import jdk.vm.ci.meta.JavaType;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.JavaTypeProfile.ProfiledType;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.meta.TriState;
+
+/**
+ * Records the VM data observed by a JVMCI compilation so that the compilation can be replayed
+ * later with {@link HotSpotReplayData}. A recorder is bound to the thread that
+ * {@linkplain #start() started} it and captures:
+ * <ul>
+ * <li>the profiles returned by {@link ResolvedJavaMethod#getProfilingInfo}, for each combination
+ * of the {@code includeNormal} and {@code includeOSR} arguments</li>
+ * <li>the types, methods and fields returned by {@link HotSpotConstantPool} lookups</li>
+ * <li>primitive values of static fields read through {@link HotSpotConstantReflectionProvider}</li>
+ * <li>the assumptions and speculations of code installed by {@link HotSpotCodeCacheProvider}</li>
+ * </ul>
+ * Object constants cannot be recorded since they only exist in the recording VM.
+ */
+public final class HotSpotReplayRecorder {
+
+    private static final ThreadLocal<HotSpotReplayRecorder> current = new ThreadLocal<>();
+
+    /**
+     * Number of started recorders. This avoids the thread local lookup in {@link #current()} in the
+     * common case of no recording.
+     */
+    private static final AtomicInteger active = new AtomicInteger();
+
+    private final Thread thread;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final HotSpotReplayFormat.Output out = new HotSpotReplayFormat.Output(new DataOutputStream(buffer));
+
+    /**
+     * Keys of the already recorded profiles, constant pool entries and field values. Only the
+     * first observation is recorded.
+     */
+    private final HashSet<String> recorded = new HashSet<>();
+
+    private boolean stopped;
+
+    private HotSpotReplayRecorder() {
+        this.thread = Thread.currentThread();
+    }
+
+    /**
+     * Starts recording the VM data observed by the current thread.
+     *
+     * @throws IllegalStateException if a recorder is already active on the current thread
+     */
+    public static HotSpotReplayRecorder start() {
+        if (current.get() != null) {
+            throw new IllegalStateException("A replay recorder is already active on " + Thread.currentThread());
+        }
+        HotSpotReplayRecorder recorder = new HotSpotReplayRecorder();
+        current.set(recorder);
+        active.incrementAndGet();
+        return recorder;
+    }
+
+    /**
+     * Stops recording. This must be called on the thread that started this recorder.
+     */
+    public void stop() {
+        if (Thread.currentThread() != thread) {
+            throw new IllegalStateException("Replay recorder must be stopped by " + thread);
+        }
+        if (!stopped) {
+            stopped = true;
+            current.remove();
+            active.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the recorder active on the current thread.
+     *
+     * @return {@code null} if no recorder is active on the current thread
+     */
+    static HotSpotReplayRecorder current() {
+        if (active.get() == 0) {
+            return null;
+        }
+        return current.get();
+    }
+
+    /**
+     * Writes the data recorded so far to {@code stream}.
+     */
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream data = new DataOutputStream(stream);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        buffer.writeTo(data);
+        data.writeByte(END);
+        data.flush();
+    }
+
+    /**
+     * Gets the data recorded so far in the format written by {@link #write(OutputStream)}.
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try {
+            write(result);
+        } catch (IOException e) {
+            throw new JVMCIError(e);
+        }
+        return result.toByteArray();
+    }
+
+    private void writeMethod(JavaMethod method) throws IOException {
+        out.writeString(method.getDeclaringClass().getName());
+        out.writeString(method.getName());
+        out.writeString(method.getSignature().toMethodDescriptor());
+    }
+
+    private static int encode(TriState state) {
+        return state.ordinal();
+    }
+
+    void recordProfilingInfo(ResolvedJavaMethod method, boolean includeNormal, boolean includeOSR, ProfilingInfo info) {
+        String methodKey = HotSpotReplayFormat.methodKey(method.getDeclaringClass().getName(), method.getName(), method.getSignature().toMethodDescriptor());
+        if (!recorded.add(HotSpotReplayFormat.profileKey(methodKey, includeNormal, includeOSR))) {
+            return;
+        }
+        try {
+            out.out.writeByte(PROFILE);
+            writeMethod(method);
+            out.out.writeBoolean(includeNormal);
+            out.out.writeBoolean(includeOSR);
+            out.out.writeBoolean(info.isMature());
+            DeoptimizationReason[] reasons = DeoptimizationReason.values();
+            for (DeoptimizationReason reason : reasons) {
+                out.writeUnsigned(info.getDeoptimizationCount(reason));
+            }
+            int codeSize = info.getCodeSize();
+            out.writeUnsigned(codeSize);
+            for (int bci = 0; bci < codeSize; bci++) {
+                writeBci(info, bci);
+            }
+        } catch (IOException e) {
+            throw new JVMCIError(e);
+        }
+    }
+
+    private void writeBci(ProfilingInfo info, int bci) throws IOException {
+        int executionCount = info.getExecutionCount(bci);
+        double branchProbability = info.getBranchTakenProbability(bci);
+        double[] switchProbabilities = info.getSwitchProbabilities(bci);
+        JavaTypeProfile typeProfile = info.getTypeProfile(bci);
+        JavaMethodProfile methodProfile = info.getMethodProfile(bci);
+
+        int flags = encode(info.getExceptionSeen(bci)) | encode(info.getNullSeen(bci)) << 2;
+        flags |= executionCount >= 0 ? BCI_EXECUTION_COUNT : 0;
+        flags |= branchProbability >= 0 ? BCI_BRANCH_PROBABILITY : 0;
+        flags |= switchProbabilities != null ? BCI_SWITCH_PROBABILITIES : 0;
+        flags |= typeProfile != null ? BCI_TYPE_PROFILE : 0;
+        flags |= methodProfile != null ? BCI_METHOD_PROFILE : 0;
+        out.writeUnsigned(flags);
+
+        if (executionCount >= 0) {
+            out.writeUnsigned(executionCount);
+        }
+        if (branchProbability >= 0) {
+            out.out.writeDouble(branchProbability);
+        }
+        if (switchProbabilities != null) {
+            out.writeUnsigned(switchProbabilities.length);
+            for (double p : switchProbabilities) {
+                out.out.writeDouble(p);
+            }
+        }
+        if (typeProfile != null) {
+            out.out.writeByte(encode(typeProfile.getNullSeen()));
+            out.out.writeDouble(typeProfile.getNotRecordedProbability());
+            ProfiledType[] types = typeProfile.getTypes();
+            out.writeUnsigned(types.length);
+            for (ProfiledType type : types) {
+                out.writeString(type.getType().getName());
+                out.out.writeDouble(type.getProbability());
+            }
+        }
+        if (methodProfile != null) {
+            out.out.writeDouble(methodProfile.getNotRecordedProbability());
+            ProfiledMethod[] methods = methodProfile.getMethods();
+            out.writeUnsigned(methods.length);
+            for (ProfiledMethod m : methods) {
+                writeMethod(m.getMethod());
+                out.out.writeDouble(m.getProbability());
+            }
+        }
+    }
+
+    void recordConstantPoolEntry(ResolvedJavaType holder, int cpi, int bytecode, Object entry) {
+        int opcode = entry instanceof JavaType ? TYPE_ENTRY_OPCODE : bytecode;
+        String key = HotSpotReplayFormat.constantPoolEntryKey(holder.getName(), cpi, opcode);
+        if (!recorded.add(key)) {
+            return;
+        }
+        try {
+            out.out.writeByte(CONSTANT_POOL_ENTRY);
+            out.writeString(holder.getName());
+            out.writeUnsigned(cpi);
+            out.writeUnsigned(opcode);
+            if (entry instanceof JavaType) {
+                out.out.writeByte(ENTRY_TYPE | (entry instanceof ResolvedJavaType ? ENTRY_RESOLVED : 0));
+                out.writeString(((JavaType) entry).getName());
+            } else if (entry instanceof JavaMethod) {
+                out.out.writeByte(ENTRY_METHOD | (entry instanceof ResolvedJavaMethod ? ENTRY_RESOLVED : 0));
+                writeMethod((JavaMethod) entry);
+            } else {
+                JavaField field = (JavaField) entry;
+                out.out.writeByte(ENTRY_FIELD | (entry instanceof ResolvedJavaField ? ENTRY_RESOLVED : 0));
+                out.writeString(field.getDeclaringClass().getName());
+                out.writeString(field.getName());
+                out.writeString(field.getType().getName());
+            }
+        } catch (IOException e) {
+            throw new JVMCIError(e);
+        }
+    }
+
+    void recordFieldValue(ResolvedJavaField field, JavaConstant value) {
+        if (!field.isStatic() || value == null || !value.getJavaKind().isPrimitive()) {
+            return;
+        }
+        String holder = field.getDeclaringClass().getName();
+        String type = field.getType().getName();
+        if (!recorded.add(HotSpotReplayFormat.fieldKey(holder, field.getName(), type))) {
+            return;
+        }
+        try {
+            out.out.writeByte(FIELD_VALUE);
+            out.writeString(holder);
+            out.writeString(field.getName());
+            out.writeString(type);
+            out.out.writeByte(value.getJavaKind().getTypeChar());
+            out.out.writeLong(toRawBits(value));
+        } catch (IOException e) {
+            throw new JVMCIError(e);
+        }
+    }
+
+    private static long toRawBits(JavaConstant value) {
+        switch (value.getJavaKind()) {
+            case Long:
+                return value.asLong();
+            case Float:
+                return Float.floatToRawIntBits(value.asFloat());
+            case Double:
+                return Double.doubleToRawLongBits(value.asDouble());
+            case Boolean:
+                return value.asBoolean() ? 1 : 0;
+            default:
+                return value.asInt();
+        }
+    }
+
+    void recordAssumptions(Assumption[] assumptions) {
+        if (assumptions == null) {
+            return;
+        }
+        try {
+            for (Assumption a : assumptions) {
+                if (a instanceof NoFinalizableSubclass) {
+                    out.out.writeByte(ASSUMPTION);
+                    out.out.writeByte(NO_FINALIZABLE_SUBCLASS);
+                    out.writeString(((NoFinalizableSubclass) a).getReceiverType().getName());
+                } else if (a instanceof ConcreteSubtype) {
+                    ConcreteSubtype cs = (ConcreteSubtype) a;
+                    out.out.writeByte(ASSUMPTION);
+                    out.out.writeByte(CONCRETE_SUBTYPE);
+                    out.writeString(cs.context.getName());
+                    out.writeString(cs.subtype.getName());
+                } else if (a instanceof LeafType) {
+                    out.out.writeByte(ASSUMPTION);
+                    out.out.writeByte(LEAF_TYPE);
+                    out.writeString(((LeafType) a).context.getName());
+                } else if (a instanceof ConcreteMethod) {
+                    ConcreteMethod cm = (ConcreteMethod) a;
+                    out.out.writeByte(ASSUMPTION);
+                    out.out.writeByte(CONCRETE_METHOD);
+                    writeMethod(cm.method);
+                    out.writeString(cm.context.getName());
+                    writeMethod(cm.impl);
+                }
+                // CallSiteTargetValue refers to object constants which cannot be recorded
+            }
+        } catch (IOException e) {
+            throw new JVMCIError(e);
+        }
+    }
+
+    void recordSpeculationLog(HotSpotSpeculationLog log) {
+        try {
+            for (byte[] failed : log.getFailedSpeculations()) {
+                out.out.writeByte(FAILED_SPECULATION);
+                out.writeBytes(failed);
+            }
+            byte[] speculations = log.getFlattenedSpeculations(false);
+            if (speculations.length != 0) {
+                out.out.writeByte(SPECULATION);
+                out.writeBytes(speculations);
+            }
+        } catch (IOException e) {
+            throw new JVMCIError(e);
+        }
+    }
+}
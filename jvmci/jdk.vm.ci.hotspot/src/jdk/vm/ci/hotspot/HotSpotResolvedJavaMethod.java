@@ -127,4 +127,19 @@ public interface HotSpotResolvedJavaMethod extends ResolvedJavaMethod {
     boolean hasCodeAtLevel(int entryBCI, int level);
 
     int methodIdnum();
+
+    /**
+     * Reads the metadata consulted when deciding whether to inline each of {@code methods} with a
+     * single transition into the VM instead of one or more transitions per query. The bytecode,
+     * exception handler table, line number table and local variable table are cached by each
+     * method. The results of {@link #canBeInlined()}, {@link #hasNeverInlineDirective()} and
+     * {@link #shouldBeInlined()} are used by the next call to each of these methods on each method,
+     * after which they are queried from the VM again.
+     *
+     * A compiler exploring an inlining tree can call this once per level with all the candidates
+     * of that level.
+     */
+    static void prefetchMetadata(HotSpotResolvedJavaMethod... methods) {
+        HotSpotResolvedJavaMethodImpl.prefetchMetadata(methods);
+    }
 }
@@ -22,6 +22,15 @@
  */
 package jdk.vm.ci.hotspot;
 
+import static jdk.vm.ci.hotspot.CompilerToVM.METHOD_METADATA_COMPILABLE;
+import static jdk.vm.ci.hotspot.CompilerToVM.METHOD_METADATA_EXCEPTION_TABLE_LENGTH;
+import static jdk.vm.ci.hotspot.CompilerToVM.METHOD_METADATA_EXCEPTION_TABLE_START;
+import static jdk.vm.ci.hotspot.CompilerToVM.METHOD_METADATA_FLAGS;
+import static jdk.vm.ci.hotspot.CompilerToVM.METHOD_METADATA_LENGTH;
+import static jdk.vm.ci.hotspot.CompilerToVM.METHOD_METADATA_LOCAL_VARIABLE_TABLE_LENGTH;
+import static jdk.vm.ci.hotspot.CompilerToVM.METHOD_METADATA_LOCAL_VARIABLE_TABLE_START;
+import static jdk.vm.ci.hotspot.CompilerToVM.METHOD_METADATA_NEVER_INLINE;
+import static jdk.vm.ci.hotspot.CompilerToVM.METHOD_METADATA_SHOULD_INLINE;
 import static jdk.vm.ci.hotspot.CompilerToVM.compilerToVM;
 import static jdk.vm.ci.hotspot.HotSpotJVMCIRuntime.runtime;
 import static jdk.vm.ci.hotspot.HotSpotModifiers.BRIDGE;
@@ -71,6 +80,35 @@ final class HotSpotResolvedJavaMethodImpl extends HotSpotMethod implements HotSp
     private HotSpotMethodData methodData;
     private byte[] code;
 
+    /**
+     * Metadata that does not change for the lifetime of the {@code Method}, read on first use or
+     * by {@link #prefetchMetadata}. A value of -1 or {@code null} denotes a value not yet read.
+     */
+    private long exceptionTableStart = -1;
+    private int exceptionTableLength = -1;
+    private long localVariableTableStart = -1;
+    private int localVariableTableLength = -1;
+
+    /**
+     * The line number table encoded by {@link CompactLineNumberTable}.
+     */
+    private byte[] lineNumberTable;
+
+    private static final long[] NO_LINE_NUMBERS = {};
+
+    /**
+     * Shift applied to a {@code CompilerToVM.METHOD_METADATA_*} flag to get the bit in
+     * {@link #prefetchedFlags} denoting that the flag was prefetched and not yet used.
+     */
+    private static final int PREFETCHED_SHIFT = 3;
+
+    /**
+     * The inlining related flags read by {@link #prefetchMetadata}. Each flag is used by at most
+     * one query after it was prefetched so that changes made by the VM afterwards are not hidden
+     * from later queries.
+     */
+    private int prefetchedFlags;
+
     /**
      * Cache for {@link HotSpotJDKReflection#getMethod}.
      */
@@ -236,6 +274,13 @@ final class HotSpotResolvedJavaMethodImpl extends HotSpotMethod implements HotSp
         return UNSAFE.getInt(getMetaspaceMethod() + config().methodAccessFlagsOffset);
     }
 
+    /**
+     * Determines if this method has been replaced by a redefinition of its holder.
+     */
+    boolean isOld() {
+        return (getAllModifiers() & config().jvmAccIsOld) != 0;
+    }
+
     @Override
     public int getModifiers() {
         return getAllModifiers() & jvmMethodModifiers();
@@ -263,6 +308,90 @@ final class HotSpotResolvedJavaMethodImpl extends HotSpotMethod implements HotSp
         return UNSAFE.getChar(getConstMethod() + config().constMethodCodeSizeOffset);
     }
 
+    /**
+     * Reads the metadata of {@code methods} that is consulted when deciding whether to inline them
+     * with a single transition into the VM.
+     *
+     * @see HotSpotResolvedJavaMethod#prefetchMetadata
+     */
+    static void prefetchMetadata(HotSpotResolvedJavaMethod[] methods) {
+        int count = methods.length;
+        HotSpotResolvedJavaMethodImpl[] impls = new HotSpotResolvedJavaMethodImpl[count];
+        byte[][] codes = new byte[count][];
+        long[][] lineNumberTables = new long[count][];
+        for (int i = 0; i < count; i++) {
+            HotSpotResolvedJavaMethodImpl method = (HotSpotResolvedJavaMethodImpl) methods[i];
+            impls[i] = method;
+            codes[i] = method.code;
+            // A non-null element stops the VM from reading a line number table that is cached
+            lineNumberTables[i] = method.lineNumberTable != null ? NO_LINE_NUMBERS : null;
+        }
+        long[] metadata = new long[count * METHOD_METADATA_LENGTH];
+        compilerToVM().getMethodMetadata(impls, count, codes, lineNumberTables, metadata);
+        for (int i = 0; i < count; i++) {
+            HotSpotResolvedJavaMethodImpl method = impls[i];
+            int base = i * METHOD_METADATA_LENGTH;
+            if (method.code == null && codes[i] != null) {
+                assert codes[i].length == method.getCodeSize() : "expected: " + method.getCodeSize() + ", actual: " + codes[i].length;
+                method.code = codes[i];
+            }
+            if (method.lineNumberTable == null && lineNumberTables[i] != null) {
+                method.lineNumberTable = CompactLineNumberTable.encode(lineNumberTables[i]);
+            }
+            method.exceptionTableStart = metadata[base + METHOD_METADATA_EXCEPTION_TABLE_START];
+            method.exceptionTableLength = (int) metadata[base + METHOD_METADATA_EXCEPTION_TABLE_LENGTH];
+            method.localVariableTableStart = metadata[base + METHOD_METADATA_LOCAL_VARIABLE_TABLE_START];
+            method.localVariableTableLength = (int) metadata[base + METHOD_METADATA_LOCAL_VARIABLE_TABLE_LENGTH];
+            int flags = (int) metadata[base + METHOD_METADATA_FLAGS];
+            int prefetched = METHOD_METADATA_COMPILABLE | METHOD_METADATA_NEVER_INLINE | METHOD_METADATA_SHOULD_INLINE;
+            method.prefetchedFlags = (prefetched << PREFETCHED_SHIFT) | flags;
+        }
+    }
+
+    /**
+     * Gets the value of {@code flag} read by {@link #prefetchMetadata} if it has not already been
+     * used by a previous query.
+     *
+     * @return {@link TriState#UNKNOWN} if the value of {@code flag} has to be queried from the VM
+     */
+    private TriState takePrefetchedFlag(int flag) {
+        int flags = prefetchedFlags;
+        int prefetched = flag << PREFETCHED_SHIFT;
+        if ((flags & prefetched) == 0) {
+            return TriState.UNKNOWN;
+        }
+        prefetchedFlags = flags & ~prefetched;
+        return TriState.get((flags & flag) != 0);
+    }
+
+    private int getExceptionTableLength() {
+        if (exceptionTableLength == -1) {
+            exceptionTableLength = compilerToVM().getExceptionTableLength(this);
+        }
+        return exceptionTableLength;
+    }
+
+    private long getExceptionTableStart() {
+        if (exceptionTableStart == -1) {
+            exceptionTableStart = compilerToVM().getExceptionTableStart(this);
+        }
+        return exceptionTableStart;
+    }
+
+    private int getLocalVariableTableLength() {
+        if (localVariableTableLength == -1) {
+            localVariableTableLength = compilerToVM().getLocalVariableTableLength(this);
+        }
+        return localVariableTableLength;
+    }
+
+    private long getLocalVariableTableStart() {
+        if (localVariableTableStart == -1) {
+            localVariableTableStart = compilerToVM().getLocalVariableTableStart(this);
+        }
+        return localVariableTableStart;
+    }
+
     @Override
     public ExceptionHandler[] getExceptionHandlers() {
         final boolean hasExceptionTable = (getConstMethodFlags() & config().constMethodHasExceptionTable) != 0;
@@ -271,9 +400,9 @@ final class HotSpotResolvedJavaMethodImpl extends HotSpotMethod implements HotSp
         }
 
         HotSpotVMConfig config = config();
-        final int exceptionTableLength = compilerToVM().getExceptionTableLength(this);
+        final int exceptionTableLength = getExceptionTableLength();
         ExceptionHandler[] handlers = new ExceptionHandler[exceptionTableLength];
-        long exceptionTableElement = compilerToVM().getExceptionTableStart(this);
+        long exceptionTableElement = getExceptionTableStart();
 
         for (int i = 0; i < exceptionTableLength; i++) {
             final int startPc = UNSAFE.getChar(exceptionTableElement + config.exceptionTableElementStartPcOffset);
@@ -343,6 +472,7 @@ final class HotSpotResolvedJavaMethodImpl extends HotSpotMethod implements HotSp
      */
     @Override
     public void setNotInlinableOrCompilable() {
+        prefetchedFlags = 0;
         compilerToVM().setNotInlinableOrCompilable(this);
     }
 
@@ -467,6 +597,13 @@ final class HotSpotResolvedJavaMethodImpl extends HotSpotMethod implements HotSp
 
     @Override
     public ProfilingInfo getProfilingInfo(boolean includeNormal, boolean includeOSR) {
+        HotSpotReplayMetaAccessProvider replay = HotSpotReplayMetaAccessProvider.current();
+        if (replay != null) {
+            ProfilingInfo recorded = replay.getRecordedProfilingInfo(this, includeNormal, includeOSR);
+            if (recorded != null) {
+                return recorded;
+            }
+        }
         ProfilingInfo info;
 
         if (Option.UseProfilingInformation.getBoolean() && methodData == null) {
@@ -487,7 +624,13 @@ final class HotSpotResolvedJavaMethodImpl extends HotSpotMethod implements HotSp
             // case of a deoptimization.
             info = DefaultProfilingInfo.get(TriState.FALSE);
         } else {
-            info = new HotSpotProfilingInfo(methodData, this, includeNormal, includeOSR);
+            HotSpotMethodDataSnapshotScope scope = HotSpotMethodDataSnapshotScope.CURRENT.get();
+            HotSpotMethodData data = scope != null ? scope.snapshot(methodData) : methodData;
+            info = new HotSpotProfilingInfo(data, this, includeNormal, includeOSR);
+        }
+        HotSpotReplayRecorder recorder = HotSpotReplayRecorder.current();
+        if (recorder != null) {
+            recorder.recordProfilingInfo(this, includeNormal, includeOSR, info);
         }
         return info;
     }
@@ -590,11 +733,19 @@ final class HotSpotResolvedJavaMethodImpl extends HotSpotMethod implements HotSp
         if (hasNeverInlineDirective()) {
             return false;
         }
+        TriState compilable = takePrefetchedFlag(METHOD_METADATA_COMPILABLE);
+        if (compilable != TriState.UNKNOWN) {
+            return compilable.toBoolean();
+        }
         return compilerToVM().isCompilable(this);
     }
 
     @Override
     public boolean hasNeverInlineDirective() {
+        TriState neverInline = takePrefetchedFlag(METHOD_METADATA_NEVER_INLINE);
+        if (neverInline != TriState.UNKNOWN) {
+            return neverInline.toBoolean();
+        }
         return compilerToVM().hasNeverInlineDirective(this);
     }
 
@@ -603,6 +754,10 @@ final class HotSpotResolvedJavaMethodImpl extends HotSpotMethod implements HotSp
         if (isForceInline()) {
             return true;
         }
+        TriState shouldInline = takePrefetchedFlag(METHOD_METADATA_SHOULD_INLINE);
+        if (shouldInline != TriState.UNKNOWN) {
+            return shouldInline.toBoolean();
+        }
         return compilerToVM().shouldInlineMethod(this);
     }
 
@@ -613,21 +768,14 @@ final class HotSpotResolvedJavaMethodImpl extends HotSpotMethod implements HotSp
             return null;
         }
 
-        long[] values = compilerToVM().getLineNumberTable(this);
-        if (values == null || values.length == 0) {
-            // Empty table so treat is as non-existent
-            return null;
-        }
-        assert values.length % 2 == 0;
-        int[] bci = new int[values.length / 2];
-        int[] line = new int[values.length / 2];
-
-        for (int i = 0; i < values.length / 2; i++) {
-            bci[i] = (int) values[i * 2];
-            line[i] = (int) values[i * 2 + 1];
+        byte[] table = lineNumberTable;
+        if (table == null) {
+            long[] values = compilerToVM().getLineNumberTable(this);
+            table = CompactLineNumberTable.encode(values == null ? NO_LINE_NUMBERS : values);
+            lineNumberTable = table;
         }
-
-        return new LineNumberTable(line, bci);
+        // An empty table is treated as non-existent
+        return CompactLineNumberTable.decode(table);
     }
 
     @Override
@@ -638,8 +786,8 @@ final class HotSpotResolvedJavaMethodImpl extends HotSpotMethod implements HotSp
         }
 
         HotSpotVMConfig config = config();
-        long localVariableTableElement = compilerToVM().getLocalVariableTableStart(this);
-        final int localVariableTableLength = compilerToVM().getLocalVariableTableLength(this);
+        long localVariableTableElement = getLocalVariableTableStart();
+        final int localVariableTableLength = getLocalVariableTableLength();
         Local[] locals = new Local[localVariableTableLength];
 
         for (int i = 0; i < localVariableTableLength; i++) {
@@ -34,6 +34,8 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 
 import jdk.vm.ci.common.JVMCIError;
@@ -60,16 +62,25 @@ import jdk.vm.ci.meta.UnresolvedJavaType;
 final class HotSpotResolvedObjectTypeImpl extends HotSpotResolvedJavaType implements HotSpotResolvedObjectType, MetaspaceObject {
 
     private static final HotSpotResolvedJavaField[] NO_FIELDS = new HotSpotResolvedJavaField[0];
-    private static final int METHOD_CACHE_ARRAY_CAPACITY = 8;
 
     /**
      * The Java class this type represents.
      */
     private final long metadataPointer;
 
-    private HotSpotResolvedJavaMethodImpl[] methodCacheArray;
-    private HashMap<Long, HotSpotResolvedJavaMethodImpl> methodCacheHashMap;
+    /**
+     * Cache of the methods created by {@link #createMethod(long)}. Reads are lock free while
+     * updates are done while holding the lock on this object.
+     */
+    private volatile MethodCache methodCache;
     private volatile HotSpotResolvedJavaField[] instanceFields;
+    private volatile HotSpotResolvedJavaField[] staticFields;
+
+    /**
+     * The elements of {@link #instanceFields} sorted by offset. This is the same array as
+     * {@link #instanceFields} if that array is already sorted.
+     */
+    private volatile HotSpotResolvedJavaField[] instanceFieldsByOffset;
     private volatile HotSpotResolvedObjectTypeImpl[] interfaces;
     private HotSpotConstantPool constantPool;
     private final JavaConstant mirror;
@@ -440,7 +451,41 @@ final class HotSpotResolvedObjectTypeImpl extends HotSpotResolvedJavaType implem
         assert other != null;
         if (other instanceof HotSpotResolvedObjectTypeImpl) {
             HotSpotResolvedObjectTypeImpl otherType = (HotSpotResolvedObjectTypeImpl) other;
-            return runtime().reflection.isAssignableFrom(this, otherType);
+            boolean result = isSubtype(otherType.getMetaspaceKlass());
+            assert result == runtime().reflection.isAssignableFrom(this, otherType) : this + ".isAssignableFrom(" + other + ")";
+            return result;
+        }
+        return false;
+    }
+
+    /**
+     * Determines if the Klass {@code subklass} is a subtype of this type by reading the supertype
+     * display of {@code subklass}. This mirrors {@code Klass::is_subtype_of} and so avoids calling
+     * into the VM.
+     */
+    private boolean isSubtype(long subklass) {
+        HotSpotVMConfig config = config();
+        long klass = getMetaspaceKlass();
+        int checkOffset = superCheckOffset();
+        if (UNSAFE.getAddress(subklass + checkOffset) == klass) {
+            // Found in the primary supers display or the secondary super cache
+            return true;
+        }
+        if (checkOffset != config.secondarySuperCacheOffset) {
+            // This is a primary type which would have been found in the display
+            return false;
+        }
+        if (subklass == klass) {
+            // A type is never in its own secondary supers
+            return true;
+        }
+        long secondarySupers = UNSAFE.getAddress(subklass + config.secondarySupersOffset);
+        int length = UNSAFE.getInt(secondarySupers + config.arrayU1LengthOffset);
+        long data = secondarySupers + config.arrayKlassPointerDataOffset;
+        for (int i = 0; i < length; i++) {
+            if (UNSAFE.getAddress(data + (long) i * UNSAFE.addressSize()) == klass) {
+                return true;
+            }
         }
         return false;
     }
@@ -535,38 +580,37 @@ final class HotSpotResolvedObjectTypeImpl extends HotSpotResolvedJavaType implem
         return compilerToVM().getFingerprint(getMetaspaceKlass());
     }
 
-    synchronized HotSpotResolvedJavaMethod createMethod(long metaspaceHandle) {
+    HotSpotResolvedJavaMethod createMethod(long metaspaceHandle) {
         long metaspaceMethod = UNSAFE.getLong(metaspaceHandle);
-        // Maintain cache as array.
-        if (methodCacheArray == null) {
-            methodCacheArray = new HotSpotResolvedJavaMethodImpl[METHOD_CACHE_ARRAY_CAPACITY];
-        }
-
-        int i = 0;
-        for (; i < methodCacheArray.length; ++i) {
-            HotSpotResolvedJavaMethodImpl curMethod = methodCacheArray[i];
-            if (curMethod == null) {
-                HotSpotResolvedJavaMethodImpl newMethod = new HotSpotResolvedJavaMethodImpl(this, metaspaceHandle);
-                methodCacheArray[i] = newMethod;
-                return newMethod;
-            } else if (curMethod.getMetaspaceMethod() == metaspaceMethod) {
-                return curMethod;
+        MethodCache cache = methodCache;
+        if (cache != null) {
+            HotSpotResolvedJavaMethodImpl method = cache.get(metaspaceMethod);
+            if (method != null) {
+                return method;
             }
         }
+        return createMethodSlowPath(metaspaceHandle, metaspaceMethod);
+    }
 
-        // Fall-back to hash table.
-        if (methodCacheHashMap == null) {
-            methodCacheHashMap = new HashMap<>();
-        }
-
-        HotSpotResolvedJavaMethodImpl lookupResult = methodCacheHashMap.get(metaspaceMethod);
-        if (lookupResult == null) {
-            HotSpotResolvedJavaMethodImpl newMethod = new HotSpotResolvedJavaMethodImpl(this, metaspaceHandle);
-            methodCacheHashMap.put(metaspaceMethod, newMethod);
-            return newMethod;
-        } else {
-            return lookupResult;
+    /**
+     * Creates and publishes the mirror for {@code metaspaceMethod}. At most one mirror may be
+     * created per method as the VM releases {@code metaspaceHandle} if the returned mirror uses a
+     * different handle.
+     */
+    private synchronized HotSpotResolvedJavaMethod createMethodSlowPath(long metaspaceHandle, long metaspaceMethod) {
+        MethodCache.misses.increment();
+        if (methodCache == null) {
+            methodCache = new MethodCache();
+        }
+        HotSpotResolvedJavaMethodImpl method = methodCache.get(metaspaceMethod);
+        if (method != null) {
+            MethodCache.racedMisses.increment();
+            return method;
         }
+        method = new HotSpotResolvedJavaMethodImpl(this, metaspaceHandle);
+        // Re-read the field as creating the method may have re-entered this method
+        methodCache = methodCache.add(metaspaceMethod, method);
+        return method;
     }
 
     @Override
@@ -770,11 +814,14 @@ final class HotSpotResolvedObjectTypeImpl extends HotSpotResolvedJavaType implem
 
     @Override
     public ResolvedJavaField[] getStaticFields() {
-        if (isArray()) {
-            return new HotSpotResolvedJavaField[0];
-        } else {
-            return getFields(true, NO_FIELDS);
+        if (staticFields == null) {
+            if (isArray()) {
+                staticFields = NO_FIELDS;
+            } else {
+                staticFields = getFields(true, NO_FIELDS);
+            }
         }
+        return staticFields;
     }
 
     /**
@@ -927,16 +974,64 @@ final class HotSpotResolvedObjectTypeImpl extends HotSpotResolvedJavaType implem
 
     @Override
     public ResolvedJavaField findInstanceFieldWithOffset(long offset, JavaKind expectedEntryKind) {
-        ResolvedJavaField[] declaredFields = getInstanceFields(true);
-        return findFieldWithOffset(offset, expectedEntryKind, declaredFields);
+        if (instanceFieldsByOffset == null) {
+            HotSpotResolvedJavaField[] fields = (HotSpotResolvedJavaField[]) getInstanceFields(true);
+            instanceFieldsByOffset = sortByOffset(fields);
+        }
+        return findFieldWithOffset(offset, expectedEntryKind, instanceFieldsByOffset);
     }
 
     public ResolvedJavaField findStaticFieldWithOffset(long offset, JavaKind expectedEntryKind) {
-        ResolvedJavaField[] declaredFields = getStaticFields();
+        // getFields sorts the static fields by offset
+        HotSpotResolvedJavaField[] declaredFields = (HotSpotResolvedJavaField[]) getStaticFields();
         return findFieldWithOffset(offset, expectedEntryKind, declaredFields);
     }
 
-    private static ResolvedJavaField findFieldWithOffset(long offset, JavaKind expectedEntryKind, ResolvedJavaField[] declaredFields) {
+    /**
+     * Gets {@code fields} sorted by offset. The sort is stable so fields with the same offset keep
+     * their relative order.
+     *
+     * @return {@code fields} if it is already sorted by offset otherwise a sorted copy
+     */
+    private static HotSpotResolvedJavaField[] sortByOffset(HotSpotResolvedJavaField[] fields) {
+        for (int i = 1; i < fields.length; i++) {
+            if (fields[i - 1].getOffset() > fields[i].getOffset()) {
+                HotSpotResolvedJavaField[] sorted = fields.clone();
+                Arrays.sort(sorted, Comparator.comparingInt(HotSpotResolvedJavaField::getOffset));
+                return sorted;
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Finds the first field in {@code sortedFields} whose offset is {@code offset}. On big endian
+     * platforms the field offset is adjusted by {@code expectedEntryKind}, which does not preserve
+     * the order of {@code sortedFields}, so a linear search is used instead.
+     *
+     * @param sortedFields fields sorted by offset
+     */
+    private static ResolvedJavaField findFieldWithOffset(long offset, JavaKind expectedEntryKind, HotSpotResolvedJavaField[] sortedFields) {
+        if (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN) {
+            return findFieldWithAdjustedOffset(offset, expectedEntryKind, sortedFields);
+        }
+        int low = 0;
+        int high = sortedFields.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedFields[mid].getOffset() < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low < sortedFields.length && sortedFields[low].getOffset() == offset) {
+            return sortedFields[low];
+        }
+        return null;
+    }
+
+    private static ResolvedJavaField findFieldWithAdjustedOffset(long offset, JavaKind expectedEntryKind, ResolvedJavaField[] declaredFields) {
         for (ResolvedJavaField field : declaredFields) {
             long resolvedFieldOffset = field.getOffset();
             // @formatter:off
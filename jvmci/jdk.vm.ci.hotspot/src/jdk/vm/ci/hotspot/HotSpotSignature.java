@@ -22,8 +22,7 @@
  */
 package jdk.vm.ci.hotspot;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import jdk.vm.ci.meta.JavaKind;
 import jdk.vm.ci.meta.JavaType;
@@ -32,11 +31,16 @@ import jdk.vm.ci.meta.Signature;
 import jdk.vm.ci.meta.UnresolvedJavaType;
 
 /**
- * Represents a method signature.
+ * Represents a method signature. The parsed form of signatures created by the VM is interned (see
+ * {@link SignatureCache}) and thus shared by all methods with the same signature. The types
+ * resolved by a signature are only cached in the instance they were resolved through, never in the
+ * shared parsed form.
  */
 public class HotSpotSignature implements Signature {
 
-    private final List<String> parameters = new ArrayList<>();
+    private static final String[] NO_PARAMETERS = {};
+
+    private final String[] parameters;
     private final String returnType;
     private final String originalString;
     private ResolvedJavaType[] parameterTypes;
@@ -51,10 +55,17 @@ public class HotSpotSignature implements Signature {
         this.originalString = signature;
 
         if (signature.charAt(0) == '(') {
+            int count = 0;
             int cur = 1;
             while (cur < signature.length() && signature.charAt(cur) != ')') {
+                cur = parseSignature(signature, cur);
+                count++;
+            }
+            parameters = count == 0 ? NO_PARAMETERS : new String[count];
+            cur = 1;
+            for (int i = 0; i < count; i++) {
                 int nextCur = parseSignature(signature, cur);
-                parameters.add(signature.substring(cur, nextCur));
+                parameters[i] = signature.substring(cur, nextCur);
                 cur = nextCur;
             }
 
@@ -69,15 +80,27 @@ public class HotSpotSignature implements Signature {
         }
     }
 
+    /**
+     * Creates a signature that shares the parsed form of {@code parsed} but none of the types it
+     * has resolved.
+     */
+    HotSpotSignature(HotSpotSignature parsed) {
+        this.runtime = parsed.runtime;
+        this.parameters = parsed.parameters;
+        this.returnType = parsed.returnType;
+        this.originalString = parsed.originalString;
+    }
+
     public HotSpotSignature(HotSpotJVMCIRuntime runtime, ResolvedJavaType returnType, ResolvedJavaType... parameterTypes) {
         this.runtime = runtime;
         this.parameterTypes = parameterTypes.clone();
         this.returnTypeCache = returnType;
         this.returnType = returnType.getName();
+        this.parameters = new String[parameterTypes.length];
         StringBuilder sb = new StringBuilder("(");
-        for (JavaType type : parameterTypes) {
-            parameters.add(type.getName());
-            sb.append(type.getName());
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameters[i] = parameterTypes[i].getName();
+            sb.append(parameters[i]);
         }
         sb.append(")").append(returnType.getName());
         this.originalString = sb.toString();
@@ -124,12 +147,12 @@ public class HotSpotSignature implements Signature {
 
     @Override
     public int getParameterCount(boolean withReceiver) {
-        return parameters.size() + (withReceiver ? 1 : 0);
+        return parameters.length + (withReceiver ? 1 : 0);
     }
 
     @Override
     public JavaKind getParameterKind(int index) {
-        return JavaKind.fromTypeString(parameters.get(index));
+        return JavaKind.fromTypeString(parameters[index]);
     }
 
     private static boolean checkValidCache(ResolvedJavaType type, ResolvedJavaType accessingClass) {
@@ -155,18 +178,20 @@ public class HotSpotSignature implements Signature {
         if (accessingClass == null) {
             // Caller doesn't care about resolution context so return an unresolved
             // or primitive type (primitive type resolution is context free)
-            return getUnresolvedOrPrimitiveType(runtime, parameters.get(index));
+            return getUnresolvedOrPrimitiveType(runtime, parameters[index]);
         }
-        if (parameterTypes == null) {
-            parameterTypes = new ResolvedJavaType[parameters.size()];
+        ResolvedJavaType[] types = parameterTypes;
+        if (types == null) {
+            types = new ResolvedJavaType[parameters.length];
+            parameterTypes = types;
         }
 
-        ResolvedJavaType type = parameterTypes[index];
+        ResolvedJavaType type = types[index];
         if (!checkValidCache(type, accessingClass)) {
-            JavaType result = runtime.lookupType(parameters.get(index), (HotSpotResolvedObjectType) accessingClass, false);
+            JavaType result = runtime.lookupType(parameters[index], (HotSpotResolvedObjectType) accessingClass, false);
             if (result instanceof ResolvedJavaType) {
                 type = (ResolvedJavaType) result;
-                parameterTypes[index] = type;
+                types[index] = type;
             } else {
                 assert result != null;
                 return result;
@@ -176,6 +201,13 @@ public class HotSpotSignature implements Signature {
         return type;
     }
 
+    /**
+     * Gets the method descriptor this signature was created from.
+     */
+    String getDescriptor() {
+        return originalString;
+    }
+
     @Override
     public String toMethodDescriptor() {
         assert originalString.equals(Signature.super.toMethodDescriptor()) : originalString + " != " + Signature.super.toMethodDescriptor();
@@ -215,7 +247,7 @@ public class HotSpotSignature implements Signature {
         if (obj instanceof HotSpotSignature) {
             HotSpotSignature other = (HotSpotSignature) obj;
             if (other.originalString.equals(originalString)) {
-                assert other.parameters.equals(parameters);
+                assert Arrays.equals(other.parameters, parameters);
                 assert other.returnType.equals(returnType);
                 return true;
             }
@@ -27,6 +27,8 @@ import static jdk.vm.ci.hotspot.CompilerToVM.compilerToVM;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Formatter;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 
 import jdk.vm.ci.code.BailoutException;
@@ -163,18 +165,104 @@ public class HotSpotSpeculationLog implements SpeculationLog {
      */
     private byte[][] failedSpeculations;
 
+    /**
+     * Index of the entries in {@link #failedSpeculations}. It is extended incrementally as
+     * {@link #collectFailedSpeculations()} reads new failures since the native list only ever grows
+     * at its end.
+     */
+    private HashSet<EncodedSpeculation> failedSpeculationsIndex;
+
+    /**
+     * Number of leading entries in {@link #failedSpeculations} that are in
+     * {@link #failedSpeculationsIndex}.
+     */
+    private int indexedFailedSpeculations;
+
     /**
      * Speculations made during the compilation associated with this log.
      */
     private List<byte[]> speculations;
     private List<SpeculationReason> speculationReasons;
 
+    /**
+     * Maps the encoding of each entry in {@link #speculations} to its index in that list.
+     */
+    private HashMap<EncodedSpeculation, Integer> speculationsIndex;
+
+    /**
+     * The offset of each entry in {@link #speculations} in the flattened speculations array.
+     */
+    private int[] flattenedOffsets;
+
+    /**
+     * The entries of {@link #speculations} concatenated in a buffer that grows as speculations are
+     * made. Only the first {@link #flattenedLength} bytes are valid.
+     */
+    private byte[] flattenedBuffer;
+    private int flattenedLength;
+
+    /**
+     * Cached result of {@link #getFlattenedSpeculations(boolean)}. This is reset when a new
+     * speculation is made.
+     */
+    private byte[] flattenedSpeculations;
+
+    /**
+     * Wraps an encoded speculation so that it can be used as a hash key.
+     */
+    private static final class EncodedSpeculation {
+        final byte[] encoding;
+        final int hash;
+
+        EncodedSpeculation(byte[] encoding) {
+            this.encoding = encoding;
+            this.hash = Arrays.hashCode(encoding);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof EncodedSpeculation) {
+                EncodedSpeculation that = (EncodedSpeculation) obj;
+                return hash == that.hash && Arrays.equals(encoding, that.encoding);
+            }
+            return false;
+        }
+    }
+
     @Override
     public void collectFailedSpeculations() {
         if (failedSpeculationsAddress != 0 && UnsafeAccess.UNSAFE.getLong(failedSpeculationsAddress) != 0) {
             failedSpeculations = compilerToVM().getFailedSpeculations(failedSpeculationsAddress, failedSpeculations);
             assert failedSpeculations.getClass() == byte[][].class;
+            indexFailedSpeculations();
+        }
+    }
+
+    /**
+     * Adds the entries of {@link #failedSpeculations} that are not yet in
+     * {@link #failedSpeculationsIndex} to the index.
+     */
+    private void indexFailedSpeculations() {
+        if (failedSpeculationsIndex == null) {
+            failedSpeculationsIndex = new HashSet<>();
+        }
+        for (int i = indexedFailedSpeculations; i < failedSpeculations.length; i++) {
+            failedSpeculationsIndex.add(new EncodedSpeculation(failedSpeculations[i]));
         }
+        indexedFailedSpeculations = failedSpeculations.length;
+    }
+
+    /**
+     * Gets the encodings of the failed speculations currently in the native list.
+     */
+    byte[][] getFailedSpeculations() {
+        collectFailedSpeculations();
+        return failedSpeculations == null ? new byte[0][] : failedSpeculations.clone();
     }
 
     byte[] getFlattenedSpeculations(boolean validate) {
@@ -185,26 +273,19 @@ public class HotSpotSpeculationLog implements SpeculationLog {
             int newFailuresStart = failedSpeculations == null ? 0 : failedSpeculations.length;
             collectFailedSpeculations();
             if (failedSpeculations != null && failedSpeculations.length != newFailuresStart) {
-                for (SpeculationReason reason : speculationReasons) {
-                    byte[] encoding = encode(reason);
-                    // Only check against new failures
-                    if (contains(failedSpeculations, newFailuresStart, encoding)) {
-                        throw new BailoutException(false, "Speculation failed: " + reason);
+                // Only check new failures against the speculations made
+                for (int i = newFailuresStart; i < failedSpeculations.length; i++) {
+                    Integer index = speculationsIndex.get(new EncodedSpeculation(failedSpeculations[i]));
+                    if (index != null) {
+                        throw new BailoutException(false, "Speculation failed: " + speculationReasons.get(index));
                     }
                 }
             }
         }
-        int size = 0;
-        for (byte[] s : speculations) {
-            size += s.length;
-        }
-        byte[] result = new byte[size];
-        size = 0;
-        for (byte[] s : speculations) {
-            System.arraycopy(s, 0, result, size, s.length);
-            size += s.length;
+        if (flattenedSpeculations == null) {
+            flattenedSpeculations = Arrays.copyOf(flattenedBuffer, flattenedLength);
         }
-        return result;
+        return flattenedSpeculations;
     }
 
     @Override
@@ -214,25 +295,11 @@ public class HotSpotSpeculationLog implements SpeculationLog {
         }
         if (failedSpeculations != null && failedSpeculations.length != 0) {
             byte[] encoding = encode(reason);
-            return !contains(failedSpeculations, 0, encoding);
+            return !failedSpeculationsIndex.contains(new EncodedSpeculation(encoding));
         }
         return true;
     }
 
-    /**
-     * @return {@code true} if {@code needle} is in {@code haystack[fromIndex..haystack.length-1]}
-     */
-    private static boolean contains(byte[][] haystack, int fromIndex, byte[] needle) {
-        for (int i = fromIndex; i < haystack.length; i++) {
-            byte[] fs = haystack[i];
-
-            if (Arrays.equals(fs, needle)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private static long encodeIndexAndLength(int index, int length) {
         if (length > HotSpotSpeculationEncoding.MAX_LENGTH || length < 0) {
             throw new InternalError(String.format("Invalid encoded speculation length: %d (0x%x)", length, length));
@@ -254,28 +321,36 @@ public class HotSpotSpeculationLog implements SpeculationLog {
     @Override
     public Speculation speculate(SpeculationReason reason) {
         byte[] encoding = encode(reason);
-        JavaConstant id;
         if (speculations == null) {
             speculations = new ArrayList<>();
             speculationReasons = new ArrayList<>();
-            id = JavaConstant.forLong(encodeIndexAndLength(0, encoding.length));
+            speculationsIndex = new HashMap<>();
+            flattenedOffsets = new int[8];
+            flattenedBuffer = new byte[Math.max(64, encoding.length)];
+        }
+        EncodedSpeculation key = new EncodedSpeculation(encoding);
+        Integer existing = speculationsIndex.get(key);
+        JavaConstant id;
+        if (existing != null) {
+            int index = existing;
+            id = JavaConstant.forLong(encodeIndexAndLength(flattenedOffsets[index], speculations.get(index).length));
+        } else {
+            int index = speculations.size();
+            int flattenedIndex = flattenedLength;
+            id = JavaConstant.forLong(encodeIndexAndLength(flattenedIndex, encoding.length));
             speculations.add(encoding);
             speculationReasons.add(reason);
-        } else {
-            id = null;
-            int flattenedIndex = 0;
-            for (byte[] fs : speculations) {
-                if (Arrays.equals(fs, encoding)) {
-                    id = JavaConstant.forLong(encodeIndexAndLength(flattenedIndex, fs.length));
-                    break;
-                }
-                flattenedIndex += fs.length;
+            speculationsIndex.put(key, index);
+            if (index == flattenedOffsets.length) {
+                flattenedOffsets = Arrays.copyOf(flattenedOffsets, index * 2);
             }
-            if (id == null) {
-                id = JavaConstant.forLong(encodeIndexAndLength(flattenedIndex, encoding.length));
-                speculations.add(encoding);
-                speculationReasons.add(reason);
+            flattenedOffsets[index] = flattenedIndex;
+            if (flattenedLength + encoding.length > flattenedBuffer.length) {
+                flattenedBuffer = Arrays.copyOf(flattenedBuffer, Math.max(flattenedBuffer.length * 2, flattenedLength + encoding.length));
             }
+            System.arraycopy(encoding, 0, flattenedBuffer, flattenedLength, encoding.length);
+            flattenedLength += encoding.length;
+            flattenedSpeculations = null;
         }
 
         return new HotSpotSpeculation(reason, id, encoding);
@@ -301,14 +376,12 @@ public class HotSpotSpeculationLog implements SpeculationLog {
             return NO_SPECULATION;
         }
         int flattenedIndex = decodeIndex(constant.asLong());
-        int index = 0;
-        for (byte[] s : speculations) {
-            if (flattenedIndex == 0) {
+        if (speculations != null) {
+            int index = Arrays.binarySearch(flattenedOffsets, 0, speculations.size(), flattenedIndex);
+            if (index >= 0) {
                 SpeculationReason reason = speculationReasons.get(index);
-                return new HotSpotSpeculation(reason, constant, s);
+                return new HotSpotSpeculation(reason, constant, speculations.get(index));
             }
-            index++;
-            flattenedIndex -= s.length;
         }
         throw new IllegalArgumentException("Unknown encoded speculation: " + constant);
     }
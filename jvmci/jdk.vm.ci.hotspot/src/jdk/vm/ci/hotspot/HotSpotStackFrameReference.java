@@ -40,8 +40,13 @@ public class HotSpotStackFrameReference implements InspectedFrame {
     // information about the stack frame's contents
     private int bci;
     private HotSpotResolvedJavaMethod method;
+    // null until decoded if this frame was produced by a batched stack walk
     private Object[] locals;
     private boolean[] localIsVirtual;
+    // the first frame of a batched stack walk in the same physical frame as this one
+    private HotSpotStackFrameReference physicalFrame;
+    // set in the VM on the physical frame when the virtual objects it holds are reallocated
+    @SuppressWarnings("unused") private Object[] virtualObjects;
 
     public long getStackPointer() {
         return stackPointer;
@@ -51,18 +56,44 @@ public class HotSpotStackFrameReference implements InspectedFrame {
         return frameNumber;
     }
 
+    /**
+     * Links this frame to the first frame of the same physical frame so that they share the
+     * virtual objects reallocated when their locals are decoded.
+     *
+     * @param previous the frame returned before this one by the same stack walk or {@code null}
+     */
+    void linkPhysicalFrame(HotSpotStackFrameReference previous) {
+        if (previous != null && previous.stackPointer == stackPointer) {
+            physicalFrame = previous.physicalFrame;
+        } else {
+            physicalFrame = this;
+        }
+    }
+
+    /**
+     * Decodes the locals of this frame if that was deferred by the stack walk that produced it.
+     */
+    private void ensureLocalsDecoded() {
+        if (locals == null) {
+            compilerToVM.decodeFrameLocals(this);
+        }
+    }
+
     @Override
     public Object getLocal(int index) {
+        ensureLocalsDecoded();
         return locals[index];
     }
 
     @Override
     public boolean isVirtual(int index) {
+        ensureLocalsDecoded();
         return localIsVirtual == null ? false : localIsVirtual[index];
     }
 
     @Override
     public void materializeVirtualObjects(boolean invalidateCode) {
+        ensureLocalsDecoded();
         compilerToVM.materializeVirtualObjects(this, invalidateCode);
     }
 
@@ -83,6 +114,7 @@ public class HotSpotStackFrameReference implements InspectedFrame {
 
     @Override
     public boolean hasVirtualObjects() {
+        ensureLocalsDecoded();
         return localIsVirtual != null;
     }
 
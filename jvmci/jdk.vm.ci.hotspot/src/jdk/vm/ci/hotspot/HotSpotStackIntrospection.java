@@ -39,4 +39,56 @@ public class HotSpotStackIntrospection implements StackIntrospection {
         CompilerToVM compilerToVM = runtime.getCompilerToVM();
         return compilerToVM.iterateFrames(initialMethods, matchingMethods, initialSkip, visitor);
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The frames are retrieved with a single transition into the VM per batch and the locals of a
+     * frame are only decoded when first accessed. Each batch after the first re-walks the stack
+     * up to the last frame of the previous batch so {@code batchSize} should be chosen such that
+     * most walks complete in a single batch.
+     */
+    @Override
+    public <T> T iterateFrames(ResolvedJavaMethod[] initialMethods, ResolvedJavaMethod[] matchingMethods, int initialSkip, int maxFrames, int batchSize, InspectedFrameVisitor<T> visitor) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batch size must be positive: " + batchSize);
+        }
+        CompilerToVM compilerToVM = runtime.getCompilerToVM();
+        ResolvedJavaMethod[] methods = initialMethods;
+        int skip = initialSkip;
+        long resumeStackPointer = 0L;
+        int resumeFrameNumber = 0;
+        int remaining = maxFrames;
+        HotSpotStackFrameReference[] frames = null;
+        HotSpotStackFrameReference previous = null;
+        while (remaining > 0) {
+            int length = Math.min(batchSize, remaining);
+            if (frames == null || frames.length != length) {
+                frames = new HotSpotStackFrameReference[length];
+            }
+            int count = compilerToVM.iterateFramesBatch(methods, matchingMethods, skip, resumeStackPointer, resumeFrameNumber, frames);
+            for (int i = 0; i < count; i++) {
+                frames[i].linkPhysicalFrame(previous);
+                previous = frames[i];
+            }
+            for (int i = 0; i < count; i++) {
+                T result = visitor.visitFrame(frames[i]);
+                if (result != null) {
+                    return result;
+                }
+            }
+            if (count < length) {
+                // reached the end of the stack
+                return null;
+            }
+            HotSpotStackFrameReference last = frames[count - 1];
+            resumeStackPointer = last.getStackPointer();
+            resumeFrameNumber = last.getFrameNumber();
+            // the initial method has been found and all skipped frames have been skipped
+            methods = matchingMethods;
+            skip = 0;
+            remaining -= count;
+        }
+        return null;
+    }
 }
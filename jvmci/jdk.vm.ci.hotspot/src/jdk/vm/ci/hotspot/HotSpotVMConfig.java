@@ -83,6 +83,7 @@ class HotSpotVMConfig extends HotSpotVMConfigAccess {
     final int nextSiblingOffset = getFieldOffset("Klass::_next_sibling", Integer.class, "Klass*");
     final int superCheckOffsetOffset = getFieldOffset("Klass::_super_check_offset", Integer.class, "juint");
     final int secondarySuperCacheOffset = getFieldOffset("Klass::_secondary_super_cache", Integer.class, "Klass*");
+    final int secondarySupersOffset = getFieldOffset("Klass::_secondary_supers", Integer.class, "Array<Klass*>*");
 
     final int classLoaderDataOffset = getFieldOffset("Klass::_class_loader_data", Integer.class, "ClassLoaderData*");
 
@@ -118,6 +119,7 @@ class HotSpotVMConfig extends HotSpotVMConfigAccess {
     final int arrayU1LengthOffset = getFieldOffset("Array<int>::_length", Integer.class, "int");
     final int arrayU1DataOffset = getFieldOffset("Array<u1>::_data", Integer.class);
     final int arrayU2DataOffset = getFieldOffset("Array<u2>::_data", Integer.class);
+    final int arrayKlassPointerDataOffset = getFieldOffset("Array<Klass*>::_data", Integer.class);
 
     final int fieldInfoAccessFlagsOffset = getConstant("FieldInfo::access_flags_offset", Integer.class);
     final int fieldInfoNameIndexOffset = getConstant("FieldInfo::name_index_offset", Integer.class);
@@ -133,6 +135,7 @@ class HotSpotVMConfig extends HotSpotVMConfigAccess {
     final int jvmAccFieldStable = getConstant("JVM_ACC_FIELD_STABLE", Integer.class);
     final int jvmAccFieldHasGenericSignature = getConstant("JVM_ACC_FIELD_HAS_GENERIC_SIGNATURE", Integer.class);
     final int jvmAccIsCloneable = getConstant("JVM_ACC_IS_CLONEABLE", Integer.class);
+    final int jvmAccIsOld = getConstant("JVM_ACC_IS_OLD", Integer.class);
 
     // These modifiers are not public in Modifier so we get them via vmStructs.
     final int jvmAccSynthetic = getConstant("JVM_ACC_SYNTHETIC", Integer.class);
@@ -267,6 +270,9 @@ class HotSpotVMConfig extends HotSpotVMConfigAccess {
     final long symbolInit = getFieldValue("CompilerToVM::Data::symbol_init", Long.class);
     final long symbolClinit = getFieldValue("CompilerToVM::Data::symbol_clinit", Long.class);
 
+    final int symbolLengthOffset = getFieldOffset("Symbol::_length", Integer.class, "unsigned short");
+    final int symbolBodyOffset = getFieldOffset("Symbol::_body[0]", Integer.class, "jbyte");
+
     /**
      * Returns the symbol in the {@code vmSymbols} table at position {@code index} as a
      * {@link String}.
@@ -24,11 +24,15 @@ package jdk.vm.ci.hotspot;
 
 import static jdk.vm.ci.common.InitTimer.timer;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.TreeMap;
 
 import jdk.vm.ci.common.InitTimer;
@@ -82,10 +86,10 @@ public final class HotSpotVMConfigStore {
         return Collections.unmodifiableList(vmIntrinsics);
     }
 
-    final HashMap<String, VMField> vmFields;
-    final HashMap<String, Long> vmConstants;
-    final HashMap<String, Long> vmAddresses;
-    final HashMap<String, VMFlag> vmFlags;
+    final Map<String, VMField> vmFields;
+    final Map<String, Long> vmConstants;
+    final Map<String, Long> vmAddresses;
+    final Map<String, VMFlag> vmFlags;
     final List<VMIntrinsicMethod> vmIntrinsics;
     final CompilerToVM compilerToVm;
 
@@ -102,6 +106,9 @@ public final class HotSpotVMConfigStore {
      *         VMIntrinsicMethod[] vmIntrinsics
      *     ]
      * </pre>
+     *
+     * The arrays are used as is. The index used to look up an entry by name is only built on the
+     * first lookup in each array.
      */
     @SuppressWarnings("try")
     HotSpotVMConfigStore(CompilerToVM compilerToVm) {
@@ -120,34 +127,214 @@ public final class HotSpotVMConfigStore {
         Object[] vmAddressesInfo  = (Object[])  data[2];
         VMFlag[] vmFlagsInfo      = (VMFlag[])  data[3];
 
-        vmFields     = new HashMap<>(vmFieldsInfo.length);
-        vmConstants  = new HashMap<>(vmConstantsInfo.length);
-        vmAddresses  = new HashMap<>(vmAddressesInfo.length);
-        vmFlags      = new HashMap<>(vmFlagsInfo.length);
+        vmFields     = new FieldTable(vmFieldsInfo);
+        vmConstants  = new NameValueTable(vmConstantsInfo);
+        vmAddresses  = new NameValueTable(vmAddressesInfo);
+        vmFlags      = new FlagTable(vmFlagsInfo);
         vmIntrinsics = Arrays.asList((VMIntrinsicMethod[]) data[4]);
         // @formatter:on
+    }
 
-        try (InitTimer t = timer("HotSpotVMConfigStore<init> fill maps")) {
-            for (VMField vmField : vmFieldsInfo) {
-                vmFields.put(vmField.name, vmField);
-            }
+    /**
+     * An unmodifiable map over one of the arrays returned by
+     * {@link CompilerToVM#readConfiguration()}. Lookups use an open addressing hash index over the
+     * positions of the entries in the array. The index is built on the first lookup so that VM
+     * configuration data that is never queried by name costs nothing beyond the array itself. If
+     * a name occurs more than once, the last entry wins as it did when the data was copied into a
+     * {@link java.util.HashMap}.
+     */
+    abstract static class ConfigTable<V> extends AbstractMap<String, V> {
 
-            for (int i = 0; i < vmConstantsInfo.length / 2; i++) {
-                String name = (String) vmConstantsInfo[i * 2];
-                Long value = (Long) vmConstantsInfo[i * 2 + 1];
-                vmConstants.put(name, value);
-            }
+        /**
+         * Number of entries in the underlying array.
+         */
+        private final int length;
+
+        /**
+         * Maps a hash slot to 1 + the array position of the entry in the slot, 0 denoting an
+         * empty slot. Since building the index is idempotent, racing threads may each build and
+         * publish one.
+         */
+        private volatile int[] index;
+
+        /**
+         * Number of distinct names. Written before {@link #index} is published.
+         */
+        private int size;
+
+        ConfigTable(int length) {
+            this.length = length;
+        }
+
+        abstract String nameAt(int i);
+
+        abstract V valueAt(int i);
+
+        private static int hash(Object name) {
+            int h = name.hashCode();
+            return h ^ (h >>> 16);
+        }
 
-            for (int i = 0; i < vmAddressesInfo.length / 2; i++) {
-                String name = (String) vmAddressesInfo[i * 2];
-                Long value = (Long) vmAddressesInfo[i * 2 + 1];
-                vmAddresses.put(name, value);
+        private int[] index() {
+            int[] idx = index;
+            if (idx == null) {
+                int capacity = Integer.highestOneBit(Math.max(length, 1)) << 2;
+                int mask = capacity - 1;
+                int distinct = 0;
+                idx = new int[capacity];
+                for (int i = 0; i < length; i++) {
+                    String name = nameAt(i);
+                    int slot = hash(name) & mask;
+                    while (idx[slot] != 0 && !nameAt(idx[slot] - 1).equals(name)) {
+                        slot = (slot + 1) & mask;
+                    }
+                    if (idx[slot] == 0) {
+                        distinct++;
+                    }
+                    idx[slot] = i + 1;
+                }
+                size = distinct;
+                index = idx;
             }
+            return idx;
+        }
 
-            for (VMFlag vmFlag : vmFlagsInfo) {
-                vmFlags.put(vmFlag.name, vmFlag);
+        private int find(Object name) {
+            if (!(name instanceof String)) {
+                return -1;
+            }
+            int[] idx = index();
+            int mask = idx.length - 1;
+            int slot = hash(name) & mask;
+            while (true) {
+                int entry = idx[slot];
+                if (entry == 0) {
+                    return -1;
+                }
+                if (nameAt(entry - 1).equals(name)) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & mask;
             }
         }
+
+        @Override
+        public V get(Object name) {
+            int i = find(name);
+            return i < 0 ? null : valueAt(i);
+        }
+
+        @Override
+        public boolean containsKey(Object name) {
+            return find(name) >= 0;
+        }
+
+        @Override
+        public int size() {
+            index();
+            return size;
+        }
+
+        @Override
+        public Set<Map.Entry<String, V>> entrySet() {
+            return new AbstractSet<Map.Entry<String, V>>() {
+                @Override
+                public Iterator<Map.Entry<String, V>> iterator() {
+                    int[] idx = index();
+                    return new Iterator<Map.Entry<String, V>>() {
+                        private int slot = advance(0);
+
+                        private int advance(int from) {
+                            int s = from;
+                            while (s < idx.length && idx[s] == 0) {
+                                s++;
+                            }
+                            return s;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return slot < idx.length;
+                        }
+
+                        @Override
+                        public Map.Entry<String, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = idx[slot] - 1;
+                            slot = advance(slot + 1);
+                            return new SimpleImmutableEntry<>(nameAt(i), valueAt(i));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return ConfigTable.this.size();
+                }
+            };
+        }
+    }
+
+    static final class FieldTable extends ConfigTable<VMField> {
+        private final VMField[] data;
+
+        FieldTable(VMField[] data) {
+            super(data.length);
+            this.data = data;
+        }
+
+        @Override
+        String nameAt(int i) {
+            return data[i].name;
+        }
+
+        @Override
+        VMField valueAt(int i) {
+            return data[i];
+        }
+    }
+
+    static final class FlagTable extends ConfigTable<VMFlag> {
+        private final VMFlag[] data;
+
+        FlagTable(VMFlag[] data) {
+            super(data.length);
+            this.data = data;
+        }
+
+        @Override
+        String nameAt(int i) {
+            return data[i].name;
+        }
+
+        @Override
+        VMFlag valueAt(int i) {
+            return data[i];
+        }
+    }
+
+    /**
+     * A {@link ConfigTable} over an array of alternating names and values.
+     */
+    static final class NameValueTable extends ConfigTable<Long> {
+        private final Object[] data;
+
+        NameValueTable(Object[] data) {
+            super(data.length / 2);
+            this.data = data;
+        }
+
+        @Override
+        String nameAt(int i) {
+            return (String) data[i * 2];
+        }
+
+        @Override
+        Long valueAt(int i) {
+            return (Long) data[i * 2 + 1];
+        }
     }
 
     @Override
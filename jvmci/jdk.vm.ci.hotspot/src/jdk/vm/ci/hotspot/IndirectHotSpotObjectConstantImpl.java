@@ -76,10 +76,11 @@ final class IndirectHotSpotObjectConstantImpl extends HotSpotObjectConstantImpl
         assert objectHandle != 0 && UnsafeAccess.UNSAFE.getLong(objectHandle) != 0;
         this.objectHandle = objectHandle;
         this.base = null;
+        HotSpotJVMCIMetrics.instance.recordHandleCreated(true);
         if (!skipRegister) {
             HotSpotObjectConstantScope scope = HotSpotObjectConstantScope.CURRENT.get();
             if (scope != null && !scope.isGlobal()) {
-                scope.add(this);
+                scope.add(this, objectHandle);
                 if (HotSpotJVMCIRuntime.Option.AuditHandles.getBoolean()) {
                     rawAudit = new Audit(scope.localScopeDescription, objectHandle, new Throwable() {
                         @Override
@@ -140,11 +141,12 @@ final class IndirectHotSpotObjectConstantImpl extends HotSpotObjectConstantImpl
     }
 
     /**
-     * Clears the foreign object reference.
+     * Clears the foreign object reference. The caller is responsible for releasing the handle (see
+     * {@link HandleArena#release}).
      */
     void clear(Object scopeDescription) {
         checkHandle();
-        CompilerToVM.compilerToVM().deleteGlobalHandle(objectHandle);
+        HotSpotJVMCIMetrics.instance.recordHandleReleased(true);
         if (rawAudit == null) {
             rawAudit = scopeDescription;
         }
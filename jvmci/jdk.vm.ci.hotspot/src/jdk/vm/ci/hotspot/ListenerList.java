@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import static jdk.vm.ci.hotspot.HotSpotJVMCIRuntime.runtime;
+
+import java.io.PrintStream;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A list of listeners that can be modified while it is being notified. A listener that throws an
+ * exception does not prevent the other listeners from being notified. The exception is printed
+ * to HotSpot's log stream instead of propagating to the code that triggered the notification,
+ * which is typically on a path called from the VM.
+ */
+final class ListenerList<T> {
+
+    private final CopyOnWriteArrayList<T> listeners = new CopyOnWriteArrayList<>();
+
+    void add(T listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Removes all listeners matching {@code filter}.
+     *
+     * @return {@code true} if any listener was removed
+     */
+    boolean removeIf(Predicate<? super T> filter) {
+        return listeners.removeIf(filter);
+    }
+
+    boolean isEmpty() {
+        return listeners.isEmpty();
+    }
+
+    /**
+     * Calls {@code action} for each listener.
+     */
+    void notify(Consumer<? super T> action) {
+        for (T listener : listeners) {
+            invoke(listener, action);
+        }
+    }
+
+    /**
+     * Calls {@code action} on {@code listener}, reporting any exception it throws.
+     */
+    static <T> void invoke(T listener, Consumer<? super T> action) {
+        try {
+            action.accept(listener);
+        } catch (Throwable t) {
+            report(listener, t);
+        }
+    }
+
+    /**
+     * Prints {@code t}, thrown by {@code listener}, to HotSpot's log stream.
+     */
+    static void report(Object listener, Throwable t) {
+        PrintStream log = new PrintStream(runtime().getLogStream());
+        log.printf("Exception in JVMCI listener %s:%n", listener);
+        t.printStackTrace(log);
+        log.flush();
+    }
+}
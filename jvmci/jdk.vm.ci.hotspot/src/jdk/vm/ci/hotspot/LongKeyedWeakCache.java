@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+
+/**
+ * A map from non-zero {@code long} keys (typically metaspace pointers) to weakly referenced values.
+ * The map is an open-addressed hash table with linear probing. Lookups are lock free. Insertions
+ * are serialized on the map and only happen on a lookup miss.
+ *
+ * Entries whose values have been reclaimed by the garbage collector remain in the table until they
+ * are either replaced by a new value for the same key or dropped when the table is rebuilt.
+ */
+final class LongKeyedWeakCache<V> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * An entry in the table. Entries are never mutated once published.
+     */
+    private static final class Entry<V> extends WeakReference<V> {
+        final long key;
+
+        Entry(long key, V value) {
+            super(value);
+            this.key = key;
+        }
+    }
+
+    /**
+     * The current table. Its length is always a power of 2. A new table is published whenever
+     * the current one is rebuilt so readers always see a consistent (if possibly stale) table.
+     */
+    private volatile AtomicReferenceArray<Entry<V>> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+    /**
+     * Number of non-null slots in {@link #table}, including those with a cleared value. Only
+     * accessed while holding the lock on this object.
+     */
+    private int occupied;
+
+    private static int hash(long key) {
+        // Metaspace pointers are word aligned so mix in the high bits
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Gets the value associated with {@code key}.
+     *
+     * @return {@code null} if there is no mapping for {@code key} or its value has been reclaimed
+     */
+    V get(long key) {
+        AtomicReferenceArray<Entry<V>> t = table;
+        int mask = t.length() - 1;
+        int index = hash(key) & mask;
+        while (true) {
+            Entry<V> e = t.get(index);
+            if (e == null) {
+                return null;
+            }
+            if (e.key == key) {
+                return e.get();
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Gets the value associated with {@code key}, creating it with {@code factory} if there is no
+     * live mapping for {@code key}. At most one value is created for a given key while any previous
+     * value for that key remains strongly reachable.
+     */
+    V computeIfAbsent(long key, LongFunction<V> factory) {
+        assert key != 0;
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        synchronized (this) {
+            value = get(key);
+            if (value == null) {
+                value = factory.apply(key);
+                put(key, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Installs a mapping for {@code key}. The slot is located after any call to a factory so that
+     * a table rebuilt by a re-entrant insertion is observed.
+     */
+    private void put(long key, V value) {
+        assert Thread.holdsLock(this);
+        AtomicReferenceArray<Entry<V>> t = table;
+        int mask = t.length() - 1;
+        int index = hash(key) & mask;
+        while (true) {
+            Entry<V> e = t.get(index);
+            if (e == null) {
+                break;
+            }
+            if (e.key == key) {
+                // Replace the entry whose value has been reclaimed
+                t.set(index, new Entry<>(key, value));
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        if ((occupied + 1) * 2 > t.length()) {
+            rebuild(t);
+            put(key, value);
+            return;
+        }
+        t.set(index, new Entry<>(key, value));
+        occupied++;
+    }
+
+    /**
+     * Publishes a new table containing only the live entries of {@code old}, growing it if more
+     * than a quarter of the old table is still live.
+     */
+    private void rebuild(AtomicReferenceArray<Entry<V>> old) {
+        int live = 0;
+        for (int i = 0; i < old.length(); i++) {
+            Entry<V> e = old.get(i);
+            if (e != null && e.get() != null) {
+                live++;
+            }
+        }
+        int capacity = old.length();
+        while (live * 4 >= capacity) {
+            capacity <<= 1;
+        }
+        AtomicReferenceArray<Entry<V>> t = new AtomicReferenceArray<>(capacity);
+        int mask = capacity - 1;
+        int count = 0;
+        for (int i = 0; i < old.length(); i++) {
+            Entry<V> e = old.get(i);
+            if (e != null && e.get() != null) {
+                int index = hash(e.key) & mask;
+                while (t.get(index) != null) {
+                    index = (index + 1) & mask;
+                }
+                t.set(index, e);
+                count++;
+            }
+        }
+        occupied = count;
+        table = t;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An open-addressed table mapping {@code Method*} values to the
+ * {@link HotSpotResolvedJavaMethodImpl}s created for a single {@link HotSpotResolvedObjectTypeImpl}.
+ *
+ * Lookups are lock free. Entries are published at most once and never removed, which matches the
+ * lifetime of the methods of a class. Updates must be done while holding the lock on the owning
+ * type. A value is written before its key and keys are read and written with volatile semantics so
+ * a reader that observes a key also observes the value for that key.
+ */
+final class MethodCache {
+
+    static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * Number of lookups that missed and entered the synchronized slow path.
+     */
+    static final LongAdder misses = new LongAdder();
+
+    /**
+     * Number of slow path lookups that found the method already created by another thread. This is
+     * a measure of contention between compiler threads on the same holder type.
+     */
+    static final LongAdder racedMisses = new LongAdder();
+
+    /**
+     * Number of times a table was replaced by a larger one.
+     */
+    static final LongAdder resizes = new LongAdder();
+
+    private final AtomicLongArray keys;
+    private final HotSpotResolvedJavaMethodImpl[] values;
+
+    /**
+     * Number of entries in this table. Only accessed while holding the lock on the owning type.
+     */
+    private int size;
+
+    MethodCache() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private MethodCache(int capacity) {
+        assert Integer.bitCount(capacity) == 1 : capacity;
+        keys = new AtomicLongArray(capacity);
+        values = new HotSpotResolvedJavaMethodImpl[capacity];
+    }
+
+    private static int hash(long metaspaceMethod) {
+        long h = metaspaceMethod * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Gets the method mirror for {@code metaspaceMethod}.
+     *
+     * @return {@code null} if this table has no entry for {@code metaspaceMethod}
+     */
+    HotSpotResolvedJavaMethodImpl get(long metaspaceMethod) {
+        int mask = values.length - 1;
+        int index = hash(metaspaceMethod) & mask;
+        while (true) {
+            long key = keys.get(index);
+            if (key == metaspaceMethod) {
+                return values[index];
+            }
+            if (key == 0) {
+                return null;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds an entry for {@code metaspaceMethod} which must not already be in this table.
+     *
+     * @return the table containing the new entry which is either this table or a larger copy of
+     *         it that must be published by the caller
+     */
+    MethodCache add(long metaspaceMethod, HotSpotResolvedJavaMethodImpl method) {
+        assert metaspaceMethod != 0 && get(metaspaceMethod) == null;
+        if ((size + 1) * 4 > values.length * 3) {
+            MethodCache larger = new MethodCache(values.length * 2);
+            for (int i = 0; i < values.length; i++) {
+                long key = keys.get(i);
+                if (key != 0) {
+                    larger.insert(key, values[i]);
+                }
+            }
+            larger.insert(metaspaceMethod, method);
+            resizes.increment();
+            return larger;
+        }
+        insert(metaspaceMethod, method);
+        return this;
+    }
+
+    private void insert(long metaspaceMethod, HotSpotResolvedJavaMethodImpl method) {
+        int mask = values.length - 1;
+        int index = hash(metaspaceMethod) & mask;
+        while (keys.get(index) != 0) {
+            index = (index + 1) & mask;
+        }
+        values[index] = method;
+        keys.set(index, metaspaceMethod);
+        size++;
+    }
+
+    /**
+     * Gets a description of the contention counters of all method caches.
+     */
+    static String getStatistics() {
+        return String.format("MethodCache: misses=%d, racedMisses=%d, resizes=%d", misses.sum(), racedMisses.sum(), resizes.sum());
+    }
+}
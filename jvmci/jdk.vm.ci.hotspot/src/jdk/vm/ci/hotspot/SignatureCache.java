@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.hotspot;
+
+import static jdk.vm.ci.hotspot.HotSpotJVMCIRuntime.runtime;
+import static jdk.vm.ci.hotspot.UnsafeAccess.UNSAFE;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of parsed {@link HotSpotSignature}s shared by all methods and constant pools. The
+ * same signatures (e.g. {@code (Ljava/lang/Object;)Z}) recur across many methods so interning them
+ * avoids repeatedly reading the signature string from the VM and parsing it.
+ *
+ * The cached signatures are never handed out. Each lookup returns a new signature sharing the
+ * parsed form of the cached one so that types resolved through a signature are not retained by
+ * this global cache (which would keep their class loaders alive) and are not shared between
+ * threads.
+ *
+ * Signatures are found either by the address of the {@code Symbol} for the signature or by the
+ * signature string. Both tables are direct mapped so a lookup is a single array read and an
+ * insertion simply replaces the entry that was in its slot. Lookups and updates are lock free.
+ *
+ * A {@code Symbol} can be freed once no class refers to it, after which its address may be reused
+ * by another {@code Symbol}. A hit in the symbol table is therefore only used if the contents of the
+ * {@code Symbol} at the address match the cached signature.
+ */
+final class SignatureCache {
+
+    private static final int CAPACITY = 4096;
+
+    private static final class Entry {
+        final long symbol;
+        final HotSpotSignature signature;
+
+        Entry(long symbol, HotSpotSignature signature) {
+            this.symbol = symbol;
+            this.signature = signature;
+        }
+    }
+
+    private static final AtomicReferenceArray<Entry> bySymbol = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicReferenceArray<HotSpotSignature> byString = new AtomicReferenceArray<>(CAPACITY);
+
+    private SignatureCache() {
+    }
+
+    private static int indexOf(long symbol) {
+        // Symbols are word aligned so mix in the high bits
+        long h = symbol * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (CAPACITY - 1);
+    }
+
+    private static int indexOf(String signature) {
+        int h = signature.hashCode();
+        return (h ^ (h >>> 16)) & (CAPACITY - 1);
+    }
+
+    /**
+     * Determines if the {@code Symbol} at address {@code symbol} contains exactly the characters of
+     * {@code signature}. Only ASCII signatures are cached by symbol so a character can be compared
+     * directly with a byte of the modified UTF-8 encoding in the {@code Symbol}.
+     */
+    private static boolean symbolEquals(long symbol, String signature) {
+        HotSpotVMConfig config = runtime().getConfig();
+        int length = UNSAFE.getShort(symbol + config.symbolLengthOffset) & 0xFFFF;
+        if (length != signature.length()) {
+            return false;
+        }
+        long body = symbol + config.symbolBodyOffset;
+        for (int i = 0; i < length; i++) {
+            if (UNSAFE.getByte(body + i) != signature.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the signature for the {@code Symbol} at address {@code symbol}.
+     *
+     * @param symbolString reads the string value of {@code symbol} from the VM on a cache miss
+     */
+    static HotSpotSignature lookup(long symbol, Supplier<String> symbolString) {
+        int index = indexOf(symbol);
+        Entry entry = bySymbol.get(index);
+        if (entry != null && entry.symbol == symbol && symbolEquals(symbol, entry.signature.getDescriptor())) {
+            return new HotSpotSignature(entry.signature);
+        }
+        HotSpotSignature signature = parse(symbolString.get());
+        if (isAscii(signature.getDescriptor())) {
+            bySymbol.set(index, new Entry(symbol, signature));
+        }
+        return new HotSpotSignature(signature);
+    }
+
+    /**
+     * Gets the signature for {@code signature}, creating and caching it if necessary.
+     *
+     * @throws IllegalArgumentException if {@code signature} is not a valid method descriptor
+     */
+    static HotSpotSignature intern(String signature) {
+        return new HotSpotSignature(parse(signature));
+    }
+
+    /**
+     * Gets the cached parsed form of {@code signature}, creating and caching it if necessary.
+     */
+    private static HotSpotSignature parse(String signature) {
+        int index = indexOf(signature);
+        HotSpotSignature cached = byString.get(index);
+        if (cached != null && cached.getDescriptor().equals(signature)) {
+            return cached;
+        }
+        HotSpotSignature result = new HotSpotSignature(runtime(), signature);
+        byString.set(index, result);
+        return result;
+    }
+}
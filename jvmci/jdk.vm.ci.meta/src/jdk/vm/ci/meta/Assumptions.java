@@ -110,6 +110,10 @@ public final class Assumptions implements Iterable<Assumptions.Assumption> {
             this.receiverType = receiverType;
         }
 
+        public ResolvedJavaType getReceiverType() {
+            return receiverType;
+        }
+
         @Override
         public int hashCode() {
             return 31 + receiverType.hashCode();
@@ -34,6 +34,12 @@ public class LineNumberTable {
     private final int[] lineNumbers;
     private final int[] bcis;
 
+    /**
+     * Whether {@link #bcis} is sorted in ascending order, in which case {@link #getLineNumber}
+     * uses a binary search.
+     */
+    private final boolean sorted;
+
     /**
      *
      * @param lineNumbers an array of source line numbers. This array is now owned by this object
@@ -47,12 +53,37 @@ public class LineNumberTable {
         assert bcis.length == lineNumbers.length;
         this.lineNumbers = lineNumbers;
         this.bcis = bcis;
+        this.sorted = isSorted(bcis);
+    }
+
+    private static boolean isSorted(int[] bcis) {
+        for (int i = 1; i < bcis.length; i++) {
+            if (bcis[i - 1] > bcis[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
      * Gets a source line number for bytecode index {@code atBci}.
      */
     public int getLineNumber(int atBci) {
+        if (sorted) {
+            // Find the last entry whose bci is <= atBci
+            int low = 0;
+            int high = bcis.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (bcis[mid] <= atBci) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            // A bci before the first entry maps to the last line, as with the linear search
+            return low == 0 ? lineNumbers[lineNumbers.length - 1] : lineNumbers[low - 1];
+        }
         for (int i = 0; i < this.bcis.length - 1; i++) {
             if (this.bcis[i] <= atBci && atBci < this.bcis[i + 1]) {
                 return lineNumbers[i];
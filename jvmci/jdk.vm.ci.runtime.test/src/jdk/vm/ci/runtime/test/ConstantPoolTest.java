@@ -27,6 +27,7 @@ package jdk.vm.ci.runtime.test;
 import org.junit.Assert;
 import org.junit.Test;
 
+import jdk.vm.ci.meta.ConstantPool;
 import jdk.vm.ci.meta.JavaMethod;
 import jdk.vm.ci.meta.MetaAccessProvider;
 import jdk.vm.ci.meta.ResolvedJavaMethod;
@@ -95,4 +96,21 @@ public class ConstantPoolTest {
             }
         }
     }
+
+    @Test
+    public void lookupMethodRepeatedlyTest() throws Exception {
+        MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
+        ResolvedJavaType type = metaAccess.lookupJavaType(ConstantPoolTest.class);
+        for (ResolvedJavaMethod m : type.getDeclaredMethods()) {
+            if (m.getName().startsWith("clone")) {
+                byte[] bytecode = m.getCode();
+                int cpi = beU2(bytecode, 2);
+                ConstantPool cp = m.getConstantPool();
+                JavaMethod first = cp.lookupMethod(cpi, INVOKEVIRTUAL);
+                for (int i = 0; i < 3; i++) {
+                    Assert.assertEquals(m.toString(), first, cp.lookupMethod(cpi, INVOKEVIRTUAL));
+                }
+            }
+        }
+    }
 }
@@ -66,7 +66,7 @@ public class RedefineClassTest extends TypeUniverse {
     /**
      * @see <a href="https://bugs.openjdk.java.net/browse/JDK-8076557">JDK-8076557</a>
      */
-    protected static void assumeManagementLibraryIsLoadable() {
+    public static void assumeManagementLibraryIsLoadable() {
         try {
             // Trigger loading of the management library.
             ManagementFactory.getRuntimeMXBean().getName();
@@ -101,7 +101,7 @@ public class RedefineClassTest extends TypeUniverse {
     /**
      * Adds the class file bytes for a given class to a JAR stream.
      */
-    static void add(JarOutputStream jar, Class<?> c) throws IOException {
+    public static void add(JarOutputStream jar, Class<?> c) throws IOException {
         String name = c.getName();
         String classAsPath = name.replace('.', '/') + ".class";
         jar.putNextEntry(new JarEntry(classAsPath));
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.vm.ci.runtime.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import jdk.vm.ci.meta.LineNumberTable;
+
+/**
+ * Tests for {@link LineNumberTable}.
+ */
+public class TestLineNumberTable {
+
+    private static int linearLineNumber(int[] bcis, int[] lines, int atBci) {
+        for (int i = 0; i < bcis.length - 1; i++) {
+            if (bcis[i] <= atBci && atBci < bcis[i + 1]) {
+                return lines[i];
+            }
+        }
+        return lines[lines.length - 1];
+    }
+
+    private static void checkLookups(int[] bcis, int[] lines) {
+        LineNumberTable table = new LineNumberTable(lines.clone(), bcis.clone());
+        for (int bci = -1; bci <= 50; bci++) {
+            assertEquals(Arrays.toString(bcis) + " @ " + bci, linearLineNumber(bcis, lines, bci), table.getLineNumber(bci));
+        }
+    }
+
+    @Test
+    public void getLineNumberTest() {
+        checkLookups(new int[]{0}, new int[]{7});
+        checkLookups(new int[]{0, 4, 4, 9}, new int[]{1, 2, 3, 4});
+        checkLookups(new int[]{3, 10, 20}, new int[]{5, 6, 7});
+        checkLookups(new int[]{0, 10, 5}, new int[]{1, 2, 3});
+
+        Random random = new Random(13);
+        for (int i = 0; i < 1000; i++) {
+            int length = 1 + random.nextInt(16);
+            int[] bcis = new int[length];
+            int[] lines = new int[length];
+            for (int j = 0; j < length; j++) {
+                bcis[j] = random.nextInt(48);
+                lines[j] = random.nextInt(1000);
+            }
+            if (random.nextBoolean()) {
+                Arrays.sort(bcis);
+            }
+            checkLookups(bcis, lines);
+        }
+    }
+}
@@ -1126,6 +1126,14 @@ def _jvmci_gate_runner(args, tasks):
             with JVMCIMode('hosted'):
                 with Task('JVMCI UnitTests: hosted', tasks) as t:
                     if t: unittest(['--suite', 'jvmci', '--enable-timing', '--verbose', '--fail-fast'])
+                with Task('JVMCI UnitTests: UseConstantPoolEntryCache', tasks) as t:
+                    if t: unittest(['--suite', 'jvmci', '--enable-timing', '--verbose', '--fail-fast', '-Djvmci.UseConstantPoolEntryCache=true', 'TestHotSpotConstantPoolEntryCache'])
+                with Task('JVMCI UnitTests: EncodeDebugInfo', tasks) as t:
+                    if t: unittest(['--suite', 'jvmci', '--enable-timing', '--verbose', '--fail-fast', '-Djvmci.EncodeDebugInfo=true', 'SimpleDebugInfoTest', 'VirtualObjectDebugInfoTest'])
+                with Task('JVMCI UnitTests: JVMCICounterSize', tasks) as t:
+                    if t: unittest(['--suite', 'jvmci', '--enable-timing', '--verbose', '--fail-fast', '-XX:JVMCICounterSize=16', 'TestHotSpotJVMCICounterSampler'])
+                with Task('JVMCI UnitTests: DebugOutputBufferSize', tasks) as t:
+                    if t: unittest(['--suite', 'jvmci', '--enable-timing', '--verbose', '--fail-fast', '-Djvmci.DebugOutputBufferSize=4096', 'TestDebugOutputBuffer'])
 
     # Prevent JVMCI modifications from breaking the client build
     if args.buildNonJVMCI:
@@ -110,6 +110,8 @@ suite = {
         "jdk.vm.ci.common",
         "jdk.vm.ci.code",
         "jdk.vm.ci.runtime",
+        "jdk.vm.ci.amd64",
+        "jdk.vm.ci.hotspot",
       ],
       "checkstyle" : "jdk.vm.ci.services",
       "javaCompliance" : "1.8",
@@ -189,6 +191,7 @@ suite = {
         "jdk.vm.ci.hotspot",
         "jdk.vm.ci.common",
         "jdk.vm.ci.runtime",
+        "jdk.vm.ci.runtime.test",
         "jdk.vm.ci.code.test",
       ],
       "checkstyle" : "jdk.vm.ci.hotspot",
@@ -196,6 +199,21 @@ suite = {
       "workingSets" : "JVMCI",
     },
 
+    "jdk.vm.ci.hotspot.jmh" : {
+      "subDir" : "jvmci",
+      "sourceDirs" : ["src"],
+      "dependencies" : [
+        "mx:JMH_1_21",
+        "jdk.vm.ci.hotspot",
+        "jdk.vm.ci.common",
+        "jdk.vm.ci.runtime",
+      ],
+      "annotationProcessors" : ["mx:JMH_1_21"],
+      "checkstyle" : "jdk.vm.ci.hotspot",
+      "javaCompliance" : "1.8",
+      "workingSets" : "JVMCI,Bench",
+    },
+
     "jdk.vm.ci.hotspot.aarch64" : {
       "subDir" : "jvmci",
       "sourceDirs" : ["src"],
@@ -351,5 +369,17 @@ suite = {
       ],
       "exclude" : ["mx:JUNIT"],
     },
+
+    "JVMCI_MICRO_BENCHMARKS" : {
+      "subDir" : "jvmci",
+      "dependencies" : [
+        "jdk.vm.ci.hotspot.jmh",
+      ],
+      "distDependencies" : [
+        "JVMCI_API",
+        "JVMCI_HOTSPOT",
+      ],
+      "exclude" : ["mx:JMH_1_21"],
+    },
   },
 }
@@ -93,6 +93,7 @@ class CompileTask : public CHeapObj<mtCompiler> {
   static void         free(CompileTask* task);
 
   int          compile_id() const                { return _compile_id; }
+  jlong        time_queued() const               { return _time_queued; }
   Method*      method() const                    { return _method; }
   int          osr_bci() const                   { return _osr_bci; }
   bool         is_complete() const               { return _is_complete; }
@@ -42,6 +42,85 @@ ConstantIntValue*      CodeInstaller::_int_2_scope_value =  new (ResourceObj::C_
 LocationValue*         CodeInstaller::_illegal_value = new (ResourceObj::C_HEAP, mtJVMCI) LocationValue(Location());
 MarkerValue*           CodeInstaller::_virtual_byte_array_marker = new (ResourceObj::C_HEAP, mtJVMCI) MarkerValue();
 
+void DebugInfoStream::check_header(JVMCI_TRAPS) {
+  jint magic = read_unsigned(JVMCI_CHECK);
+  if (magic != MAGIC) {
+    JVMCI_ERROR("invalid debug info stream magic: 0x%x", magic);
+  }
+  jint version = read_unsigned(JVMCI_CHECK);
+  if (version != VERSION) {
+    JVMCI_ERROR("unsupported debug info stream version %d (expected %d)", version, VERSION);
+  }
+}
+
+u1 DebugInfoStream::read_u1(JVMCI_TRAPS) {
+  if (_position >= _size) {
+    JVMCI_ERROR_0("debug info stream truncated at %d", _position);
+  }
+  return _buffer[_position++];
+}
+
+julong DebugInfoStream::read_unsigned_long(JVMCI_TRAPS) {
+  julong result = 0;
+  for (int shift = 0; shift < 64; shift += 7) {
+    u1 b = read_u1(JVMCI_CHECK_0);
+    result |= ((julong) (b & 0x7F)) << shift;
+    if ((b & 0x80) == 0) {
+      return result;
+    }
+  }
+  JVMCI_ERROR_0("malformed integer in debug info stream at %d", _position);
+}
+
+jint DebugInfoStream::read_unsigned(JVMCI_TRAPS) {
+  julong value = read_unsigned_long(JVMCI_CHECK_0);
+  if (value > max_juint) {
+    JVMCI_ERROR_0("integer out of range in debug info stream at %d", _position);
+  }
+  return (jint) (juint) value;
+}
+
+jint DebugInfoStream::read_signed(JVMCI_TRAPS) {
+  juint value = (juint) read_unsigned(JVMCI_CHECK_0);
+  return (jint) ((value >> 1) ^ (0 - (value & 1)));
+}
+
+jlong DebugInfoStream::read_signed_long(JVMCI_TRAPS) {
+  julong value = read_unsigned_long(JVMCI_CHECK_0);
+  return (jlong) ((value >> 1) ^ (0 - (value & 1)));
+}
+
+BasicType DebugInfoStream::read_basic_type(JVMCI_TRAPS) {
+  u1 type_char = read_u1(JVMCI_CHECK_(T_ILLEGAL));
+  return JVMCIENV->typeCharToBasicType(type_char, JVMCIENV);
+}
+
+Method* DebugInfoStream::read_method(JVMCI_TRAPS) {
+  julong value = read_unsigned_long(JVMCI_CHECK_NULL);
+  Method** metadata_handle = (Method**) (address) (uintptr_t) value;
+  if (metadata_handle == NULL) {
+    JVMCI_ERROR_NULL("null method in debug info stream at %d", _position);
+  }
+  return *metadata_handle;
+}
+
+Klass* DebugInfoStream::read_klass(JVMCI_TRAPS) {
+  julong value = read_unsigned_long(JVMCI_CHECK_NULL);
+  Klass* klass = (Klass*) (address) (uintptr_t) value;
+  if (klass == NULL) {
+    JVMCI_ERROR_NULL("null type in debug info stream at %d", _position);
+  }
+  return klass;
+}
+
+JVMCIObject DebugInfoStream::read_object(JVMCI_TRAPS) {
+  jint index = read_unsigned(JVMCI_CHECK_(JVMCIObject()));
+  if (_objects.is_null() || index < 0 || index >= JVMCIENV->get_length(_objects)) {
+    JVMCI_ERROR_(JVMCIObject(), "object index %d out of bounds in debug info stream", index);
+  }
+  return JVMCIENV->get_object_at(_objects, index);
+}
+
 VMReg CodeInstaller::getVMRegFromLocation(JVMCIObject location, int total_frame_size, JVMCI_TRAPS) {
   if (location.is_null()) {
     JVMCI_THROW_NULL(NullPointerException);
@@ -49,10 +128,29 @@ VMReg CodeInstaller::getVMRegFromLocation(JVMCIObject location, int total_frame_
 
   JVMCIObject reg = jvmci_env()->get_code_Location_reg(location);
   jint offset = jvmci_env()->get_code_Location_offset(location);
+  jint number = reg.is_non_null() ? jvmci_env()->get_code_Register_number(reg) : -1;
+  return get_vmreg(reg.is_non_null(), number, offset, JVMCIENV);
+}
 
-  if (reg.is_non_null()) {
+VMReg CodeInstaller::getVMRegFromLocation(DebugInfoStream* stream, bool& is_present, JVMCI_TRAPS) {
+  u1 tag = stream->read_u1(JVMCI_CHECK_NULL);
+  is_present = tag != DebugInfoStream::LOCATION_NONE;
+  if (tag == DebugInfoStream::LOCATION_NONE) {
+    return NULL;
+  } else if (tag == DebugInfoStream::LOCATION_REGISTER) {
+    jint number = stream->read_unsigned(JVMCI_CHECK_NULL);
+    jint offset = stream->read_signed(JVMCI_CHECK_NULL);
+    return get_vmreg(true, number, offset, JVMCIENV);
+  } else if (tag == DebugInfoStream::LOCATION_STACK) {
+    jint offset = stream->read_signed(JVMCI_CHECK_NULL);
+    return get_vmreg(false, -1, offset, JVMCIENV);
+  }
+  JVMCI_ERROR_NULL("unexpected location tag %d in debug info stream", tag);
+}
+
+VMReg CodeInstaller::get_vmreg(bool is_register, jint number, jint offset, JVMCI_TRAPS) {
+  if (is_register) {
     // register
-    jint number = jvmci_env()->get_code_Register_number(reg);
     VMReg vmReg = CodeInstaller::get_hotspot_reg(number, JVMCI_CHECK_NULL);
     if (offset % 4 == 0) {
       return vmReg->next(offset / 4);
@@ -90,12 +188,7 @@ OopMap* CodeInstaller::create_oop_map(JVMCIObject debug_info, JVMCI_TRAPS) {
   if (!jvmci_env()->isa_HotSpotReferenceMap(reference_map)) {
     JVMCI_ERROR_NULL("unknown reference map: %s", jvmci_env()->klass_name(reference_map));
   }
-  if (!_has_wide_vector && SharedRuntime::is_wide_vector(jvmci_env()->get_HotSpotReferenceMap_maxRegisterSize(reference_map))) {
-    if (SharedRuntime::polling_page_vectors_safepoint_handler_blob() == NULL) {
-      JVMCI_ERROR_NULL("JVMCI is producing code using vectors larger than the runtime supports");
-    }
-    _has_wide_vector = true;
-  }
+  check_max_register_size(jvmci_env()->get_HotSpotReferenceMap_maxRegisterSize(reference_map), JVMCI_CHECK_NULL);
   OopMap* map = new OopMap(_total_frame_size, _parameter_count);
   JVMCIObjectArray objects = jvmci_env()->get_HotSpotReferenceMap_objects(reference_map);
   JVMCIObjectArray derivedBase = jvmci_env()->get_HotSpotReferenceMap_derivedBase(reference_map);
@@ -112,32 +205,11 @@ OopMap* CodeInstaller::create_oop_map(JVMCIObject debug_info, JVMCI_TRAPS) {
     int bytes = JVMCIENV->get_int_at(sizeInBytes, i);
 
     VMReg vmReg = getVMRegFromLocation(location, _total_frame_size, JVMCI_CHECK_NULL);
+    VMReg baseReg = NULL;
     if (baseLocation.is_non_null()) {
-      // derived oop
-#ifdef _LP64
-      if (bytes == 8) {
-#else
-      if (bytes == 4) {
-#endif
-        VMReg baseReg = getVMRegFromLocation(baseLocation, _total_frame_size, JVMCI_CHECK_NULL);
-        map->set_derived_oop(vmReg, baseReg);
-      } else {
-        JVMCI_ERROR_NULL("invalid derived oop size in ReferenceMap: %d", bytes);
-      }
-#ifdef _LP64
-    } else if (bytes == 8) {
-      // wide oop
-      map->set_oop(vmReg);
-    } else if (bytes == 4) {
-      // narrow oop
-      map->set_narrowoop(vmReg);
-#else
-    } else if (bytes == 4) {
-      map->set_oop(vmReg);
-#endif
-    } else {
-      JVMCI_ERROR_NULL("invalid oop size in ReferenceMap: %d", bytes);
+      baseReg = getVMRegFromLocation(baseLocation, _total_frame_size, JVMCI_CHECK_NULL);
     }
+    set_oop(map, vmReg, baseReg, baseLocation.is_non_null(), bytes, JVMCI_CHECK_NULL);
   }
 
   JVMCIObject callee_save_info = jvmci_env()->get_DebugInfo_calleeSaveInfo(debug_info);
@@ -147,20 +219,86 @@ OopMap* CodeInstaller::create_oop_map(JVMCIObject debug_info, JVMCI_TRAPS) {
     for (jint i = 0; i < JVMCIENV->get_length(slots); i++) {
       JVMCIObject jvmci_reg = JVMCIENV->get_object_at(registers, i);
       jint jvmci_reg_number = jvmci_env()->get_code_Register_number(jvmci_reg);
-      VMReg hotspot_reg = CodeInstaller::get_hotspot_reg(jvmci_reg_number, JVMCI_CHECK_NULL);
-      // HotSpot stack slots are 4 bytes
-      jint jvmci_slot = JVMCIENV->get_int_at(slots, i);
-      jint hotspot_slot = jvmci_slot * VMRegImpl::slots_per_word;
-      VMReg hotspot_slot_as_reg = VMRegImpl::stack2reg(hotspot_slot);
-      map->set_callee_saved(hotspot_slot_as_reg, hotspot_reg);
+      set_callee_saved(map, jvmci_reg_number, JVMCIENV->get_int_at(slots, i), JVMCI_CHECK_NULL);
+    }
+  }
+  return map;
+}
+
+// creates a HotSpot oop map out of a reference map encoded in a DebugInfoStream
+OopMap* CodeInstaller::create_oop_map(DebugInfoStream* stream, JVMCI_TRAPS) {
+  check_max_register_size(stream->read_unsigned(JVMCI_CHECK_NULL), JVMCI_CHECK_NULL);
+  OopMap* map = new OopMap(_total_frame_size, _parameter_count);
+  jint length = stream->read_unsigned(JVMCI_CHECK_NULL);
+  for (jint i = 0; i < length; i++) {
+    bool is_present;
+    bool is_derived;
+    VMReg vmReg = getVMRegFromLocation(stream, is_present, JVMCI_CHECK_NULL);
+    if (!is_present) {
+      JVMCI_THROW_NULL(NullPointerException);
+    }
+    VMReg baseReg = getVMRegFromLocation(stream, is_derived, JVMCI_CHECK_NULL);
+    jint bytes = stream->read_unsigned(JVMCI_CHECK_NULL);
+    set_oop(map, vmReg, baseReg, is_derived, bytes, JVMCI_CHECK_NULL);
+  }
+
+  jint callee_saved_count = stream->read_unsigned(JVMCI_CHECK_NULL);
+  for (jint i = 0; i < callee_saved_count; i++) {
+    jint jvmci_reg_number = stream->read_unsigned(JVMCI_CHECK_NULL);
+    jint jvmci_slot = stream->read_signed(JVMCI_CHECK_NULL);
+    set_callee_saved(map, jvmci_reg_number, jvmci_slot, JVMCI_CHECK_NULL);
+  }
+  return map;
+}
+
+void CodeInstaller::check_max_register_size(jint max_register_size, JVMCI_TRAPS) {
+  if (!_has_wide_vector && SharedRuntime::is_wide_vector(max_register_size)) {
+    if (SharedRuntime::polling_page_vectors_safepoint_handler_blob() == NULL) {
+      JVMCI_ERROR("JVMCI is producing code using vectors larger than the runtime supports");
+    }
+    _has_wide_vector = true;
+  }
+}
+
+void CodeInstaller::set_oop(OopMap* map, VMReg vmReg, VMReg baseReg, bool is_derived, jint bytes, JVMCI_TRAPS) {
+  if (is_derived) {
+    // derived oop
 #ifdef _LP64
-      // (copied from generate_oop_map() in c1_Runtime1_x86.cpp)
-      VMReg hotspot_slot_hi_as_reg = VMRegImpl::stack2reg(hotspot_slot + 1);
-      map->set_callee_saved(hotspot_slot_hi_as_reg, hotspot_reg->next());
+    if (bytes == 8) {
+#else
+    if (bytes == 4) {
 #endif
+      map->set_derived_oop(vmReg, baseReg);
+    } else {
+      JVMCI_ERROR("invalid derived oop size in ReferenceMap: %d", bytes);
     }
+#ifdef _LP64
+  } else if (bytes == 8) {
+    // wide oop
+    map->set_oop(vmReg);
+  } else if (bytes == 4) {
+    // narrow oop
+    map->set_narrowoop(vmReg);
+#else
+  } else if (bytes == 4) {
+    map->set_oop(vmReg);
+#endif
+  } else {
+    JVMCI_ERROR("invalid oop size in ReferenceMap: %d", bytes);
   }
-  return map;
+}
+
+void CodeInstaller::set_callee_saved(OopMap* map, jint jvmci_reg_number, jint jvmci_slot, JVMCI_TRAPS) {
+  VMReg hotspot_reg = CodeInstaller::get_hotspot_reg(jvmci_reg_number, JVMCI_CHECK);
+  // HotSpot stack slots are 4 bytes
+  jint hotspot_slot = jvmci_slot * VMRegImpl::slots_per_word;
+  VMReg hotspot_slot_as_reg = VMRegImpl::stack2reg(hotspot_slot);
+  map->set_callee_saved(hotspot_slot_as_reg, hotspot_reg);
+#ifdef _LP64
+  // (copied from generate_oop_map() in c1_Runtime1_x86.cpp)
+  VMReg hotspot_slot_hi_as_reg = VMRegImpl::stack2reg(hotspot_slot + 1);
+  map->set_callee_saved(hotspot_slot_hi_as_reg, hotspot_reg->next());
+#endif
 }
 
 #if INCLUDE_AOT
@@ -280,6 +418,96 @@ Location::Type CodeInstaller::get_oop_type(JVMCIObject value) {
   }
 }
 
+ScopeValue* CodeInstaller::get_register_scope_value(jint number, bool narrow_oop, BasicType type, ScopeValue* &second, JVMCI_TRAPS) {
+  VMReg hotspotRegister = get_hotspot_reg(number, JVMCI_CHECK_NULL);
+  if (is_general_purpose_reg(hotspotRegister)) {
+    Location::Type locationType;
+    if (type == T_OBJECT) {
+      locationType = narrow_oop ? Location::narrowoop : Location::oop;
+    } else if (type == T_LONG) {
+      locationType = Location::lng;
+    } else if (type == T_INT || type == T_FLOAT || type == T_SHORT || type == T_CHAR || type == T_BYTE || type == T_BOOLEAN) {
+      locationType = Location::int_in_long;
+    } else {
+      JVMCI_ERROR_NULL("unexpected type %s in cpu register", basictype_to_str(type));
+    }
+    ScopeValue* value = new LocationValue(Location::new_reg_loc(locationType, hotspotRegister));
+    if (type == T_LONG) {
+      second = value;
+    }
+    return value;
+  } else {
+    Location::Type locationType;
+    if (type == T_FLOAT) {
+      // this seems weird, but the same value is used in c1_LinearScan
+      locationType = Location::normal;
+    } else if (type == T_DOUBLE) {
+      locationType = Location::dbl;
+    } else {
+      JVMCI_ERROR_NULL("unexpected type %s in floating point register", basictype_to_str(type));
+    }
+    ScopeValue* value = new LocationValue(Location::new_reg_loc(locationType, hotspotRegister));
+    if (type == T_DOUBLE) {
+      second = value;
+    }
+    return value;
+  }
+}
+
+ScopeValue* CodeInstaller::get_stack_slot_scope_value(jint offset, bool narrow_oop, BasicType type, ScopeValue* &second, JVMCI_TRAPS) {
+  Location::Type locationType;
+  if (type == T_OBJECT) {
+    locationType = narrow_oop ? Location::narrowoop : Location::oop;
+  } else if (type == T_LONG) {
+    locationType = Location::lng;
+  } else if (type == T_DOUBLE) {
+    locationType = Location::dbl;
+  } else if (type == T_INT || type == T_FLOAT || type == T_SHORT || type == T_CHAR || type == T_BYTE || type == T_BOOLEAN) {
+    locationType = Location::normal;
+  } else {
+    JVMCI_ERROR_NULL("unexpected type %s in stack slot", basictype_to_str(type));
+  }
+  ScopeValue* value = new LocationValue(Location::new_stk_loc(locationType, offset));
+  if (type == T_DOUBLE || type == T_LONG) {
+    second = value;
+  }
+  return value;
+}
+
+ScopeValue* CodeInstaller::get_primitive_constant_scope_value(BasicType constantType, jlong prim, BasicType type, ScopeValue* &second, JVMCI_TRAPS) {
+  if (type != constantType) {
+    JVMCI_ERROR_NULL("primitive constant type doesn't match, expected %s but got %s", basictype_to_str(type), basictype_to_str(constantType));
+  }
+  if (type == T_INT || type == T_FLOAT) {
+    switch ((jint) prim) {
+      case -1: return _int_m1_scope_value;
+      case  0: return _int_0_scope_value;
+      case  1: return _int_1_scope_value;
+      case  2: return _int_2_scope_value;
+      default: return new ConstantIntValue((jint) prim);
+    }
+  } else if (type == T_LONG || type == T_DOUBLE) {
+    second = _int_1_scope_value;
+    return new ConstantLongValue(prim);
+  } else {
+    JVMCI_ERROR_NULL("unexpected primitive constant type %s", basictype_to_str(type));
+  }
+}
+
+ScopeValue* CodeInstaller::get_virtual_object_scope_value(jint id, BasicType type, GrowableArray<ScopeValue*>* objects, JVMCI_TRAPS) {
+  if (type == T_OBJECT) {
+    if (objects != NULL && 0 <= id && id < objects->length()) {
+      ScopeValue* object = objects->at(id);
+      if (object != NULL) {
+        return object;
+      }
+    }
+    JVMCI_ERROR_NULL("unknown virtual object id %d", id);
+  } else {
+    JVMCI_ERROR_NULL("unexpected virtual object, expected %s", basictype_to_str(type));
+  }
+}
+
 ScopeValue* CodeInstaller::get_scope_value(JVMCIObject value, BasicType type, GrowableArray<ScopeValue*>* objects, ScopeValue* &second, JVMCI_TRAPS) {
   second = NULL;
   if (value.is_null()) {
@@ -292,62 +520,15 @@ ScopeValue* CodeInstaller::get_scope_value(JVMCIObject value, BasicType type, Gr
   } else if (jvmci_env()->isa_RegisterValue(value)) {
     JVMCIObject reg = jvmci_env()->get_RegisterValue_reg(value);
     jint number = jvmci_env()->get_code_Register_number(reg);
-    VMReg hotspotRegister = get_hotspot_reg(number, JVMCI_CHECK_NULL);
-    if (is_general_purpose_reg(hotspotRegister)) {
-      Location::Type locationType;
-      if (type == T_OBJECT) {
-        locationType = get_oop_type(value);
-      } else if (type == T_LONG) {
-        locationType = Location::lng;
-      } else if (type == T_INT || type == T_FLOAT || type == T_SHORT || type == T_CHAR || type == T_BYTE || type == T_BOOLEAN) {
-        locationType = Location::int_in_long;
-      } else {
-        JVMCI_ERROR_NULL("unexpected type %s in cpu register", basictype_to_str(type));
-      }
-      ScopeValue* value = new LocationValue(Location::new_reg_loc(locationType, hotspotRegister));
-      if (type == T_LONG) {
-        second = value;
-      }
-      return value;
-    } else {
-      Location::Type locationType;
-      if (type == T_FLOAT) {
-        // this seems weird, but the same value is used in c1_LinearScan
-        locationType = Location::normal;
-      } else if (type == T_DOUBLE) {
-        locationType = Location::dbl;
-      } else {
-        JVMCI_ERROR_NULL("unexpected type %s in floating point register", basictype_to_str(type));
-      }
-      ScopeValue* value = new LocationValue(Location::new_reg_loc(locationType, hotspotRegister));
-      if (type == T_DOUBLE) {
-        second = value;
-      }
-      return value;
-    }
+    bool narrow_oop = type == T_OBJECT && get_oop_type(value) == Location::narrowoop;
+    return get_register_scope_value(number, narrow_oop, type, second, JVMCIENV);
   } else if (jvmci_env()->isa_StackSlot(value)) {
     jint offset = jvmci_env()->get_StackSlot_offset(value);
     if (jvmci_env()->get_StackSlot_addFrameSize(value)) {
       offset += _total_frame_size;
     }
-
-    Location::Type locationType;
-    if (type == T_OBJECT) {
-      locationType = get_oop_type(value);
-    } else if (type == T_LONG) {
-      locationType = Location::lng;
-    } else if (type == T_DOUBLE) {
-      locationType = Location::dbl;
-    } else if (type == T_INT || type == T_FLOAT || type == T_SHORT || type == T_CHAR || type == T_BYTE || type == T_BOOLEAN) {
-      locationType = Location::normal;
-    } else {
-      JVMCI_ERROR_NULL("unexpected type %s in stack slot", basictype_to_str(type));
-    }
-    ScopeValue* value = new LocationValue(Location::new_stk_loc(locationType, offset));
-    if (type == T_DOUBLE || type == T_LONG) {
-      second = value;
-    }
-    return value;
+    bool narrow_oop = type == T_OBJECT && get_oop_type(value) == Location::narrowoop;
+    return get_stack_slot_scope_value(offset, narrow_oop, type, second, JVMCIENV);
   } else if (jvmci_env()->isa_JavaConstant(value)) {
     if (jvmci_env()->isa_PrimitiveConstant(value)) {
       if (jvmci_env()->isa_RawConstant(value)) {
@@ -355,25 +536,8 @@ ScopeValue* CodeInstaller::get_scope_value(JVMCIObject value, BasicType type, Gr
         return new ConstantLongValue(prim);
       } else {
         BasicType constantType = jvmci_env()->kindToBasicType(jvmci_env()->get_PrimitiveConstant_kind(value), JVMCI_CHECK_NULL);
-        if (type != constantType) {
-          JVMCI_ERROR_NULL("primitive constant type doesn't match, expected %s but got %s", basictype_to_str(type), basictype_to_str(constantType));
-        }
-        if (type == T_INT || type == T_FLOAT) {
-          jint prim = (jint)jvmci_env()->get_PrimitiveConstant_primitive(value);
-          switch (prim) {
-            case -1: return _int_m1_scope_value;
-            case  0: return _int_0_scope_value;
-            case  1: return _int_1_scope_value;
-            case  2: return _int_2_scope_value;
-            default: return new ConstantIntValue(prim);
-          }
-        } else if (type == T_LONG || type == T_DOUBLE) {
-          jlong prim = jvmci_env()->get_PrimitiveConstant_primitive(value);
-          second = _int_1_scope_value;
-          return new ConstantLongValue(prim);
-        } else {
-          JVMCI_ERROR_NULL("unexpected primitive constant type %s", basictype_to_str(type));
-        }
+        jlong prim = jvmci_env()->get_PrimitiveConstant_primitive(value);
+        return get_primitive_constant_scope_value(constantType, prim, type, second, JVMCIENV);
       }
     } else if (jvmci_env()->isa_NullConstant(value) || jvmci_env()->isa_HotSpotCompressedNullConstant(value)) {
       if (type == T_OBJECT) {
@@ -393,26 +557,77 @@ ScopeValue* CodeInstaller::get_scope_value(JVMCIObject value, BasicType type, Gr
       }
     }
   } else if (jvmci_env()->isa_VirtualObject(value)) {
-    if (type == T_OBJECT) {
-      int id = jvmci_env()->get_VirtualObject_id(value);
-      if (0 <= id && id < objects->length()) {
-        ScopeValue* object = objects->at(id);
-        if (object != NULL) {
-          return object;
+    int id = jvmci_env()->get_VirtualObject_id(value);
+    return get_virtual_object_scope_value(id, type, objects, JVMCIENV);
+  }
+
+  JVMCI_ERROR_NULL("unexpected value in scope: %s", jvmci_env()->klass_name(value))
+}
+
+ScopeValue* CodeInstaller::get_scope_value(DebugInfoStream* stream, BasicType type, GrowableArray<ScopeValue*>* objects, ScopeValue* &second, JVMCI_TRAPS) {
+  u1 tag = stream->read_u1(JVMCI_CHECK_NULL);
+  return get_scope_value(stream, tag, type, objects, second, JVMCIENV);
+}
+
+ScopeValue* CodeInstaller::get_scope_value(DebugInfoStream* stream, u1 tag, BasicType type, GrowableArray<ScopeValue*>* objects, ScopeValue* &second, JVMCI_TRAPS) {
+  second = NULL;
+  switch (tag) {
+    case DebugInfoStream::ILLEGAL: {
+      if (type != T_ILLEGAL) {
+        JVMCI_ERROR_NULL("unexpected illegal value, expected %s", basictype_to_str(type));
+      }
+      return _illegal_value;
+    }
+    case DebugInfoStream::REGISTER:
+    case DebugInfoStream::REGISTER_NARROW: {
+      jint number = stream->read_unsigned(JVMCI_CHECK_NULL);
+      return get_register_scope_value(number, tag == DebugInfoStream::REGISTER_NARROW, type, second, JVMCIENV);
+    }
+    case DebugInfoStream::STACK_SLOT:
+    case DebugInfoStream::STACK_SLOT_NARROW: {
+      // the offset already includes the frame size if needed
+      jint offset = stream->read_signed(JVMCI_CHECK_NULL);
+      return get_stack_slot_scope_value(offset, tag == DebugInfoStream::STACK_SLOT_NARROW, type, second, JVMCIENV);
+    }
+    case DebugInfoStream::NULL_CONSTANT: {
+      if (type == T_OBJECT) {
+        return _oop_null_scope_value;
+      } else {
+        JVMCI_ERROR_NULL("unexpected null constant, expected %s", basictype_to_str(type));
+      }
+    }
+    case DebugInfoStream::RAW_CONSTANT: {
+      jlong prim = stream->read_signed_long(JVMCI_CHECK_NULL);
+      return new ConstantLongValue(prim);
+    }
+    case DebugInfoStream::PRIMITIVE_CONSTANT: {
+      BasicType constantType = stream->read_basic_type(JVMCI_CHECK_NULL);
+      jlong prim = stream->read_signed_long(JVMCI_CHECK_NULL);
+      return get_primitive_constant_scope_value(constantType, prim, type, second, JVMCIENV);
+    }
+    case DebugInfoStream::OBJECT_CONSTANT: {
+      JVMCIObject constant = stream->read_object(JVMCI_CHECK_NULL);
+      if (type == T_OBJECT) {
+        Handle obj = jvmci_env()->asConstant(constant, JVMCI_CHECK_NULL);
+        if (obj == NULL) {
+          JVMCI_ERROR_NULL("null value must be in NullConstant");
         }
+        return new ConstantOopWriteValue(JNIHandles::make_local(obj()));
+      } else {
+        JVMCI_ERROR_NULL("unexpected object constant, expected %s", basictype_to_str(type));
       }
-      JVMCI_ERROR_NULL("unknown virtual object id %d", id);
-    } else {
-      JVMCI_ERROR_NULL("unexpected virtual object, expected %s", basictype_to_str(type));
     }
+    case DebugInfoStream::VIRTUAL_OBJECT: {
+      jint id = stream->read_signed(JVMCI_CHECK_NULL);
+      return get_virtual_object_scope_value(id, type, objects, JVMCIENV);
+    }
+    default:
+      JVMCI_ERROR_NULL("unexpected value tag %d in debug info stream", tag);
   }
-
-  JVMCI_ERROR_NULL("unexpected value in scope: %s", jvmci_env()->klass_name(value))
 }
 
 void CodeInstaller::record_object_value(ObjectValue* sv, JVMCIObject value, GrowableArray<ScopeValue*>* objects, JVMCI_TRAPS) {
   JVMCIObject type = jvmci_env()->get_VirtualObject_type(value);
-  int id = jvmci_env()->get_VirtualObject_id(value);
   Klass* klass = JVMCIENV->asKlass(type);
   bool isLongArray = klass == Universe::longArrayKlassObj();
   bool isByteArray = klass == Universe::byteArrayKlassObj();
@@ -423,44 +638,67 @@ void CodeInstaller::record_object_value(ObjectValue* sv, JVMCIObject value, Grow
     ScopeValue* cur_second = NULL;
     JVMCIObject object = JVMCIENV->get_object_at(values, i);
     BasicType type = jvmci_env()->kindToBasicType(JVMCIENV->get_object_at(slotKinds, i), JVMCI_CHECK);
-    ScopeValue* value;
-    if (JVMCIENV->equals(object, jvmci_env()->get_Value_ILLEGAL())) {
-      // no value needs to be written
-      if (isByteArray && type == T_ILLEGAL) {
-        /*
-         * The difference between a virtualized large access and a deferred write is the kind stored in the slotKinds
-         * of the virtual object: in the virtualization case, the kind is illegal, in the deferred write case, the kind
-         * is access stack kind (an int).
-         */
-        value = _virtual_byte_array_marker;
-      } else {
-        value = _illegal_value;
-        if (type == T_DOUBLE || type == T_LONG) {
-            cur_second = _illegal_value;
-        }
-      }
-    } else {
+    ScopeValue* value = NULL;
+    if (!JVMCIENV->equals(object, jvmci_env()->get_Value_ILLEGAL())) {
       value = get_scope_value(object, type, objects, cur_second, JVMCI_CHECK);
     }
+    append_object_field(sv, value, cur_second, type, isLongArray, isByteArray);
+  }
+}
 
-    if (isLongArray && cur_second == NULL) {
-      // we're trying to put ints into a long array... this isn't really valid, but it's used for some optimizations.
-      // add an int 0 constant
-      cur_second = _int_0_scope_value;
-    }
+void CodeInstaller::record_object_value(ObjectValue* sv, Klass* klass, DebugInfoStream* stream, GrowableArray<ScopeValue*>* objects, JVMCI_TRAPS) {
+  bool isLongArray = klass == Universe::longArrayKlassObj();
+  bool isByteArray = klass == Universe::byteArrayKlassObj();
 
-    if (isByteArray && cur_second != NULL && (type == T_DOUBLE || type == T_LONG)) {
-      // we are trying to write a long in a byte Array. We will need to count the marked entries to restore the type of
-      // the thing we put inside.
-      cur_second = NULL;
+  jint length = stream->read_unsigned(JVMCI_CHECK);
+  for (jint i = 0; i < length; i++) {
+    ScopeValue* cur_second = NULL;
+    BasicType type = stream->read_basic_type(JVMCI_CHECK);
+    u1 tag = stream->read_u1(JVMCI_CHECK);
+    ScopeValue* value = NULL;
+    if (tag != DebugInfoStream::ILLEGAL) {
+      value = get_scope_value(stream, tag, type, objects, cur_second, JVMCI_CHECK);
     }
+    append_object_field(sv, value, cur_second, type, isLongArray, isByteArray);
+  }
+}
 
-    if (cur_second != NULL) {
-      sv->field_values()->append(cur_second);
+// Appends a field value of a virtual object. A NULL value denotes Value.ILLEGAL.
+void CodeInstaller::append_object_field(ObjectValue* sv, ScopeValue* value, ScopeValue* cur_second, BasicType type, bool isLongArray, bool isByteArray) {
+  if (value == NULL) {
+    // no value needs to be written
+    if (isByteArray && type == T_ILLEGAL) {
+      /*
+       * The difference between a virtualized large access and a deferred write is the kind stored in the slotKinds
+       * of the virtual object: in the virtualization case, the kind is illegal, in the deferred write case, the kind
+       * is access stack kind (an int).
+       */
+      value = _virtual_byte_array_marker;
+    } else {
+      value = _illegal_value;
+      if (type == T_DOUBLE || type == T_LONG) {
+          cur_second = _illegal_value;
+      }
     }
-    assert(value != NULL, "missing value");
-    sv->field_values()->append(value);
   }
+
+  if (isLongArray && cur_second == NULL) {
+    // we're trying to put ints into a long array... this isn't really valid, but it's used for some optimizations.
+    // add an int 0 constant
+    cur_second = _int_0_scope_value;
+  }
+
+  if (isByteArray && cur_second != NULL && (type == T_DOUBLE || type == T_LONG)) {
+    // we are trying to write a long in a byte Array. We will need to count the marked entries to restore the type of
+    // the thing we put inside.
+    cur_second = NULL;
+  }
+
+  if (cur_second != NULL) {
+    sv->field_values()->append(cur_second);
+  }
+  assert(value != NULL, "missing value");
+  sv->field_values()->append(value);
 }
 
 MonitorValue* CodeInstaller::get_monitor_value(JVMCIObject value, GrowableArray<ScopeValue*>* objects, JVMCI_TRAPS) {
@@ -488,6 +726,22 @@ MonitorValue* CodeInstaller::get_monitor_value(JVMCIObject value, GrowableArray<
   return new MonitorValue(owner_value, lock_data_loc, eliminated);
 }
 
+MonitorValue* CodeInstaller::get_monitor_value(DebugInfoStream* stream, GrowableArray<ScopeValue*>* objects, JVMCI_TRAPS) {
+  ScopeValue* second = NULL;
+  ScopeValue* owner_value = get_scope_value(stream, T_OBJECT, objects, second, JVMCI_CHECK_NULL);
+  assert(second == NULL, "monitor cannot occupy two stack slots");
+
+  ScopeValue* lock_data_value = get_scope_value(stream, T_LONG, objects, second, JVMCI_CHECK_NULL);
+  assert(second == lock_data_value, "monitor is LONG value that occupies two stack slots");
+  if (!lock_data_value->is_location()) {
+    JVMCI_ERROR_NULL("invalid monitor location");
+  }
+  Location lock_data_loc = ((LocationValue*)lock_data_value)->location();
+
+  bool eliminated = stream->read_bool(JVMCI_CHECK_NULL);
+  return new MonitorValue(owner_value, lock_data_loc, eliminated);
+}
+
 void CodeInstaller::initialize_dependencies(JVMCIObject compiled_code, OopRecorder* oop_recorder, JVMCI_TRAPS) {
   JavaThread* thread = JavaThread::current();
   CompilerThread* compilerThread = thread->is_Compiler_thread() ? thread->as_CompilerThread() : NULL;
@@ -601,8 +855,18 @@ JVMCI::CodeInstallResult CodeInstaller::install(JVMCICompiler* compiler,
     FailedSpeculation** failed_speculations,
     char* speculations,
     int speculations_len,
+    JVMCIPrimitiveArray debug_info,
+    JVMCIObjectArray debug_info_objects,
     JVMCI_TRAPS) {
 
+  if (debug_info.is_non_null()) {
+    int debug_info_len = JVMCIENV->get_length(debug_info);
+    u1* debug_info_bytes = NEW_RESOURCE_ARRAY(u1, debug_info_len);
+    JVMCIENV->copy_bytes_to(debug_info, (jbyte*) debug_info_bytes, 0, debug_info_len);
+    _debug_info_stream = new DebugInfoStream(debug_info_bytes, debug_info_len, debug_info_objects);
+    _debug_info_stream->check_header(JVMCI_CHECK_OK);
+  }
+
   CodeBuffer buffer("JVMCI Compiler CodeBuffer");
   OopRecorder* recorder = new OopRecorder(&_arena, true);
   initialize_dependencies(compiled_code, recorder, JVMCI_CHECK_OK);
@@ -917,6 +1181,9 @@ JVMCI::CodeInstallResult CodeInstaller::initialize_buffer(CodeBuffer& buffer, bo
       ThreadToNativeFromVM ttnfv(thread);
     }
   }
+  if (_debug_info_stream != NULL && !_debug_info_stream->at_end()) {
+    JVMCI_ERROR_OK("debug info stream has unread data");
+  }
 
 #ifndef PRODUCT
   if (comments().is_non_null()) {
@@ -1194,7 +1461,151 @@ void CodeInstaller::record_scope(jint pc_offset, JVMCIObject position, ScopeMode
                                   locals_token, expressions_token, monitors_token);
 }
 
+GrowableArray<ScopeValue*>* CodeInstaller::record_virtual_objects(DebugInfoStream* stream, JVMCI_TRAPS) {
+  // the count is biased by one so that 0 denotes a null virtual object mapping
+  jint biased_length = stream->read_unsigned(JVMCI_CHECK_NULL);
+  if (biased_length == 0) {
+    return NULL;
+  }
+  int length = biased_length - 1;
+  GrowableArray<ScopeValue*>* objects = new GrowableArray<ScopeValue*>(length, length, NULL);
+  int* ids = NEW_RESOURCE_ARRAY(int, length);
+  Klass** klasses = NEW_RESOURCE_ARRAY(Klass*, length);
+  // Create the unique ObjectValues
+  for (int i = 0; i < length; i++) {
+    int id = stream->read_signed(JVMCI_CHECK_NULL);
+    Klass* klass = stream->read_klass(JVMCI_CHECK_NULL);
+    bool is_auto_box = stream->read_bool(JVMCI_CHECK_NULL);
+    if (is_auto_box) {
+      _has_auto_box = true;
+    }
+    ScopeValue* baseObjectValue;
+    if (!stream->read_bool(JVMCI_CHECK_NULL)) {
+      baseObjectValue = _oop_null_scope_value;
+    } else {
+      ScopeValue* second = NULL;
+      baseObjectValue = get_scope_value(stream, T_OBJECT, objects, second, JVMCI_CHECK_NULL);
+    }
+    oop javaMirror = klass->java_mirror();
+    ScopeValue *klass_sv = new ConstantOopWriteValue(JNIHandles::make_local(Thread::current(), javaMirror));
+    ObjectValue* sv = is_auto_box ? new AutoBoxObjectValue(id, klass_sv, baseObjectValue) : new ObjectValue(id, klass_sv, baseObjectValue);
+    if (id < 0 || id >= objects->length()) {
+      JVMCI_ERROR_NULL("virtual object id %d out of bounds", id);
+    }
+    if (objects->at(id) != NULL) {
+      JVMCI_ERROR_NULL("duplicate virtual object id %d", id);
+    }
+    objects->at_put(id, sv);
+    ids[i] = id;
+    klasses[i] = klass;
+  }
+  // All the values which could be referenced by the VirtualObjects
+  // exist, so now describe all the VirtualObjects themselves.
+  for (int i = 0; i < length; i++) {
+    record_object_value(objects->at(ids[i])->as_ObjectValue(), klasses[i], stream, objects, JVMCI_CHECK_NULL);
+  }
+  _debug_recorder->dump_object_pool(objects);
+
+  return objects;
+}
+
+void CodeInstaller::record_scope(jint pc_offset, DebugInfoStream* stream, ScopeMode scope_mode, bool is_mh_invoke, bool return_oop, JVMCI_TRAPS) {
+  if (!stream->read_bool(JVMCI_CHECK)) {
+    // Stubs do not record scope info, just oop maps
+    return;
+  }
+
+  GrowableArray<ScopeValue*>* objectMapping;
+  if (scope_mode == CodeInstaller::FullFrame) {
+    objectMapping = record_virtual_objects(stream, JVMCI_CHECK);
+  } else {
+    objectMapping = NULL;
+  }
+  // The frames are encoded starting with the outermost caller
+  jint depth = stream->read_unsigned(JVMCI_CHECK);
+  for (jint i = 0; i < depth; i++) {
+    record_frame(pc_offset, stream, scope_mode, objectMapping, is_mh_invoke, return_oop, JVMCI_CHECK);
+  }
+}
+
+void CodeInstaller::record_frame(jint pc_offset, DebugInfoStream* stream, ScopeMode scope_mode, GrowableArray<ScopeValue*>* objects, bool is_mh_invoke, bool return_oop, JVMCI_TRAPS) {
+  Method* method = stream->read_method(JVMCI_CHECK);
+  jint bci = map_jvmci_bci(stream->read_signed(JVMCI_CHECK));
+  if (bci == jvmci_env()->get_BytecodeFrame_BEFORE_BCI()) {
+    bci = SynchronizationEntryBCI;
+  }
+
+  JVMCI_event_2("Recording scope pc_offset=%d bci=%d method=%s", pc_offset, bci, method->name_and_sig_as_C_string());
+
+  bool reexecute = false;
+  DebugToken* locals_token = NULL;
+  DebugToken* expressions_token = NULL;
+  DebugToken* monitors_token = NULL;
+  bool throw_exception = false;
+
+  if (scope_mode == CodeInstaller::FullFrame) {
+    bool during_call = stream->read_bool(JVMCI_CHECK);
+    throw_exception = stream->read_bool(JVMCI_CHECK);
+    if (bci >= 0) {
+      reexecute = !during_call;
+    }
+
+    jint local_count = stream->read_unsigned(JVMCI_CHECK);
+    jint expression_count = stream->read_unsigned(JVMCI_CHECK);
+    jint monitor_count = stream->read_unsigned(JVMCI_CHECK);
+
+    GrowableArray<ScopeValue*>* locals = local_count > 0 ? new GrowableArray<ScopeValue*> (local_count) : NULL;
+    GrowableArray<ScopeValue*>* expressions = expression_count > 0 ? new GrowableArray<ScopeValue*> (expression_count) : NULL;
+    GrowableArray<MonitorValue*>* monitors = monitor_count > 0 ? new GrowableArray<MonitorValue*> (monitor_count) : NULL;
+
+    JVMCI_event_2("%d locals %d expressions, %d monitors", local_count, expression_count, monitor_count);
+
+    jint slot_count = local_count + expression_count;
+    for (jint i = 0; i < slot_count; i++) {
+      ScopeValue* second = NULL;
+      BasicType type = stream->read_basic_type(JVMCI_CHECK);
+      ScopeValue* first = get_scope_value(stream, type, objects, second, JVMCI_CHECK);
+      GrowableArray<ScopeValue*>* values = i < local_count ? locals : expressions;
+      if (second != NULL) {
+        values->append(second);
+      }
+      values->append(first);
+      if (second != NULL) {
+        i++;
+        if (i >= slot_count) {
+          JVMCI_ERROR("double-slot value not followed by Value.ILLEGAL");
+        }
+        stream->read_basic_type(JVMCI_CHECK);
+        if (stream->read_u1(JVMCI_CHECK) != DebugInfoStream::ILLEGAL) {
+          JVMCI_ERROR("double-slot value not followed by Value.ILLEGAL");
+        }
+      }
+    }
+    for (jint i = 0; i < monitor_count; i++) {
+      MonitorValue *monitor = get_monitor_value(stream, objects, JVMCI_CHECK);
+      monitors->append(monitor);
+    }
+
+    locals_token = _debug_recorder->create_scope_values(locals);
+    expressions_token = _debug_recorder->create_scope_values(expressions);
+    monitors_token = _debug_recorder->create_monitor_values(monitors);
+  }
+
+  _debug_recorder->describe_scope(pc_offset, method, NULL, bci, reexecute, throw_exception, is_mh_invoke, return_oop,
+                                  locals_token, expressions_token, monitors_token);
+}
+
 void CodeInstaller::site_Safepoint(CodeBuffer& buffer, jint pc_offset, JVMCIObject site, JVMCI_TRAPS) {
+  if (_debug_info_stream != NULL) {
+    if (!_debug_info_stream->read_bool(JVMCI_CHECK)) {
+      JVMCI_ERROR("debug info expected at safepoint at %i", pc_offset);
+    }
+    OopMap *map = create_oop_map(_debug_info_stream, JVMCI_CHECK);
+    _debug_recorder->add_safepoint(pc_offset, map);
+    record_scope(pc_offset, _debug_info_stream, CodeInstaller::FullFrame, false /* is_mh_invoke */, false /* return_oop */, JVMCI_CHECK);
+    _debug_recorder->end_safepoint(pc_offset);
+    return;
+  }
   JVMCIObject debug_info = jvmci_env()->get_site_Infopoint_debugInfo(site);
   if (debug_info.is_null()) {
     JVMCI_ERROR("debug info expected at safepoint at %i", pc_offset);
@@ -1209,9 +1620,16 @@ void CodeInstaller::site_Safepoint(CodeBuffer& buffer, jint pc_offset, JVMCIObje
 }
 
 void CodeInstaller::site_Infopoint(CodeBuffer& buffer, jint pc_offset, JVMCIObject site, JVMCI_TRAPS) {
-  JVMCIObject debug_info = jvmci_env()->get_site_Infopoint_debugInfo(site);
-  if (debug_info.is_null()) {
-    JVMCI_ERROR("debug info expected at infopoint at %i", pc_offset);
+  JVMCIObject debug_info;
+  if (_debug_info_stream != NULL) {
+    if (!_debug_info_stream->read_bool(JVMCI_CHECK)) {
+      JVMCI_ERROR("debug info expected at infopoint at %i", pc_offset);
+    }
+  } else {
+    debug_info = jvmci_env()->get_site_Infopoint_debugInfo(site);
+    if (debug_info.is_null()) {
+      JVMCI_ERROR("debug info expected at infopoint at %i", pc_offset);
+    }
   }
 
   // We'd like to check that pc_offset is greater than the
@@ -1219,7 +1637,11 @@ void CodeInstaller::site_Infopoint(CodeBuffer& buffer, jint pc_offset, JVMCIObje
   // but DebugInformationRecorder doesn't have sufficient public API.
 
   _debug_recorder->add_non_safepoint(pc_offset);
-  record_scope(pc_offset, debug_info, CodeInstaller::BytecodePosition, JVMCI_CHECK);
+  if (_debug_info_stream != NULL) {
+    record_scope(pc_offset, _debug_info_stream, CodeInstaller::BytecodePosition, false /* is_mh_invoke */, false /* return_oop */, JVMCI_CHECK);
+  } else {
+    record_scope(pc_offset, debug_info, CodeInstaller::BytecodePosition, JVMCI_CHECK);
+  }
   _debug_recorder->end_non_safepoint(pc_offset);
 }
 
@@ -1234,15 +1656,27 @@ void CodeInstaller::site_Call(CodeBuffer& buffer, jint pc_offset, JVMCIObject si
     hotspot_method = target;
   }
 
-  JVMCIObject debug_info = jvmci_env()->get_site_Infopoint_debugInfo(site);
+  JVMCIObject debug_info;
+  bool has_debug_info;
+  if (_debug_info_stream != NULL) {
+    has_debug_info = _debug_info_stream->read_bool(JVMCI_CHECK);
+  } else {
+    debug_info = jvmci_env()->get_site_Infopoint_debugInfo(site);
+    has_debug_info = debug_info.is_non_null();
+  }
 
   assert(hotspot_method.is_non_null() ^ foreign_call.is_non_null(), "Call site needs exactly one type");
 
   NativeInstruction* inst = nativeInstruction_at(_instructions->start() + pc_offset);
   jint next_pc_offset = CodeInstaller::pd_next_offset(inst, pc_offset, hotspot_method, JVMCI_CHECK);
 
-  if (debug_info.is_non_null()) {
-    OopMap *map = create_oop_map(debug_info, JVMCI_CHECK);
+  if (has_debug_info) {
+    OopMap *map;
+    if (_debug_info_stream != NULL) {
+      map = create_oop_map(_debug_info_stream, JVMCI_CHECK);
+    } else {
+      map = create_oop_map(debug_info, JVMCI_CHECK);
+    }
     _debug_recorder->add_safepoint(next_pc_offset, map);;
 
     if (hotspot_method.is_non_null()) {
@@ -1254,7 +1688,13 @@ void CodeInstaller::site_Call(CodeBuffer& buffer, jint pc_offset, JVMCIObject si
                 (MethodHandles::is_signature_polymorphic(iid) && MethodHandles::is_signature_polymorphic_intrinsic(iid)));
       }
       bool return_oop = method->is_returning_oop();
-      record_scope(next_pc_offset, debug_info, CodeInstaller::FullFrame, is_mh_invoke, return_oop, JVMCI_CHECK);
+      if (_debug_info_stream != NULL) {
+        record_scope(next_pc_offset, _debug_info_stream, CodeInstaller::FullFrame, is_mh_invoke, return_oop, JVMCI_CHECK);
+      } else {
+        record_scope(next_pc_offset, debug_info, CodeInstaller::FullFrame, is_mh_invoke, return_oop, JVMCI_CHECK);
+      }
+    } else if (_debug_info_stream != NULL) {
+      record_scope(next_pc_offset, _debug_info_stream, CodeInstaller::FullFrame, false /* is_mh_invoke */, false /* return_oop */, JVMCI_CHECK);
     } else {
       record_scope(next_pc_offset, debug_info, CodeInstaller::FullFrame, JVMCI_CHECK);
     }
@@ -1268,7 +1708,7 @@ void CodeInstaller::site_Call(CodeBuffer& buffer, jint pc_offset, JVMCIObject si
     }
     CodeInstaller::pd_relocate_ForeignCall(inst, foreign_call_destination, JVMCI_CHECK);
   } else { // method != NULL
-    if (debug_info.is_null()) {
+    if (!has_debug_info) {
       JVMCI_ERROR("debug info expected at call at %i", pc_offset);
     }
 
@@ -1286,7 +1726,7 @@ void CodeInstaller::site_Call(CodeBuffer& buffer, jint pc_offset, JVMCIObject si
 
   _next_call_type = INVOKE_INVALID;
 
-  if (debug_info.is_non_null()) {
+  if (has_debug_info) {
     _debug_recorder->end_safepoint(next_pc_offset);
   }
 }
@@ -120,6 +120,64 @@ private:
 };
 #endif // INCLUDE_AOT
 
+/*
+ * Reads the debug info encoded by HotSpotCompiledCodeStream.java. Integers are
+ * unsigned LEB128 values, with signed values zig-zag encoded.
+ */
+class DebugInfoStream : public ResourceObj {
+ public:
+  // Keep in sync with HotSpotCompiledCodeStream.java
+  enum {
+    MAGIC   = 0x4A564349,
+    VERSION = 1
+  };
+
+  enum ValueTag {
+    ILLEGAL,
+    REGISTER,
+    REGISTER_NARROW,
+    STACK_SLOT,
+    STACK_SLOT_NARROW,
+    NULL_CONSTANT,
+    RAW_CONSTANT,
+    PRIMITIVE_CONSTANT,
+    OBJECT_CONSTANT,
+    VIRTUAL_OBJECT
+  };
+
+  enum LocationTag {
+    LOCATION_NONE,
+    LOCATION_REGISTER,
+    LOCATION_STACK
+  };
+
+ private:
+  const u1*        _buffer;
+  int              _size;
+  int              _position;
+  JVMCIObjectArray _objects;
+
+ public:
+  DebugInfoStream(const u1* buffer, int size, JVMCIObjectArray objects) :
+    _buffer(buffer), _size(size), _position(0), _objects(objects) {}
+
+  bool at_end() const { return _position == _size; }
+
+  void check_header(JVMCI_TRAPS);
+
+  u1 read_u1(JVMCI_TRAPS);
+  bool read_bool(JVMCI_TRAPS) { return read_u1(JVMCIENV) != 0; }
+  julong read_unsigned_long(JVMCI_TRAPS);
+  jint read_unsigned(JVMCI_TRAPS);
+  jint read_signed(JVMCI_TRAPS);
+  jlong read_signed_long(JVMCI_TRAPS);
+
+  BasicType read_basic_type(JVMCI_TRAPS);
+  Method* read_method(JVMCI_TRAPS);
+  Klass* read_klass(JVMCI_TRAPS);
+  JVMCIObject read_object(JVMCI_TRAPS);
+};
+
 /*
  * This class handles the conversion from a InstalledCode to a CodeBlob or an nmethod.
  */
@@ -168,6 +226,9 @@ private:
   JVMCIPrimitiveArray    _code_handle;
   JVMCIObject            _word_kind_handle;
 
+  // Debug info of the Infopoint sites if it was passed in encoded form, NULL otherwise
+  DebugInfoStream*       _debug_info_stream;
+
   CodeOffsets   _offsets;
 
   jint          _code_size;
@@ -223,6 +284,7 @@ public:
   CodeInstaller(JVMCIEnv* jvmci_env, bool immutable_pic_compilation) :
     _arena(mtJVMCI),
     _jvmci_env(jvmci_env),
+    _debug_info_stream(NULL),
     _has_auto_box(false),
     _immutable_pic_compilation(immutable_pic_compilation) {}
 
@@ -237,6 +299,8 @@ public:
                                    FailedSpeculation** failed_speculations,
                                    char* speculations,
                                    int speculations_len,
+                                   JVMCIPrimitiveArray debug_info,
+                                   JVMCIObjectArray debug_info_objects,
                                    JVMCI_TRAPS);
 
   JVMCIEnv* jvmci_env() { return _jvmci_env; }
@@ -253,6 +317,17 @@ protected:
   ScopeValue* get_scope_value(JVMCIObject value, BasicType type, GrowableArray<ScopeValue*>* objects, ScopeValue* &second, JVMCI_TRAPS);
   MonitorValue* get_monitor_value(JVMCIObject value, GrowableArray<ScopeValue*>* objects, JVMCI_TRAPS);
 
+  ScopeValue* get_scope_value(DebugInfoStream* stream, BasicType type, GrowableArray<ScopeValue*>* objects, ScopeValue* &second, JVMCI_TRAPS);
+  ScopeValue* get_scope_value(DebugInfoStream* stream, u1 tag, BasicType type, GrowableArray<ScopeValue*>* objects, ScopeValue* &second, JVMCI_TRAPS);
+  MonitorValue* get_monitor_value(DebugInfoStream* stream, GrowableArray<ScopeValue*>* objects, JVMCI_TRAPS);
+
+  // helpers shared by the object graph and the DebugInfoStream decoders
+  ScopeValue* get_register_scope_value(jint number, bool narrow_oop, BasicType type, ScopeValue* &second, JVMCI_TRAPS);
+  ScopeValue* get_stack_slot_scope_value(jint offset, bool narrow_oop, BasicType type, ScopeValue* &second, JVMCI_TRAPS);
+  ScopeValue* get_primitive_constant_scope_value(BasicType constant_type, jlong prim, BasicType type, ScopeValue* &second, JVMCI_TRAPS);
+  ScopeValue* get_virtual_object_scope_value(jint id, BasicType type, GrowableArray<ScopeValue*>* objects, JVMCI_TRAPS);
+  void append_object_field(ObjectValue* sv, ScopeValue* value, ScopeValue* second, BasicType type, bool is_long_array, bool is_byte_array);
+
   void* record_metadata_reference(CodeSection* section, address dest, JVMCIObject constant, JVMCI_TRAPS);
 #ifdef _LP64
   narrowKlass record_narrow_metadata_reference(CodeSection* section, address dest, JVMCIObject constant, JVMCI_TRAPS);
@@ -281,8 +356,14 @@ protected:
   void site_ExceptionHandler(jint pc_offset, JVMCIObject site);
 
   OopMap* create_oop_map(JVMCIObject debug_info, JVMCI_TRAPS);
+  OopMap* create_oop_map(DebugInfoStream* stream, JVMCI_TRAPS);
+  void check_max_register_size(jint max_register_size, JVMCI_TRAPS);
+  void set_oop(OopMap* map, VMReg vmReg, VMReg baseReg, bool is_derived, jint bytes, JVMCI_TRAPS);
+  void set_callee_saved(OopMap* map, jint jvmci_reg_number, jint jvmci_slot, JVMCI_TRAPS);
 
   VMReg getVMRegFromLocation(JVMCIObject location, int total_frame_size, JVMCI_TRAPS);
+  VMReg getVMRegFromLocation(DebugInfoStream* stream, bool& is_present, JVMCI_TRAPS);
+  VMReg get_vmreg(bool is_register, jint reg_number, jint offset, JVMCI_TRAPS);
 
   /**
    * Specifies the level of detail to record for a scope.
@@ -305,6 +386,11 @@ protected:
 
   GrowableArray<ScopeValue*>* record_virtual_objects(JVMCIObject debug_info, JVMCI_TRAPS);
 
+  void record_scope(jint pc_offset, DebugInfoStream* stream, ScopeMode scope_mode, bool is_mh_invoke, bool return_oop, JVMCI_TRAPS);
+  void record_frame(jint pc_offset, DebugInfoStream* stream, ScopeMode scope_mode, GrowableArray<ScopeValue*>* objects, bool is_mh_invoke, bool return_oop, JVMCI_TRAPS);
+  void record_object_value(ObjectValue* sv, Klass* klass, DebugInfoStream* stream, GrowableArray<ScopeValue*>* objects, JVMCI_TRAPS);
+  GrowableArray<ScopeValue*>* record_virtual_objects(DebugInfoStream* stream, JVMCI_TRAPS);
+
   int estimateStubSpace(int static_call_stubs);
 };
 
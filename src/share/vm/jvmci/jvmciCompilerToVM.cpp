@@ -45,6 +45,11 @@
 #include "runtime/frame.inline.hpp"
 #include "runtime/interfaceSupport.hpp"
 #include "runtime/jniHandles.hpp"
+#include "runtime/orderAccess.inline.hpp"
+#include "runtime/perfData.hpp"
+#include "runtime/task.hpp"
+#include "runtime/thread.inline.hpp"
+#include "runtime/threadCritical.hpp"
 #include "runtime/vframe_hp.hpp"
 
 JVMCIKlassHandle::JVMCIKlassHandle(Thread* thread, Klass* klass) {
@@ -104,6 +109,60 @@ class JVMCITraceMark : public StackObj {
   }
 };
 
+// Number of calls to and time spent in a CompilerToVM native method. Counters
+// are statically allocated per entry point and linked into a global list the
+// first time they are updated.
+struct JVMCICallCounter {
+  const char*                _name;
+  volatile jlong             _count;
+  volatile jlong             _nanos;
+  volatile jlong             _max_nanos;
+  JVMCICallCounter* volatile _next;
+  volatile jint              _registered;
+
+  static JVMCICallCounter* volatile _head;
+
+  void record(jlong nanos) {
+    if (_registered == 0 && Atomic::cmpxchg(1, &_registered, 0) == 0) {
+      JVMCICallCounter* head;
+      do {
+        head = _head;
+        _next = head;
+      } while (Atomic::cmpxchg_ptr(this, &_head, head) != head);
+    }
+    Atomic::add((jlong) 1, &_count);
+    Atomic::add(nanos, &_nanos);
+    jlong max = Atomic::load(&_max_nanos);
+    while (nanos > max) {
+      jlong witness = Atomic::cmpxchg(nanos, &_max_nanos, max);
+      if (witness == max) {
+        break;
+      }
+      max = witness;
+    }
+  }
+};
+
+JVMCICallCounter* volatile JVMCICallCounter::_head = NULL;
+
+class JVMCICallCounterMark : public StackObj {
+  JVMCICallCounter* _counter;
+  jlong _start;
+ public:
+  JVMCICallCounterMark(JVMCICallCounter* counter) {
+    if (JVMCICountCompilerToVMCalls) {
+      _counter = counter;
+      _start = os::javaTimeNanos();
+    } else {
+      _counter = NULL;
+    }
+  }
+  ~JVMCICallCounterMark() {
+    if (_counter != NULL) {
+      _counter->record(os::javaTimeNanos() - _start);
+    }
+  }
+};
 
 Handle JavaArgumentUnboxer::next_arg(BasicType expectedType) {
   assert(_index < _args->length(), "out of bounds");
@@ -143,6 +202,7 @@ static JavaThread* get_current_thread(bool allow_null=true) {
 // Entry to native method implementation that transitions
 // current thread to '_thread_in_vm'.
 #define C2V_VMENTRY(result_type, name, signature)        \
+  static JVMCICallCounter c2v_counter_ ## name = { #name, 0, 0, 0, NULL, 0 }; \
   JNIEXPORT result_type JNICALL c2v_ ## name signature { \
   JavaThread* thread = get_current_thread();             \
   if (thread == NULL) {                                  \
@@ -151,9 +211,11 @@ static JavaThread* get_current_thread(bool allow_null=true) {
     return;                                              \
   }                                                      \
   JVMCITraceMark jtm("CompilerToVM::" #name);            \
+  JVMCICallCounterMark jccm(&c2v_counter_ ## name);      \
   C2V_BLOCK(result_type, name, signature)
 
 #define C2V_VMENTRY_(result_type, name, signature, result) \
+  static JVMCICallCounter c2v_counter_ ## name = { #name, 0, 0, 0, NULL, 0 }; \
   JNIEXPORT result_type JNICALL c2v_ ## name signature { \
   JavaThread* thread = get_current_thread();             \
   if (thread == NULL) {                                  \
@@ -162,6 +224,7 @@ static JavaThread* get_current_thread(bool allow_null=true) {
     return result;                                       \
   }                                                      \
   JVMCITraceMark jtm("CompilerToVM::" #name);            \
+  JVMCICallCounterMark jccm(&c2v_counter_ ## name);      \
   C2V_BLOCK(result_type, name, signature)
 
 #define C2V_VMENTRY_NULL(result_type, name, signature) C2V_VMENTRY_(result_type, name, signature, NULL)
@@ -239,9 +302,9 @@ C2V_VMENTRY_NULL(jobject, getFlagValue, (JNIEnv* env, jobject c2vm, jobject name
 #undef RETURN_BOXED_DOUBLE
 C2V_END
 
-C2V_VMENTRY_NULL(jbyteArray, getBytecode, (JNIEnv* env, jobject, jobject jvmci_method))
-  methodHandle method = JVMCIENV->asMethod(jvmci_method);
-
+// Gets a copy of the bytecode of method with all rewritten bytecodes
+// and constant pool cache indexes restored to their class file form.
+static JVMCIPrimitiveArray reconstituted_bytecode(const methodHandle& method, JVMCI_TRAPS) {
   int code_size = method->code_size();
   jbyte* reconstituted_code = NEW_RESOURCE_ARRAY(jbyte, code_size);
 
@@ -314,6 +377,12 @@ C2V_VMENTRY_NULL(jbyteArray, getBytecode, (JNIEnv* env, jobject, jobject jvmci_m
 
   JVMCIPrimitiveArray result = JVMCIENV->new_byteArray(code_size, JVMCI_CHECK_NULL);
   JVMCIENV->copy_bytes_from(reconstituted_code, result, 0, code_size);
+  return result;
+}
+
+C2V_VMENTRY_NULL(jbyteArray, getBytecode, (JNIEnv* env, jobject, jobject jvmci_method))
+  methodHandle method = JVMCIENV->asMethod(jvmci_method);
+  JVMCIPrimitiveArray result = reconstituted_bytecode(method, JVMCI_CHECK_NULL);
   return JVMCIENV->get_jbyteArray(result);
 C2V_END
 
@@ -472,23 +541,35 @@ C2V_VMENTRY_0(jboolean, methodIsIgnoredBySecurityStackWalk,(JNIEnv* env, jobject
   return method->is_ignored_by_security_stack_walk();
 C2V_END
 
-C2V_VMENTRY_0(jboolean, isCompilable,(JNIEnv* env, jobject, jobject jvmci_method))
-  methodHandle method = JVMCIENV->asMethod(jvmci_method);
+static bool is_compilable(const methodHandle& method) {
   // Skip redefined methods
   if (method->is_old()) {
     return false;
   }
   return !method->is_not_compilable(CompLevel_full_optimization);
+}
+
+static bool has_never_inline_directive(const methodHandle& method) {
+  return !Inline || CompilerOracle::should_not_inline(method) || method->dont_inline();
+}
+
+static bool should_inline_method(const methodHandle& method) {
+  return CompilerOracle::should_inline(method) || method->force_inline();
+}
+
+C2V_VMENTRY_0(jboolean, isCompilable,(JNIEnv* env, jobject, jobject jvmci_method))
+  methodHandle method = JVMCIENV->asMethod(jvmci_method);
+  return is_compilable(method);
 C2V_END
 
 C2V_VMENTRY_0(jboolean, hasNeverInlineDirective,(JNIEnv* env, jobject, jobject jvmci_method))
   methodHandle method = JVMCIENV->asMethod(jvmci_method);
-  return !Inline || CompilerOracle::should_not_inline(method) || method->dont_inline();
+  return has_never_inline_directive(method);
 C2V_END
 
 C2V_VMENTRY_0(jboolean, shouldInlineMethod,(JNIEnv* env, jobject, jobject jvmci_method))
   methodHandle method = JVMCIENV->asMethod(jvmci_method);
-  return CompilerOracle::should_inline(method) || method->force_inline();
+  return should_inline_method(method);
 C2V_END
 
 C2V_VMENTRY_NULL(jobject, lookupType, (JNIEnv* env, jobject, jstring jname, jclass accessing_class, jboolean resolve))
@@ -645,8 +726,9 @@ C2V_VMENTRY_NULL(jobject, resolveTypeInPool, (JNIEnv* env, jobject, jobject jvmc
   return JVMCIENV->get_jobject(klassObject);
 C2V_END
 
-C2V_VMENTRY_NULL(jobject, lookupKlassInPool, (JNIEnv* env, jobject, jobject jvmci_constant_pool, jint index, jbyte opcode))
-  constantPoolHandle cp = JVMCIENV->asConstantPool(jvmci_constant_pool);
+// Gets the JVMCI type for the klass at index in cp if it is resolved
+// or the name of the klass otherwise. This does not perform any resolution.
+static JVMCIObject lookup_klass_in_pool(const constantPoolHandle& cp, int index, Thread* THREAD, JVMCI_TRAPS) {
   Klass* loading_klass(cp->pool_holder());
   bool is_accessible = false;
   JVMCIKlassHandle klass(THREAD);
@@ -668,15 +750,98 @@ C2V_VMENTRY_NULL(jobject, lookupKlassInPool, (JNIEnv* env, jobject, jobject jvmc
       symbol = cp->unresolved_klass_at(index);
     }
   }
-  JVMCIObject result;
   if (!klass.is_null()) {
-    result = JVMCIENV->get_jvmci_type(klass, JVMCI_CHECK_NULL);
-  } else {
-    result = JVMCIENV->create_string(symbol, JVMCI_CHECK_NULL);
+    return JVMCIENV->get_jvmci_type(klass, JVMCIENV);
   }
+  return JVMCIENV->create_string(symbol, JVMCIENV);
+}
+
+C2V_VMENTRY_NULL(jobject, lookupKlassInPool, (JNIEnv* env, jobject, jobject jvmci_constant_pool, jint index, jbyte opcode))
+  constantPoolHandle cp = JVMCIENV->asConstantPool(jvmci_constant_pool);
+  JVMCIObject result = lookup_klass_in_pool(cp, index, THREAD, JVMCI_CHECK_NULL);
   return JVMCIENV->get_jobject(result);
 C2V_END
 
+C2V_VMENTRY(void, lookupKlassesInPool, (JNIEnv* env, jobject, jobject jvmci_constant_pool, jintArray cpis_obj, jobjectArray result_obj))
+  constantPoolHandle cp = JVMCIENV->asConstantPool(jvmci_constant_pool);
+  JVMCIPrimitiveArray cpis = JVMCIENV->wrap(cpis_obj);
+  JVMCIObjectArray result = JVMCIENV->wrap(result_obj);
+  int length = JVMCIENV->get_length(cpis);
+  if (JVMCIENV->get_length(result) < length) {
+    JVMCI_THROW_MSG(IllegalArgumentException, err_msg("result array length %d is less than %d", JVMCIENV->get_length(result), length));
+  }
+  for (int i = 0; i < length; i++) {
+    int index = JVMCIENV->get_int_at(cpis, i);
+    if (index <= 0 || index >= cp->length() || !cp->tag_at(index).is_klass_or_reference()) {
+      JVMCI_THROW_MSG(IllegalArgumentException, err_msg("constant pool index %d does not denote a class entry", index));
+    }
+    JVMCIObject type = lookup_klass_in_pool(cp, index, THREAD, JVMCI_CHECK);
+    JVMCIENV->put_object_at(result, i, type);
+  }
+C2V_END
+
+C2V_VMENTRY(void, lookupNamesInPool, (JNIEnv* env, jobject, jobject jvmci_constant_pool, jintArray which_obj, jobjectArray result_obj))
+  constantPoolHandle cp = JVMCIENV->asConstantPool(jvmci_constant_pool);
+  JVMCIPrimitiveArray which = JVMCIENV->wrap(which_obj);
+  JVMCIObjectArray result = JVMCIENV->wrap(result_obj);
+  int length = JVMCIENV->get_length(which);
+  if (JVMCIENV->get_length(result) < length) {
+    JVMCI_THROW_MSG(IllegalArgumentException, err_msg("result array length %d is less than %d", JVMCIENV->get_length(result), length));
+  }
+  for (int i = 0; i < length; i++) {
+    JVMCIObject name = JVMCIENV->create_string(cp->name_ref_at(JVMCIENV->get_int_at(which, i)), JVMCI_CHECK);
+    JVMCIENV->put_object_at(result, i, name);
+  }
+C2V_END
+
+C2V_VMENTRY(void, lookupSignaturesInPool, (JNIEnv* env, jobject, jobject jvmci_constant_pool, jintArray which_obj, jobjectArray result_obj))
+  constantPoolHandle cp = JVMCIENV->asConstantPool(jvmci_constant_pool);
+  JVMCIPrimitiveArray which = JVMCIENV->wrap(which_obj);
+  JVMCIObjectArray result = JVMCIENV->wrap(result_obj);
+  int length = JVMCIENV->get_length(which);
+  if (JVMCIENV->get_length(result) < length) {
+    JVMCI_THROW_MSG(IllegalArgumentException, err_msg("result array length %d is less than %d", JVMCIENV->get_length(result), length));
+  }
+  for (int i = 0; i < length; i++) {
+    JVMCIObject signature = JVMCIENV->create_string(cp->signature_ref_at(JVMCIENV->get_int_at(which, i)), JVMCI_CHECK);
+    JVMCIENV->put_object_at(result, i, signature);
+  }
+C2V_END
+
+C2V_VMENTRY(void, lookupKlassRefIndexesInPool, (JNIEnv* env, jobject, jobject jvmci_constant_pool, jintArray indexes_obj, jintArray result_obj))
+  constantPoolHandle cp = JVMCIENV->asConstantPool(jvmci_constant_pool);
+  JVMCIPrimitiveArray indexes = JVMCIENV->wrap(indexes_obj);
+  JVMCIPrimitiveArray result = JVMCIENV->wrap(result_obj);
+  int length = JVMCIENV->get_length(indexes);
+  if (JVMCIENV->get_length(result) < length) {
+    JVMCI_THROW_MSG(IllegalArgumentException, err_msg("result array length %d is less than %d", JVMCIENV->get_length(result), length));
+  }
+  for (int i = 0; i < length; i++) {
+    JVMCIENV->put_int_at(result, i, cp->klass_ref_index_at(JVMCIENV->get_int_at(indexes, i)));
+  }
+C2V_END
+
+C2V_VMENTRY(void, lookupMethodsInPool, (JNIEnv* env, jobject, jobject jvmci_constant_pool, jintArray indexes_obj, jbyteArray opcodes_obj, jobjectArray result_obj))
+  constantPoolHandle cp = JVMCIENV->asConstantPool(jvmci_constant_pool);
+  InstanceKlass* pool_holder = cp->pool_holder();
+  JVMCIPrimitiveArray indexes = JVMCIENV->wrap(indexes_obj);
+  JVMCIPrimitiveArray opcodes = JVMCIENV->wrap(opcodes_obj);
+  JVMCIObjectArray result = JVMCIENV->wrap(result_obj);
+  int length = JVMCIENV->get_length(indexes);
+  if (JVMCIENV->get_length(opcodes) != length) {
+    JVMCI_THROW_MSG(IllegalArgumentException, err_msg("opcodes array length %d is not %d", JVMCIENV->get_length(opcodes), length));
+  }
+  if (JVMCIENV->get_length(result) < length) {
+    JVMCI_THROW_MSG(IllegalArgumentException, err_msg("result array length %d is less than %d", JVMCIENV->get_length(result), length));
+  }
+  for (int i = 0; i < length; i++) {
+    Bytecodes::Code bc = (Bytecodes::Code) (((int) JVMCIENV->get_byte_at(opcodes, i)) & 0xFF);
+    methodHandle method = JVMCIRuntime::get_method_by_index(cp, JVMCIENV->get_int_at(indexes, i), bc, pool_holder);
+    JVMCIObject jvmci_method = JVMCIENV->get_jvmci_method(method, JVMCI_CHECK);
+    JVMCIENV->put_object_at(result, i, jvmci_method);
+  }
+C2V_END
+
 C2V_VMENTRY_NULL(jobject, lookupAppendixInPool, (JNIEnv* env, jobject, jobject jvmci_constant_pool, jint index))
   constantPoolHandle cp = JVMCIENV->asConstantPool(jvmci_constant_pool);
   oop appendix_oop = ConstantPool::appendix_at_if_loaded(cp, index);
@@ -811,8 +976,9 @@ C2V_VMENTRY(void, setNotInlinableOrCompilable,(JNIEnv* env, jobject,  jobject jv
   method->set_dont_inline(true);
 C2V_END
 
-C2V_VMENTRY_0(jint, installCode, (JNIEnv *env, jobject, jobject target, jobject compiled_code,
-            jobject installed_code, jlong failed_speculations_address, jbyteArray speculations_obj))
+C2V_VMENTRY_0(jint, installCode0, (JNIEnv *env, jobject, jobject target, jobject compiled_code,
+            jobject installed_code, jlong failed_speculations_address, jbyteArray speculations_obj,
+            jbyteArray debug_info_obj, jobjectArray debug_info_objects_obj))
   HandleMark hm;
   JNIHandleMark jni_hm(thread);
 
@@ -821,6 +987,8 @@ C2V_VMENTRY_0(jint, installCode, (JNIEnv *env, jobject, jobject target, jobject
   CodeBlob* cb = NULL;
   JVMCIObject installed_code_handle = JVMCIENV->wrap(installed_code);
   JVMCIPrimitiveArray speculations_handle = JVMCIENV->wrap(speculations_obj);
+  JVMCIPrimitiveArray debug_info_handle = JVMCIENV->wrap(debug_info_obj);
+  JVMCIObjectArray debug_info_objects_handle = JVMCIENV->wrap(debug_info_objects_obj);
 
   int speculations_len = JVMCIENV->get_length(speculations_handle);
   char* speculations = NEW_RESOURCE_ARRAY(char, speculations_len);
@@ -840,6 +1008,8 @@ C2V_VMENTRY_0(jint, installCode, (JNIEnv *env, jobject, jobject target, jobject
       (FailedSpeculation**)(address) failed_speculations_address,
       speculations,
       speculations_len,
+      debug_info_handle,
+      debug_info_objects_handle,
       JVMCI_CHECK_0);
 
   if (PrintCodeCacheOnCompilation) {
@@ -955,6 +1125,106 @@ C2V_VMENTRY(void, resetCompilationStatistics, (JNIEnv* env, jobject))
   stats->_osr.reset();
 C2V_END
 
+// Must be kept in sync with the CODE_CACHE_* constants in CompilerToVM.java
+enum CodeCacheStatistic {
+  CODE_CACHE_RESERVED_BYTES,
+  CODE_CACHE_COMMITTED_BYTES,
+  CODE_CACHE_USED_BYTES,
+  CODE_CACHE_FREE_BYTES,
+  CODE_CACHE_NMETHOD_COUNT,
+  CODE_CACHE_JVMCI_NMETHOD_COUNT,
+  CODE_CACHE_JVMCI_NMETHOD_BYTES,
+  CODE_CACHE_FULL_COUNT,
+  CODE_CACHE_STATISTICS_LENGTH
+};
+
+C2V_VMENTRY(void, getCodeCacheStatistics, (JNIEnv* env, jobject, jlongArray statistics_obj))
+  JVMCIPrimitiveArray statistics = JVMCIENV->wrap(statistics_obj);
+  if (JVMCIENV->get_length(statistics) < CODE_CACHE_STATISTICS_LENGTH) {
+    JVMCI_THROW_MSG(IllegalArgumentException, err_msg("statistics array length %d is less than %d", JVMCIENV->get_length(statistics), CODE_CACHE_STATISTICS_LENGTH));
+  }
+  jlong values[CODE_CACHE_STATISTICS_LENGTH];
+  {
+    MutexLockerEx ml(CodeCache_lock, Mutex::_no_safepoint_check_flag);
+    jlong jvmci_nmethods = 0;
+    jlong jvmci_nmethod_bytes = 0;
+    for (nmethod* nm = CodeCache::alive_nmethod(CodeCache::first()); nm != NULL; nm = CodeCache::alive_nmethod(CodeCache::next(nm))) {
+      if (nm->is_compiled_by_jvmci()) {
+        jvmci_nmethods++;
+        jvmci_nmethod_bytes += nm->size();
+      }
+    }
+    values[CODE_CACHE_RESERVED_BYTES] = (jlong) CodeCache::max_capacity();
+    values[CODE_CACHE_COMMITTED_BYTES] = (jlong) CodeCache::capacity();
+    values[CODE_CACHE_USED_BYTES] = (jlong) (CodeCache::max_capacity() - CodeCache::unallocated_capacity());
+    values[CODE_CACHE_FREE_BYTES] = (jlong) CodeCache::unallocated_capacity();
+    values[CODE_CACHE_NMETHOD_COUNT] = CodeCache::nof_nmethods();
+    values[CODE_CACHE_JVMCI_NMETHOD_COUNT] = jvmci_nmethods;
+    values[CODE_CACHE_JVMCI_NMETHOD_BYTES] = jvmci_nmethod_bytes;
+    values[CODE_CACHE_FULL_COUNT] = CodeCache::get_codemem_full_count();
+  }
+  for (int i = 0; i < CODE_CACHE_STATISTICS_LENGTH; i++) {
+    JVMCIENV->put_long_at(statistics, i, values[i]);
+  }
+C2V_END
+
+C2V_VMENTRY_0(jlong, getCodeCacheUsedBytes, (JNIEnv* env, jobject))
+  // Deliberately read without the CodeCache_lock. The value may be
+  // slightly stale but is cheap to get.
+  return (jlong) (CodeCache::max_capacity() - CodeCache::unallocated_capacity());
+C2V_END
+
+// Must be kept in sync with the CODE_STATE_* constants in CompilerToVM.java
+enum CodeState {
+  CODE_STATE_FREED = -1,
+  CODE_STATE_IN_USE = 0,
+  CODE_STATE_NOT_ENTRANT = 1
+};
+
+C2V_VMENTRY(void, getCodeStates, (JNIEnv* env, jobject, jlongArray addresses_obj, jintArray compile_ids_obj, jintArray states_obj))
+  if (addresses_obj == NULL || compile_ids_obj == NULL || states_obj == NULL) {
+    JVMCI_THROW(NullPointerException);
+  }
+  JVMCIPrimitiveArray addresses = JVMCIENV->wrap(addresses_obj);
+  JVMCIPrimitiveArray compile_ids = JVMCIENV->wrap(compile_ids_obj);
+  JVMCIPrimitiveArray states = JVMCIENV->wrap(states_obj);
+  int length = JVMCIENV->get_length(addresses);
+  if (JVMCIENV->get_length(compile_ids) != length || JVMCIENV->get_length(states) != length) {
+    JVMCI_THROW_MSG(IllegalArgumentException, "array lengths differ");
+  }
+  address* codes = NEW_RESOURCE_ARRAY(address, length);
+  jint* values = NEW_RESOURCE_ARRAY(jint, length);
+  for (int i = 0; i < length; i++) {
+    codes[i] = (address) JVMCIENV->get_long_at(addresses, i);
+    values[i] = JVMCIENV->get_int_at(compile_ids, i);
+  }
+  {
+    // Hold the CodeCache_lock so that no blob is freed while being checked
+    MutexLockerEx ml(CodeCache_lock, Mutex::_no_safepoint_check_flag);
+    for (int i = 0; i < length; i++) {
+      jint compile_id = values[i];
+      jint state = CODE_STATE_FREED;
+      CodeBlob* cb = codes[i] == NULL ? NULL : CodeCache::find_blob_unsafe(codes[i]);
+      if (cb == (CodeBlob*) codes[i] && cb != NULL) {
+        nmethod* nm = cb->as_nmethod_or_null();
+        if (nm == NULL) {
+          if (compile_id == 0) {
+            state = CODE_STATE_IN_USE;
+          }
+        } else if (nm->compile_id() == compile_id) {
+          // The nmethod at the address is the one recorded (and not a
+          // newer nmethod that reuses the memory of a freed one)
+          state = nm->is_in_use() ? CODE_STATE_IN_USE : CODE_STATE_NOT_ENTRANT;
+        }
+      }
+      values[i] = state;
+    }
+  }
+  for (int i = 0; i < length; i++) {
+    JVMCIENV->put_int_at(states, i, values[i]);
+  }
+C2V_END
+
 C2V_VMENTRY_NULL(jobject, disassembleCodeBlob, (JNIEnv* env, jobject, jobject installedCode))
   HandleMark hm;
 
@@ -1051,11 +1321,9 @@ C2V_VMENTRY_NULL(jobject, executeHotSpotNmethod, (JNIEnv* env, jobject, jobject
   }
 C2V_END
 
-C2V_VMENTRY_NULL(jlongArray, getLineNumberTable, (JNIEnv* env, jobject, jobject jvmci_method))
-  Method* method = JVMCIENV->asMethod(jvmci_method);
-  if (!method->has_linenumber_table()) {
-    return NULL;
-  }
+// Gets the line number table of method as (bci, line) pairs.
+static JVMCIPrimitiveArray line_number_table(Method* method, JVMCI_TRAPS) {
+  assert(method->has_linenumber_table(), "caller must check");
   u2 num_entries = 0;
   CompressedLineNumberReadStream streamForSize(method->compressed_linenumber_table());
   while (streamForSize.read_pair()) {
@@ -1074,7 +1342,15 @@ C2V_VMENTRY_NULL(jlongArray, getLineNumberTable, (JNIEnv* env, jobject, jobject
     JVMCIENV->put_long_at(result, i + 1, value);
     i += 2;
   }
+  return result;
+}
 
+C2V_VMENTRY_NULL(jlongArray, getLineNumberTable, (JNIEnv* env, jobject, jobject jvmci_method))
+  Method* method = JVMCIENV->asMethod(jvmci_method);
+  if (!method->has_linenumber_table()) {
+    return NULL;
+  }
+  JVMCIPrimitiveArray result = line_number_table(method, JVMCI_CHECK_NULL);
   return (jlongArray) JVMCIENV->get_jobject(result);
 C2V_END
 
@@ -1091,6 +1367,69 @@ C2V_VMENTRY_0(jint, getLocalVariableTableLength, (JNIEnv* env, jobject, jobject
   return method->localvariable_table_length();
 C2V_END
 
+// Must be kept in sync with the METHOD_METADATA_* constants in CompilerToVM.java
+enum MethodMetadata {
+  METHOD_METADATA_EXCEPTION_TABLE_START,
+  METHOD_METADATA_EXCEPTION_TABLE_LENGTH,
+  METHOD_METADATA_LOCAL_VARIABLE_TABLE_START,
+  METHOD_METADATA_LOCAL_VARIABLE_TABLE_LENGTH,
+  METHOD_METADATA_FLAGS,
+  METHOD_METADATA_LENGTH
+};
+
+enum MethodMetadataFlags {
+  METHOD_METADATA_COMPILABLE         = 1,
+  METHOD_METADATA_NEVER_INLINE       = 2,
+  METHOD_METADATA_SHOULD_INLINE      = 4
+};
+
+C2V_VMENTRY(void, getMethodMetadata, (JNIEnv* env, jobject, jobjectArray methods_obj, jint count, jobjectArray codes_obj, jobjectArray line_number_tables_obj, jlongArray metadata_obj))
+  JVMCIObjectArray methods = JVMCIENV->wrap(methods_obj);
+  JVMCIObjectArray codes = JVMCIENV->wrap(codes_obj);
+  JVMCIObjectArray line_number_tables = JVMCIENV->wrap(line_number_tables_obj);
+  JVMCIPrimitiveArray metadata = JVMCIENV->wrap(metadata_obj);
+  if (count < 0 || JVMCIENV->get_length(methods) < count || JVMCIENV->get_length(codes) < count ||
+      JVMCIENV->get_length(line_number_tables) < count || JVMCIENV->get_length(metadata) / METHOD_METADATA_LENGTH < count) {
+    JVMCI_THROW_MSG(IllegalArgumentException, err_msg("array too short for %d methods", count));
+  }
+  for (int i = 0; i < count; i++) {
+    JVMCIObject jvmci_method = JVMCIENV->get_object_at(methods, i);
+    if (jvmci_method.is_null()) {
+      JVMCI_THROW(NullPointerException);
+    }
+    methodHandle method = JVMCIENV->asMethod(jvmci_method);
+
+    if (JVMCIENV->get_object_at(codes, i).is_null() && method->code_size() != 0 && method->method_holder()->is_linked()) {
+      JVMCIPrimitiveArray code = reconstituted_bytecode(method, JVMCI_CHECK);
+      JVMCIENV->put_object_at(codes, i, code);
+    }
+    if (JVMCIENV->get_object_at(line_number_tables, i).is_null() && method->has_linenumber_table()) {
+      JVMCIPrimitiveArray table = line_number_table(method(), JVMCI_CHECK);
+      JVMCIENV->put_object_at(line_number_tables, i, table);
+    }
+
+    int base = i * METHOD_METADATA_LENGTH;
+    int exception_table_length = method->exception_table_length();
+    JVMCIENV->put_long_at(metadata, base + METHOD_METADATA_EXCEPTION_TABLE_START,
+                          exception_table_length == 0 ? 0L : (jlong) (address) method->exception_table_start());
+    JVMCIENV->put_long_at(metadata, base + METHOD_METADATA_EXCEPTION_TABLE_LENGTH, exception_table_length);
+    JVMCIENV->put_long_at(metadata, base + METHOD_METADATA_LOCAL_VARIABLE_TABLE_START,
+                          method->has_localvariable_table() ? (jlong) (address) method->localvariable_table_start() : 0L);
+    JVMCIENV->put_long_at(metadata, base + METHOD_METADATA_LOCAL_VARIABLE_TABLE_LENGTH, method->localvariable_table_length());
+    jlong flags = 0;
+    if (is_compilable(method)) {
+      flags |= METHOD_METADATA_COMPILABLE;
+    }
+    if (has_never_inline_directive(method)) {
+      flags |= METHOD_METADATA_NEVER_INLINE;
+    }
+    if (should_inline_method(method)) {
+      flags |= METHOD_METADATA_SHOULD_INLINE;
+    }
+    JVMCIENV->put_long_at(metadata, base + METHOD_METADATA_FLAGS, flags);
+  }
+C2V_END
+
 C2V_VMENTRY(void, reprofile, (JNIEnv* env, jobject, jobject jvmci_method))
   Method* method = JVMCIENV->asMethod(jvmci_method);
   MethodCounters* mcs = method->method_counters();
@@ -1131,6 +1470,30 @@ C2V_VMENTRY_NULL(jlongArray, collectCounters, (JNIEnv* env, jobject))
   return (jlongArray) JVMCIENV->get_jobject(array);
 C2V_END
 
+C2V_VMENTRY_NULL(jobjectArray, collectCallCounters, (JNIEnv* env, jobject))
+  // Returns {String[] names, long[] values} where values holds the count,
+  // total nanoseconds and maximum nanoseconds of each named entry point.
+  JVMCICallCounter* head = JVMCICallCounter::_head;
+  int length = 0;
+  for (JVMCICallCounter* c = head; c != NULL; c = c->_next) {
+    length++;
+  }
+  JVMCIObjectArray names = JVMCIENV->new_String_array(length, JVMCI_CHECK_NULL);
+  JVMCIPrimitiveArray values = JVMCIENV->new_longArray(length * 3, JVMCI_CHECK_NULL);
+  int i = 0;
+  for (JVMCICallCounter* c = head; c != NULL; c = c->_next, i++) {
+    JVMCIObject name = JVMCIENV->create_string(c->_name, JVMCI_CHECK_NULL);
+    JVMCIENV->put_object_at(names, i, name);
+    JVMCIENV->put_long_at(values, i * 3, Atomic::load(&c->_count));
+    JVMCIENV->put_long_at(values, i * 3 + 1, Atomic::load(&c->_nanos));
+    JVMCIENV->put_long_at(values, i * 3 + 2, Atomic::load(&c->_max_nanos));
+  }
+  JVMCIObjectArray result = JVMCIENV->new_Object_array(2, JVMCI_CHECK_NULL);
+  JVMCIENV->put_object_at(result, 0, names);
+  JVMCIENV->put_object_at(result, 1, values);
+  return JVMCIENV->get_jobjectArray(result);
+C2V_END
+
 C2V_VMENTRY_0(int, getCountersSize, (JNIEnv* env, jobject))
   return JVMCICounterSize;
 C2V_END
@@ -1139,6 +1502,42 @@ C2V_VMENTRY_0(jboolean, setCountersSize, (JNIEnv* env, jobject, jint new_size))
   return JavaThread::resize_all_jvmci_counters(new_size);
 C2V_END
 
+C2V_VMENTRY_0(jlong, createPerfDataLong, (JNIEnv* env, jobject, jobject name_string, jboolean variable))
+  JVMCIObject name = JVMCIENV->wrap(name_string);
+  if (name.is_null()) {
+    JVMCI_THROW_0(NullPointerException);
+  }
+  if (!UsePerfData) {
+    return 0L;
+  }
+  const char* name_str = JVMCIENV->as_utf8_string(name);
+  PerfData::Variability variability = variable ? PerfData::V_Variable : PerfData::V_Monotonic;
+  // The entry may already have been created by another JVMCI runtime
+  const char* full_name = PerfDataManager::counter_name(PerfDataManager::ns_to_string(SUN_CI), name_str);
+  PerfData* data;
+  {
+    // JVMCI_lock makes the find-or-create atomic with respect to other registrants.
+    // PerfDataManager_lock cannot be held across the create since add_item takes it.
+    MutexLocker ml(JVMCI_lock);
+    {
+      MutexLocker pl(PerfDataManager_lock);
+      data = PerfDataManager::find_by_name(full_name);
+    }
+    if (data == NULL) {
+      if (variable) {
+        data = PerfDataManager::create_long_variable(SUN_CI, name_str, PerfData::U_Events, CHECK_0);
+      } else {
+        data = PerfDataManager::create_long_counter(SUN_CI, name_str, PerfData::U_Events, CHECK_0);
+      }
+      return (jlong) (address) data->get_address();
+    }
+  }
+  if (data->variability() != variability || data->units() != PerfData::U_Events) {
+    JVMCI_THROW_MSG_0(IllegalArgumentException, err_msg("incompatible PerfData entry %s already exists", full_name));
+  }
+  return (jlong) (address) data->get_address();
+C2V_END
+
 C2V_VMENTRY_0(jint, allocateCompileId, (JNIEnv* env, jobject, jobject jvmci_method, int entry_bci))
   HandleMark hm;
   if (jvmci_method == NULL) {
@@ -1152,6 +1551,19 @@ C2V_VMENTRY_0(jint, allocateCompileId, (JNIEnv* env, jobject, jobject jvmci_meth
 C2V_END
 
 
+C2V_VMENTRY_0(jlong, getCompileQueueTime, (JNIEnv* env, jobject, jlong compile_state_address))
+  JVMCICompileState* compile_state = (JVMCICompileState*) (address) compile_state_address;
+  if (compile_state == NULL || compile_state->task() == NULL) {
+    return -1;
+  }
+  jlong ticks = os::elapsed_counter() - compile_state->task()->time_queued();
+  return (jlong) (ticks * (1000000000.0 / os::elapsed_frequency()));
+C2V_END
+
+C2V_VMENTRY_0(jlong, getThreadAllocatedBytes, (JNIEnv* env, jobject))
+  return thread->cooked_allocated_bytes();
+C2V_END
+
 C2V_VMENTRY_0(jboolean, isMature, (JNIEnv* env, jobject, jlong metaspace_method_data))
   MethodData* mdo = JVMCIENV->asMethodData(metaspace_method_data);
   return mdo != NULL && mdo->is_mature();
@@ -1368,6 +1780,93 @@ C2V_VMENTRY_NULL(jobject, iterateFrames, (JNIEnv* env, jobject compilerToVM, job
   return NULL;
 C2V_END
 
+C2V_VMENTRY_0(jint, iterateFramesBatch, (JNIEnv* env, jobject compilerToVM, jobjectArray initial_methods, jobjectArray match_methods, jint initialSkip,
+                                         jlong resume_stack_pointer, jint resume_frame_number, jobjectArray frames_obj))
+  if (frames_obj == NULL) {
+    JVMCI_THROW_0(NullPointerException);
+  }
+  if (!thread->has_last_Java_frame()) {
+    return 0;
+  }
+  requireInHotSpot("iterateFramesBatch", JVMCI_CHECK_0);
+
+  HotSpotJVMCI::HotSpotStackFrameReference::klass()->initialize(CHECK_0);
+  objArrayHandle frames(THREAD, (objArrayOop) JNIHandles::resolve(frames_obj));
+
+  StackFrameStream fst(thread);
+  jobjectArray methods = initial_methods;
+  GrowableArray<Method*>* resolved_methods = NULL;
+
+  int frame_number = 0;
+  vframe* vf;
+  if (resume_stack_pointer != 0) {
+    // find the frame returned last by the previous batch
+    intptr_t* stack_pointer = (intptr_t*) resume_stack_pointer;
+    while (fst.current()->sp() != stack_pointer && !fst.is_done()) {
+      fst.next();
+    }
+    if (fst.current()->sp() != stack_pointer) {
+      JVMCI_THROW_MSG_0(IllegalStateException, "stack frame not found");
+    }
+    vf = vframe::new_vframe(fst, thread);
+    for (; frame_number < resume_frame_number; frame_number++) {
+      if (vf->is_top()) {
+        JVMCI_THROW_MSG_0(IllegalStateException, "vframe not found");
+      }
+      vf = vf->sender();
+    }
+  } else {
+    vf = vframe::new_vframe(fst, thread);
+  }
+
+  int count = 0;
+  bool resumed = resume_stack_pointer != 0;
+  while (count < frames->length()) {
+    if (resumed) {
+      // the frame at which the walk resumes has already been returned
+      resumed = false;
+    } else if (vf->is_compiled_frame() || vf->is_interpreted_frame()) {
+      javaVFrame* jvf = javaVFrame::cast(vf);
+      if (methods == NULL || matches(methods, jvf->method(), &resolved_methods, JVMCIENV)) {
+        if (initialSkip > 0) {
+          initialSkip --;
+        } else {
+          // the locals are only decoded when requested (see decodeFrameLocals)
+          Handle frame_reference = HotSpotJVMCI::HotSpotStackFrameReference::klass()->allocate_instance(CHECK_0);
+          JVMCIObject method = JVMCIENV->get_jvmci_method(jvf->method(), JVMCI_CHECK_0);
+          HotSpotJVMCI::HotSpotStackFrameReference::set_method(JVMCIENV, frame_reference(), JNIHandles::resolve(method.as_jobject()));
+          HotSpotJVMCI::HotSpotStackFrameReference::set_bci(JVMCIENV, frame_reference(), jvf->bci());
+          HotSpotJVMCI::HotSpotStackFrameReference::set_compilerToVM(JVMCIENV, frame_reference(), JNIHandles::resolve(compilerToVM));
+          HotSpotJVMCI::HotSpotStackFrameReference::set_stackPointer(JVMCIENV, frame_reference(), (jlong) fst.current()->sp());
+          HotSpotJVMCI::HotSpotStackFrameReference::set_frameNumber(JVMCIENV, frame_reference(), frame_number);
+          HotSpotJVMCI::HotSpotStackFrameReference::set_objectsMaterialized(JVMCIENV, frame_reference(), JNI_FALSE);
+          frames->obj_at_put(count++, frame_reference());
+
+          if (methods == initial_methods) {
+            methods = match_methods;
+            if (resolved_methods != NULL && JNIHandles::resolve(match_methods) != JNIHandles::resolve(initial_methods)) {
+              resolved_methods = NULL;
+            }
+          }
+        }
+      }
+    }
+
+    if (vf->is_top()) {
+      if (fst.is_done()) {
+        break;
+      }
+      fst.next();
+      vf = vframe::new_vframe(fst, thread);
+      frame_number = 0;
+    } else {
+      frame_number++;
+      vf = vf->sender();
+    }
+  }
+  return count;
+C2V_END
+
 C2V_VMENTRY(void, resolveInvokeDynamicInPool, (JNIEnv* env, jobject, jobject jvmci_constant_pool, jint index))
   constantPoolHandle cp = JVMCIENV->asConstantPool(jvmci_constant_pool);
   CallInfo callInfo;
@@ -1568,9 +2067,226 @@ C2V_VMENTRY(void, materializeVirtualObjects, (JNIEnv* env, jobject, jobject _hs_
   HotSpotJVMCI::HotSpotStackFrameReference::set_objectsMaterialized(JVMCIENV, hs_frame, JNI_TRUE);
 C2V_END
 
+// public native void decodeFrameLocals(HotSpotStackFrameReference stackFrame);
+C2V_VMENTRY(void, decodeFrameLocals, (JNIEnv* env, jobject, jobject _hs_frame))
+  JVMCIObject hs_frame = JVMCIENV->wrap(_hs_frame);
+  if (hs_frame.is_null()) {
+    JVMCI_THROW_MSG(NullPointerException, "stack frame is null");
+  }
+
+  requireInHotSpot("decodeFrameLocals", JVMCI_CHECK);
+
+  // look for the given stack frame
+  StackFrameStream fst(thread);
+  intptr_t* stack_pointer = (intptr_t*) JVMCIENV->get_HotSpotStackFrameReference_stackPointer(hs_frame);
+  while (fst.current()->sp() != stack_pointer && !fst.is_done()) {
+    fst.next();
+  }
+  if (fst.current()->sp() != stack_pointer) {
+    JVMCI_THROW_MSG(IllegalStateException, "stack frame not found");
+  }
+
+  vframe* vf = vframe::new_vframe(fst, thread);
+  int frame_number = JVMCIENV->get_HotSpotStackFrameReference_frameNumber(hs_frame);
+  for (int i = 0; i < frame_number; i++) {
+    if (vf->is_top()) {
+      JVMCI_THROW_MSG(IllegalStateException, "vframe not found");
+    }
+    vf = vf->sender();
+  }
+
+  StackValueCollection* locals;
+  typeArrayHandle local_is_virtual;
+  if (vf->is_compiled_frame()) {
+    compiledVFrame* cvf = compiledVFrame::cast(vf);
+    ScopeDesc* scope = cvf->scope();
+    // native wrappers do not have a scope
+    if (scope != NULL && scope->objects() != NULL) {
+      // The virtual objects of all vframes in a physical frame are described by
+      // the same list. They are reallocated once per physical frame and stored in
+      // the reference to its first frame so that every vframe sees the same copies.
+      GrowableArray<ScopeValue*>* objects = scope->objects();
+      Handle physical_frame(THREAD, HotSpotJVMCI::HotSpotStackFrameReference::physicalFrame(JVMCIENV, JNIHandles::resolve(_hs_frame)));
+      if (physical_frame.is_null()) {
+        physical_frame = Handle(THREAD, JNIHandles::resolve(_hs_frame));
+      }
+      objArrayHandle virtual_objects(THREAD, HotSpotJVMCI::HotSpotStackFrameReference::virtualObjects(JVMCIENV, physical_frame()));
+      if (virtual_objects.is_null()) {
+        virtual_objects = oopFactory::new_objectArray(objects->length(), CHECK);
+        HotSpotJVMCI::HotSpotStackFrameReference::set_virtualObjects(JVMCIENV, physical_frame(), virtual_objects());
+      } else if (virtual_objects->length() != objects->length()) {
+        JVMCI_THROW_MSG(IllegalStateException, "virtual objects do not match physical frame");
+      }
+      GrowableArray<ScopeValue*>* unallocated = new GrowableArray<ScopeValue*>(objects->length());
+      for (int i = 0; i < objects->length(); i++) {
+        ObjectValue* sv = (ObjectValue*) objects->at(i);
+        oop obj = virtual_objects->obj_at(i);
+        if (obj != NULL) {
+          sv->set_value(obj);
+        } else {
+          unallocated->append(sv);
+        }
+      }
+      if (unallocated->length() > 0) {
+        bool realloc_failures = Deoptimization::realloc_objects(thread, fst.current(), fst.register_map(), unallocated, CHECK);
+        Deoptimization::reassign_fields(fst.current(), fst.register_map(), unallocated, realloc_failures, false);
+        for (int i = 0; i < objects->length(); i++) {
+          virtual_objects->obj_at_put(i, ((ObjectValue*) objects->at(i))->value()());
+        }
+      }
+
+      GrowableArray<ScopeValue*>* local_values = scope->locals();
+      local_is_virtual = oopFactory::new_boolArray(local_values->length(), CHECK);
+      for (int i = 0; i < local_values->length(); i++) {
+        if (local_values->at(i)->is_object()) {
+          local_is_virtual->bool_at_put(i, true);
+        }
+      }
+    }
+    locals = cvf->locals();
+  } else if (vf->is_interpreted_frame()) {
+    locals = interpretedVFrame::cast(vf)->locals_no_oop_map_cache();
+  } else {
+    JVMCI_THROW_MSG(IllegalStateException, "Java stack frame expected");
+  }
+
+  objArrayHandle array = oopFactory::new_objectArray(locals->size(), CHECK);
+  for (int i = 0; i < locals->size(); i++) {
+    StackValue* var = locals->at(i);
+    if (var->type() == T_OBJECT) {
+      array->obj_at_put(i, var->get_obj()());
+    }
+  }
+  HotSpotJVMCI::HotSpotStackFrameReference::set_localIsVirtual(JVMCIENV, JNIHandles::resolve(_hs_frame), local_is_virtual());
+  HotSpotJVMCI::HotSpotStackFrameReference::set_locals(JVMCIENV, JNIHandles::resolve(_hs_frame), array());
+C2V_END
+
+// A ring buffer in native memory to which the JVMCI Java code appends debug
+// output without calling into the VM. The buffer is allocated and registered
+// by jdk.vm.ci.hotspot.DebugOutputBuffer which also defines its layout:
+//
+//   [head_offset] jlong  the position up to which space has been reserved by writers
+//   [tail_offset] jlong  the position up to which the buffer has been drained
+//   [data_offset] jbyte[capacity]  a sequence of records
+//
+// Positions increase monotonically and are masked with capacity - 1 to index
+// into the data. Each record starts with a jint header. A positive header is
+// the length of the bytes that follow it. A negative header is the negated
+// size of padding that skips to the start of the data. A zero header denotes
+// a record that has been reserved but not yet published. Records are aligned
+// to jint size and never wrap around the end of the data.
+class JVMCIDebugOutputBuffer : AllStatic {
+  enum {
+    head_offset = 0,
+    tail_offset = 64,
+    data_offset = 128,
+    drain_interval = 20, // milliseconds
+    publish_timeout = 100 // milliseconds
+  };
+
+  static address volatile _base;
+  static jint _capacity;
+  static volatile jint _draining;
+
+  class DrainTask : public PeriodicTask {
+   public:
+    DrainTask() : PeriodicTask(drain_interval) {}
+    void task() { JVMCIDebugOutputBuffer::drain(false); }
+  };
+
+ public:
+  // Registers the buffer at base. Only one buffer can be registered.
+  static bool register_buffer(address base, jint capacity) {
+    if (base == NULL || capacity <= 0 || !is_power_of_2(capacity)) {
+      return false;
+    }
+    {
+      ThreadCritical tc;
+      if (_base != NULL) {
+        return false;
+      }
+      _capacity = capacity;
+      OrderAccess::release_store_ptr(&_base, base);
+    }
+    (new DrainTask())->enroll();
+    return true;
+  }
+
+  // Writes the published records in the buffer to tty.
+  //
+  // If wait is false, this returns immediately if another thread is draining
+  // the buffer and stops at the first record that has not yet been published.
+  //
+  // If wait is true, this waits for any other thread draining the buffer and
+  // then drains every record reserved before the call, waiting for each to be
+  // published. This guarantees that output a thread appended to the buffer is
+  // written before anything the thread subsequently writes directly to tty.
+  // A record that is not published within publish_timeout (e.g. because its
+  // writer died between reserving and publishing it) ends the wait and the
+  // records from it onwards are left for a later drain.
+  //
+  // The waits spin in native code so they must not be performed by a thread
+  // that blocks safepoints.
+  static void drain(bool wait) {
+    address base = (address) OrderAccess::load_ptr_acquire(&_base);
+    if (base == NULL) {
+      return;
+    }
+    while (Atomic::cmpxchg(1, &_draining, 0) != 0) {
+      if (!wait) {
+        return;
+      }
+      os::NakedYield();
+    }
+    volatile jlong* tail_addr = (volatile jlong*) (base + tail_offset);
+    address data = base + data_offset;
+    jint mask = _capacity - 1;
+    jlong tail = *tail_addr;
+    jlong head = OrderAccess::load_acquire((volatile jlong*) (base + head_offset));
+    jlong deadline = 0;
+    while (tail < head) {
+      jint index = (jint) (tail & mask);
+      jint header = OrderAccess::load_acquire((volatile jint*) (data + index));
+      if (header == 0) {
+        // The writer has not yet published the record
+        if (!wait) {
+          break;
+        }
+        jlong now = os::javaTimeNanos();
+        if (deadline == 0) {
+          deadline = now + publish_timeout * NANOSECS_PER_MILLISEC;
+        } else if (now - deadline > 0) {
+          break;
+        }
+        os::NakedYield();
+        continue;
+      }
+      deadline = 0;
+      jint size;
+      if (header > 0) {
+        tty->write((char*) (data + index + sizeof(jint)), header);
+        size = (jint) align_size_up(sizeof(jint) + header, sizeof(jint));
+      } else {
+        size = -header;
+      }
+      // Clear the record so that stale bytes are never read as a header
+      memset(data + index, 0, size);
+      tail += size;
+    }
+    OrderAccess::release_store(tail_addr, tail);
+    OrderAccess::release_store(&_draining, 0);
+  }
+};
+
+address volatile JVMCIDebugOutputBuffer::_base = NULL;
+jint JVMCIDebugOutputBuffer::_capacity = 0;
+volatile jint JVMCIDebugOutputBuffer::_draining = 0;
+
 // Use of tty does not require the current thread to be attached to the VM
 // so no need for a full C2V_VMENTRY transition.
 C2V_VMENTRY_PREFIX(void, writeDebugOutput, (JNIEnv* env, jobject, jlong buffer, jint length, bool flush))
+  // Preserve the order of output written by this thread
+  JVMCIDebugOutputBuffer::drain(true);
   if (length <= 8) {
     tty->write((char*) &buffer, length);
   } else {
@@ -1584,9 +2300,18 @@ C2V_END
 // Use of tty does not require the current thread to be attached to the VM
 // so no need for a full C2V_VMENTRY transition.
 C2V_VMENTRY_PREFIX(void, flushDebugOutput, (JNIEnv* env, jobject))
+  JVMCIDebugOutputBuffer::drain(true);
   tty->flush();
 C2V_END
 
+C2V_VMENTRY_0(jboolean, registerDebugOutputBuffer, (JNIEnv* env, jobject, jlong buffer, jint capacity))
+  return JVMCIDebugOutputBuffer::register_buffer((address) buffer, capacity);
+C2V_END
+
+C2V_VMENTRY_PREFIX(void, drainDebugOutputBuffer, (JNIEnv* env, jobject))
+  JVMCIDebugOutputBuffer::drain(true);
+C2V_END
+
 C2V_VMENTRY(void, writeCompileLogOutput, (JNIEnv* env, jobject, jbyteArray bytes, jint offset, jint length))
   CompileLog*     log = NULL;
   if (THREAD->is_Compiler_thread()) {
@@ -2198,6 +2923,38 @@ C2V_VMENTRY(void, deleteGlobalHandle, (JNIEnv* env, jobject, jlong h))
   }
 }
 
+C2V_VMENTRY(void, deleteGlobalHandles, (JNIEnv* env, jobject, jlongArray handles_obj, jint length))
+  JVMCIPrimitiveArray handles = JVMCIENV->wrap(handles_obj);
+  if (length < 0 || length > JVMCIENV->get_length(handles)) {
+    JVMCI_THROW_MSG(IllegalArgumentException, err_msg("length %d is out of bounds for handle array of length %d", length, JVMCIENV->get_length(handles)));
+  }
+  JVMCIRuntime* runtime = JVMCIENV->runtime();
+  for (int i = 0; i < length; i++) {
+    jobject handle = (jobject)(address) JVMCIENV->get_long_at(handles, i);
+    if (handle != NULL) {
+      runtime->destroy_global(handle);
+    }
+  }
+C2V_END
+
+C2V_VMENTRY(void, createGlobalHandlesForTesting, (JNIEnv* env, jobject, jobject object, jlongArray handles_obj, jint length))
+  if (!UnlockDiagnosticVMOptions) {
+    JVMCI_THROW_MSG(UnsupportedOperationException, "creating global handles for testing requires -XX:+UnlockDiagnosticVMOptions");
+  }
+  if (!JVMCIENV->is_hotspot()) {
+    JVMCI_THROW_MSG(UnsupportedOperationException, "global handles can only be created for objects in the HotSpot heap");
+  }
+  JVMCIPrimitiveArray handles = JVMCIENV->wrap(handles_obj);
+  if (length < 0 || length > JVMCIENV->get_length(handles)) {
+    JVMCI_THROW_MSG(IllegalArgumentException, err_msg("length %d is out of bounds for handle array of length %d", length, JVMCIENV->get_length(handles)));
+  }
+  Handle obj(THREAD, JNIHandles::resolve(object));
+  JVMCIRuntime* runtime = JVMCIENV->runtime();
+  for (int i = 0; i < length; i++) {
+    JVMCIENV->put_long_at(handles, i, (jlong)(address) runtime->make_global(obj));
+  }
+C2V_END
+
 static void requireJVMCINativeLibrary(JVMCI_TRAPS) {
   if (!UseJVMCINativeLibrary) {
     JVMCI_THROW_MSG(UnsupportedOperationException, "JVMCI shared library is not enabled (requires -XX:+UseJVMCINativeLibrary)");
@@ -2667,8 +3424,13 @@ JNINativeMethod CompilerToVM::methods[] = {
   {CC "lookupSignatureInPool",                        CC "(" HS_CONSTANT_POOL "I)" STRING,                                                  FN_PTR(lookupSignatureInPool)},
   {CC "lookupKlassRefIndexInPool",                    CC "(" HS_CONSTANT_POOL "I)I",                                                        FN_PTR(lookupKlassRefIndexInPool)},
   {CC "lookupKlassInPool",                            CC "(" HS_CONSTANT_POOL "I)Ljava/lang/Object;",                                       FN_PTR(lookupKlassInPool)},
+  {CC "lookupKlassesInPool",                          CC "(" HS_CONSTANT_POOL "[I[" OBJECT ")V",                                            FN_PTR(lookupKlassesInPool)},
+  {CC "lookupNamesInPool",                            CC "(" HS_CONSTANT_POOL "[I[" STRING ")V",                                            FN_PTR(lookupNamesInPool)},
+  {CC "lookupSignaturesInPool",                       CC "(" HS_CONSTANT_POOL "[I[" STRING ")V",                                            FN_PTR(lookupSignaturesInPool)},
+  {CC "lookupKlassRefIndexesInPool",                  CC "(" HS_CONSTANT_POOL "[I[I)V",                                                     FN_PTR(lookupKlassRefIndexesInPool)},
   {CC "lookupAppendixInPool",                         CC "(" HS_CONSTANT_POOL "I)" OBJECTCONSTANT,                                          FN_PTR(lookupAppendixInPool)},
   {CC "lookupMethodInPool",                           CC "(" HS_CONSTANT_POOL "IB)" HS_RESOLVED_METHOD,                                     FN_PTR(lookupMethodInPool)},
+  {CC "lookupMethodsInPool",                          CC "(" HS_CONSTANT_POOL "[I[B[" HS_RESOLVED_METHOD ")V",                              FN_PTR(lookupMethodsInPool)},
   {CC "constantPoolRemapInstructionOperandFromCache", CC "(" HS_CONSTANT_POOL "I)I",                                                        FN_PTR(constantPoolRemapInstructionOperandFromCache)},
   {CC "resolveConstantInPool",                        CC "(" HS_CONSTANT_POOL "I)" OBJECTCONSTANT,                                          FN_PTR(resolveConstantInPool)},
   {CC "resolvePossiblyCachedConstantInPool",          CC "(" HS_CONSTANT_POOL "I)" OBJECTCONSTANT,                                          FN_PTR(resolvePossiblyCachedConstantInPool)},
@@ -2688,28 +3450,40 @@ JNINativeMethod CompilerToVM::methods[] = {
   {CC "getConstantPool",                              CC "(" METASPACE_OBJECT ")" HS_CONSTANT_POOL,                                         FN_PTR(getConstantPool)},
   {CC "getResolvedJavaType0",                         CC "(Ljava/lang/Object;JZ)" HS_RESOLVED_KLASS,                                        FN_PTR(getResolvedJavaType0)},
   {CC "readConfiguration",                            CC "()[" OBJECT,                                                                      FN_PTR(readConfiguration)},
-  {CC "installCode",                                  CC "(" TARGET_DESCRIPTION HS_COMPILED_CODE INSTALLED_CODE "J[B)I",                    FN_PTR(installCode)},
+  {CC "installCode0",                                 CC "(" TARGET_DESCRIPTION HS_COMPILED_CODE INSTALLED_CODE "J[B[B[" OBJECT ")I",       FN_PTR(installCode0)},
   {CC "getMetadata",                                  CC "(" TARGET_DESCRIPTION HS_COMPILED_CODE HS_METADATA ")I",                          FN_PTR(getMetadata)},
   {CC "resetCompilationStatistics",                   CC "()V",                                                                             FN_PTR(resetCompilationStatistics)},
+  {CC "getCodeCacheStatistics",                       CC "([J)V",                                                                           FN_PTR(getCodeCacheStatistics)},
+  {CC "getCodeCacheUsedBytes",                        CC "()J",                                                                             FN_PTR(getCodeCacheUsedBytes)},
+  {CC "getCodeStates",                                CC "([J[I[I)V",                                                                       FN_PTR(getCodeStates)},
   {CC "disassembleCodeBlob",                          CC "(" INSTALLED_CODE ")" STRING,                                                     FN_PTR(disassembleCodeBlob)},
   {CC "executeHotSpotNmethod",                        CC "([" OBJECT HS_NMETHOD ")" OBJECT,                                                 FN_PTR(executeHotSpotNmethod)},
   {CC "getLineNumberTable",                           CC "(" HS_RESOLVED_METHOD ")[J",                                                      FN_PTR(getLineNumberTable)},
   {CC "getLocalVariableTableStart",                   CC "(" HS_RESOLVED_METHOD ")J",                                                       FN_PTR(getLocalVariableTableStart)},
   {CC "getLocalVariableTableLength",                  CC "(" HS_RESOLVED_METHOD ")I",                                                       FN_PTR(getLocalVariableTableLength)},
+  {CC "getMethodMetadata",                            CC "([" HS_RESOLVED_METHOD "I[[B[[J[J)V",                                             FN_PTR(getMethodMetadata)},
   {CC "reprofile",                                    CC "(" HS_RESOLVED_METHOD ")V",                                                       FN_PTR(reprofile)},
   {CC "invalidateHotSpotNmethod",                     CC "(" HS_NMETHOD ")V",                                                               FN_PTR(invalidateHotSpotNmethod)},
   {CC "collectCounters",                              CC "()[J",                                                                            FN_PTR(collectCounters)},
+  {CC "collectCallCounters",                          CC "()[" OBJECT,                                                                      FN_PTR(collectCallCounters)},
   {CC "getCountersSize",                              CC "()I",                                                                             FN_PTR(getCountersSize)},
   {CC "setCountersSize",                              CC "(I)Z",                                                                            FN_PTR(setCountersSize)},
+  {CC "createPerfDataLong",                           CC "(" STRING "Z)J",                                                                  FN_PTR(createPerfDataLong)},
   {CC "allocateCompileId",                            CC "(" HS_RESOLVED_METHOD "I)I",                                                      FN_PTR(allocateCompileId)},
+  {CC "getCompileQueueTime",                          CC "(J)J",                                                                            FN_PTR(getCompileQueueTime)},
+  {CC "getThreadAllocatedBytes",                      CC "()J",                                                                             FN_PTR(getThreadAllocatedBytes)},
   {CC "isMature",                                     CC "(" METASPACE_METHOD_DATA ")Z",                                                    FN_PTR(isMature)},
   {CC "hasCompiledCodeForOSR",                        CC "(" HS_RESOLVED_METHOD "II)Z",                                                     FN_PTR(hasCompiledCodeForOSR)},
   {CC "getSymbol",                                    CC "(J)" STRING,                                                                      FN_PTR(getSymbol)},
   {CC "iterateFrames",                                CC "([" RESOLVED_METHOD "[" RESOLVED_METHOD "I" INSPECTED_FRAME_VISITOR ")" OBJECT,   FN_PTR(iterateFrames)},
+  {CC "iterateFramesBatch",                           CC "([" RESOLVED_METHOD "[" RESOLVED_METHOD "IJI[" HS_STACK_FRAME_REF ")I",           FN_PTR(iterateFramesBatch)},
   {CC "materializeVirtualObjects",                    CC "(" HS_STACK_FRAME_REF "Z)V",                                                      FN_PTR(materializeVirtualObjects)},
+  {CC "decodeFrameLocals",                            CC "(" HS_STACK_FRAME_REF ")V",                                                       FN_PTR(decodeFrameLocals)},
   {CC "shouldDebugNonSafepoints",                     CC "()Z",                                                                             FN_PTR(shouldDebugNonSafepoints)},
   {CC "writeDebugOutput",                             CC "(JIZ)V",                                                                          FN_PTR(writeDebugOutput)},
   {CC "flushDebugOutput",                             CC "()V",                                                                             FN_PTR(flushDebugOutput)},
+  {CC "registerDebugOutputBuffer",                    CC "(JI)Z",                                                                           FN_PTR(registerDebugOutputBuffer)},
+  {CC "drainDebugOutputBuffer",                       CC "()V",                                                                             FN_PTR(drainDebugOutputBuffer)},
   {CC "methodDataProfileDataSize",                    CC "(JI)I",                                                                           FN_PTR(methodDataProfileDataSize)},
   {CC "getFingerprint",                               CC "(J)J",                                                                            FN_PTR(getFingerprint)},
   {CC "getHostClass",                                 CC "(" HS_RESOLVED_KLASS ")" HS_RESOLVED_KLASS,                                       FN_PTR(getHostClass)},
@@ -2740,6 +3514,8 @@ JNINativeMethod CompilerToVM::methods[] = {
   {CC "arrayBaseOffset",                              CC "(Ljdk/vm/ci/meta/JavaKind;)I",                                                    FN_PTR(arrayBaseOffset)},
   {CC "arrayIndexScale",                              CC "(Ljdk/vm/ci/meta/JavaKind;)I",                                                    FN_PTR(arrayIndexScale)},
   {CC "deleteGlobalHandle",                           CC "(J)V",                                                                            FN_PTR(deleteGlobalHandle)},
+  {CC "deleteGlobalHandles",                          CC "([JI)V",                                                                          FN_PTR(deleteGlobalHandles)},
+  {CC "createGlobalHandlesForTesting",                CC "(" OBJECT "[JI)V",                                                                FN_PTR(createGlobalHandlesForTesting)},
   {CC "registerNativeMethods",                        CC "(" CLASS ")[J",                                                                   FN_PTR(registerNativeMethods)},
   {CC "isCurrentThreadAttached",                      CC "()Z",                                                                             FN_PTR(isCurrentThreadAttached)},
   {CC "getCurrentJavaThread",                         CC "()J",                                                                             FN_PTR(getCurrentJavaThread)},
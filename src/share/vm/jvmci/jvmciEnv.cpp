@@ -1302,6 +1302,10 @@ BasicType JVMCIEnv::kindToBasicType(JVMCIObject kind, JVMCI_TRAPS) {
     JVMCI_THROW_(NullPointerException, T_ILLEGAL);
   }
   jchar ch = get_JavaKind_typeChar(kind);
+  return typeCharToBasicType(ch, JVMCIENV);
+}
+
+BasicType JVMCIEnv::typeCharToBasicType(jchar ch, JVMCI_TRAPS) {
   switch(ch) {
     case 'Z': return T_BOOLEAN;
     case 'B': return T_BYTE;
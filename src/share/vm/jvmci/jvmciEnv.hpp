@@ -305,6 +305,7 @@ public:
   JVMCIObject call_JavaConstant_forPrimitive(JVMCIObject kind, jlong value, JVMCI_TRAPS);
 
   BasicType kindToBasicType(JVMCIObject kind, JVMCI_TRAPS);
+  BasicType typeCharToBasicType(jchar ch, JVMCI_TRAPS);
 
 #define DO_THROW(name) \
   void throw_##name(const char* msg = NULL);
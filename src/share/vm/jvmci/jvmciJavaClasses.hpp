@@ -331,6 +331,8 @@
     object_field(HotSpotStackFrameReference, method, "Ljdk/vm/ci/hotspot/HotSpotResolvedJavaMethod;")         \
     objectarray_field(HotSpotStackFrameReference, locals, "[Ljava/lang/Object;")                              \
     primarray_field(HotSpotStackFrameReference, localIsVirtual, "[Z")                                         \
+    object_field(HotSpotStackFrameReference, physicalFrame, "Ljdk/vm/ci/hotspot/HotSpotStackFrameReference;") \
+    objectarray_field(HotSpotStackFrameReference, virtualObjects, "[Ljava/lang/Object;")                      \
   end_class                                                                                                   \
   start_class(HotSpotMetaData, jdk_vm_ci_hotspot_HotSpotMetaData)                                             \
     primarray_field(HotSpotMetaData, pcDescBytes, "[B")                                                       \
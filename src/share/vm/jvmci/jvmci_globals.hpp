@@ -102,6 +102,10 @@
   product(bool, JVMCICountersExcludeCompiler, true,                         \
           "Exclude JVMCI compiler threads from benchmark counters")         \
                                                                             \
+  product(bool, JVMCICountCompilerToVMCalls, false,                         \
+          "Count the calls to and the time spent in each CompilerToVM "     \
+          "native method")                                                  \
+                                                                            \
   develop(bool, JVMCIUseFastLocking, true,                                  \
           "Use fast inlined locking code")                                  \
                                                                             \